@@ -0,0 +1,97 @@
+package kontoverwaltung;
+
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ *
+ * Fhrt die Kunden und Konten fr das Bankabbild einer Bank ber die Benachrichtigungen der Bank (siehe
+ * BankBeobachter) mit. Jede nderung erzeugt ein neues Abbild und setzt es per compareAndSet als aktuelles Abbild
+ * ein. Haben zwei Threads gleichzeitig ein neues Abbild erzeugt, wiederholt der unterlegene seine nderung auf dem
+ * Abbild des anderen. Es gibt also keine Sperre, und ein Leser bekommt immer ein vollstndiges Abbild.
+ *
+ * ndern sich Stammdaten, Adresse oder Geburtstag eines Kunden oder kommt ein Konto hinzu, wird der Eintrag des Kunden aus seinem aktuellen Stand neu
+ * aufgebaut. Kontostnde werden hier nicht mitgefhrt, sie kommen ber einen Stand (siehe Abbildstaende) in das Abbild.
+ * Buchungen kosten daher keine Kopie im Abbild.
+ *
+ * @author aschwegmann
+ * @version 1.0
+ *
+ * @see Bankabbild
+ * @see Bank
+ */
+class Abbildpflege implements BankBeobachter {
+
+	private final AtomicReference<Bankabbild> aktuell = new AtomicReference<Bankabbild>(Bankabbild.LEER);
+
+	/**
+	 * Gibt das aktuelle Abbild zurck
+	 * @return
+	 * 			das Abbild
+	 */
+	Bankabbild getAbbild() {
+		return aktuell.get();
+	}
+
+	@Override
+	public void kundeAngelegt(Kunde kunde) {
+		eintragen(kunde);
+	}
+
+	/*
+	 * Trgt alle Kunden in ein Abbild ein und setzt nur dieses ein, ein Leser sieht also alle oder keinen. Ihre
+	 * Konten sind damit ebenfalls eingetragen.
+	 */
+	@Override
+	public void kundenAngelegt(Kunde[] kunden) {
+		Bankabbild alt;
+		Bankabbild neu;
+		do {
+			alt = aktuell.get();
+			neu = alt;
+			for (Kunde kunde : kunden) {
+				neu = neu.mitKunde(kunde);
+			}
+		} while (!aktuell.compareAndSet(alt, neu));
+	}
+
+	@Override
+	public void kontoAngelegt(Kunde kunde, Konto konto) {
+		if (!aktuell.get().enthaeltKonto(kunde.getKundennummer(), konto.getIban())) { // beim Anmelden schon mit dem Kunden eingetragen
+			eintragen(kunde);
+		}
+	}
+
+	@Override
+	public void kontoEntfernt(Kunde kunde, Konto konto) {
+		eintragen(kunde);
+	}
+
+	@Override
+	public void adresseGeaendert(Kunde kunde, Adresse alt, Adresse neu) {
+		eintragen(kunde);
+	}
+
+	@Override
+	public void geburtstagGeaendert(Privatkunde kunde, LocalDate alt, LocalDate neu) {
+		eintragen(kunde);
+	}
+
+	@Override
+	public void stammdatenGeaendert(Kunde kunde) {
+		eintragen(kunde);
+	}
+
+	/*
+	 * Liest den Kunden bei jedem Versuch neu, damit eine zwischenzeitliche nderung nicht mit einem lteren
+	 * Stand berschrieben wird
+	 */
+	private void eintragen(Kunde kunde) {
+		Bankabbild alt;
+		Bankabbild neu;
+		do {
+			alt = aktuell.get();
+			neu = alt.mitKunde(kunde);
+		} while (!aktuell.compareAndSet(alt, neu));
+	}
+}
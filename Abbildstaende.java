@@ -0,0 +1,149 @@
+package kontoverwaltung;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ *
+ * Hlt fr Abbilder einer Bank (siehe Bankabbild) eingefrorene Stnde der Kontostnde. Die Kontostnde selbst
+ * stehen in den Konten. Ein Stand kostet beim Anlegen nur das Hochzhlen der Epoche. Wird danach ein Konto zum
+ * ersten Mal gendert, sichert das Konto vorher seinen alten Kontostand im Stand (siehe sichern), der Stand liest
+ * das Konto dann von dort statt aus dem Konto. Jedes Konto merkt sich dazu die Epoche seiner letzten nderung.
+ * Stnde werden nur schwach referenziert und verschwinden mit ihrem Abbild.
+ *
+ * Damit ein Stand nie zwischen zwei zusammengehrigen nderungen angelegt wird (z.B. Abbuchung und Gutschrift
+ * einer berweisung), laufen nderungen als Buchung unter dem gemeinsamen Teil einer StampedLock, das Anlegen
+ * eines Standes unter ihrem exklusiven Teil. Buchungen behindern sich also gegenseitig nicht, und ein Stand wartet
+ * nur auf die gerade laufenden Buchungen. Innerhalb einer Buchung ndert sich die Epoche daher nicht.
+ *
+ * @author aschwegmann
+ * @version 1.0
+ *
+ * @see Konto
+ * @see Bankabbild
+ */
+class Abbildstaende {
+
+	private final StampedLock sperre = new StampedLock();	// gemeinsam fr Buchungen, exklusiv fr stand()
+	private volatile int epoche;	// wird mit jedem neuen Stand erhht
+	private volatile List<WeakReference<Stand>> staende = Collections.emptyList();
+
+	/**
+	 * Ein eingefrorener Stand aller Kontostnde. Konten, die seit dem Anlegen des Standes gendert wurden, stehen
+	 * mit ihrem alten Wert in vorher.
+	 */
+	final class Stand {
+
+		private final int epoche;
+		private final Map<Konto, Long> vorher = new ConcurrentHashMap<Konto, Long>();
+
+		private Stand(int epoche) {
+			this.epoche = epoche;
+		}
+
+		/**
+		 * Gibt den Kontostand des bergebenen Kontos zum Zeitpunkt dieses Standes zurck
+		 * @param konto
+		 * 			ein Konto der Bank
+		 * @return
+		 * 			der Kontostand in Cent
+		 */
+		long getCent(Konto konto) {
+			long cent = konto.getCent();	// zuerst: ist das schon der neue Wert, steht der alte bereits in vorher
+			Long alt = vorher.get(konto);
+			return (alt != null) ? alt : cent;
+		}
+
+		/**
+		 * Gibt die Anzahl der seit dem Anlegen dieses Standes gesicherten Kontostnde zurck
+		 * @return
+		 * 			Anzahl der gesicherten Konten
+		 */
+		int getGesichert() {
+			return vorher.size();
+		}
+	}
+
+	/**
+	 * Legt einen neuen Stand an, der die Kontostnde zum jetzigen Zeitpunkt festhlt
+	 * @return
+	 * 			der Stand
+	 */
+	synchronized Stand stand() {
+		List<WeakReference<Stand>> offen = new ArrayList<WeakReference<Stand>>();
+		for (WeakReference<Stand> ref : staende) {
+			if (ref.get() != null) {
+				offen.add(ref);
+			}
+		}
+		long stempel = sperre.writeLock();
+		try {
+			Stand stand = new Stand(epoche + 1);
+			offen.add(new WeakReference<Stand>(stand));
+			staende = offen;
+			epoche = stand.epoche;
+			return stand;
+		} finally {
+			sperre.unlockWrite(stempel);
+		}
+	}
+
+	/**
+	 * Beginnt eine Buchung. Bis zu buchungBeenden wird kein Stand angelegt. Buchungen drfen nicht verschachtelt
+	 * werden, da eine zweite Buchung im selben Thread auf einen wartenden Stand warten wrde.
+	 * @return
+	 * 			der Stempel fr buchungBeenden
+	 */
+	long buchungBeginnen() {
+		return sperre.readLock();
+	}
+
+	/**
+	 * Beendet eine Buchung
+	 * @param stempel
+	 * 			der Stempel aus buchungBeginnen
+	 */
+	void buchungBeenden(long stempel) {
+		sperre.unlockRead(stempel);
+	}
+
+	/**
+	 * Gibt die aktuelle Epoche zurck
+	 * @return
+	 * 			die Epoche des zuletzt angelegten Standes
+	 */
+	int getEpoche() {
+		return epoche;
+	}
+
+	/**
+	 * Sichert den alten Kontostand eines Kontos fr alle Stnde, die seit seiner letzten nderung angelegt wurden.
+	 * Wird vom Konto unter seiner Sperre innerhalb einer Buchung vor dem Schreiben des neuen Kontostands
+	 * aufgerufen.
+	 * @param konto
+	 * 			das Konto
+	 * @param zuletzt
+	 * 			die Epoche der letzten nderung des Kontos
+	 * @param alt
+	 * 			der bisherige Kontostand in Cent
+	 * @return
+	 * 			die Epoche, die das Konto als Epoche seiner letzten nderung bernimmt
+	 */
+	int sichern(Konto konto, int zuletzt, long alt) {
+		int e = epoche;
+		if (zuletzt != e) {
+			for (WeakReference<Stand> ref : staende) {
+				Stand stand = ref.get();
+				if (stand != null && stand.epoche > zuletzt) {
+					stand.vorher.putIfAbsent(konto, alt);
+				}
+			}
+		}
+		return e;
+	}
+}
@@ -0,0 +1,474 @@
+package kontoverwaltung;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ *
+ * Eine Abfrage ber die Kunden einer Bank, die mehrere Bedingungen mit UND verknpft, z.B. "Firmenkunden mit PLZ
+ * 50xxx und einem Konto ber 100.000" oder "Privatkunden, geboren vor 1960, mit mehr als drei Konten". Eine
+ * Abfrage wird ber Bank.query() angelegt und mit den Bedingungsmethoden zusammengesetzt:
+ *
+ * <pre>
+ * List&lt;Kunde&gt; treffer = bank.query().nurTyp(Firmenkunde.class).plzZwischen(50000, 50999)
+ * 		.kontoMitSaldoAb(100000).ausfuehren();
+ * </pre>
+ *
+ * Beim Ausfhren wird fr jede Bedingung, zu der es einen Index gibt (Postleitzahl und Ort im AdressIndex,
+ * Geburtsdatum im GeburtstagsIndex, Kontostnde und Summen in der Rangliste), gezhlt, wie viele Kunden sie
+ * liefert. Die Bedingung mit den wenigsten Kunden liefert die Kandidaten, alle brigen Bedingungen werden nur
+ * noch auf diese Kandidaten angewandt. Die Zhlung eines Index bricht ab, sobald er mehr Kunden liefert als der
+ * bisher beste. Liefert auch der beste Index mehr als INDEX_ANTEIL aller Kunden, ist ein Durchlauf ber alle
+ * Kunden billiger als das Einsammeln ber den Index. Er luft dann parallel ber alle Prozessorkerne.
+ *
+ * erklaeren() gibt den gewhlten Plan mit den Zhlungen aller Indizes aus, ohne die Abfrage auszufhren.
+ *
+ * Eine Abfrage liest die aktuellen Kunden der Bank, nicht ein Abbild (siehe Bank.snapshot()). Fr den Durchlauf
+ * wird die Kundenliste unter der Sperre der Bank in ein Array kopiert und danach ohne Sperre gefiltert, Kunden,
+ * die whrenddessen angelegt werden, fehlen also im Ergebnis. Die Indizes sind selbst threadsicher.
+ *
+ * @author aschwegmann
+ * @version 1.0
+ *
+ * @see Bank#query()
+ */
+public final class Abfrage {
+
+	/**
+	 * Anteil der Kunden, bis zu dem ein Index einem Durchlauf ber alle Kunden vorgezogen wird
+	 */
+	final static double INDEX_ANTEIL = 0.25;
+
+	private final Set<Kunde> kunden;
+	private final AdressIndex adressIndex;
+	private final GeburtstagsIndex geburtstagsIndex;
+	private final Rangliste rangliste;
+	private final List<Bedingung> bedingungen = new ArrayList<Bedingung>();
+
+	/*
+	 * Eine Bedingung prft einen einzelnen Kunden
+	 */
+	private abstract class Bedingung implements Predicate<Kunde> {
+
+		private final String beschreibung;
+
+		private Bedingung(String beschreibung) {
+			this.beschreibung = beschreibung;
+		}
+
+		@Override
+		public String toString() {
+			return beschreibung;
+		}
+	}
+
+	/*
+	 * Eine Bedingung mit Index, die auerdem zhlen kann, wie viele Kunden sie erfllen, und diese Kunden liefert
+	 */
+	private abstract class IndexBedingung extends Bedingung {
+
+		private IndexBedingung(String beschreibung) {
+			super(beschreibung);
+		}
+
+		/*
+		 * Name des Index
+		 */
+		abstract String index();
+
+		/*
+		 * Anzahl der Kunden, die der Index liefert. Sobald mehr als grenze gezhlt sind, darf abgebrochen und
+		 * irgendeine Zahl ber grenze zurckgegeben werden.
+		 */
+		abstract int zaehlen(int grenze);
+
+		abstract Collection<? extends Kunde> kandidaten();
+	}
+
+	/*
+	 * Der gewhlte Plan: der Index (oder null fr einen Durchlauf), die Zhlungen aller Indizes und die Filter
+	 */
+	private final class Plan {
+		private IndexBedingung index;
+		private int geschaetzt;
+		private final StringBuilder zaehlungen = new StringBuilder();
+	}
+
+	Abfrage(Set<Kunde> kunden, AdressIndex adressIndex, GeburtstagsIndex geburtstagsIndex, Rangliste rangliste) {
+		this.kunden = kunden;
+		this.adressIndex = adressIndex;
+		this.geburtstagsIndex = geburtstagsIndex;
+		this.rangliste = rangliste;
+	}
+
+	/**
+	 * Nur Kunden des bergebenen Typs
+	 * @param typ
+	 * 			Privatkunde.class oder Firmenkunde.class
+	 * @return
+	 * 			diese Abfrage
+	 */
+	public Abfrage nurTyp(Class<? extends Kunde> typ) {
+		bedingungen.add(new Bedingung("Typ " + typ.getSimpleName()) {
+			@Override
+			public boolean test(Kunde kunde) {
+				return typ.isInstance(kunde);
+			}
+		});
+		return this;
+	}
+
+	/**
+	 * Nur Kunden, deren Postleitzahl im bergebenen Bereich liegt
+	 * @param von
+	 * 			kleinste Postleitzahl (einschliesslich)
+	 * @param bis
+	 * 			grte Postleitzahl (einschliesslich)
+	 * @return
+	 * 			diese Abfrage
+	 */
+	public Abfrage plzZwischen(int von, int bis) {
+		bedingungen.add(new IndexBedingung(String.format("PLZ %05d-%05d", von, bis)) {
+			@Override
+			public boolean test(Kunde kunde) {
+				int plz = kunde.getAdresse().getPlz();
+				return von <= plz && plz <= bis;
+			}
+
+			@Override
+			String index() {
+				return "AdressIndex";
+			}
+
+			@Override
+			int zaehlen(int grenze) {
+				return adressIndex.getAnzahlNachPlz(von, bis);
+			}
+
+			@Override
+			Collection<? extends Kunde> kandidaten() {
+				return adressIndex.getKundenNachPlz(von, bis);
+			}
+		});
+		return this;
+	}
+
+	/**
+	 * Nur Kunden im bergebenen Ort. Gross-/Kleinschreibung und die Schreibweise von Umlauten spielen keine Rolle.
+	 * @param ort
+	 * 			der Ort
+	 * @return
+	 * 			diese Abfrage
+	 */
+	public Abfrage ort(String ort) {
+		String gesucht = Normalisierer.normalisiere(ort);
+		bedingungen.add(new IndexBedingung("Ort " + ort) {
+			@Override
+			public boolean test(Kunde kunde) {
+				return Normalisierer.normalisiere(kunde.getAdresse().getOrt()).equals(gesucht);
+			}
+
+			@Override
+			String index() {
+				return "AdressIndex";
+			}
+
+			@Override
+			int zaehlen(int grenze) {
+				return adressIndex.getAnzahlNachOrt(ort);
+			}
+
+			@Override
+			Collection<? extends Kunde> kandidaten() {
+				return adressIndex.getKundenNachOrt(ort);
+			}
+		});
+		return this;
+	}
+
+	/**
+	 * Nur Privatkunden, die im bergebenen Zeitraum geboren wurden
+	 * @param von
+	 * 			frhestes Geburtsdatum (einschliesslich)
+	 * @param bis
+	 * 			sptestes Geburtsdatum (einschliesslich)
+	 * @return
+	 * 			diese Abfrage
+	 */
+	public Abfrage geborenZwischen(LocalDate von, LocalDate bis) {
+		return geboren("geboren " + Privatkunde.DATUMSFORMAT.format(von) + " bis " + Privatkunde.DATUMSFORMAT.format(bis),
+				von, bis);
+	}
+
+	private Abfrage geboren(String beschreibung, LocalDate von, LocalDate bis) {
+		int vonTag = (int) von.toEpochDay();
+		int bisTag = (int) bis.toEpochDay();
+		bedingungen.add(new IndexBedingung(beschreibung) {
+			@Override
+			public boolean test(Kunde kunde) {
+				if (!(kunde instanceof Privatkunde)) {
+					return false;
+				}
+				int tag = ((Privatkunde) kunde).getGeburtsdatumEpochTag();
+				return vonTag <= tag && tag <= bisTag;
+			}
+
+			@Override
+			String index() {
+				return "GeburtstagsIndex";
+			}
+
+			@Override
+			int zaehlen(int grenze) {
+				return geburtstagsIndex.getAnzahlGeborenZwischen(von, bis);
+			}
+
+			@Override
+			Collection<? extends Kunde> kandidaten() {
+				return geburtstagsIndex.getGeborenZwischen(von, bis);
+			}
+		});
+		return this;
+	}
+
+	/**
+	 * Nur Privatkunden, die vor dem bergebenen Tag geboren wurden
+	 * @param datum
+	 * 			der erste Tag, der nicht mehr zhlt
+	 * @return
+	 * 			diese Abfrage
+	 */
+	public Abfrage geborenVor(LocalDate datum) {
+		return geboren("geboren vor " + Privatkunde.DATUMSFORMAT.format(datum), LocalDate.of(1, 1, 1), datum.minusDays(1));
+	}
+
+	/**
+	 * Nur Kunden mit mindestens einem Konto, dessen Kontostand den bergebenen Betrag erreicht
+	 * @param betrag
+	 * 			der Mindestkontostand
+	 * @return
+	 * 			diese Abfrage
+	 */
+	public Abfrage kontoMitSaldoAb(double betrag) {
+		long minCent = Konto.inCent(betrag);
+		bedingungen.add(new IndexBedingung("Konto mit Saldo ab " + Konto.WAEHRUNG.get().format(betrag)) {
+			@Override
+			public boolean test(Kunde kunde) {
+				for (Konto konto : kunde.getKontenArray()) {
+					if (konto.getCent() >= minCent) {
+						return true;
+					}
+				}
+				return false;
+			}
+
+			@Override
+			String index() {
+				return "Rangliste";
+			}
+
+			@Override
+			int zaehlen(int grenze) {
+				return rangliste.zaehleKontenAb(minCent, grenze); // Konten, nicht Kunden: eine obere Schranke
+			}
+
+			@Override
+			Collection<? extends Kunde> kandidaten() {
+				return rangliste.getInhaberAb(minCent);
+			}
+		});
+		return this;
+	}
+
+	/**
+	 * Nur Kunden, deren Kontostnde zusammen den bergebenen Betrag erreichen
+	 * @param betrag
+	 * 			die Mindestsumme
+	 * @return
+	 * 			diese Abfrage
+	 */
+	public Abfrage saldoAb(double betrag) {
+		long minCent = Konto.inCent(betrag);
+		bedingungen.add(new IndexBedingung("Summe der Kontostnde ab " + Konto.WAEHRUNG.get().format(betrag)) {
+			@Override
+			public boolean test(Kunde kunde) {
+				long summe = 0;
+				for (Konto konto : kunde.getKontenArray()) {
+					summe += konto.getCent();
+				}
+				return summe >= minCent;
+			}
+
+			@Override
+			String index() {
+				return "Rangliste";
+			}
+
+			@Override
+			int zaehlen(int grenze) {
+				return rangliste.zaehleKundenAb(minCent, grenze);
+			}
+
+			@Override
+			Collection<? extends Kunde> kandidaten() {
+				return rangliste.getKundenAb(minCent);
+			}
+		});
+		return this;
+	}
+
+	/**
+	 * Nur Kunden mit mindestens der bergebenen Anzahl an Konten
+	 * @param min
+	 * 			kleinste Anzahl (einschliesslich)
+	 * @return
+	 * 			diese Abfrage
+	 */
+	public Abfrage mindestensKonten(int min) {
+		return konten("mindestens " + min + " Konten", min, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Nur Kunden, deren Anzahl an Konten im bergebenen Bereich liegt
+	 * @param min
+	 * 			kleinste Anzahl (einschliesslich)
+	 * @param max
+	 * 			grte Anzahl (einschliesslich)
+	 * @return
+	 * 			diese Abfrage
+	 */
+	public Abfrage kontenZwischen(int min, int max) {
+		return konten(min + " bis " + max + " Konten", min, max);
+	}
+
+	private Abfrage konten(String beschreibung, int min, int max) {
+		bedingungen.add(new Bedingung(beschreibung) {
+			@Override
+			public boolean test(Kunde kunde) {
+				int anzahl = kunde.getKontenArray().length;
+				return min <= anzahl && anzahl <= max;
+			}
+		});
+		return this;
+	}
+
+	/**
+	 * Nur Kunden, die die bergebene Bedingung erfllen. Fr Bedingungen, die keine der brigen Methoden abdeckt.
+	 * @param beschreibung
+	 * 			Beschreibung fr erklaeren()
+	 * @param bedingung
+	 * 			die Bedingung
+	 * @return
+	 * 			diese Abfrage
+	 */
+	public Abfrage wo(String beschreibung, Predicate<? super Kunde> bedingung) {
+		bedingungen.add(new Bedingung(beschreibung) {
+			@Override
+			public boolean test(Kunde kunde) {
+				return bedingung.test(kunde);
+			}
+		});
+		return this;
+	}
+
+	/*
+	 * Zhlt alle Indizes und whlt den mit den wenigsten Kunden, oder null fr einen Durchlauf
+	 */
+	private Plan planen() {
+		Plan plan = new Plan();
+		int alle = kunden.size();
+		int grenze = (int) (alle * INDEX_ANTEIL);
+		plan.geschaetzt = alle;
+		for (Bedingung b : bedingungen) {
+			if (!(b instanceof IndexBedingung)) {
+				continue;
+			}
+			IndexBedingung bedingung = (IndexBedingung) b;
+			int schranke = Math.min(grenze, plan.geschaetzt);
+			int anzahl = bedingung.zaehlen(schranke);
+			plan.zaehlungen.append(String.format("  %-45s %-17s %s%n", bedingung, bedingung.index(),
+					(anzahl > schranke) ? String.format("> %,d", schranke) : String.format("%,d", anzahl)));
+			if (anzahl <= grenze && (plan.index == null || anzahl < plan.geschaetzt)) {
+				plan.index = bedingung;
+				plan.geschaetzt = anzahl;
+			}
+		}
+		return plan;
+	}
+
+	/**
+	 * Fhrt die Abfrage aus
+	 * @return
+	 * 			Liste der Kunden, die alle Bedingungen erfllen, aufsteigend nach Kundennummer sortiert
+	 */
+	public List<Kunde> ausfuehren() {
+		Plan plan = planen();
+		List<Kunde> treffer;
+		if (plan.index == null) {
+			Predicate<Kunde> alle = kunde -> true;
+			for (Bedingung bedingung : bedingungen) {
+				alle = alle.and(bedingung);
+			}
+			Kunde[] stand;
+			synchronized (kunden) { // Kundenbestand darf nur unter der Sperre der Bank durchlaufen werden
+				stand = kunden.toArray(new Kunde[kunden.size()]);
+			}
+			treffer = Arrays.stream(stand).parallel().filter(alle).collect(Collectors.toList());
+		} else {
+			treffer = new ArrayList<Kunde>();
+			kandidaten:
+			for (Kunde kunde : plan.index.kandidaten()) {
+				for (Bedingung bedingung : bedingungen) {
+					if (bedingung != plan.index && !bedingung.test(kunde)) {
+						continue kandidaten;
+					}
+				}
+				treffer.add(kunde);
+			}
+		}
+		Collections.sort(treffer);
+		return treffer;
+	}
+
+	/**
+	 * Beschreibt, wie die Abfrage ausgefhrt wrde: die Zhlungen der Indizes, den gewhlten Zugriff und die
+	 * Bedingungen, die danach noch einzeln geprft werden. Die Abfrage wird dabei nicht ausgefhrt.
+	 * @return
+	 * 			der Plan als mehrzeiliger Text
+	 */
+	public String erklaeren() {
+		Plan plan = planen();
+		StringBuilder text = new StringBuilder("Abfrage: ");
+		text.append(bedingungen.isEmpty() ? "alle Kunden" : bedingungen.stream().map(Bedingung::toString)
+				.collect(Collectors.joining(" UND ")));
+		text.append(String.format("%n"));
+		if (plan.zaehlungen.length() > 0) {
+			text.append(String.format("Zhlung der Indizes (Grenze %.0f%% von %,d Kunden):%n", INDEX_ANTEIL * 100,
+					kunden.size()));
+			text.append(plan.zaehlungen);
+		}
+		if (plan.index == null) {
+			text.append(String.format("Plan: paralleler Durchlauf ber %,d Kunden", kunden.size()));
+		} else {
+			text.append(String.format("Plan: %s ber %s, hchstens %,d Kandidaten", plan.index, plan.index.index(),
+					plan.geschaetzt));
+		}
+		List<String> filter = new ArrayList<String>();
+		for (Bedingung bedingung : bedingungen) {
+			if (bedingung != plan.index) {
+				filter.add(bedingung.toString());
+			}
+		}
+		if (!filter.isEmpty()) {
+			text.append(String.format("%n  danach Filter: %s", String.join(", ", filter)));
+		}
+		return text.append(String.format("%n")).toString();
+	}
+}
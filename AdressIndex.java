@@ -0,0 +1,110 @@
+package kontoverwaltung;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ *
+ * Sekundrindex ber die Adressen der Kunden einer Bank. Die Postleitzahl wird in einem sortierten
+ * int-Index gehalten, so dass auch Bereichsabfragen mglich sind. Der Ort wird normalisiert
+ * (siehe Normalisierer) und in einer Hash-Map abgelegt, so dass "Kln", "KOELN" und "kln " denselben
+ * Eintrag finden.
+ *
+ * Der Index wird beim Anlegen eines Kunden und bei jeder Adressnderung ber Kunde.setAdresse aktualisiert.
+ *
+ * @author aschwegmann
+ * @version 1.0
+ *
+ * @see Bank
+ * @see SortierterIntIndex
+ */
+class AdressIndex implements BankBeobachter {
+
+	private final SortierterIntIndex<Kunde> plzIndex = new SortierterIntIndex<Kunde>();
+	private final Map<String, Set<Kunde>> ortIndex = new ConcurrentHashMap<String, Set<Kunde>>();
+
+	@Override
+	public void kundeAngelegt(Kunde kunde) {
+		einfuegen(kunde, kunde.getAdresse());
+	}
+
+	@Override
+	public void adresseGeaendert(Kunde kunde, Adresse alt, Adresse neu) {
+		if (alt != null) {
+			plzIndex.remove(alt.getPlz(), kunde);
+			Set<Kunde> menge = ortIndex.get(Normalisierer.normalisiere(alt.getOrt()));
+			if (menge != null) {
+				menge.remove(kunde);
+			}
+		}
+		einfuegen(kunde, neu);
+	}
+
+	private void einfuegen(Kunde kunde, Adresse adresse) {
+		plzIndex.add(adresse.getPlz(), kunde);
+		String ort = Normalisierer.normalisiere(adresse.getOrt());
+		Set<Kunde> menge = ortIndex.get(ort);
+		if (menge == null) {
+			ortIndex.putIfAbsent(ort, ConcurrentHashMap.<Kunde> newKeySet());
+			menge = ortIndex.get(ort);
+		}
+		menge.add(kunde);
+	}
+
+	/**
+	 * Gibt alle Kunden zurck, deren Postleitzahl im bergebenen Bereich liegt
+	 * @param von
+	 * 			kleinste Postleitzahl (einschliesslich)
+	 * @param bis
+	 * 			grte Postleitzahl (einschliesslich)
+	 * @return
+	 * 			Liste der Kunden, aufsteigend nach Postleitzahl
+	 */
+	List<Kunde> getKundenNachPlz(int von, int bis) {
+		return plzIndex.bereich(von, bis);
+	}
+
+	/**
+	 * Zhlt die Kunden, deren Postleitzahl im bergebenen Bereich liegt
+	 * @param von
+	 * 			kleinste Postleitzahl (einschliesslich)
+	 * @param bis
+	 * 			grte Postleitzahl (einschliesslich)
+	 * @return
+	 * 			Anzahl der Kunden
+	 */
+	int getAnzahlNachPlz(int von, int bis) {
+		return plzIndex.anzahl(von, bis);
+	}
+
+	/**
+	 * Zhlt die Kunden, die im bergebenen Ort wohnen bzw. ihren Sitz haben
+	 * @param ort
+	 * 			der Ort, Gross-/Kleinschreibung und Umlautschreibweise spielen keine Rolle
+	 * @return
+	 * 			Anzahl der Kunden
+	 */
+	int getAnzahlNachOrt(String ort) {
+		Set<Kunde> menge = ortIndex.get(Normalisierer.normalisiere(ort));
+		return (menge == null) ? 0 : menge.size();
+	}
+
+	/**
+	 * Gibt alle Kunden zurck, die im bergebenen Ort wohnen bzw. ihren Sitz haben
+	 * @param ort
+	 * 			der Ort, Gross-/Kleinschreibung und Umlautschreibweise spielen keine Rolle
+	 * @return
+	 * 			Liste der Kunden
+	 */
+	List<Kunde> getKundenNachOrt(String ort) {
+		Set<Kunde> menge = ortIndex.get(Normalisierer.normalisiere(ort));
+		if (menge == null) {
+			return Collections.emptyList();
+		}
+		return new ArrayList<Kunde>(menge);
+	}
+}
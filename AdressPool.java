@@ -0,0 +1,123 @@
+package kontoverwaltung;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ *
+ * Fliegengewicht-Pool fr Adressen. Viele Kunden wohnen im selben Ort, Familien und Firmen im selben Gebude teilen
+ * sich sogar die ganze Anschrift. Ohne Pool hlt trotzdem jeder Kunde ein eigenes Adress-Objekt mit eigenen Strings
+ * fr Strae, Zusatz und Ort.
+ *
+ * Der Pool hlt jede inhaltlich verschiedene Adresse nur einmal, hnlich wie die Bank die bekannten
+ * Ansprechpartner teilt. Die Bestandteile (Strae, Zusatz, Ort) werden zustzlich einzeln geteilt, so dass z.B.
+ * "Kln" auch bei verschiedenen Straen nur einmal im Speicher liegt. Eine geteilte Adresse kann nicht mehr
+ * gendert werden, siehe Adresse.
+ *
+ * Jede geteilte Adresse zhlt, wie viele Kunden sie verwenden. Zieht der letzte Kunde um (siehe adresseGeaendert),
+ * wird die Adresse aus dem Pool entfernt. Die geteilten Strings werden nicht einzeln gezhlt: Sind seit dem letzten
+ * Aufrumen mehr Adressen entfernt worden, als noch im Pool stehen, werden sie aus den verbliebenen Adressen neu
+ * gesammelt.
+ *
+ * Der Pool wird nicht gespeichert, sondern beim Laden der Bank aus den vorhandenen Adressen neu aufgebaut.
+ * Alle Methoden sind synchronisiert.
+ *
+ * @author aschwegmann
+ * @version 1.0
+ *
+ * @see Adresse
+ * @see Bank
+ */
+class AdressPool implements BankBeobachter {
+
+	private final Map<Adresse, Adresse> adressen = new HashMap<Adresse, Adresse>();
+	private Map<String, String> texte = new HashMap<String, String>();
+	private int entfernt;	// seit dem letzten Aufrumen der Texte
+
+	/**
+	 * Gibt die geteilte Adresse gleichen Inhalts zurck und zhlt den Kunden, der sie verwenden wird. Ist noch keine
+	 * solche Adresse bekannt, wird sie aus geteilten Bestandteilen aufgebaut und in den Pool aufgenommen.
+	 * @param adresse
+	 * 			die Adresse, null wird unverndert zurckgegeben
+	 * @return
+	 * 			die geteilte Adresse, inhaltlich gleich der bergebenen
+	 */
+	synchronized Adresse teilen(Adresse adresse) {
+		if (adresse == null) {
+			return null;
+		}
+		Adresse bekannt = adressen.get(adresse);
+		if (bekannt == null) {
+			String zeile1 = text(adresse.getAdresszeile1());
+			String zeile2 = text(adresse.getAdresszeile2());
+			String ort = text(adresse.getOrt());
+			if (zeile1 != adresse.getAdresszeile1() || zeile2 != adresse.getAdresszeile2() || ort != adresse.getOrt()
+					|| adresse.nutzer != 0) {
+				bekannt = new Adresse(zeile1, zeile2, adresse.getPlz(), ort);
+			} else {
+				bekannt = adresse;
+			}
+			adressen.put(bekannt, bekannt);
+		}
+		bekannt.nutzer++;
+		return bekannt;
+	}
+
+	/**
+	 * Gibt eine geteilte Adresse frei, die ein Kunde nicht mehr verwendet. Verwendet sie kein Kunde mehr, wird sie
+	 * aus dem Pool entfernt. Andere Adressen werden ignoriert.
+	 * @param adresse
+	 * 			die bisherige Adresse des Kunden
+	 */
+	synchronized void freigeben(Adresse adresse) {
+		if (adresse == null || adressen.get(adresse) != adresse) {
+			return;
+		}
+		if (--adresse.nutzer > 0) {
+			return;
+		}
+		adresse.nutzer = -1;	// bleibt unvernderlich, ltere Abbilder knnen sie noch enthalten
+		adressen.remove(adresse);
+		if (++entfernt > adressen.size()) {
+			texteAufraeumen();
+		}
+	}
+
+	@Override
+	public void adresseGeaendert(Kunde kunde, Adresse alt, Adresse neu) {
+		freigeben(alt);
+	}
+
+	/*
+	 * Gibt den geteilten String gleichen Inhalts zurck
+	 */
+	private String text(String text) {
+		if (text == null) {
+			return null;
+		}
+		String bekannt = texte.putIfAbsent(text, text);
+		return (bekannt != null) ? bekannt : text;
+	}
+
+	/*
+	 * Sammelt die geteilten Strings aus den verbliebenen Adressen neu, die Strings entfernter Adressen fallen weg
+	 */
+	private void texteAufraeumen() {
+		texte = new HashMap<String, String>();
+		for (Adresse adresse : adressen.keySet()) {
+			text(adresse.getAdresszeile1());
+			text(adresse.getAdresszeile2());
+			text(adresse.getOrt());
+		}
+		entfernt = 0;
+	}
+
+	/**
+	 * Gibt die Anzahl der verschiedenen Adressen im Pool zurck
+	 * @return
+	 * 			Anzahl der Adressen
+	 */
+	synchronized int size() {
+		return adressen.size();
+	}
+}
@@ -8,6 +8,10 @@ import java.util.regex.Pattern;
  * 
  * A class for the representation of addresses
  * 
+ * Adressen der Kunden einer Bank sind unvernderlich, damit sich mehrere Kunden (Familien, Firmen im selben
+ * Gebude) ein Adress-Objekt teilen knnen, siehe AdressPool. Eine neue Anschrift wird als neues Objekt ber
+ * Kunde.setAdresse gesetzt. Die Setter sind veraltet und nur noch fr Adressen erlaubt, die nie geteilt wurden.
+ * 
  * @author aschwegmann
  * @version 1.0
  *
@@ -19,6 +23,7 @@ public class Adresse implements Serializable {
 	private String adresszeile2;
 	private int plz;
 	private String ort;
+	transient volatile int nutzer;	// Kunden, die sie ber den AdressPool teilen, -1 wenn sie nicht mehr im Pool steht
 	private final static Pattern VALID_STR_HNR = Pattern.compile("^([\\p{Alpha}]\\.?{2,}(\\s|\\-)?)+\\d+[\\p{Alpha}]?$");
 	private final static Pattern VALID_PLZ = Pattern.compile("^\\d{5}$");
 	
@@ -65,8 +70,13 @@ public class Adresse implements Serializable {
 	 * 			Zahl-(ein optionaler Buchstabe) entspricht
 	 * @throws NullPointerException
 	 * 			falls null bergeben wird
+	 * @throws IllegalStateException
+	 * 			falls die Adresse ber den AdressPool geteilt wird oder wurde
+	 * @deprecated geteilte Adressen sind unvernderlich, stattdessen eine neue Adresse ber Kunde.setAdresse setzen
 	 */
+	@Deprecated
 	public void setAdresszeile1(String adresszeile1) {
+		pruefeUngeteilt();
 		
 		Matcher m = VALID_STR_HNR.matcher(adresszeile1); // prfe name und hausnummer
 		if (!m.find()) {
@@ -88,8 +98,13 @@ public class Adresse implements Serializable {
 	 * Sets the Adresszeile 2 field of this Object
 	 * @param adresszeile2
 	 * 			zustzliche Adressinformationen
+	 * @throws IllegalStateException
+	 * 			falls die Adresse ber den AdressPool geteilt wird oder wurde
+	 * @deprecated geteilte Adressen sind unvernderlich, stattdessen eine neue Adresse ber Kunde.setAdresse setzen
 	 */
+	@Deprecated
 	public void setAdresszeile2(String adresszeile2) {
+		pruefeUngeteilt();
 		this.adresszeile2 = adresszeile2;
 	}
 
@@ -109,8 +124,13 @@ public class Adresse implements Serializable {
 	 * 			falls die Postleitzahl keine Zahl zwischen 10000 und 99999 ist
 	 * @throws NullPointerException
 	 * 			falls null bergeben wird
+	 * @throws IllegalStateException
+	 * 			falls die Adresse ber den AdressPool geteilt wird oder wurde
+	 * @deprecated geteilte Adressen sind unvernderlich, stattdessen eine neue Adresse ber Kunde.setAdresse setzen
 	 */
+	@Deprecated
 	public void setPlz(int plz) {
+		pruefeUngeteilt();
 		
 		Matcher m = VALID_PLZ.matcher(String.format("%05d",plz));
 		
@@ -136,14 +156,30 @@ public class Adresse implements Serializable {
 	 * 
 	 * @throws IllegalArgumentException
 	 * 			falls der Ort ein leerer String oder null ist
+	 * @throws IllegalStateException
+	 * 			falls die Adresse ber den AdressPool geteilt wird oder wurde
+	 * @deprecated geteilte Adressen sind unvernderlich, stattdessen eine neue Adresse ber Kunde.setAdresse setzen
 	 */
+	@Deprecated
 	public void setOrt(String ort) {
+		pruefeUngeteilt();
 		if (ort == null || ort.length()<1){
 			throw new IllegalArgumentException("Der Ort muss aus mindestens einem Buchstaben bestehen");
 		}
 		this.ort = ort;
 	}
 
+	/*
+	 * Eine geteilte Adresse gehrt mehreren Kunden und steht im AdressPool, eine nderung wrde alle Kunden
+	 * umziehen lassen und den Pool zerstren
+	 */
+	private void pruefeUngeteilt() {
+		if (nutzer != 0) {
+			throw new IllegalStateException("Die Adresse wird geteilt und kann nicht gendert werden, "
+					+ "bitte eine neue Adresse ber Kunde.setAdresse setzen");
+		}
+	}
+
 	@Override
 	public String toString() {    
 
@@ -166,4 +202,44 @@ public class Adresse implements Serializable {
 		return getAdresszeile1() + "\n" + getAdresszeile2() + "\n" + getPlz() + " " + getOrt() + "\n";
 	}
 
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((adresszeile1 == null) ? 0 : adresszeile1.hashCode());
+		result = prime * result + ((adresszeile2 == null) ? 0 : adresszeile2.hashCode());
+		result = prime * result + ((ort == null) ? 0 : ort.hashCode());
+		result = prime * result + plz;
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		Adresse other = (Adresse) obj;
+		if (plz != other.plz)
+			return false;
+		if (adresszeile1 == null) {
+			if (other.adresszeile1 != null)
+				return false;
+		} else if (!adresszeile1.equals(other.adresszeile1))
+			return false;
+		if (adresszeile2 == null) {
+			if (other.adresszeile2 != null)
+				return false;
+		} else if (!adresszeile2.equals(other.adresszeile2))
+			return false;
+		if (ort == null) {
+			if (other.ort != null)
+				return false;
+		} else if (!ort.equals(other.ort))
+			return false;
+		return true;
+	}
+
 }
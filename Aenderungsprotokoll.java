@@ -0,0 +1,463 @@
+package kontoverwaltung;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ *
+ * Schreibt alle nderungen an einer Bank fortlaufend in Segmentdateien eines Verzeichnisses, damit andere
+ * Systeme (z.B. Auswertungen) nur die nderungen seit ihrem letzten Abruf lesen mssen statt eines vollstndigen
+ * Exports (Change Data Capture).
+ *
+ * Jeder Eintrag erhlt einen fortlaufenden Offset. Ein Segment ist eine Datei fester Gre (SEGMENTGROESSE),
+ * benannt nach dem Offset ihres ersten Eintrags (z.B. 00000000000000100000.cdc), und wird beim Anlegen komplett
+ * in den Speicher abgebildet (MappedByteBuffer). Geschrieben wird nur am Ende des neuesten Segments; ist es voll,
+ * wird es auf die Platte geschrieben (force) und ein neues angelegt. Ein Eintrag ist so aufgebaut:
+ *
+ * <pre>
+ * int  Lnge des Rests (0 = Ende des Segments)
+ * long Offset, long Zeitpunkt, byte Art
+ * short Lnge + UTF-8 Kundennummer, short Lnge + UTF-8 IBAN (-1 fr null)
+ * long alter Kontostand in Cent, long neuer Kontostand in Cent
+ * </pre>
+ *
+ * Leser werden ber einen Namen unterschieden. Jeder Leser liest ab seinem besttigten Offset, direkt aus den
+ * abgebildeten Segmenten ohne Umweg ber einen Lesepuffer, und besttigt danach, bis wohin er verarbeitet hat.
+ * Der besttigte Offset wird in der Datei name.offset gespeichert (ber eine temporre Datei und atomares
+ * Umbenennen, wie in NummernVergabe). Ein Segment wird gelscht, sobald alle bekannten Leser alle seine Eintrge
+ * besttigt haben. Solange sich kein Leser angemeldet hat, bleiben alle Segmente erhalten.
+ *
+ * Das Protokoll enthlt nur nderungen ab dem ffnen, ein neuer Leser braucht also zuerst einen vollstndigen
+ * Export (siehe Bank#exportJson(Path)). Wird ein vorhandenes Verzeichnis geffnet, wird am Ende des neuesten
+ * Segments fortgesetzt. Eintrge, die noch nicht mit force geschrieben waren, knnen bei einem Absturz des
+ * Rechners verloren gehen, bei einem Absturz des Programms nicht.
+ *
+ * Geschrieben wird in den Benachrichtigungen der Bank. Scheitert dort das Anlegen eines Segments, wird der Fehler
+ * nicht an die Bank weitergereicht, sondern vermerkt, und das Protokoll nimmt keine Eintrge mehr an, damit keine
+ * Lcke entsteht. Die Leser erhalten noch alle Eintrge bis dahin, danach meldet lesen den Fehler.
+ *
+ * @author aschwegmann
+ * @version 1.0
+ *
+ * @see Bank#openChangeFeed(Path)
+ * @see BankEreignis
+ */
+class Aenderungsprotokoll implements BankBeobachter {
+
+	final static int SEGMENTGROESSE = 8 << 20;
+	private final static int INDEXABSTAND = 1024;	// jede 1024. Position wird im Speicher gemerkt
+	private final static String ENDUNG = ".cdc";
+	private final static Pattern SEGMENTNAME = Pattern.compile("\\d{20}\\.cdc");
+	private final static Pattern LESERNAME = Pattern.compile("[\\w-]+");
+	private final static BankEreignis.Art[] ARTEN = BankEreignis.Art.values();
+
+	private final Path verzeichnis;
+	private final TreeMap<Long, Segment> segmente = new TreeMap<Long, Segment>();	// nach erstem Offset
+	private final Map<String, Long> bestaetigt = new ConcurrentHashMap<String, Long>();
+	private Segment aktuell;
+	private long naechsterOffset;
+	private volatile IOException schreibfehler;	// gesetzt, sobald ein Eintrag nicht geschrieben werden konnte
+
+	/*
+	 * Eine Segmentdatei mit ihrer Abbildung und einem dnnen Index: index[i] ist die Position des Eintrags
+	 * basis + i * INDEXABSTAND
+	 */
+	private static final class Segment {
+
+		private final long basis;
+		private final Path datei;
+		private final MappedByteBuffer puffer;
+		private volatile int ende;	// bis hier sind die Eintrge vollstndig geschrieben
+		private volatile long anzahl;
+		private int[] index = new int[16];
+
+		private Segment(long basis, Path datei, MappedByteBuffer puffer) {
+			this.basis = basis;
+			this.datei = datei;
+			this.puffer = puffer;
+		}
+	}
+
+	/**
+	 * ffnet das nderungsprotokoll im bergebenen Verzeichnis oder legt es an
+	 * @param verzeichnis
+	 * 			das Verzeichnis fr Segmente und Leser-Offsets
+	 * @throws IOException
+	 * 			falls das Verzeichnis nicht angelegt oder ein Segment nicht gelesen werden kann
+	 */
+	Aenderungsprotokoll(Path verzeichnis) throws IOException {
+		this.verzeichnis = Files.createDirectories(verzeichnis);
+		try (DirectoryStream<Path> dateien = Files.newDirectoryStream(verzeichnis)) {
+			for (Path datei : dateien) {
+				String name = datei.getFileName().toString();
+				if (SEGMENTNAME.matcher(name).matches()) {
+					long basis = Long.parseLong(name.substring(0, 20));
+					segmente.put(basis, abbilden(basis, datei));
+				} else if (name.endsWith(".offset")) {
+					String leser = name.substring(0, name.length() - ".offset".length());
+					bestaetigt.put(leser, Long.parseLong(new String(Files.readAllBytes(datei), StandardCharsets.US_ASCII).trim()));
+				}
+			}
+		}
+		if (segmente.isEmpty()) {
+			aktuell = neuesSegment(0);
+		} else {
+			aktuell = segmente.lastEntry().getValue();
+		}
+		naechsterOffset = aktuell.basis + aktuell.anzahl;
+	}
+
+	/*
+	 * Bildet eine Segmentdatei ab und liest sie einmal durch, um Ende, Anzahl und Index zu bestimmen
+	 */
+	private static Segment abbilden(long basis, Path datei) throws IOException {
+		MappedByteBuffer puffer;
+		try (FileChannel kanal = FileChannel.open(datei, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			puffer = kanal.map(FileChannel.MapMode.READ_WRITE, 0, SEGMENTGROESSE);
+		}
+		Segment segment = new Segment(basis, datei, puffer);
+		int position = 0;
+		long anzahl = 0;
+		while (position + 4 <= SEGMENTGROESSE) {
+			int laenge = puffer.getInt(position);
+			if (laenge <= 0) {
+				break;
+			}
+			merken(segment, anzahl, position);
+			position += 4 + laenge;
+			anzahl++;
+		}
+		segment.ende = position;
+		segment.anzahl = anzahl;
+		return segment;
+	}
+
+	private static void merken(Segment segment, long nummer, int position) {
+		if (nummer % INDEXABSTAND == 0) {
+			int i = (int) (nummer / INDEXABSTAND);
+			if (i == segment.index.length) {
+				segment.index = Arrays.copyOf(segment.index, i * 2);
+			}
+			segment.index[i] = position;
+		}
+	}
+
+	private Segment neuesSegment(long basis) throws IOException {
+		Path datei = verzeichnis.resolve(String.format("%020d", basis) + ENDUNG);
+		MappedByteBuffer puffer;
+		try (FileChannel kanal = FileChannel.open(datei, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+				StandardOpenOption.WRITE)) {
+			puffer = kanal.map(FileChannel.MapMode.READ_WRITE, 0, SEGMENTGROESSE);	// vergrert die Datei
+		}
+		Segment segment = new Segment(basis, datei, puffer);
+		synchronized (segmente) {
+			segmente.put(basis, segment);
+		}
+		return segment;
+	}
+
+	/*
+	 * Hngt einen Eintrag an das aktuelle Segment an. Passt er nicht mehr hinein, wird ein neues Segment
+	 * angelegt.
+	 */
+	private synchronized void schreiben(BankEreignis.Art art, String kundennummer, String iban, long altCent, long neuCent) {
+		if (schreibfehler != null) {
+			return;
+		}
+		byte[] kn = (kundennummer == null) ? null : kundennummer.getBytes(StandardCharsets.UTF_8);
+		byte[] ib = (iban == null) ? null : iban.getBytes(StandardCharsets.UTF_8);
+		int laenge = 8 + 8 + 1 + 2 + ((kn == null) ? 0 : kn.length) + 2 + ((ib == null) ? 0 : ib.length) + 8 + 8;
+		if (aktuell.ende + 4 + laenge + 4 > SEGMENTGROESSE) { // die 0 am Ende muss noch passen
+			try {
+				aktuell.puffer.force();
+				aktuell = neuesSegment(naechsterOffset);
+			} catch (IOException e) {
+				schreibfehler = e;
+				return;
+			} catch (UncheckedIOException e) {
+				schreibfehler = e.getCause();
+				return;
+			}
+			try {
+				aufraeumen();
+			} catch (IOException e) { // das Segment bleibt stehen, beim nchsten Aufrumen neuer Versuch
+			}
+		}
+		ByteBuffer puffer = aktuell.puffer;
+		int start = aktuell.ende;
+		int position = start + 4;
+		puffer.putLong(position, naechsterOffset);
+		puffer.putLong(position + 8, System.currentTimeMillis());
+		puffer.put(position + 16, (byte) art.ordinal());
+		position = text(puffer, position + 17, kn);
+		position = text(puffer, position, ib);
+		puffer.putLong(position, altCent);
+		puffer.putLong(position + 8, neuCent);
+		puffer.putInt(start, laenge);	// zuletzt: erst jetzt ist der Eintrag fr andere Prozesse vollstndig
+		merken(aktuell, aktuell.anzahl, start);
+		aktuell.ende = start + 4 + laenge;
+		aktuell.anzahl++;	// zuletzt: wer diese Anzahl liest, sieht auch Ende und Index dazu
+		naechsterOffset++;
+	}
+
+	private static int text(ByteBuffer puffer, int position, byte[] text) {
+		if (text == null) {
+			puffer.putShort(position, (short) -1);
+			return position + 2;
+		}
+		puffer.putShort(position, (short) text.length);
+		puffer.put(position + 2, text);
+		return position + 2 + text.length;
+	}
+
+	private static String text(ByteBuffer puffer, int position, int laenge) {
+		if (laenge < 0) {
+			return null;
+		}
+		byte[] text = new byte[laenge];
+		puffer.get(position, text);
+		return new String(text, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Liest die nderungen ab dem besttigten Offset des Lesers. Ein neuer Leser beginnt beim ltesten noch
+	 * vorhandenen Eintrag. Der Offset wird dabei nicht weitergesetzt, siehe bestaetigen.
+	 * @param leser
+	 * 			Name des Lesers (Buchstaben, Ziffern, _ und -)
+	 * @param max
+	 * 			hchstens so viele Eintrge werden gelesen
+	 * @return
+	 * 			die Eintrge in der Reihenfolge ihrer Offsets, leer wenn es keine neuen gibt
+	 * @throws UncheckedIOException
+	 * 			falls alle vorhandenen Eintrge gelesen sind und seitdem ein Eintrag nicht geschrieben werden konnte
+	 */
+	List<BankEreignis> lesen(String leser, int max) {
+		pruefen(leser);
+		Long ab = bestaetigt.get(leser);
+		IOException fehler = schreibfehler;	// vorher lesen: was danach noch geschrieben wurde, liefert lesen mit
+		List<BankEreignis> ergebnis = lesen((ab == null) ? getAeltesterOffset() : ab, max);
+		if (ergebnis.isEmpty() && fehler != null) {
+			throw new UncheckedIOException("Das nderungsprotokoll ist ab Offset " + getNaechsterOffset()
+					+ " unvollstndig, weitere nderungen wurden nicht geschrieben", fehler);
+		}
+		return ergebnis;
+	}
+
+	/**
+	 * Liest die nderungen ab dem bergebenen Offset
+	 * @param ab
+	 * 			der erste gewnschte Offset
+	 * @param max
+	 * 			hchstens so viele Eintrge werden gelesen
+	 * @return
+	 * 			die Eintrge in der Reihenfolge ihrer Offsets
+	 * @throws IllegalArgumentException
+	 * 			falls das Segment mit diesem Offset bereits gelscht wurde
+	 */
+	List<BankEreignis> lesen(long ab, int max) {
+		List<BankEreignis> ergebnis = new ArrayList<BankEreignis>();
+		long offset = ab;
+		while (ergebnis.size() < max) {
+			Segment segment;
+			synchronized (segmente) {
+				Map.Entry<Long, Segment> eintrag = segmente.floorEntry(offset);
+				if (eintrag == null) {
+					throw new IllegalArgumentException("Offset " + offset + " ist nicht mehr im nderungsprotokoll");
+				}
+				segment = eintrag.getValue();
+			}
+			long anzahl = segment.anzahl;	// vor ende lesen, siehe schreiben
+			int ende = segment.ende;
+			long nummer = offset - segment.basis;
+			if (nummer >= anzahl) {
+				Segment naechstes;
+				synchronized (segmente) {
+					naechstes = segmente.get(segment.basis + anzahl);
+				}
+				if (naechstes == null || nummer > anzahl) {
+					break; // am Ende angekommen
+				}
+				continue;
+			}
+			ByteBuffer puffer = segment.puffer.duplicate();	// eigene Position, teilt aber den abgebildeten Speicher
+			int position = segment.index[(int) (nummer / INDEXABSTAND)];
+			for (long i = nummer - nummer % INDEXABSTAND; i < nummer; i++) {
+				position += 4 + puffer.getInt(position);
+			}
+			while (offset < segment.basis + anzahl && position < ende && ergebnis.size() < max) {
+				int laenge = puffer.getInt(position);
+				ergebnis.add(lesen(puffer, position + 4));
+				position += 4 + laenge;
+				offset++;
+			}
+		}
+		return ergebnis;
+	}
+
+	private static BankEreignis lesen(ByteBuffer puffer, int position) {
+		long offset = puffer.getLong(position);
+		long zeitpunkt = puffer.getLong(position + 8);
+		BankEreignis.Art art = ARTEN[puffer.get(position + 16)];
+		int laenge = puffer.getShort(position + 17);
+		String kundennummer = text(puffer, position + 19, laenge);
+		position += 19 + Math.max(laenge, 0);
+		laenge = puffer.getShort(position);
+		String iban = text(puffer, position + 2, laenge);
+		position += 2 + Math.max(laenge, 0);
+		return new BankEreignis(offset, zeitpunkt, art, kundennummer, iban, puffer.getLong(position), puffer.getLong(position + 8));
+	}
+
+	/**
+	 * Besttigt, dass der Leser alle Eintrge vor dem bergebenen Offset verarbeitet hat. Der nchste Aufruf von
+	 * lesen beginnt dort. Segmente, die alle Leser vollstndig besttigt haben, werden gelscht.
+	 * @param leser
+	 * 			Name des Lesers
+	 * @param offset
+	 * 			der Offset des ersten noch nicht verarbeiteten Eintrags, also Nummer des letzten gelesenen + 1
+	 * @throws IOException
+	 * 			falls der Offset nicht gespeichert werden kann
+	 * @throws IllegalArgumentException
+	 * 			falls der Offset vor dem ltesten vorhandenen oder hinter dem nchsten Eintrag liegt
+	 */
+	void bestaetigen(String leser, long offset) throws IOException {
+		pruefen(leser);
+		long naechster = getNaechsterOffset();
+		if (offset < getAeltesterOffset() || offset > naechster) {
+			throw new IllegalArgumentException("Offset " + offset + " liegt nicht zwischen " + getAeltesterOffset()
+					+ " und " + naechster);
+		}
+		Path datei = verzeichnis.resolve(leser + ".offset");
+		Path temp = verzeichnis.resolve(leser + ".offset.tmp");
+		try (FileChannel kanal = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			kanal.write(ByteBuffer.wrap(Long.toString(offset).getBytes(StandardCharsets.US_ASCII)));
+			kanal.force(true);
+		}
+		Files.move(temp, datei, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		bestaetigt.put(leser, offset);
+		synchronized (this) {
+			aufraeumen();
+		}
+	}
+
+	/*
+	 * Lscht alle Segmente vor dem aktuellen, deren Eintrge alle Leser besttigt haben. Ein Segment, dessen Datei
+	 * nicht gelscht werden kann, bleibt im Protokoll.
+	 */
+	private void aufraeumen() throws IOException {
+		if (bestaetigt.isEmpty()) {
+			return;
+		}
+		long minimum = Long.MAX_VALUE;
+		for (long offset : bestaetigt.values()) {
+			minimum = Math.min(minimum, offset);
+		}
+		List<Segment> loeschen = new ArrayList<Segment>();
+		synchronized (segmente) {
+			for (Segment segment : segmente.values()) {
+				if (segment != aktuell && segment.basis + segment.anzahl <= minimum) {
+					loeschen.add(segment);
+				}
+			}
+		}
+		for (Segment segment : loeschen) {
+			Files.deleteIfExists(segment.datei);	// laufende Leser behalten ihre Abbildung bis zum Ende
+			synchronized (segmente) {
+				segmente.remove(segment.basis);
+			}
+		}
+	}
+
+	private static void pruefen(String leser) {
+		if (!LESERNAME.matcher(leser).matches()) {
+			throw new IllegalArgumentException("Ungltiger Name fr einen Leser: " + leser);
+		}
+	}
+
+	/**
+	 * Gibt den ltesten noch vorhandenen Offset zurck
+	 * @return
+	 * 			der erste Offset des ltesten Segments
+	 */
+	long getAeltesterOffset() {
+		synchronized (segmente) {
+			return segmente.firstKey();
+		}
+	}
+
+	/**
+	 * Gibt den Offset zurck, den der nchste Eintrag erhlt
+	 * @return
+	 * 			der nchste Offset
+	 */
+	synchronized long getNaechsterOffset() {
+		return naechsterOffset;
+	}
+
+	/**
+	 * Gibt die Anzahl der vorhandenen Segmentdateien zurck
+	 * @return
+	 * 			Anzahl der Segmente
+	 */
+	int getAnzahlSegmente() {
+		synchronized (segmente) {
+			return segmente.size();
+		}
+	}
+
+	/**
+	 * Schreibt das aktuelle Segment auf die Platte
+	 */
+	synchronized void force() {
+		aktuell.puffer.force();
+	}
+
+	@Override
+	public void kundeAngelegt(Kunde kunde) {
+		schreiben(BankEreignis.Art.KUNDE_ANGELEGT, kunde.getKundennummer(), null, 0, 0);
+	}
+
+	@Override
+	public void kontoAngelegt(Kunde kunde, Konto konto) {
+		schreiben(BankEreignis.Art.KONTO_ANGELEGT, kunde.getKundennummer(), konto.getIban(), 0, 0);
+	}
+
+	@Override
+	public void kontoEntfernt(Kunde kunde, Konto konto) {
+		schreiben(BankEreignis.Art.KONTO_ENTFERNT, kunde.getKundennummer(), konto.getIban(), 0, 0);
+	}
+
+	@Override
+	public void kontostandGeaendert(Konto konto, long altCent, long neuCent) {
+		Kunde inhaber = konto.getInhaber();
+		schreiben(BankEreignis.Art.KONTOSTAND_GEAENDERT, (inhaber == null) ? null : inhaber.getKundennummer(),
+				konto.getIban(), altCent, neuCent);
+	}
+
+	@Override
+	public void adresseGeaendert(Kunde kunde, Adresse alt, Adresse neu) {
+		schreiben(BankEreignis.Art.ADRESSE_GEAENDERT, kunde.getKundennummer(), null, 0, 0);
+	}
+
+	@Override
+	public void geburtstagGeaendert(Privatkunde kunde, LocalDate alt, LocalDate neu) {
+		schreiben(BankEreignis.Art.GEBURTSTAG_GEAENDERT, kunde.getKundennummer(), null, 0, 0);
+	}
+}
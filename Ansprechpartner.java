@@ -44,6 +44,17 @@ public class Ansprechpartner implements Serializable {
 		this.setTelefonnummer(telefonnummer);
 	}
 
+	/**
+	 * Kopierkonstruktor, bernimmt die Felder des bergebenen Ansprechpartners ohne erneute Prfung
+	 * @param vorlage
+	 * 			der Ansprechpartner, der kopiert wird
+	 */
+	Ansprechpartner(Ansprechpartner vorlage) {
+		this.vorname = vorlage.vorname;
+		this.nachname = vorlage.nachname;
+		this.telefonnummer = vorlage.telefonnummer;
+	}
+
 	/**
 	 * Gibt das Feld "Vorname" dieses Objektes zurck
 	 * @return Vorname
@@ -0,0 +1,305 @@
+package kontoverwaltung;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.EnumSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *
+ * Speichert Objekte (z.B. die Bank) im Hintergrund, ohne dass der Aufrufer auf die Festplatte warten muss. Das
+ * Ergebnis ist ein CompletableFuture, das erst erfllt wird, wenn die Datei dauerhaft geschrieben ist. Der Aufrufer
+ * entscheidet selbst, ob er darauf wartet (join) oder weiterarbeitet und sich benachrichtigen lsst.
+ *
+ * Ablauf einer Sicherung:
+ *
+ * 1. Das Objekt wird im Thread des Aufrufers serialisiert, so dass die Datei genau den Stand beim Aufruf enthlt
+ *    und der Aufrufer das Objekt danach gleich wieder ndern darf. Die Bytes landen in Blcken zu BLOCK Bytes.
+ * 2. Jeder volle Block wird sofort ber einen AsynchronousFileChannel an seine Stelle in einer temporren Datei
+ *    geschrieben, whrend das Serialisieren weiterluft. Schreiben und Serialisieren berlappen sich also. Sind
+ *    MAX_BLOECKE Blcke unterwegs, wartet das Serialisieren, bis einer geschrieben ist.
+ * 3. Sind alle Blcke geschrieben, wird die temporre Datei mit force auf die Platte gebracht und dann atomar an
+ *    die Stelle der Zieldatei verschoben. Nach einem Absturz gibt es also immer entweder die alte oder die neue,
+ *    aber nie eine halbe Datei.
+ *
+ * Schritt 2 und 3 laufen im Thread dieser Persistenz. Mehrere Sicherungen werden in der Reihenfolge ihres Aufrufs
+ * abgeschlossen, eine ltere Sicherung berschreibt also nie eine neuere. Der Thread ist ein Daemon-Thread, vor
+ * dem Ende des Programms muss daher mit abwarten auf laufende Sicherungen gewartet werden.
+ *
+ * @author aschwegmann
+ * @version 1.0
+ *
+ * @see UserInterface#speichereBankAsynchron(Bank)
+ */
+class AsynchronePersistenz {
+
+	private final static int BLOCK = 1 << 20;	// 1 MiB
+	private final static int MAX_BLOECKE = 32;	// hchstens so viele Blcke sind gleichzeitig unterwegs
+
+	private final ExecutorService thread = Executors.newSingleThreadExecutor(r -> {
+		Thread t = new Thread(r, "Persistenz");
+		t.setDaemon(true);
+		return t;
+	});
+	private final AtomicLong naechsteNummer = new AtomicLong();
+	private CompletableFuture<Path> letzte = CompletableFuture.completedFuture(null);
+
+	/**
+	 * Speichert ein Objekt samt aller erreichbaren Objekte mit ObjectOutputStream in eine Datei, siehe
+	 * Klassenbeschreibung. Kehrt zurck, sobald das Objekt serialisiert ist.
+	 * @param objekt
+	 * 			das zu speichernde Objekt
+	 * @param datei
+	 * 			die Zieldatei, wird ersetzt
+	 * @return
+	 * 			wird mit der Zieldatei erfllt, wenn die Datei dauerhaft geschrieben und ersetzt ist, oder mit der
+	 * 			Ursache abgebrochen (IOException bzw. UncheckedIOException)
+	 */
+	CompletableFuture<Path> speichern(Serializable objekt, Path datei) {
+		Path temp = datei.resolveSibling(datei.getFileName() + "." + naechsteNummer.incrementAndGet() + ".tmp");
+		CompletableFuture<Path> geschrieben;
+		try {
+			Ausgabe ausgabe = new Ausgabe(temp);
+			geschrieben = ausgabe.fertig;
+			try { // kein try-with-resources: ein Fehler muss vor dem Schlieen vermerkt sein
+				ObjectOutputStream oos = new ObjectOutputStream(ausgabe);
+				oos.writeObject(objekt);
+				oos.close();
+			} catch (IOException | RuntimeException e) {
+				ausgabe.abbrechen(e);
+			}
+		} catch (IOException e) { // temporre Datei konnte nicht angelegt werden
+			geschrieben = CompletableFuture.failedFuture(e);
+		}
+
+		synchronized (this) {
+			CompletableFuture<Path> vorige = letzte.exceptionally(fehler -> null);	// Fehler der vorigen gehen diese nichts an
+			CompletableFuture<Path> ersetzt = geschrieben.thenCombineAsync(vorige, (geschriebeneDatei, x) -> {
+				try {
+					return Files.move(geschriebeneDatei, datei, StandardCopyOption.REPLACE_EXISTING,
+							StandardCopyOption.ATOMIC_MOVE);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}, thread);
+			ersetzt.whenComplete((ergebnis, fehler) -> {
+				if (fehler != null) {
+					try {
+						Files.deleteIfExists(temp);
+					} catch (IOException e) { // bleibt liegen, strt aber nicht
+					}
+				}
+			});
+			letzte = ersetzt;
+			return ersetzt;
+		}
+	}
+
+	/**
+	 * Wartet, bis alle bisher begonnenen Sicherungen abgeschlossen oder gescheitert sind
+	 * @return
+	 * 			true, wenn die zuletzt begonnene Sicherung erfolgreich war
+	 */
+	boolean abwarten() {
+		CompletableFuture<Path> bis;
+		synchronized (this) {
+			bis = letzte;
+		}
+		try {
+			bis.join();
+			return true;
+		} catch (CompletionException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Gibt die eigentliche Ursache eines gescheiterten Futures zurck, ohne CompletionException und
+	 * UncheckedIOException
+	 * @param fehler
+	 * 			der Fehler aus dem Future
+	 * @return
+	 * 			die Ursache
+	 */
+	static Throwable ursache(Throwable fehler) {
+		while ((fehler instanceof CompletionException || fehler instanceof UncheckedIOException) && fehler.getCause() != null) {
+			fehler = fehler.getCause();
+		}
+		return fehler;
+	}
+
+	/*
+	 * Ein OutputStream, der volle Blcke asynchron in die temporre Datei schreibt. Zhlt die noch nicht
+	 * geschriebenen Blcke, solange der Stream offen ist, zhlt er selbst als einer mit. Wer die Zahl auf 0
+	 * bringt, lsst die Datei im Thread der Persistenz abschlieen.
+	 */
+	private final class Ausgabe extends OutputStream implements CompletionHandler<Integer, Ausgabe.Block> {
+
+		private final Path temp;
+		private final AsynchronousFileChannel kanal;
+		private final CompletableFuture<Path> fertig = new CompletableFuture<Path>();
+		private final Semaphore frei = new Semaphore(MAX_BLOECKE);
+		private final AtomicInteger offen = new AtomicInteger(1);
+		private ByteBuffer puffer = ByteBuffer.allocate(BLOCK);
+		private long position;
+		private volatile Throwable fehler;
+		private boolean geschlossen;
+
+		private Ausgabe(Path temp) throws IOException {
+			this.temp = temp;
+			this.kanal = AsynchronousFileChannel.open(temp, EnumSet.of(StandardOpenOption.CREATE,
+					StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING), thread);
+		}
+
+		/*
+		 * Ein Block und die Stelle in der Datei, an die sein Rest gehrt
+		 */
+		private final class Block {
+			private final ByteBuffer daten;
+			private long stelle;
+
+			private Block(ByteBuffer daten, long stelle) {
+				this.daten = daten;
+				this.stelle = stelle;
+			}
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			if (!puffer.hasRemaining()) {
+				abschicken();
+			}
+			puffer.put((byte) b);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			while (len > 0) {
+				if (!puffer.hasRemaining()) {
+					abschicken();
+				}
+				int n = Math.min(len, puffer.remaining());
+				puffer.put(b, off, n);
+				off += n;
+				len -= n;
+			}
+		}
+
+		/*
+		 * Schickt den Puffer zum Schreiben ab und beginnt einen neuen
+		 */
+		private void abschicken() throws IOException {
+			if (fehler != null) {
+				throw new IOException("Schreiben fehlgeschlagen", fehler);
+			}
+			puffer.flip();
+			try {
+				frei.acquire();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException();
+			}
+			offen.incrementAndGet();
+			Block block = new Block(puffer, position);
+			position += puffer.remaining();
+			puffer = ByteBuffer.allocate(BLOCK);
+			kanal.write(block.daten, block.stelle, block, this);
+		}
+
+		@Override
+		public void completed(Integer geschrieben, Block block) {
+			block.stelle += geschrieben;
+			if (block.daten.hasRemaining() && fehler == null) {
+				kanal.write(block.daten, block.stelle, block, this);
+				return;
+			}
+			erledigt();
+		}
+
+		@Override
+		public void failed(Throwable ursache, Block block) {
+			fehler = ursache;
+			erledigt();
+		}
+
+		private void erledigt() {
+			frei.release();
+			if (offen.decrementAndGet() == 0) {
+				abschliessen();
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (geschlossen) {
+				return;
+			}
+			geschlossen = true;
+			try {
+				if (puffer.position() > 0 && fehler == null) {
+					abschicken();
+				}
+			} catch (IOException | RuntimeException e) {
+				if (fehler == null) { // vor dem Abschlieen, sonst glte die unvollstndige Datei als geschrieben
+					fehler = e;
+				}
+				throw e;
+			} finally {
+				if (offen.decrementAndGet() == 0) {
+					thread.execute(this::abschliessen);	// force nicht im Thread des Aufrufers
+				}
+			}
+		}
+
+		/*
+		 * Bricht die Sicherung ab, z.B. weil ein Objekt nicht serialisierbar ist
+		 */
+		private void abbrechen(Throwable ursache) {
+			if (fehler == null) {
+				fehler = ursache;
+			}
+			try {
+				close();
+			} catch (IOException e) { // fehler ist bereits gesetzt
+			}
+		}
+
+		/*
+		 * Luft im Thread der Persistenz, wenn alle Blcke geschrieben sind
+		 */
+		private void abschliessen() {
+			try {
+				if (fehler == null) {
+					kanal.force(true);
+				}
+				kanal.close();
+			} catch (IOException e) {
+				if (fehler == null) {
+					fehler = e;
+				}
+			}
+			if (fehler != null) {
+				fertig.completeExceptionally(fehler);
+			} else {
+				fertig.complete(temp);
+			}
+		}
+	}
+}
@@ -1,16 +1,27 @@
 package kontoverwaltung;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.TreeSet;
+import java.util.concurrent.Flow;
+import java.util.stream.IntStream;
 
 import kontoverwaltung.UserInterface.Style;
 
@@ -18,6 +29,13 @@ import kontoverwaltung.UserInterface.Style;
  * 
  * This class represents banks and gives various methods to set and handle the data of bank-objects
  * 
+ * Kunden anlegen, Konten erffnen, berweisungen und die Abfragen ber Kundennummer, IBAN, Namen und die
+ * Kundenliste seitenweise drfen von mehreren Threads gleichzeitig aufgerufen werden (z.B. aus der
+ * HttpSchnittstelle). Das Aufnehmen in die Kundenliste und das Prfen einer neuen IBAN geschehen unter der
+ * Sperre der Kundenliste, Kontostnde werden unter der Sperre des Kontos gendert. Wer alle Kunden durchluft
+ * (z.B. findClientsByName oder query), kopiert sie vorher unter derselben Sperre. Die Ausgaben auf der Konsole
+ * und das Speichern setzen dagegen voraus, dass die Bank whrenddessen nicht verndert wird.
+ * 
  * @author aschwegmann
  * @version 1.0
  *
@@ -34,9 +52,25 @@ public final class Bank implements Serializable { // das Final steht hier zur Si
 	private static final long serialVersionUID = 1L;
 	private String name;
 	private String bic;
+	private String blz;
 	private Adresse adresse;
-	private Set<Kunde> kunden;
+	private Set<Kunde> kunden;	// ein Kundenbestand, nderungen nur unter synchronized (kunden), siehe Klassenbeschreibung
 	private List<Ansprechpartner> bekannteAnsprechparnter = new ArrayList<Ansprechpartner>();
+	private transient Map<Ansprechpartner, Ansprechpartner> ansprechpartnerIndex;	// Suche in bekannteAnsprechparnter
+	private transient BeobachterListe beobachter;	// transient: wird nach dem Laden neu aufgebaut
+	private transient Saldenspiegel saldenspiegel;
+	private transient Rangliste rangliste;
+	private transient AdressIndex adressIndex;
+	private transient GeburtstagsIndex geburtstagsIndex;
+	private transient Volltextindex volltextindex;
+	private transient Namensindex namensindex;
+	private transient Verzeichnis verzeichnis;
+	private transient NummernVergabe nummernVergabe;
+	private transient AdressPool adressPool;	// teilt gleiche Adressen zwischen den Kunden
+	private transient Abbildstaende abbildstaende;	// eingefrorene Kontostnde fr snapshot()
+	private transient Abbildpflege abbildpflege;	// fhrt das aktuelle Bankabbild fr snapshot()
+	private transient Ereignisstrom ereignisstrom;	// verteilt nderungen an die Abonnenten von events()
+	private transient volatile Aenderungsprotokoll aenderungsprotokoll;	// null, bis openChangeFeed aufgerufen wurde
 
 	/**
 	 * Parametrisierter Konstruktor zur Erzeugung eines neuen Bank-Objektes.
@@ -54,7 +88,93 @@ public final class Bank implements Serializable { // das Final steht hier zur Si
 		this.setName(name);
 		this.setBic(bic);
 		this.setAdresse(adresse);
-		this.setKunden(new HashSet<Kunde>());
+		this.setKunden(new Kundenbestand());
+		this.initialisiereBeobachter();
+	}
+
+	/**
+	 * Parametrisierter Konstruktor zur Erzeugung eines neuen Bank-Objektes mit Bankleitzahl. Die Bankleitzahl
+	 * wird fr neu vergebene IBANs verwendet (siehe newIban).
+	 * 
+	 * @param name
+	 * 			Name der Bank als String
+	 * @param bic
+	 * 			Bank-Identifikationsnummer als String
+	 * @param blz
+	 * 			achtstellige Bankleitzahl als String
+	 * @param adresse
+	 * 			Adresse der Bank als Adresse-Objekt
+	 */
+	public Bank(String name, String bic, String blz, Adresse adresse) {
+		this(name, bic, adresse);
+		this.setBlz(blz);
+	}
+
+	/**
+	 * Baut die transienten Beobachter (z.B. die laufenden Summen) nach dem Laden einer gespeicherten
+	 * Bank neu auf, da diese nicht mit serialisiert werden.
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		if (!(kunden instanceof Kundenbestand)) { // ltere Datenbank mit HashSet
+			kunden = new Kundenbestand(kunden);
+		}
+		initialisiereBeobachter();
+	}
+
+	/**
+	 * Erzeugt die Beobachter dieser Bank und meldet alle vorhandenen Kunden und Konten an. Gleiche Adressen werden
+	 * dabei ber den AdressPool zusammengelegt.
+	 */
+	private void initialisiereBeobachter() {
+		beobachter = new BeobachterListe();
+		verzeichnis = new Verzeichnis();
+		beobachter.anmelden(verzeichnis);
+		saldenspiegel = new Saldenspiegel();
+		beobachter.anmelden(saldenspiegel);
+		rangliste = new Rangliste();
+		beobachter.anmelden(rangliste);
+		adressIndex = new AdressIndex();
+		beobachter.anmelden(adressIndex);
+		geburtstagsIndex = new GeburtstagsIndex();
+		beobachter.anmelden(geburtstagsIndex);
+		volltextindex = new Volltextindex();
+		beobachter.anmelden(volltextindex);
+		namensindex = new Namensindex();
+		beobachter.anmelden(namensindex);
+		abbildpflege = new Abbildpflege();
+		beobachter.anmelden(abbildpflege);
+		ereignisstrom = new Ereignisstrom();
+		beobachter.anmelden(ereignisstrom);
+
+		adressPool = new AdressPool();
+		beobachter.anmelden(adressPool);	// gibt die alte Adresse bei einem Umzug frei
+		beobachter.setAdressPool(adressPool);
+		abbildstaende = new Abbildstaende();
+		ansprechpartnerIndex = new HashMap<Ansprechpartner, Ansprechpartner>();
+		for (Ansprechpartner ansprechpartner : bekannteAnsprechparnter) {
+			ansprechpartnerIndex.putIfAbsent(ansprechpartner, ansprechpartner);
+		}
+		for (Kunde kunde : kunden) {
+			kunde.setAdresse(adressPool.teilen(kunde.getAdresse()));	// vor dem Anmelden, lst keine Benachrichtigung aus
+			kundeAnmelden(kunde);
+		}
+
+		nummernVergabe = new NummernVergabe();
+		nummernVergabeAnheben();
+	}
+
+	/**
+	 * Meldet einen Kunden, der in die Kundenliste aufgenommen wurde, samt seiner Konten bei den Beobachtern an.
+	 * @param kunde
+	 * 			der neue Kunde
+	 */
+	private void kundeAnmelden(Kunde kunde) {
+		kunde.anmelden(beobachter, abbildstaende);
+		beobachter.kundeAngelegt(kunde);
+		for (Konto konto : kunde.getKontenArray()) {
+			beobachter.kontoAngelegt(kunde, konto);
+		}
 	}
 
 	/**
@@ -93,6 +213,32 @@ public final class Bank implements Serializable { // das Final steht hier zur Si
 		this.bic = bic;
 	}
 
+	/**
+	 * Gibt das Feld "blz" dieser Bank zurck
+	 * @return
+	 * 			Die achtstellige Bankleitzahl dieser Bank, null wenn keine gesetzt ist
+	 */
+	public String getBlz() {
+		return blz;
+	}
+
+	/**
+	 * Setzt das Feld blz dieser Bank. Die Bankleitzahl wird fr neu vergebene IBANs verwendet.
+	 * @param blz
+	 * 			Die achtstellige Bankleitzahl dieser Bank
+	 * @throws IllegalArgumentException
+	 * 			falls die Bankleitzahl nicht aus genau 8 Ziffern besteht
+	 */
+	public void setBlz(String blz) {
+		if (blz == null || !blz.matches("\\d{8}")) {
+			throw new IllegalArgumentException("Ungltige Bankleitzahl. Eine BLZ besteht aus 8 Ziffern.");
+		}
+		this.blz = blz;
+		if (nummernVergabe != null) {
+			nummernVergabeAnheben();
+		}
+	}
+
 	/**
 	 * Gibt das Feld "adresse" dieser Bank zurck
 	 * @return
@@ -124,11 +270,80 @@ public final class Bank implements Serializable { // das Final steht hier zur Si
 		return kunden.size();
 	}
 
+	/**
+	 * Gibt die Anzahl aller Konten der Kunden dieser Bank zurck
+	 * @return
+	 * 			Anzahl der Konten
+	 */
+	public int getKontenZahl() {
+		return abbildpflege.getAbbild().getKontenZahl();
+	}
+
+	/**
+	 * Gibt ein unvernderliches Abbild aller Kunden und Konten zum jetzigen Zeitpunkt zurck. Das Abbild kann
+	 * beliebig lange gelesen werden, whrend die Bank weiter gendert wird, und sieht dabei immer denselben,
+	 * in sich stimmigen Stand. Das Anfordern kostet nur das Lesen einer Referenz und das Anlegen eines Standes
+	 * (siehe Abbildstaende), das dazu nur auf gerade laufende Buchungen wartet.
+	 * @return
+	 * 			das Abbild der Bank
+	 * @see Bankabbild
+	 */
+	public Bankabbild snapshot() {
+		Abbildstaende.Stand stand = abbildstaende.stand();	// zuerst: ein spter erffnetes Konto fehlt dann nur in den Kunden
+		return abbildpflege.getAbbild().mitStand(stand);
+	}
+
+	/**
+	 * Gibt den Strom der nderungen an dieser Bank zurck (neue Kunden, neue und entfernte Konten, genderte
+	 * Kontostnde, Adressen und Geburtstage). Jeder Abonnent erhlt ab seiner Anmeldung alle Ereignisse, hchstens
+	 * so viele, wie er ber Flow.Subscription.request angefordert hat. Kommt ein Abonnent nicht nach, werden
+	 * Ereignisse fr ihn verworfen, statt die Bank oder andere Abonnenten aufzuhalten.
+	 * @return
+	 * 			der Publisher, bei dem sich Abonnenten anmelden knnen
+	 * @see BankEreignis
+	 * @see Ereignisstrom
+	 */
+	public Flow.Publisher<BankEreignis> events() {
+		return ereignisstrom;
+	}
+
+	/**
+	 * Gibt die Anzahl der Ereignisse zurck, die verworfen wurden, weil Abonnenten von events() nicht
+	 * nachgekommen sind
+	 * @return
+	 * 			Anzahl der verworfenen Ereignisse, pro Abonnent gezhlt
+	 */
+	public long getDroppedEvents() {
+		return ereignisstrom.getVerworfen();
+	}
+
+	/**
+	 * Gibt die Kunden dieser Bank als nicht vernderbare Sicht zurck, z.B. fr die Messung des Speicherbedarfs.
+	 * Nur fr Werkzeuge innerhalb des Pakets, nach auen bleibt die Kundenliste geheim. Die Sicht darf nur
+	 * durchlaufen werden, solange kein anderer Thread Kunden anlegt (z.B. vor dem Start oder bei angehaltenen
+	 * Schaltern), sonst siehe kundenKopieren.
+	 * @return
+	 * 			die Kunden, nicht vernderbar
+	 */
+	Set<Kunde> getKundenNurLesen() {
+		return Collections.unmodifiableSet(kunden);
+	}
+
+	/*
+	 * Gibt alle Kunden als Array zurck. Der Kundenbestand darf nur unter der Sperre der Bank durchlaufen werden,
+	 * die Kopie dagegen ohne, so dass die Sperre nur fr das Kopieren gehalten wird.
+	 */
+	private Kunde[] kundenKopieren() {
+		synchronized (kunden) {
+			return kunden.toArray(new Kunde[kunden.size()]);
+		}
+	}
+
 	/**
 	 * Private Methode, um die Kundenliste zu setzen. Wird im 
 	 * grunde nur vom Konstruktor verwendet
 	 * @param kunden
-	 * 			Ein Set fr Kunden-Objekte
+	 * 			Ein Kundenbestand fr Kunden-Objekte
 	 */
 	private void setKunden(Set<Kunde> kunden) {
 		this.kunden = kunden;
@@ -160,16 +375,59 @@ public final class Bank implements Serializable { // das Final steht hier zur Si
 	 * @param email
 	 * 			die Email-Adresse dieses Kunden als String
 	 * @param geburtstag
+	 * 			der Geburtstag des Kunden als LocalDate
+	 * @return
+	 * 			true, wenn das hinzufgen in die Liste erfolgreich war, sonst false
+	 */
+	public boolean addPrivateClient(String kundennummer, String vorname, String nachname, String adressZeile1,
+			String adressZeile2, int plz, String wohnort, String telefonnummer, String email, LocalDate geburtstag) {
+		
+		Kunde kunde = new Privatkunde(kundennummer, telefonnummer, email,
+				new Adresse(adressZeile1, adressZeile2, plz, wohnort), vorname, nachname, geburtstag);
+
+		synchronized (kunden) {
+			if (!kunden.add(kunde)) {
+				return false;
+			}
+			kunde.setAdresse(adressPool.teilen(kunde.getAdresse()));	// erst jetzt, sonst zhlt der Pool einen abgelehnten Kunden
+			kundeAnmelden(kunde);
+		}
+		return true;
+
+	}
+
+	/**
+	 * Legt einen neuen Privatkunden an wie addPrivateClient mit LocalDate, der Geburtstag wird als Calendar-Objekt
+	 * bergeben. Gespeichert werden davon nur Jahr, Monat und Tag.
+	 * 
+	 * @param kundennummer
+	 * 			die Kundennummer dieses Kunden als String
+	 * @param vorname
+	 * 			der Vorname des Kunden als String
+	 * @param nachname
+	 * 			der Nachname des Kunden als String
+	 * @param adressZeile1
+	 * 			die erste Adresszeile des neuen Kunden mit Strae und Hausnummer als String
+	 * @param adressZeile2
+	 * 			eine zweite optionale Adresszeile - kann leer bleiben
+	 * @param plz
+	 * 			die fnfstellige Postleitzahl des neuen Kunden als int
+	 * @param wohnort
+	 * 			der Wohnort des Kunden als String
+	 * @param telefonnummer
+	 * 			die Telefonnummer dieses Kunden als String
+	 * @param email
+	 * 			die Email-Adresse dieses Kunden als String
+	 * @param geburtstag
 	 * 			der Geburtstag des Kunden als Calendar-Objekt
 	 * @return
 	 * 			true, wenn das hinzufgen in die Liste erfolgreich war, sonst false
 	 */
 	public boolean addPrivateClient(String kundennummer, String vorname, String nachname, String adressZeile1,
 			String adressZeile2, int plz, String wohnort, String telefonnummer, String email, Calendar geburtstag) {
-		
-		return kunden.add(new Privatkunde(kundennummer, telefonnummer, email,
-				new Adresse(adressZeile1, adressZeile2, plz, wohnort), vorname, nachname, geburtstag));
 
+		return addPrivateClient(kundennummer, vorname, nachname, adressZeile1, adressZeile2, plz, wohnort, telefonnummer,
+				email, Privatkunde.datum(geburtstag));
 	}
 
 	// (02) Firmenkunde anlegen
@@ -208,16 +466,195 @@ public final class Bank implements Serializable { // das Final steht hier zur Si
 			int plz, String wohnort, String telefonnummer, String email, String apVorname, String apNachname,
 			String apTelefonnummer) {
 
-		Ansprechpartner ansprechpartner = new Ansprechpartner(apVorname, apNachname, apTelefonnummer);
+		Firmenkunde kunde = new Firmenkunde(kundennummer, telefonnummer, email,
+				new Adresse(adressZeile1, adressZeile2, plz, wohnort), firmenname,
+				new Ansprechpartner(apVorname, apNachname, apTelefonnummer));
 
-		if (bekannteAnsprechparnter.contains(ansprechpartner)) { // schon in der Liste
-			ansprechpartner = bekannteAnsprechparnter.get(bekannteAnsprechparnter.indexOf(ansprechpartner));	// verhindert zwei Ansprechpartner-Objekte gleichen Inhalts
-		} else { // war noch unbekannt > der liste der bekannten Ansprechpartner hinzufgen
-			bekannteAnsprechparnter.add(ansprechpartner);
+		synchronized (kunden) {
+			if (!kunden.add(kunde)) {
+				return false;
+			}
+			kunde.setAdresse(adressPool.teilen(kunde.getAdresse()));	// vor dem Anmelden, lst keine Benachrichtigung aus
+			kunde.setAnsprechpartner(bekannterAnsprechpartner(kunde.getAnsprechpartner()));	// vor dem Anmelden
+			kundeAnmelden(kunde);
 		}
+		return true;
+	}
 
-		return kunden.add(new Firmenkunde(kundennummer, telefonnummer, email,
-				new Adresse(adressZeile1, adressZeile2, plz, wohnort), firmenname, ansprechpartner));
+	/*
+	 * Gibt den bereits bekannten Ansprechpartner gleichen Inhalts zurck, damit es keine zwei Ansprechpartner-Objekte
+	 * gleichen Inhalts gibt. War er noch unbekannt, wird er der Liste der bekannten Ansprechpartner hinzugefgt.
+	 * Nur unter synchronized (kunden) aufrufen.
+	 */
+	private Ansprechpartner bekannterAnsprechpartner(Ansprechpartner ansprechpartner) {
+		Ansprechpartner bekannt = ansprechpartnerIndex.putIfAbsent(ansprechpartner, ansprechpartner);
+		if (bekannt != null) {
+			return bekannt;
+		}
+		bekannteAnsprechparnter.add(ansprechpartner);
+		return ansprechpartner;
+	}
+
+	// (01 + 02) Mehrere Kunden auf einmal anlegen
+
+	/**
+	 * Legt mehrere Privat- und Firmenkunden auf einmal an, ohne Ausgaben auf der Konsole. Das Ergebnis ist fr
+	 * jeden Antrag dasselbe, als wren addPrivateClient bzw. addBusinessClient fr die Antrge nacheinander
+	 * aufgerufen worden: Eine Kundennummer, die im selben Stapel schon einmal angelegt wurde, ist vergeben.
+	 *
+	 * Das Anlegen geschieht in zwei Schritten:
+	 *
+	 * 1. Die Kunden-, Adress- und Ansprechpartner-Objekte werden parallel erzeugt und dabei geprft. Das ist der
+	 *    teure Teil (regulre Ausdrcke fr Adresse, Telefonnummer, E-Mail usw.) und braucht keine Daten der Bank.
+	 * 2. Die gltigen Kunden werden der Reihe nach in die Kundenliste aufgenommen. Gleiche Adressen werden dabei
+	 *    ber den AdressPool geteilt, gleiche Ansprechpartner ber die Liste der bekannten Ansprechpartner.
+	 *    Ansprechpartner ungltiger oder abgelehnter Kunden werden nicht aufgenommen. Danach werden alle
+	 *    aufgenommenen Kunden mit einer einzigen Benachrichtigung (BankBeobachter.kundenAngelegt) bei den Indizes
+	 *    angemeldet, das Bankabbild fr snapshot() wird also nur einmal ersetzt.
+	 *
+	 * @param antraege
+	 * 		die Antrge in der gewnschten Reihenfolge
+	 * @return
+	 * 		das Ergebnis fr jeden Antrag, in derselben Reihenfolge wie die Antrge
+	 */
+	public List<Kundenanlage> addClients(Collection<Kundenantrag> antraege) {
+
+		Kundenantrag[] liste = antraege.toArray(new Kundenantrag[0]);
+		Kunde[] neue = new Kunde[liste.length];
+		IntStream.range(0, liste.length).parallel().forEach(i -> {
+			try {
+				neue[i] = liste[i].erzeugen();
+			} catch (IllegalArgumentException ex) { // ungltige Angaben, neue[i] bleibt null
+			}
+		});
+
+		Kundenanlage[] ergebnisse = new Kundenanlage[liste.length];
+		synchronized (kunden) {
+			aufnehmen(neue, ergebnisse);
+		}
+		return Arrays.asList(ergebnisse);
+	}
+
+	/*
+	 * Zweiter Schritt von addClients: nimmt die erzeugten Kunden der Reihe nach auf und meldet sie gemeinsam an,
+	 * unter synchronized (kunden)
+	 */
+	private void aufnehmen(Kunde[] neue, Kundenanlage[] ergebnisse) {
+		Kunde[] aufgenommen = new Kunde[neue.length];
+		int anzahl = 0;
+		for (int i = 0; i < neue.length; i++) {
+			Kunde kunde = neue[i];
+			if (kunde == null) {
+				ergebnisse[i] = Kundenanlage.UNGUELTIG;
+				continue;
+			}
+			if (!kunden.add(kunde)) {
+				ergebnisse[i] = Kundenanlage.KUNDENNUMMER_VERGEBEN;
+				continue;
+			}
+			kunde.setAdresse(adressPool.teilen(kunde.getAdresse()));	// vor dem Anmelden, lst keine Benachrichtigung aus
+			if (kunde instanceof Firmenkunde) {
+				Firmenkunde firmenkunde = (Firmenkunde) kunde;
+				firmenkunde.setAnsprechpartner(bekannterAnsprechpartner(firmenkunde.getAnsprechpartner()));
+			}
+			kunde.anmelden(beobachter, abbildstaende);
+			aufgenommen[anzahl++] = kunde;
+			ergebnisse[i] = Kundenanlage.ERFOLG;
+		}
+		if (anzahl > 0) {
+			beobachter.kundenAngelegt(Arrays.copyOf(aufgenommen, anzahl));
+		}
+	}
+
+	/**
+	 * Mgliche Ergebnisse beim Anlegen eines Kunden
+	 * @see Bank#addClients(Collection)
+	 */
+	public enum Kundenanlage {
+		ERFOLG, KUNDENNUMMER_VERGEBEN, UNGUELTIG
+	}
+
+	/**
+	 * Ein Antrag auf einen neuen Privat- oder Firmenkunden fr addClients. Die Angaben werden erst beim Anlegen
+	 * geprft.
+	 * @see Bank#addClients(Collection)
+	 */
+	public static final class Kundenantrag {
+
+		private final boolean firma;
+		private final String kundennummer;
+		private final String name;	// Firmenname oder Nachname
+		private final String vorname;	// null bei Firmenkunden
+		private final LocalDate geburtstag;
+		private final String adressZeile1;
+		private final String adressZeile2;
+		private final int plz;
+		private final String wohnort;
+		private final String telefonnummer;
+		private final String email;
+		private final String apVorname;
+		private final String apNachname;
+		private final String apTelefonnummer;
+
+		private Kundenantrag(boolean firma, String kundennummer, String name, String vorname, LocalDate geburtstag, String adressZeile1,
+				String adressZeile2, int plz, String wohnort, String telefonnummer, String email, String apVorname,
+				String apNachname, String apTelefonnummer) {
+			this.firma = firma;
+			this.kundennummer = kundennummer;
+			this.name = name;
+			this.vorname = vorname;
+			this.geburtstag = geburtstag;
+			this.adressZeile1 = adressZeile1;
+			this.adressZeile2 = adressZeile2;
+			this.plz = plz;
+			this.wohnort = wohnort;
+			this.telefonnummer = telefonnummer;
+			this.email = email;
+			this.apVorname = apVorname;
+			this.apNachname = apNachname;
+			this.apTelefonnummer = apTelefonnummer;
+		}
+
+		/**
+		 * Erzeugt einen Antrag auf einen Privatkunden, die Parameter entsprechen addPrivateClient
+		 * @return
+		 * 		der Antrag
+		 * @see Bank#addPrivateClient(String, String, String, String, String, int, String, String, String, LocalDate)
+		 */
+		public static Kundenantrag privatkunde(String kundennummer, String vorname, String nachname, String adressZeile1,
+				String adressZeile2, int plz, String wohnort, String telefonnummer, String email, LocalDate geburtstag) {
+			return new Kundenantrag(false, kundennummer, nachname, vorname, geburtstag, adressZeile1, adressZeile2, plz, wohnort,
+					telefonnummer, email, null, null, null);
+		}
+
+		/**
+		 * Erzeugt einen Antrag auf einen Firmenkunden, die Parameter entsprechen addBusinessClient
+		 * @return
+		 * 		der Antrag
+		 * @see Bank#addBusinessClient(String, String, String, String, int, String, String, String, String, String, String)
+		 */
+		public static Kundenantrag firmenkunde(String kundennummer, String firmenname, String adressZeile1,
+				String adressZeile2, int plz, String wohnort, String telefonnummer, String email, String apVorname,
+				String apNachname, String apTelefonnummer) {
+			return new Kundenantrag(true, kundennummer, firmenname, null, null, adressZeile1, adressZeile2, plz, wohnort,
+					telefonnummer, email, apVorname, apNachname, apTelefonnummer);
+		}
+
+		public String getKundennummer() {
+			return kundennummer;
+		}
+
+		/*
+		 * Erzeugt den Kunden mit eigener Adresse und eigenem Ansprechpartner, beides wird erst beim Aufnehmen geteilt
+		 */
+		private Kunde erzeugen() {
+			Adresse adresse = new Adresse(adressZeile1, adressZeile2, plz, wohnort);
+			if (!firma) {
+				return new Privatkunde(kundennummer, telefonnummer, email, adresse, vorname, name, geburtstag);
+			}
+			return new Firmenkunde(kundennummer, telefonnummer, email, adresse, name,
+					new Ansprechpartner(apVorname, apNachname, apTelefonnummer));
+		}
 	}
 
 	// (03) Konto anlegen und Kundennummer zuordnen
@@ -241,39 +678,202 @@ public final class Bank implements Serializable { // das Final steht hier zur Si
 	 * 		true, wenn das Konto fehlerfrei erzeugt ud zugeordnet werden konnte, sonst false (zustzliche Informationen in diesem Fall auf der Konsole)
 	 */
 	public boolean addAccount(String kundennummer, String iban, Double startkapital) {
-		
-		if (!getClientByKdnr(kundennummer, false)) {
+
+		switch (openAccount(kundennummer, iban, startkapital)) {
+		case ERFOLG:
+			System.out.println("Das Konto " + iban + " wurde dem Kunden " + kundennummer + " hinzugefgt");
+			return true;
+		case KUNDE_UNBEKANNT:
 			System.err.println("Keinen Eintrag fr Kundennummer " + kundennummer + " gefunden");
+			return false;
+		case IBAN_VERGEBEN:
+			System.err.println("Das Konto mit der IBAN   " + iban + "   existiert bereits!");
+			return false;
+		case LIMIT_ERREICHT:
+			System.err.println("Maximale Kontenzahl fr Kunden erreicht");
+			return false;
+		default:
+			return false;
 		}
+	}
 
-		for (Kunde kunde : kunden) {
-			for (Konto konto : kunde.getKonten()) {
-				if (konto.getIban().equals(iban)) {
-					System.err.println("Das Konto mit der IBAN   " + iban + "   existiert bereits!");
-					return false;
-				}
+	/**
+	 * Legt ein neues Konto an und ordnet es dem Kunden mit der bergebenen Kundennummer zu, ohne
+	 * Ausgaben auf der Konsole. Das Ergebnis beschreibt, ob und warum das Anlegen fehlgeschlagen ist.
+	 * 
+	 * @param kundennummer
+	 * 		die Kundennummer des Kunden, dem das neue Konto zugeordnet werden soll
+	 * @param iban
+	 * 		die IBAN fr das neue Konto
+	 * @param startkapital
+	 * 		das Startkapital des neuen Kontos
+	 * @return
+	 * 		das Ergebnis der Kontoerffnung
+	 */
+	public Kontoeroeffnung openAccount(String kundennummer, String iban, double startkapital) {
+
+		Kunde inhaber = findClientByKdnr(kundennummer);
+		if (inhaber == null) {
+			return Kontoeroeffnung.KUNDE_UNBEKANNT;
+		}
+		Konto konto = null;
+		try {
+			konto = new Konto(iban, startkapital);	// vor der Sperre, die IBAN wird mit einem regulren Ausdruck geprft
+		} catch (IllegalArgumentException ex) { // ungltige IBAN, wird wie bisher erst nach den anderen Prfungen gemeldet
+		}
+
+		synchronized (kunden) { // Prfen und Anlegen in einem Schritt, sonst knnten zwei Threads dieselbe IBAN vergeben
+			if (findAccount(iban) != null) {
+				return Kontoeroeffnung.IBAN_VERGEBEN;
+			}
+			if (inhaber.getKonten().size() >= Kontenliste.MAX_KONTEN) {
+				return Kontoeroeffnung.LIMIT_ERREICHT;
 			}
-			if (kunde.getKundennummer().equals(kundennummer)) {
+			if (konto == null) {
+				return Kontoeroeffnung.UNGUELTIG;
+			}
+			try {
+				return inhaber.addKonto(konto) ? Kontoeroeffnung.ERFOLG : Kontoeroeffnung.IBAN_VERGEBEN;
+			} catch (AccountLimitReachedException ex) {
+				return Kontoeroeffnung.LIMIT_ERREICHT;
+			}
+		}
+	}
 
-				if (kunde.getKonten().size() >= 10) {
-					System.err.println("Maximale Kontenzahl fr Kunden erreicht");
-					return false;
+	/**
+	 * Legt mehrere Konten auf einmal an, ohne Ausgaben auf der Konsole. Das Ergebnis ist fr jeden Antrag
+	 * dasselbe, als wre openAccount fr die Antrge nacheinander aufgerufen worden: Eine IBAN, die im selben
+	 * Stapel schon einmal erfolgreich beantragt wurde, ist vergeben, und die Antrge eines Kunden zhlen
+	 * zusammen mit seinen vorhandenen Konten gegen die maximale Kontenzahl.
+	 *
+	 * Geprft wird der ganze Stapel in einem Durchgang, jeder Kunde wird dabei nur einmal gesucht. Danach
+	 * erhlt jeder Kunde seine neuen Konten in einem Schritt: Andere Threads sehen entweder keines oder alle
+	 * neuen Konten eines Kunden. Prfung und Anlegen laufen unter derselben Sperre wie openAccount, gleichzeitige
+	 * Kontoerffnungen ber die Bank ndern den Stapel also nicht. Wurde einem Kunden trotzdem zwischen Prfung und
+	 * Anlegen ein Konto direkt hinzugefgt und passen die neuen Konten nicht mehr, wird fr diesen Kunden keines
+	 * angelegt und seine Antrge erhalten LIMIT_ERREICHT bzw. IBAN_VERGEBEN.
+	 *
+	 * @param antraege
+	 * 		die Antrge in der gewnschten Reihenfolge
+	 * @return
+	 * 		das Ergebnis fr jeden Antrag, in derselben Reihenfolge wie die Antrge
+	 */
+	public List<Kontoeroeffnung> addAccounts(Collection<Kontoantrag> antraege) {
+
+		Kontoeroeffnung[] ergebnisse = new Kontoeroeffnung[antraege.size()];
+		synchronized (kunden) {
+			Map<String, Kontogruppe> gruppen = new LinkedHashMap<String, Kontogruppe>();
+			Set<String> neueIbans = new HashSet<String>();
+			int nr = 0;
+			for (Kontoantrag antrag : antraege) {
+				Kontogruppe gruppe = gruppen.get(antrag.getKundennummer());
+				if (gruppe == null) {
+					gruppe = new Kontogruppe(findClientByKdnr(antrag.getKundennummer()));
+					gruppen.put(antrag.getKundennummer(), gruppe);
 				}
+				ergebnisse[nr] = gruppe.pruefen(nr, antrag, neueIbans);
+				nr++;
+			}
 
-				try {
-					if (kunde.addKonto(new Konto(iban, startkapital))){
-						System.out.println("Das Konto " + iban + " wurde dem Kunden " + kundennummer + " hinzugefgt");
-						return true;
-					}
-					return false;
-				} catch (AccountLimitReachedException ex){
-					System.err.println("Der Kunde hat bereits die maximale Anzahl von Konten (10)");
-					return false;
+			for (Kontogruppe gruppe : gruppen.values()) {
+				if (gruppe.anzahl == 0) {
+					continue;
+				}
+				Konto[] neue = Arrays.copyOf(gruppe.konten, gruppe.anzahl);
+				boolean angelegt = gruppe.inhaber.addKonten(neue);
+				for (int k = 0; k < neue.length; k++) {
+					ergebnisse[gruppe.nummern[k]] = angelegt ? Kontoeroeffnung.ERFOLG
+							: gruppe.inhaber.getKonten().contains(neue[k]) ? Kontoeroeffnung.IBAN_VERGEBEN : Kontoeroeffnung.LIMIT_ERREICHT;
 				}
 			}
 		}
-		assert false : "Im Grunde sollte dieser Code nie erreicht werden und da nachfolgende Returnstatement dient nur dazu, dass der Code compiliert";
-		return false; 
+		return Arrays.asList(ergebnisse);
+	}
+
+	/**
+	 * Mgliche Ergebnisse beim Anlegen eines Kontos
+	 * @see Bank#openAccount(String, String, double)
+	 */
+	public enum Kontoeroeffnung {
+		ERFOLG, KUNDE_UNBEKANNT, IBAN_VERGEBEN, LIMIT_ERREICHT, UNGUELTIG
+	}
+
+	/**
+	 * Ein Antrag auf ein neues Konto fr addAccounts
+	 * @see Bank#addAccounts(Collection)
+	 */
+	public static final class Kontoantrag {
+
+		private final String kundennummer;
+		private final String iban;
+		private final double startkapital;
+
+		/**
+		 * Erzeugt einen Antrag
+		 * @param kundennummer
+		 * 		die Kundennummer des Kunden, dem das neue Konto zugeordnet werden soll
+		 * @param iban
+		 * 		die IBAN fr das neue Konto
+		 * @param startkapital
+		 * 		das Startkapital des neuen Kontos
+		 */
+		public Kontoantrag(String kundennummer, String iban, double startkapital) {
+			this.kundennummer = kundennummer;
+			this.iban = iban;
+			this.startkapital = startkapital;
+		}
+
+		public String getKundennummer() {
+			return kundennummer;
+		}
+
+		public String getIban() {
+			return iban;
+		}
+
+		public double getStartkapital() {
+			return startkapital;
+		}
+	}
+
+	/*
+	 * Die angenommenen Antrge eines Kunden in addAccounts: die neuen Konten und die Stelle des Antrags im Stapel
+	 */
+	private final class Kontogruppe {
+
+		private final Kunde inhaber;
+		private final int vorhanden;
+		private final Konto[] konten = new Konto[Kontenliste.MAX_KONTEN];
+		private final int[] nummern = new int[Kontenliste.MAX_KONTEN];
+		private int anzahl;
+
+		private Kontogruppe(Kunde inhaber) {
+			this.inhaber = inhaber;
+			this.vorhanden = (inhaber == null) ? 0 : inhaber.getKonten().size();
+		}
+
+		/*
+		 * Prft einen Antrag wie openAccount und nimmt ihn bei Erfolg in die Gruppe auf
+		 */
+		private Kontoeroeffnung pruefen(int nr, Kontoantrag antrag, Set<String> neueIbans) {
+			if (inhaber == null) {
+				return Kontoeroeffnung.KUNDE_UNBEKANNT;
+			}
+			if (neueIbans.contains(antrag.getIban()) || findAccount(antrag.getIban()) != null) {
+				return Kontoeroeffnung.IBAN_VERGEBEN;
+			}
+			if (vorhanden + anzahl >= Kontenliste.MAX_KONTEN) {
+				return Kontoeroeffnung.LIMIT_ERREICHT;
+			}
+			try {
+				konten[anzahl] = new Konto(antrag.getIban(), antrag.getStartkapital());
+			} catch (IllegalArgumentException ex) { // ungltige IBAN
+				return Kontoeroeffnung.UNGUELTIG;
+			}
+			neueIbans.add(antrag.getIban());
+			nummern[anzahl++] = nr;
+			return null;	// steht erst nach dem Anlegen fest
+		}
 	}
 
 	// (04) Kunde mit Konten anzeigen (Auswahl durch Kundennummer)
@@ -304,15 +904,44 @@ public final class Bank implements Serializable { // das Final steht hier zur Si
 	 * 			true, wenn der Kunde existiert, false, wenn er nicht existiert
 	 */
 	public boolean getClientByKdnr(String kundennummer, boolean echo) {
-		for (Kunde kunde : kunden) {
-			if (kunde.getKundennummer().equalsIgnoreCase(kundennummer)) {
-
-				if (echo) System.out.println(kunde);
-				return true;
-				
-			}
+		Kunde kunde = findClientByKdnr(kundennummer);
+		if (kunde == null) {
+			return false;
+		}
+		if (echo) {
+			BerichtRenderer renderer = new BerichtRenderer(System.out);
+			renderer.kunde(kunde, Style.DETAILED);
+			renderer.flush();
 		}
-		return false;
+		return true;
+	}
+
+	/**
+	 * Sucht den Kunden mit der bergebenen Kundennummer, ohne etwas auf der Konsole auszugeben.
+	 * 
+	 * @param kundennummer
+	 * 			Die Kundennummer des gesuchten Kunden
+	 * @return
+	 * 			der Kunde oder null, wenn es keinen Kunden mit dieser Kundennummer gibt
+	 */
+	public Kunde findClientByKdnr(String kundennummer) {
+		return ((Kundenbestand) kunden).get(kundennummer);
+	}
+
+	/**
+	 * Gibt eine Seite der nach Kundennummer sortierten Kunden zurck, ohne Ausgaben auf der Konsole. Die nchste
+	 * Seite beginnt nach der Kundennummer des letzten Kunden dieser Seite. Die Seite luft ber einen sortierten
+	 * Index und kostet unabhngig von der Anzahl der Kunden nur den Sprung an die Startposition.
+	 * 
+	 * @param nachKundennummer
+	 * 			die Seite beginnt mit dem ersten Kunden nach dieser Kundennummer, null fr die erste Seite
+	 * @param anzahl
+	 * 			hchstens so viele Kunden
+	 * @return
+	 * 			die Kunden der Seite aufsteigend nach Kundennummer, leer nach der letzten Seite
+	 */
+	public List<Kunde> getClientsPage(String nachKundennummer, int anzahl) {
+		return verzeichnis.getKundenNach(nachKundennummer, anzahl);
 	}
 
 	/**
@@ -324,12 +953,8 @@ public final class Bank implements Serializable { // das Final steht hier zur Si
 	 * 			Anzahl der Konten. Wenn der Kunde nicht existiert: -1
 	 */
 	public int getClientAccountNumByKdnr(String kundennummer) { 
-		for (Kunde kunde : kunden) {
-			if (kunde.getKundennummer().equalsIgnoreCase(kundennummer)) {
-				return kunde.getKonten().size();
-			} 
-		}
-		return -1;
+		Kunde kunde = findClientByKdnr(kundennummer);
+		return (kunde == null) ? -1 : kunde.getKonten().size();
 	}
 
 	// (05) Kunde mit Konten anzeigen (Auswahl durch Name)
@@ -366,34 +991,69 @@ public final class Bank implements Serializable { // das Final steht hier zur Si
 	 * 			true, wenn der Kunde existiert, sonst false
 	 */
 	public boolean getClientbyName(String name, Style style) {
-		
-		boolean retval = false;
 
-		for (Kunde kunde : kunden) {
-			
-			if (kunde.getName().equalsIgnoreCase(name.trim())) {
-				switch (style) {
-				case COMPACT:
-					System.out.println("Kundennummer " + kunde.getKundennummer() + ": " + kunde.getName());
-					break;
-				case NORMAL:
-					System.out.println("Kundennummer " + kunde.getKundennummer() + ":\n" + kunde.getName() + "\n"
-							+ kunde.getAdresse());
-					break;
-				case DETAILED:
-					System.out.println(kunde);
-					break;
-				default:
-					assert false;
-					break;
-				}
+		List<Kunde> treffer = findClientsByName(name);
+		BerichtRenderer renderer = new BerichtRenderer(System.out);
 
-				retval = true;
+		for (Kunde kunde : treffer) {
+			switch (style) {
+			case COMPACT:
+			case DETAILED:
+				renderer.kunde(kunde, style);
+				break;
+			case NORMAL: // anders als in getAllClients mit eingerckter Adresse
+				renderer.text("Kundennummer ").text(kunde.getKundennummer()).text(":\n").text(kunde.getName()).text("\n");
+				renderer.adresse(kunde.getAdresse());
+				renderer.zeileBeenden();
+				break;
+			default:
+				assert false;
+				break;
 			}
 		}
+		renderer.flush();
 
-		return retval;
+		return !treffer.isEmpty();
+
+	}
 
+	/**
+	 * Sucht alle Kunden mit dem bergebenen vollen Namen (Gro- und Kleinschreibung wird ignoriert), ohne etwas
+	 * auf der Konsole auszugeben.
+	 * 
+	 * @param name
+	 * 			Voller Name (Vor- und Nachname) bzw. Firmenname
+	 * @return
+	 * 			Liste der gefundenen Kunden, leer wenn es keinen Kunden dieses Namens gibt
+	 */
+	public List<Kunde> findClientsByName(String name) {
+
+		List<Kunde> treffer = new ArrayList<Kunde>();
+		String gesucht = name.trim();
+
+		for (Kunde kunde : kundenKopieren()) {
+			if (kunde.getName().equalsIgnoreCase(gesucht)) {
+				treffer.add(kunde);
+			}
+		}
+		return treffer;
+	}
+
+	/**
+	 * Sucht alle Kunden, deren Name dem bergebenen Namen hnlich ist, z.B. bei Tippfehlern ("Meier" fr "Meyer").
+	 * Gross-/Kleinschreibung und die Schreibweise von Umlauten ("Mller", "Mueller") zhlen nicht als Unterschied.
+	 * Die Suche luft ber einen Trigrammindex und durchsucht nicht die gesamte Kundenliste.
+	 * 
+	 * @param name
+	 * 			Voller Name (Vor- und Nachname) bzw. Firmenname
+	 * @param maxDistanz
+	 * 			Anzahl der Tippfehler (eingefgte, fehlende oder falsche Zeichen), die hchstens erlaubt sind
+	 * @return
+	 * 			Liste der gefundenen Kunden, die hnlichsten Namen zuerst
+	 * @see Namensindex
+	 */
+	public List<Kunde> findClientsByNameFuzzy(String name, int maxDistanz) {
+		return namensindex.suchen(name, maxDistanz);
 	}
 
 	// (06) Konto anzeigen (Auswahl durch IBAN)
@@ -410,23 +1070,98 @@ public final class Bank implements Serializable { // das Final steht hier zur Si
 	 */
 	public boolean getAccount(String iban) { 
 		
-		for (Kunde kunde : kunden) {
-			for (Konto konto : kunde.getKonten()) {
-				if (konto.getIban().equals(iban)) {
+		Konto konto = findAccount(iban);
+		if (konto == null) {
+			System.err.println("Account " + iban + "not found");
+			return false;
+		}
 
-					System.out.println(konto + "\nRegistriert auf:");
-					System.out.println("Kundennummer " + kunde.getKundennummer() + ":\n" + kunde.getName() + "\n"
-							+ kunde.getAdresse().toStringCompact());
-					// System.out.println(kunde);
+		Kunde kunde = konto.getInhaber();
+		BerichtRenderer renderer = new BerichtRenderer(System.out);
+		renderer.konto(konto);
+		renderer.text("\nRegistriert auf:");
+		renderer.zeileBeenden();
+		renderer.text("Kundennummer ").text(kunde.getKundennummer()).text(":\n").text(kunde.getName()).text("\n");
+		renderer.adresseKompakt(kunde.getAdresse());
+		renderer.zeileBeenden();
+		renderer.flush();
+		return true;
+		
+	}
+
+	/**
+	 * Sucht das Konto mit der bergebenen IBAN, ohne etwas auf der Konsole auszugeben.
+	 * 
+	 * @param iban
+	 * 			IBAN des gesuchten Kontos in DIN 5008 (z.B. DE12 3456 7890 1234 5678 90)
+	 * @return
+	 * 			das Konto oder null, wenn es kein Konto mit dieser IBAN gibt
+	 */
+	public Konto findAccount(String iban) {
+		return verzeichnis.getKonto(iban);
+	}
 
-					return true;
+	// berweisung
 
+	/**
+	 * berweist einen Betrag von einem Konto auf ein anderes, ohne Ausgaben auf der Konsole. Das Konto, von dem
+	 * berwiesen wird, darf dabei nicht ins Minus gehen.
+	 *
+	 * Beide Konten werden whrend der Buchung gesperrt, immer in der Reihenfolge ihrer IBAN. Damit sehen
+	 * gleichzeitige berweisungen zwischen denselben Konten nie einen halb gebuchten Stand und knnen sich nicht
+	 * gegenseitig blockieren. Die Summe aller Kontostnde bleibt bei jeder berweisung gleich. Abbuchung und
+	 * Gutschrift laufen als eine Buchung (siehe Abbildstaende), ein Abbild (siehe snapshot) enthlt also beide oder keine.
+	 *
+	 * @param vonIban
+	 * 		die IBAN des Kontos, das belastet wird
+	 * @param nachIban
+	 * 		die IBAN des Kontos, dem gutgeschrieben wird
+	 * @param betrag
+	 * 		der Betrag, grer als 0, wird auf ganze Cent gerundet
+	 * @return
+	 * 		das Ergebnis der berweisung
+	 */
+	public Ueberweisung transfer(String vonIban, String nachIban, double betrag) {
+
+		Konto von = findAccount(vonIban);
+		Konto nach = findAccount(nachIban);
+		if (von == null || nach == null) {
+			return Ueberweisung.KONTO_UNBEKANNT;
+		}
+		long cent = Konto.inCent(betrag);
+		if (von == nach || !(cent > 0)) {
+			return Ueberweisung.UNGUELTIG;
+		}
+
+		Konto erstes = (von.getIban().compareTo(nach.getIban()) < 0) ? von : nach;
+		Konto zweites = (erstes == von) ? nach : von;
+		synchronized (erstes) {
+			synchronized (zweites) {
+				long stand = von.getCent();
+				if (stand < cent) {
+					return Ueberweisung.DECKUNG_FEHLT;
+				}
+				long altNach;
+				long stempel = abbildstaende.buchungBeginnen();	// beide Seiten in einer Buchung, siehe snapshot
+				try {
+					von.buchen(stand - cent);
+					altNach = nach.buchen(nach.getCent() + cent);
+				} finally {
+					abbildstaende.buchungBeenden(stempel);
 				}
+				von.melden(stand, stand - cent);
+				nach.melden(altNach, altNach + cent);
 			}
 		}
-		System.err.println("Account " + iban + "not found");
-		return false;
-		
+		return Ueberweisung.ERFOLG;
+	}
+
+	/**
+	 * Mgliche Ergebnisse einer berweisung
+	 * @see Bank#transfer(String, String, double)
+	 */
+	public enum Ueberweisung {
+		ERFOLG, KONTO_UNBEKANNT, DECKUNG_FEHLT, UNGUELTIG
 	}
 
 	// (07) Alle Kunden unsortiert anzeigen
@@ -444,7 +1179,7 @@ public final class Bank implements Serializable { // das Final steht hier zur Si
 	 */
 	public void getAllClients(Style stlye) {
 
-		List<Kunde> kundenUnsortedTemp = new ArrayList<Kunde>(kunden);
+		List<Kunde> kundenUnsortedTemp = new ArrayList<Kunde>(snapshot().getKunden());
 
 		Collections.shuffle(kundenUnsortedTemp); // wirkliche unsortiertheit gewhrleisten durch shuffle
 		
@@ -469,9 +1204,7 @@ public final class Bank implements Serializable { // das Final steht hier zur Si
 	 */
 	public void getAllClientsSorted(Style stlye) {
 
-		TreeSet<Kunde> kundenSorted = new TreeSet<Kunde>(kunden); // neues treeset sortiert automatisch nach natrlichem rang
-
-		printAllOnConsole(kundenSorted, stlye);
+		printAllOnConsole(snapshot().getKundenSortiert(), stlye); // das Abbild sortiert nur die Eintrge, Kopien entstehen erst bei der Ausgabe
 
 	}
 
@@ -492,7 +1225,7 @@ public final class Bank implements Serializable { // das Final steht hier zur Si
 
 		Map<Konto, Kunde> kontenUnsorted = new HashMap<Konto, Kunde>(); 
 
-		for (Kunde kunde : kunden) {
+		for (Kunde kunde : snapshot().getKunden()) {
 
 			for (Konto konto : kunde.getKonten()) {
 
@@ -504,6 +1237,377 @@ public final class Bank implements Serializable { // das Final steht hier zur Si
 
 	}
 
+	/**
+	 * Legt eine Abfrage an, die mehrere Bedingungen ber Kundentyp, Adresse, Geburtsdatum, Kontostnde und Anzahl
+	 * der Konten verknpft. Beim Ausfhren wird der Index mit den wenigsten Treffern gewhlt, oder alle Kunden
+	 * werden parallel durchsucht, wenn kein Index genug einschrnkt.
+	 * @return
+	 * 			eine neue Abfrage ohne Bedingungen
+	 * @see Abfrage
+	 */
+	public Abfrage query() {
+		return new Abfrage(kunden, adressIndex, geburtstagsIndex, rangliste);
+	}
+
+	// Abfragen ber den Adressindex
+
+	/**
+	 * Gibt alle Kunden zurck, deren Postleitzahl im bergebenen Bereich liegt, z.B. 50000 bis 50999.
+	 * Die Abfrage luft ber einen sortierten Index und durchsucht nicht die gesamte Kundenliste.
+	 * @param von
+	 * 			kleinste Postleitzahl (einschliesslich)
+	 * @param bis
+	 * 			grte Postleitzahl (einschliesslich)
+	 * @return
+	 * 			Liste der Kunden, aufsteigend nach Postleitzahl sortiert
+	 */
+	public List<Kunde> getClientsByPlz(int von, int bis) {
+		return adressIndex.getKundenNachPlz(von, bis);
+	}
+
+	/**
+	 * Gibt alle Kunden zurck, deren Adresse im bergebenen Ort liegt. Gross-/Kleinschreibung und
+	 * die Schreibweise von Umlauten ( oder ue) spielen keine Rolle.
+	 * @param ort
+	 * 			der gesuchte Ort
+	 * @return
+	 * 			Liste der Kunden
+	 */
+	public List<Kunde> getClientsByOrt(String ort) {
+		return adressIndex.getKundenNachOrt(ort);
+	}
+
+	/**
+	 * Sucht Kunden ber Bruchstcke ihres Namens, ihrer E-Mail-Adresse oder ihrer Adresse, z.B. ein Wort der
+	 * Strae oder die Domain der E-Mail-Adresse. Gross-/Kleinschreibung und die Schreibweise von Umlauten spielen
+	 * keine Rolle, ein Begriff mit * am Ende findet alle Wrter mit diesem Anfang ("haupt*").
+	 * @param suchtext
+	 * 			die Suchbegriffe, durch Leerzeichen getrennt
+	 * @param alleBegriffe
+	 * 			true: nur Kunden, bei denen alle Begriffe vorkommen, false: mindestens einer
+	 * @return
+	 * 			Liste der Kunden, die relevantesten zuerst (seltene Begriffe und Treffer im Namen zhlen mehr)
+	 * @see Volltextindex
+	 */
+	public List<Kunde> searchClients(String suchtext, boolean alleBegriffe) {
+		return volltextindex.suchen(suchtext, alleBegriffe);
+	}
+
+	// Abfragen ber den Geburtstagsindex
+
+	/**
+	 * Gibt alle Privatkunden zurck, die im bergebenen Zeitraum Geburtstag haben (nur Tag und Monat zhlen).
+	 * @param von
+	 * 			erster Tag des Zeitraums (einschliesslich)
+	 * @param bis
+	 * 			letzter Tag des Zeitraums (einschliesslich)
+	 * @return
+	 * 			Liste der Privatkunden, nach Monat und Tag sortiert
+	 */
+	public List<Privatkunde> getClientsWithBirthdayBetween(LocalDate von, LocalDate bis) {
+		return geburtstagsIndex.getGeburtstageZwischen(von, bis);
+	}
+
+	/**
+	 * Gibt alle Privatkunden zurck, die in der aktuellen Woche (Montag bis Sonntag) Geburtstag haben
+	 * @return
+	 * 			Liste der Privatkunden, nach Monat und Tag sortiert
+	 */
+	public List<Privatkunde> getClientsWithBirthdayThisWeek() {
+		LocalDate montag = LocalDate.now().with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+		return getClientsWithBirthdayBetween(montag, montag.plusDays(6));
+	}
+
+	/**
+	 * Gibt alle Privatkunden zurck, deren Alter am heutigen Tag im bergebenen Bereich liegt
+	 * @param minAlter
+	 * 			Mindestalter in Jahren (einschliesslich)
+	 * @param maxAlter
+	 * 			Hchstalter in Jahren (einschliesslich)
+	 * @return
+	 * 			Liste der Privatkunden, nach Geburtsdatum sortiert (lteste zuerst)
+	 */
+	public List<Privatkunde> getClientsByAge(int minAlter, int maxAlter) {
+		LocalDate heute = LocalDate.now();
+		return geburtstagsIndex.getGeborenZwischen(heute.minusYears(maxAlter + 1).plusDays(1), heute.minusYears(minAlter));
+	}
+
+	// Auswertungen
+
+	/**
+	 * Gibt die Summe aller Kontostnde dieser Bank zurck. Die Summe wird laufend mitgefhrt,
+	 * das Auslesen bentigt daher keine Schleife ber alle Kunden.
+	 * @return
+	 * 			Summe aller Kontostnde
+	 */
+	public double getTotalBalance() {
+		return saldenspiegel.getGesamtCent() / 100.0;
+	}
+
+	/**
+	 * Gibt die Summe der Kontostnde eines Kunden zurck
+	 * @param kundennummer
+	 * 			die Kundennummer des Kunden
+	 * @return
+	 * 			Summe der Kontostnde des Kunden, 0 wenn der Kunde nicht existiert
+	 */
+	public double getClientBalance(String kundennummer) {
+		return saldenspiegel.getKundeCent(kundennummer) / 100.0;
+	}
+
+	/**
+	 * Gibt die Summe der Kontostnde aller Kunden eines Typs zurck
+	 * @param typ
+	 * 			der Kundentyp, Privatkunde.class oder Firmenkunde.class
+	 * @return
+	 * 			Summe der Kontostnde aller Kunden dieses Typs
+	 */
+	public double getBalanceByType(Class<? extends Kunde> typ) {
+		return saldenspiegel.getTypCent(typ) / 100.0;
+	}
+
+	/**
+	 * Gibt die Summe der Kontostnde aller Kunden mit der bergebenen Postleitzahl zurck
+	 * @param plz
+	 * 			fnfstellige Postleitzahl
+	 * @return
+	 * 			Summe der Kontostnde aller Kunden mit dieser Postleitzahl
+	 * @throws IndexOutOfBoundsException
+	 * 			falls die Postleitzahl nicht fnfstellig ist
+	 */
+	public double getBalanceByPlz(int plz) {
+		return saldenspiegel.getPlzCent(plz) / 100.0;
+	}
+
+	/**
+	 * Gibt die N Konten mit dem hchsten Kontostand zurck. Die Rangliste wird bei jeder Buchung
+	 * mitgefhrt, die Abfrage kostet daher nur das Auslesen der ersten N Eintrge.
+	 * @param n
+	 * 			Anzahl der gewnschten Konten, z.B. 100
+	 * @return
+	 * 			Liste der Konten, absteigend nach Kontostand sortiert
+	 */
+	public List<Konto> getTopAccounts(int n) {
+		return rangliste.getTopKonten(n);
+	}
+
+	/**
+	 * Gibt die N Kunden mit der hchsten Summe ihrer Kontostnde zurck
+	 * @param n
+	 * 			Anzahl der gewnschten Kunden
+	 * @return
+	 * 			Liste der Kunden, absteigend nach Summe der Kontostnde sortiert
+	 */
+	public List<Kunde> getTopClients(int n) {
+		return rangliste.getTopKunden(n);
+	}
+
+	// Dublettensuche
+
+	/**
+	 * Sucht nach Kunden, die vermutlich doppelt angelegt wurden. Verglichen werden nur Kunden mit gemeinsamen
+	 * Blockschlsseln (Name + PLZ, E-Mail, Telefon, Nachname + Geburtstag), siehe Dublettensuche.
+	 * @return
+	 * 			Liste der Verdachtsflle, absteigend nach Wahrscheinlichkeit sortiert
+	 */
+	public List<Dublettensuche.Verdacht> findDuplicateClients() {
+		return new Dublettensuche().suchen(snapshot().getKunden());
+	}
+
+	/**
+	 * Sucht nach vermutlich doppelt angelegten Kunden und gibt einen Bericht auf der Konsole aus
+	 * @return
+	 * 			Anzahl der Verdachtsflle
+	 */
+	public int printDuplicateReport() {
+		Dublettensuche suche = new Dublettensuche();
+		List<Dublettensuche.Verdacht> verdachtsfaelle = suche.suchen(snapshot().getKunden());
+		try {
+			suche.berichtSchreiben(verdachtsfaelle, System.out);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		return verdachtsfaelle.size();
+	}
+
+	// nderungsprotokoll
+
+	/**
+	 * Schreibt ab jetzt alle nderungen an dieser Bank in ein nderungsprotokoll im bergebenen Verzeichnis.
+	 * Andere Systeme knnen daraus ber pollChanges nur die nderungen seit ihrem letzten Abruf lesen. Ein
+	 * vorhandenes Protokoll wird fortgesetzt.
+	 * @param verzeichnis
+	 * 			Verzeichnis fr die Segmentdateien und die Offsets der Leser, wird bei Bedarf angelegt
+	 * @throws IOException
+	 * 			falls das Verzeichnis nicht angelegt oder ein vorhandenes Segment nicht gelesen werden kann
+	 * @see Aenderungsprotokoll
+	 */
+	public void openChangeFeed(Path verzeichnis) throws IOException {
+		Aenderungsprotokoll neu = new Aenderungsprotokoll(verzeichnis);
+		synchronized (kunden) { // zwei gleichzeitige Aufrufe drfen nicht beide angemeldet bleiben
+			if (aenderungsprotokoll != null) {
+				beobachter.abmelden(aenderungsprotokoll);
+			}
+			aenderungsprotokoll = neu;
+			beobachter.anmelden(neu);
+		}
+	}
+
+	/**
+	 * Liest die nderungen, die der bergebene Leser noch nicht besttigt hat. Ein Leser, der noch nie besttigt
+	 * hat, beginnt beim ltesten Eintrag des Protokolls.
+	 * @param leser
+	 * 			Name des Lesers, z.B. "berichte" (Buchstaben, Ziffern, _ und -)
+	 * @param max
+	 * 			hchstens so viele nderungen werden geliefert
+	 * @return
+	 * 			die nderungen in der Reihenfolge ihres Offsets (BankEreignis.getNummer())
+	 * @throws IllegalStateException
+	 * 			falls openChangeFeed noch nicht aufgerufen wurde
+	 * @throws UncheckedIOException
+	 * 			falls alle nderungen gelesen sind und das Protokoll eine weitere nderung nicht schreiben konnte
+	 */
+	public List<BankEreignis> pollChanges(String leser, int max) {
+		return geoeffnetesProtokoll().lesen(leser, max);
+	}
+
+	/**
+	 * Besttigt, dass der Leser alle nderungen vor dem bergebenen Offset verarbeitet hat. Segmente, die alle
+	 * Leser besttigt haben, werden gelscht.
+	 * @param leser
+	 * 			Name des Lesers
+	 * @param offset
+	 * 			Nummer der letzten verarbeiteten nderung + 1
+	 * @throws IOException
+	 * 			falls der Offset nicht gespeichert werden kann
+	 * @throws IllegalArgumentException
+	 * 			falls der Offset vor der ltesten vorhandenen oder hinter der nchsten nderung liegt
+	 * @throws IllegalStateException
+	 * 			falls openChangeFeed noch nicht aufgerufen wurde
+	 */
+	public void commitChanges(String leser, long offset) throws IOException {
+		geoeffnetesProtokoll().bestaetigen(leser, offset);
+	}
+
+	private Aenderungsprotokoll geoeffnetesProtokoll() {
+		Aenderungsprotokoll protokoll = aenderungsprotokoll;
+		if (protokoll == null) {
+			throw new IllegalStateException("Das nderungsprotokoll wurde nicht geffnet (openChangeFeed)");
+		}
+		return protokoll;
+	}
+
+	// Nummernvergabe
+
+	/**
+	 * Verwendet fr neue Kundennummern und IBANs eine Nummernvergabe, deren Hochwassermarken in der bergebenen
+	 * Datei gespeichert werden, so dass auch nach einem Neustart keine Nummer zweimal vergeben wird.
+	 * Ohne diesen Aufruf werden die Nummern nur bis zum Ende des Programms eindeutig vergeben.
+	 * @param datei
+	 * 			Datei fr die Hochwassermarken, z.B. nummernvergabe.dat
+	 * @throws IOException
+	 * 			falls die vorhandene Datei nicht gelesen oder die neue nicht geschrieben werden kann
+	 * @see NummernVergabe
+	 */
+	public void openNumberAllocator(Path datei) throws IOException {
+		nummernVergabe = new NummernVergabe(datei);
+		try {
+			nummernVergabeAnheben();
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Vergibt eine neue Kundennummer, die weder bereits vergeben noch frher schon einmal herausgegeben wurde.
+	 * Die Methode kann von mehreren Threads gleichzeitig aufgerufen werden.
+	 * @return
+	 * 			die neue Kundennummer (mindestens 9 Stellen)
+	 */
+	public String newClientNumber() {
+		String kundennummer;
+		do {
+			kundennummer = Long.toString(nummernVergabe.naechsteKundennummer());
+		} while (findClientByKdnr(kundennummer) != null); // von Hand vergebene Nummern berspringen
+		return kundennummer;
+	}
+
+	/**
+	 * Vergibt eine neue IBAN mit der Bankleitzahl dieser Bank und gltigen Prfziffern, die weder bereits
+	 * vergeben noch frher schon einmal herausgegeben wurde. Die Methode kann von mehreren Threads gleichzeitig
+	 * aufgerufen werden.
+	 * @return
+	 * 			die neue IBAN in der Schreibweise nach DIN 5008
+	 * @throws IllegalStateException
+	 * 			falls fr diese Bank keine Bankleitzahl gesetzt ist
+	 */
+	public String newIban() {
+		if (blz == null) {
+			throw new IllegalStateException("Fr diese Bank ist keine Bankleitzahl gesetzt.");
+		}
+		String iban;
+		do {
+			iban = NummernVergabe.iban(blz, nummernVergabe.naechsteKontonummer());
+		} while (verzeichnis.getKonto(iban) != null);
+		return iban;
+	}
+
+	/*
+	 * Hebt die Nummernvergabe ber die grte vorhandene Kundennummer und die grte Kontonummer unter der eigenen
+	 * Bankleitzahl an, damit bei bestehenden Datenbanken keine von Hand vergebenen Nummern erneut vergeben werden.
+	 */
+	private void nummernVergabeAnheben() {
+		long kundennummer = 0;
+		long kontonummer = 0;
+		for (Kunde kunde : kundenKopieren()) {
+			String knr = kunde.getKundennummer();
+			if (knr.length() <= 18 && knr.chars().allMatch(Character::isDigit)) {
+				kundennummer = Math.max(kundennummer, Long.parseLong(knr) + 1);
+			}
+			if (blz == null) {
+				continue;
+			}
+			for (Konto konto : kunde.getKontenArray()) {
+				String iban = konto.getIban().replace(" ", "");
+				if (iban.length() == 22 && iban.startsWith("DE") && iban.startsWith(blz, 4)
+						&& iban.substring(12).chars().allMatch(Character::isDigit)) {
+					kontonummer = Math.max(kontonummer, Long.parseLong(iban.substring(12)) + 1);
+				}
+			}
+		}
+		nummernVergabe.anheben(kundennummer, kontonummer);
+	}
+
+	// Export
+
+	/**
+	 * Exportiert alle Kunden mit ihren Konten als CSV-Datei (Semikolon getrennt, UTF-8, eine Zeile pro Konto)
+	 * @param datei
+	 * 			die Zieldatei, eine vorhandene Datei wird berschrieben
+	 * @return
+	 * 			Anzahl der geschriebenen Bytes
+	 * @throws IOException
+	 * 			falls die Datei nicht geschrieben werden kann
+	 * @see Exporter
+	 */
+	public long exportCsv(Path datei) throws IOException {
+		return new Exporter().csvExportieren(snapshot().getKunden(), datei);
+	}
+
+	/**
+	 * Exportiert alle Kunden mit ihren Konten als JSON-Datei mit einem Kunden pro Zeile (NDJSON, UTF-8)
+	 * @param datei
+	 * 			die Zieldatei, eine vorhandene Datei wird berschrieben
+	 * @return
+	 * 			Anzahl der geschriebenen Bytes
+	 * @throws IOException
+	 * 			falls die Datei nicht geschrieben werden kann
+	 * @see Exporter
+	 */
+	public long exportJson(Path datei) throws IOException {
+		return new Exporter().jsonExportieren(snapshot().getKunden(), datei);
+	}
+
 	/**
 	 * private generische Methode zur hbschen Konsolenausgabe eines ganzen Sets inkl. Styleparameter
 	 * 
@@ -513,26 +1617,15 @@ public final class Bank implements Serializable { // das Final steht hier zur Si
 	 * 			Styleparameter, dass den Detailgrad der ausgabe bestimmt
 	 * @see getAllClientsSorted, getAllClients
 	 */
-	private <T extends Kunde> void printAllOnConsole(Set<T> set, Style style) { // generische Methode zur hbschen Konsolenausgabe eines ganzen Sets inkl. Styleparameter
+	private <T extends Kunde> void printAllOnConsole(Collection<T> set, Style style) { // generische Methode zur hbschen Konsolenausgabe eines ganzen Sets inkl. Styleparameter
 
-		for (T element : set) {
+		BerichtRenderer renderer = new BerichtRenderer(System.out); // ein Puffer fr die ganze Ausgabe statt println pro Kunde
 
-			switch (style) {
-			case COMPACT:
-				System.out.println("Kundennummer " + element.getKundennummer() + ": " + element.getName());
-				break;
-			case NORMAL:
-				System.out.println("Kundennummer " + element.getKundennummer() + ":\n" + element.getName() + "\n"
-						+ element.getAdresse().toStringCompact());
-				break;
-			case DETAILED:
-				System.out.println(element);
-				break;
-			default:
-				break;
-			}
+		for (T element : set) {
+			renderer.kunde(element, style);
 		}
 
+		renderer.flush();
 	}
 
 	/**
@@ -544,23 +1637,15 @@ public final class Bank implements Serializable { // das Final steht hier zur Si
 	 * 			Styleparameter, dass den Detailgrad der ausgabe bestimmt
 	 * @see getAllAccounts
 	 */
-	private <K, V extends Kunde> void printAllOnConsole(Map<K, V> map, Style style) {
-		for (Map.Entry<K, V> entry : map.entrySet()) {
+	private <K extends Konto, V extends Kunde> void printAllOnConsole(Map<K, V> map, Style style) {
 
-			switch (style) {
-			case COMPACT:
-				System.out.println(entry.getKey());
-				break;
-			case NORMAL:
-				System.out.println(entry.getKey() + " Registriert auf: " + entry.getValue().getName());
-				break;
-			case DETAILED:
-				System.out.println(entry.getKey() + "\nRegistriert auf: " + entry.getValue());
-				break;
-			default:
-				break;
-			}
+		BerichtRenderer renderer = new BerichtRenderer(System.out);
+
+		for (Map.Entry<K, V> entry : map.entrySet()) {
+			renderer.konto(entry.getKey(), entry.getValue(), style);
 		}
+
+		renderer.flush();
 	}
 
 }
\ No newline at end of file
@@ -0,0 +1,125 @@
+package kontoverwaltung;
+
+import java.time.LocalDate;
+
+/**
+ *
+ * Schnittstelle fr Objekte, die ber nderungen an den Daten einer Bank informiert werden wollen,
+ * z.B. um Auswertungen oder Indizes laufend aktuell zu halten, ohne alle Kunden und Konten durchlaufen zu mssen.
+ * Alle Methoden haben eine leere Standardimplementierung, so dass nur die bentigten berschrieben werden mssen.
+ *
+ * Die Methoden knnen von beliebigen Threads aus aufgerufen werden (z.B. bei gleichzeitigen Buchungen)
+ * und mssen daher threadsicher implementiert sein.
+ *
+ * @author aschwegmann
+ * @version 1.0
+ *
+ * @see Bank
+ */
+interface BankBeobachter {
+
+	/**
+	 * Wird aufgerufen, nachdem ein neuer Kunde in die Kundenliste aufgenommen wurde
+	 * @param kunde
+	 * 			der neue Kunde
+	 */
+	default void kundeAngelegt(Kunde kunde) {
+	}
+
+	/**
+	 * Wird aufgerufen, nachdem mehrere Kunden auf einmal in die Kundenliste aufgenommen wurden (siehe
+	 * Bank#addClients). Ohne berschreiben werden fr jeden Kunden kundeAngelegt und danach kontenAngelegt fr
+	 * seine Konten aufgerufen.
+	 * @param kunden
+	 * 			die neuen Kunden in der Reihenfolge ihrer Aufnahme
+	 */
+	default void kundenAngelegt(Kunde[] kunden) {
+		for (Kunde kunde : kunden) {
+			kundeAngelegt(kunde);
+			Konto[] konten = kunde.getKontenArray();
+			if (konten.length > 0) {
+				kontenAngelegt(kunde, konten);
+			}
+		}
+	}
+
+	/**
+	 * Wird aufgerufen, nachdem einem Kunden ein Konto hinzugefgt wurde
+	 * @param kunde
+	 * 			der Kunde, dem das Konto gehrt
+	 * @param konto
+	 * 			das neue Konto
+	 */
+	default void kontoAngelegt(Kunde kunde, Konto konto) {
+	}
+
+	/**
+	 * Wird aufgerufen, nachdem einem Kunden mehrere Konten auf einmal hinzugefgt wurden (siehe
+	 * Bank#addAccounts). Ohne berschreiben wird kontoAngelegt fr jedes Konto aufgerufen.
+	 * @param kunde
+	 * 			der Kunde, dem die Konten gehren
+	 * @param konten
+	 * 			die neuen Konten
+	 */
+	default void kontenAngelegt(Kunde kunde, Konto[] konten) {
+		for (Konto konto : konten) {
+			kontoAngelegt(kunde, konto);
+		}
+	}
+
+	/**
+	 * Wird aufgerufen, nachdem ein Konto aus der Kontenliste eines Kunden entfernt wurde
+	 * @param kunde
+	 * 			der Kunde, dem das Konto gehrt hat
+	 * @param konto
+	 * 			das entfernte Konto
+	 */
+	default void kontoEntfernt(Kunde kunde, Konto konto) {
+	}
+
+	/**
+	 * Wird aufgerufen, nachdem sich der Kontostand eines Kontos gendert hat. Die Betrge werden
+	 * in Cent bergeben, damit Summen exakt gebildet werden knnen.
+	 * @param konto
+	 * 			das genderte Konto
+	 * @param altCent
+	 * 			der bisherige Kontostand in Cent
+	 * @param neuCent
+	 * 			der neue Kontostand in Cent
+	 */
+	default void kontostandGeaendert(Konto konto, long altCent, long neuCent) {
+	}
+
+	/**
+	 * Wird aufgerufen, nachdem einem Kunden eine neue Adresse zugewiesen wurde
+	 * @param kunde
+	 * 			der Kunde, dessen Adresse gendert wurde
+	 * @param alt
+	 * 			die bisherige Adresse
+	 * @param neu
+	 * 			die neue Adresse
+	 */
+	default void adresseGeaendert(Kunde kunde, Adresse alt, Adresse neu) {
+	}
+
+	/**
+	 * Wird aufgerufen, nachdem der Geburtstag eines Privatkunden gendert wurde
+	 * @param kunde
+	 * 			der genderte Privatkunde
+	 * @param alt
+	 * 			der bisherige Geburtstag
+	 * @param neu
+	 * 			der neue Geburtstag
+	 */
+	default void geburtstagGeaendert(Privatkunde kunde, LocalDate alt, LocalDate neu) {
+	}
+
+	/**
+	 * Wird aufgerufen, nachdem sich sonstige Stammdaten eines Kunden gendert haben: Telefonnummer, E-Mail,
+	 * Vor- oder Nachname, Firmenname oder Ansprechpartner
+	 * @param kunde
+	 * 			der genderte Kunde
+	 */
+	default void stammdatenGeaendert(Kunde kunde) {
+	}
+}
@@ -0,0 +1,131 @@
+package kontoverwaltung;
+
+/**
+ *
+ * Eine nderung an den Daten einer Bank, wie sie ber Bank.events() an andere Systeme verteilt wird. Ein Ereignis
+ * ist unvernderlich und enthlt nur Nummern und Betrge, keine Referenzen auf Kunden oder Konten. Es kann
+ * also ohne Rcksicht auf die Bank in einem anderen Thread gelesen und beliebig lange aufbewahrt werden.
+ *
+ * Die laufende Nummer wird pro Bank fortlaufend in der Reihenfolge der Auslieferung vergeben. Eine Lcke bedeutet,
+ * dass Ereignisse verworfen wurden, weil der Empfnger nicht schnell genug war (siehe Bank#getDroppedEvents()). Im nderungsprotokoll (siehe
+ * Bank#pollChanges(String, int)) ist die Nummer der Offset des Eintrags und lckenlos.
+ *
+ * @author aschwegmann
+ * @version 1.0
+ *
+ * @see Bank#events()
+ */
+public final class BankEreignis {
+
+	/**
+	 * Die Art der nderung
+	 */
+	public enum Art {
+		KUNDE_ANGELEGT, KONTO_ANGELEGT, KONTO_ENTFERNT, KONTOSTAND_GEAENDERT, ADRESSE_GEAENDERT, GEBURTSTAG_GEAENDERT
+	}
+
+	private final long nummer;
+	private final long zeitpunkt;
+	private final Art art;
+	private final String kundennummer;
+	private final String iban;
+	private final long altCent;
+	private final long neuCent;
+
+	BankEreignis(long nummer, Art art, String kundennummer, String iban, long altCent, long neuCent) {
+		this(nummer, System.currentTimeMillis(), art, kundennummer, iban, altCent, neuCent);
+	}
+
+	BankEreignis(long nummer, long zeitpunkt, Art art, String kundennummer, String iban, long altCent, long neuCent) {
+		this.nummer = nummer;
+		this.zeitpunkt = zeitpunkt;
+		this.art = art;
+		this.kundennummer = kundennummer;
+		this.iban = iban;
+		this.altCent = altCent;
+		this.neuCent = neuCent;
+	}
+
+	/*
+	 * Gibt eine Kopie mit der bergebenen Nummer zurck, siehe Ereignisstrom
+	 */
+	BankEreignis mitNummer(long nummer) {
+		return new BankEreignis(nummer, zeitpunkt, art, kundennummer, iban, altCent, neuCent);
+	}
+
+	/**
+	 * Gibt die laufende Nummer des Ereignisses zurck
+	 * @return
+	 * 			die Nummer, ab 1 fortlaufend
+	 */
+	public long getNummer() {
+		return nummer;
+	}
+
+	/**
+	 * Gibt den Zeitpunkt der nderung zurck
+	 * @return
+	 * 			Millisekunden seit 1970 (wie System.currentTimeMillis)
+	 */
+	public long getZeitpunkt() {
+		return zeitpunkt;
+	}
+
+	/**
+	 * Gibt die Art der nderung zurck
+	 * @return
+	 * 			die Art
+	 */
+	public Art getArt() {
+		return art;
+	}
+
+	/**
+	 * Gibt die Kundennummer des betroffenen Kunden zurck
+	 * @return
+	 * 			die Kundennummer, oder null, wenn das Konto keinem Kunden gehrt
+	 */
+	public String getKundennummer() {
+		return kundennummer;
+	}
+
+	/**
+	 * Gibt die IBAN des betroffenen Kontos zurck
+	 * @return
+	 * 			die IBAN, oder null bei nderungen am Kunden
+	 */
+	public String getIban() {
+		return iban;
+	}
+
+	/**
+	 * Gibt bei KONTOSTAND_GEAENDERT den bisherigen Kontostand zurck
+	 * @return
+	 * 			der bisherige Kontostand in Cent, sonst 0
+	 */
+	public long getAltCent() {
+		return altCent;
+	}
+
+	/**
+	 * Gibt bei KONTOSTAND_GEAENDERT den neuen Kontostand zurck
+	 * @return
+	 * 			der neue Kontostand in Cent, sonst 0
+	 */
+	public long getNeuCent() {
+		return neuCent;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append('#').append(nummer).append(' ').append(art).append(' ').append(kundennummer);
+		if (iban != null) {
+			sb.append(' ').append(iban);
+		}
+		if (art == Art.KONTOSTAND_GEAENDERT) {
+			sb.append(' ').append(altCent).append(" -> ").append(neuCent);
+		}
+		return sb.toString();
+	}
+}
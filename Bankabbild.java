@@ -0,0 +1,250 @@
+package kontoverwaltung;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+
+/**
+ *
+ * Ein unvernderliches Abbild aller Kunden und Konten einer Bank zu einem Zeitpunkt. Lange Auswertungen (Listen
+ * aller Kunden und Konten, Exporte, Dublettensuche) arbeiten auf einem Abbild, sehen dadurch einen in sich
+ * stimmigen Stand und halten niemanden auf: Whrend ein Abbild gelesen wird, knnen weiter Kunden angelegt und
+ * Kontostnde gendert werden, ohne dass sich das Abbild ndert.
+ *
+ * Ein Abbild besteht aus zwei Teilen. Die Kunden mit ihren Konten fhrt die Bank bei jeder nderung mit (siehe
+ * Abbildpflege): Jede nderung erzeugt eine neue PersistenteTabelle, die alle nicht betroffenen Kunden mit der
+ * vorherigen teilt. Pro Kunde stehen darin eine Kopie der Stammdaten sowie IBAN und Verweis auf seine Konten.
+ * Die Kontostnde liest das Abbild ber einen eingefrorenen Stand (siehe Abbildstaende), der nur die nach dem Anlegen
+ * genderten Kontostnde sichert. Buchungen kosten also keine Kopie, und ein Abbild anzufordern kostet
+ * nur das Lesen einer Referenz und das Anlegen des Standes.
+ *
+ * Nach auen werden bei jedem Zugriff neue Kunden- und Kontoobjekte erzeugt, die keiner Bank gehren. nderungen
+ * daran wirken sich weder auf die Bank noch auf das Abbild aus. Solange ein Abbild erreichbar ist, wird fr jedes
+ * danach genderte Konto einmal der alte Kontostand in seinem Stand gesichert. Abbilder sollten daher nicht lnger als
+ * ntig aufgehoben werden.
+ *
+ * @author aschwegmann
+ * @version 1.0
+ *
+ * @see Bank#snapshot()
+ * @see PersistenteTabelle
+ */
+public final class Bankabbild {
+
+	final static Bankabbild LEER = new Bankabbild(PersistenteTabelle.<Eintrag>leer(), 0, null);
+
+	private final PersistenteTabelle<Eintrag> kunden;
+	private final int kontenZahl;
+	private final Abbildstaende.Stand stand;	// null, solange das Abbild nur intern mitgefhrt wird
+	private volatile Long gesamtCent;	// wird beim ersten Abruf berechnet
+
+	/*
+	 * Ein Kunde im Abbild: die Stammdaten (werden nie herausgegeben) und die Konten als parallele Arrays
+	 */
+	private static final class Eintrag {
+		private final Kunde stamm;
+		private final String[] ibans;
+		private final Konto[] konten;	// die Konten der Bank, gelesen nur ber den Stand
+
+		private Eintrag(Kunde stamm, String[] ibans, Konto[] konten) {
+			this.stamm = stamm;
+			this.ibans = ibans;
+			this.konten = konten;
+		}
+	}
+
+	private Bankabbild(PersistenteTabelle<Eintrag> kunden, int kontenZahl, Abbildstaende.Stand stand) {
+		this.kunden = kunden;
+		this.kontenZahl = kontenZahl;
+		this.stand = stand;
+	}
+
+	/*
+	 * Kopiert die Stammdaten eines Kunden ohne Konten
+	 */
+	private static Kunde stammKopie(Kunde kunde) {
+		if (kunde instanceof Privatkunde) {
+			return new Privatkunde((Privatkunde) kunde);
+		}
+		if (kunde instanceof Firmenkunde) {
+			return new Firmenkunde((Firmenkunde) kunde);
+		}
+		throw new IllegalArgumentException("Unbekannter Kundentyp: " + kunde.getClass().getName());
+	}
+
+	/*
+	 * Erzeugt die Kopie eines Kunden mit seinen Konten und den Kontostnden dieses Abbilds
+	 */
+	private Kunde kunde(Eintrag eintrag) {
+		Kunde kunde = stammKopie(eintrag.stamm);
+		Konto[] kopien = new Konto[eintrag.ibans.length];
+		for (int i = 0; i < kopien.length; i++) {
+			kopien[i] = Konto.kopie(eintrag.ibans[i], stand.getCent(eintrag.konten[i]));
+		}
+		if (!kunde.addKonten(kopien)) { // das Abbild enthlt nie mehr Konten als der Kunde hatte
+			throw new IllegalStateException("Konten des Abbilds passen nicht zum Kunden " + eintrag.stamm.getKundennummer());
+		}
+		return kunde;
+	}
+
+	/**
+	 * Gibt ein Abbild zurck, in dem der bergebene Kunde mit seinem aktuellen Stand eingetragen ist
+	 * @param kunde
+	 * 			der Kunde der Bank
+	 * @return
+	 * 			das neue Abbild
+	 */
+	Bankabbild mitKunde(Kunde kunde) {
+		Konto[] konten = kunde.getKontenArray();
+		String[] ibans = new String[konten.length];
+		for (int i = 0; i < konten.length; i++) {
+			ibans[i] = konten[i].getIban();
+		}
+		Eintrag alt = kunden.get(kunde.getKundennummer());
+		int bisher = (alt == null) ? 0 : alt.ibans.length;
+		return new Bankabbild(kunden.mit(kunde.getKundennummer(), new Eintrag(stammKopie(kunde), ibans, konten)),
+				kontenZahl - bisher + ibans.length, null);
+	}
+
+	/**
+	 * Gibt ein Abbild mit denselben Kunden zurck, das die Kontostnde aus dem bergebenen Stand liest
+	 * @param stand
+	 * 			ein gerade angelegter Stand
+	 * @return
+	 * 			das Abbild
+	 */
+	Bankabbild mitStand(Abbildstaende.Stand stand) {
+		return new Bankabbild(kunden, kontenZahl, stand);
+	}
+
+	/**
+	 * Prft, ob das Konto in diesem Abbild beim bergebenen Kunden eingetragen ist
+	 * @param kundennummer
+	 * 			die Kundennummer des Inhabers
+	 * @param iban
+	 * 			die IBAN des Kontos
+	 * @return
+	 * 			true, wenn das Konto eingetragen ist
+	 */
+	boolean enthaeltKonto(String kundennummer, String iban) {
+		Eintrag eintrag = kunden.get(kundennummer);
+		if (eintrag != null) {
+			for (String vorhanden : eintrag.ibans) {
+				if (vorhanden.equals(iban)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Gibt die Anzahl der Kunden in diesem Abbild zurck
+	 * @return
+	 * 			Anzahl der Kunden
+	 */
+	public int getKundenZahl() {
+		return kunden.size();
+	}
+
+	/**
+	 * Gibt die Anzahl der Konten in diesem Abbild zurck
+	 * @return
+	 * 			Anzahl der Konten
+	 */
+	public int getKontenZahl() {
+		return kontenZahl;
+	}
+
+	/**
+	 * Gibt die Summe aller Kontostnde in diesem Abbild zurck. Die Summe wird beim ersten Aufruf ber alle Konten
+	 * gebildet und danach aufbewahrt.
+	 * @return
+	 * 			Summe aller Kontostnde
+	 */
+	public double getTotalBalance() {
+		Long summe = gesamtCent;
+		if (summe == null) {
+			long cent = 0;
+			for (Eintrag eintrag : kunden) {
+				for (Konto konto : eintrag.konten) {
+					cent += stand.getCent(konto);
+				}
+			}
+			gesamtCent = summe = cent;
+		}
+		return summe / 100.0;
+	}
+
+	/**
+	 * Sucht den Kunden mit der bergebenen Kundennummer in diesem Abbild
+	 * @param kundennummer
+	 * 			die Kundennummer
+	 * @return
+	 * 			eine Kopie des Kunden mit seinen Konten oder null, wenn es keinen Kunden mit dieser Kundennummer gab
+	 */
+	public Kunde findClientByKdnr(String kundennummer) {
+		Eintrag eintrag = kunden.get(kundennummer);
+		return (eintrag == null) ? null : kunde(eintrag);
+	}
+
+	/**
+	 * Gibt alle Kunden dieses Abbilds ohne bestimmte Reihenfolge zurck. Die Kopien werden erst beim Durchlaufen
+	 * erzeugt, es liegt also nie das ganze Abbild als Kundenobjekte im Speicher.
+	 * @return
+	 * 			die Kunden als nicht vernderbare Collection
+	 */
+	public Collection<Kunde> getKunden() {
+		return new Kopien(kunden);
+	}
+
+	/**
+	 * Gibt alle Kunden dieses Abbilds aufsteigend nach Kundennummer sortiert zurck. Sortiert werden nur die
+	 * Eintrge, die Kopien werden wie bei getKunden erst beim Durchlaufen erzeugt.
+	 * @return
+	 * 			die Kunden als nicht vernderbare Collection
+	 */
+	public Collection<Kunde> getKundenSortiert() {
+		Eintrag[] sortiert = new Eintrag[kunden.size()];
+		int i = 0;
+		for (Eintrag eintrag : kunden) {
+			sortiert[i++] = eintrag;
+		}
+		Arrays.sort(sortiert, (a, b) -> a.stamm.compareTo(b.stamm));
+		return new Kopien(Arrays.asList(sortiert));
+	}
+
+	/*
+	 * Erzeugt beim Durchlaufen fr jeden Eintrag eine Kopie des Kunden
+	 */
+	private final class Kopien extends AbstractCollection<Kunde> {
+
+		private final Iterable<Eintrag> eintraege;
+
+		private Kopien(Iterable<Eintrag> eintraege) {
+			this.eintraege = eintraege;
+		}
+
+		@Override
+		public Iterator<Kunde> iterator() {
+			Iterator<Eintrag> it = eintraege.iterator();
+			return new Iterator<Kunde>() {
+				@Override
+				public boolean hasNext() {
+					return it.hasNext();
+				}
+
+				@Override
+				public Kunde next() {
+					return kunde(it.next());
+				}
+			};
+		}
+
+		@Override
+		public int size() {
+			return kunden.size();
+		}
+	}
+}
@@ -0,0 +1,756 @@
+package kontoverwaltung;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ *
+ * Dauertest fr den gleichzeitigen Betrieb vieler Schalter an einer Bank. Erzeugt eine Bank (siehe Testdaten) und
+ * lsst viele Threads gleichzeitig direkt auf ihr arbeiten, jeder Thread whlt seine Vorgnge zufllig nach einer
+ * einstellbaren Mischung:
+ *
+ *   kunde          legt einen zuflligen Kunden mit neuer Kundennummer an
+ *   konto          erffnet ein Konto fr einen zuflligen Kunden. Jede zehnte Erffnung nimmt statt einer neuen
+ *                  IBAN die gerade umkmpfte IBAN, um die sich alle Threads gleichzeitig bewerben, nur einer darf
+ *                  sie bekommen. Danach wird eine neue IBAN umkmpft.
+ *   lesen          sucht einen Kunden ber Kundennummer oder Namen oder ein Konto ber die IBAN
+ *   liste          liest eine Seite der nach Kundennummer sortierten Kundenliste
+ *   ueberweisung   berweist einen zuflligen Betrag zwischen zwei zuflligen Konten
+ *
+ * In jedem Intervall hlt der Test alle Threads kurz an (jeder Vorgang luft unter der Lesesperre, die Prfung
+ * unter der Schreibsperre) und prft die Invarianten der Bank:
+ *
+ *   - keine IBAN ist zweimal vergeben, jedes Konto gehrt dem Kunden, in dessen Kontenliste es steht
+ *   - kein Kunde hat mehr als Kontenliste.MAX_KONTEN Konten
+ *   - kein Konto ist im Minus
+ *   - die Summe aller Kontostnde ist die Summe zu Beginn plus das Startkapital der neuen Konten, d.h.
+ *     berweisungen erzeugen und vernichten kein Geld
+ *   - Saldenspiegel, Bankabbild und Kundenliste stimmen mit den gezhlten Kunden, Konten und Kontostnden berein
+ *
+ * Daneben prft ein eigener Thread ohne Anhalten der Schalter laufend Abbilder der Bank (siehe Bank.snapshot): Die
+ * Summe der Kontostnde eines Abbilds muss genau die Summe zu Beginn plus das Startkapital der neuen Konten im
+ * Abbild sein, sonst htte das Abbild eine berweisung nur halb gesehen. Das Startkapital eines neuen Kontos wird
+ * dazu aus seiner IBAN abgeleitet. Auerdem mssen Gesamtsaldo und Kontenzahl des Abbilds zu seinen Konten passen.
+ * Derselbe Thread durchsucht auch die Kundenliste selbst, whrend die Schalter Kunden anlegen: Ein zuflliger Kunde
+ * muss unter seinem Namen gefunden werden (Bank.findClientsByName), und eine Abfrage ohne Index (Bank.query) muss
+ * mindestens so viele Kunden liefern wie das vorher genommene Abbild und hchstens so viele wie die Bank danach hat.
+ *
+ * Pro Intervall werden Durchsatz und Antwortzeiten (p50, p99, Maximum) je Vorgang ausgegeben, dazu der belegte
+ * Heap, die Garbage Collections im Intervall und die Dauer der Prfung. Die Antwortzeiten werden in Fchern mit
+ * vier Stufen pro Zweierpotenz gezhlt, die Perzentile sind daher auf etwa 25 % genau (obere Grenze des Fachs).
+ * Die Antwortzeit enthlt das Warten auf die Prfung, so wie ein Schalter sie erleben wrde.
+ *
+ * Verletzte Invarianten werden sofort ausgegeben. Ausnahmen der Schalter werden pro Vorgang gezhlt (Spalte
+ * Fehler), der Stacktrace der ersten Ausnahme eines Vorgangs erscheint einmal im nchsten Bericht und noch einmal
+ * in der Zusammenfassung. In beiden Fllen endet der Test mit Status 1.
+ *
+ * Aufruf: java kontoverwaltung.UserInterface --belastungstest [--kunden=N] [--threads=N] [--sekunden=S]
+ * [--intervall=S] [--mischung=kunde=2,konto=3,lesen=45,liste=5,ueberweisung=45] [--startwert=S]
+ *
+ * @author aschwegmann
+ * @version 1.0
+ *
+ * @see Bank
+ * @see Lasttest
+ */
+class Belastungstest {
+
+	private final static String[] VORGAENGE = { "kunde", "konto", "lesen", "liste", "ueberweisung" };
+	private final static int KUNDE = 0;
+	private final static int KONTO = 1;
+	private final static int LESEN = 2;
+	private final static int LISTE = 3;
+	private final static int UEBERWEISUNG = 4;
+
+	private final static int FAECHER = 248;	// reicht fr Long.MAX_VALUE Nanosekunden
+	private final static int SEITE = 20;
+
+	private final Bank bank;
+	private final int[] grenzen;	// aufsummierte Gewichte der Mischung
+	private final long startwert;
+	private final ReentrantReadWriteLock sperre = new ReentrantReadWriteLock();
+	private final Vorrat kundennummern;
+	private final Vorrat ibans;
+	private final AtomicReference<String> umkaempft = new AtomicReference<String>();
+	private final LongAdder eingezahlt = new LongAdder();	// Startkapital der neuen Konten in Cent
+	private final LongAdder neueKunden = new LongAdder();
+	private final Vorgang[] vorgaenge = new Vorgang[VORGAENGE.length];
+	private final LongAdder[] eroeffnungen = new LongAdder[Bank.Kontoeroeffnung.values().length];
+	private final LongAdder[] ueberweisungen = new LongAdder[Bank.Ueberweisung.values().length];
+	private final AtomicLong verletzungen = new AtomicLong();
+	private final long anfangssumme;
+	private final Set<String> anfangsIbans = new HashSet<String>();
+	private final LongAdder abbilder = new LongAdder();	// geprfte Abbilder
+	private long abbilderVorher;
+	private volatile boolean beendet;
+
+	/**
+	 * Bereitet einen Test auf einer bestehenden Bank vor und zhlt die Kontostnde zu Beginn
+	 * @param bank
+	 * 			die Bank, sie darf whrend des Tests nur von diesem Test verndert werden
+	 * @param gewichte
+	 * 			Gewichte der Vorgnge in der Reihenfolge von VORGAENGE
+	 * @param startwert
+	 * 			Startwert der Zufallsgeneratoren
+	 */
+	Belastungstest(Bank bank, int[] gewichte, long startwert) {
+		this.bank = bank;
+		this.startwert = startwert;
+		this.grenzen = new int[gewichte.length];
+		int summe = 0;
+		for (int i = 0; i < gewichte.length; i++) {
+			summe += gewichte[i];
+			grenzen[i] = summe;
+		}
+		for (int i = 0; i < vorgaenge.length; i++) {
+			vorgaenge[i] = new Vorgang();
+		}
+		for (int i = 0; i < eroeffnungen.length; i++) {
+			eroeffnungen[i] = new LongAdder();
+		}
+		for (int i = 0; i < ueberweisungen.length; i++) {
+			ueberweisungen[i] = new LongAdder();
+		}
+		int kunden = bank.getKundenZahl();
+		kundennummern = new Vorrat(kunden * 2 + (1 << 20));
+		ibans = new Vorrat(bank.getKontenZahl() * 2 + (1 << 20));
+		long summeCent = 0;
+		for (Kunde kunde : bank.getKundenNurLesen()) {
+			kundennummern.hinzufuegen(kunde.getKundennummer());
+			for (Konto konto : kunde.getKontenArray()) {
+				ibans.hinzufuegen(konto.getIban());
+				anfangsIbans.add(konto.getIban());
+				summeCent += konto.getCent();
+			}
+		}
+		anfangssumme = summeCent;
+		umkaempft.set(bank.newIban());
+	}
+
+	/*
+	 * Zhler und Antwortzeiten eines Vorgangs. Die Fcher zhlen seit Beginn, fr ein Intervall wird der vorige
+	 * Stand abgezogen.
+	 */
+	private static final class Vorgang {
+
+		private final AtomicLongArray faecher = new AtomicLongArray(FAECHER);
+		private final LongAccumulator maximum = new LongAccumulator(Math::max, 0);	// im laufenden Intervall
+		private final LongAdder fehler = new LongAdder();
+		private final AtomicReference<RuntimeException> ersterFehler = new AtomicReference<RuntimeException>();
+		private long[] vorher = new long[FAECHER];
+		private long fehlerVorher;
+		private boolean ersterGemeldet;	// nur vom Bericht gelesen und geschrieben
+
+		private void erfassen(long nanos) {
+			faecher.incrementAndGet(fach(nanos));
+			maximum.accumulate(nanos);
+		}
+
+		/*
+		 * Gibt die Fcher seit dem letzten Aufruf zurck
+		 */
+		private long[] intervall() {
+			long[] jetzt = new long[FAECHER];
+			long[] neu = new long[FAECHER];
+			for (int i = 0; i < FAECHER; i++) {
+				jetzt[i] = faecher.get(i);
+				neu[i] = jetzt[i] - vorher[i];
+			}
+			vorher = jetzt;
+			return neu;
+		}
+
+		private long[] gesamt() {
+			long[] jetzt = new long[FAECHER];
+			for (int i = 0; i < FAECHER; i++) {
+				jetzt[i] = faecher.get(i);
+			}
+			return jetzt;
+		}
+
+		private long fehlerImIntervall() {
+			long jetzt = fehler.sum();
+			long neu = jetzt - fehlerVorher;
+			fehlerVorher = jetzt;
+			return neu;
+		}
+	}
+
+	/*
+	 * Fach einer Antwortzeit: unter 4 ns je Nanosekunde ein Fach, darber vier Fcher pro Zweierpotenz
+	 */
+	private static int fach(long nanos) {
+		if (nanos < 4) {
+			return (int) Math.max(nanos, 0);
+		}
+		int hoch = 63 - Long.numberOfLeadingZeros(nanos);
+		int unter = (int) (nanos >>> (hoch - 2)) & 3;
+		return (hoch - 1) * 4 + unter;
+	}
+
+	/*
+	 * Grte Antwortzeit, die in das Fach fllt
+	 */
+	private static long obergrenze(int fach) {
+		if (fach < 4) {
+			return fach;
+		}
+		int hoch = fach / 4 + 1;
+		long untergrenze = (4L + fach % 4) << (hoch - 2);
+		return untergrenze + (1L << (hoch - 2)) - 1;
+	}
+
+	private static long anzahl(long[] faecher) {
+		long summe = 0;
+		for (long n : faecher) {
+			summe += n;
+		}
+		return summe;
+	}
+
+	private static double perzentil(long[] faecher, long anzahl, double p) {
+		if (anzahl == 0) {
+			return 0;
+		}
+		long rang = Math.max(1, (long) Math.ceil(p / 100 * anzahl));
+		long bisher = 0;
+		for (int i = 0; i < FAECHER; i++) {
+			bisher += faecher[i];
+			if (bisher >= rang) {
+				return obergrenze(i) / 1e6;
+			}
+		}
+		return obergrenze(FAECHER - 1) / 1e6;
+	}
+
+	/*
+	 * Kundennummern bzw. IBANs, aus denen die Threads zufllig whlen. Neue Eintrge werden angehngt, solange Platz
+	 * ist. Ein Platz, der gerade vergeben, aber noch nicht beschrieben ist, liefert null.
+	 */
+	private static final class Vorrat {
+
+		private final AtomicReferenceArray<String> eintraege;
+		private final AtomicInteger anzahl = new AtomicInteger();
+
+		private Vorrat(int groesse) {
+			eintraege = new AtomicReferenceArray<String>(groesse);
+		}
+
+		private void hinzufuegen(String eintrag) {
+			int platz = anzahl.getAndIncrement();
+			if (platz < eintraege.length()) {
+				eintraege.set(platz, eintrag);
+			}
+		}
+
+		private String zufaellig(Random zufall) {
+			int n = Math.min(anzahl.get(), eintraege.length());
+			return (n == 0) ? null : eintraege.get(zufall.nextInt(n));
+		}
+	}
+
+	/*
+	 * Schleife eines Schalters, bis der Test beendet ist
+	 */
+	private void schalter(int nr) {
+		Random zufall = new Random(startwert * 1000 + nr);
+		Testdaten testdaten = Testdaten.generator(startwert * 1000 + nr);
+		int summe = grenzen[grenzen.length - 1];
+		while (!beendet) {
+			int wurf = zufall.nextInt(summe);
+			int vorgang = 0;
+			while (wurf >= grenzen[vorgang]) {
+				vorgang++;
+			}
+			long start = System.nanoTime();
+			sperre.readLock().lock();
+			try {
+				bearbeiten(vorgang, zufall, testdaten);
+			} catch (RuntimeException e) {
+				vorgaenge[vorgang].fehler.increment();
+				vorgaenge[vorgang].ersterFehler.compareAndSet(null, e);	// nur die erste Ausnahme wird ausgegeben
+				verletzungen.incrementAndGet();
+			} finally {
+				sperre.readLock().unlock();
+			}
+			vorgaenge[vorgang].erfassen(System.nanoTime() - start);
+		}
+	}
+
+	private void bearbeiten(int vorgang, Random zufall, Testdaten testdaten) {
+		switch (vorgang) {
+		case KUNDE:
+			String kundennummer = bank.newClientNumber();
+			if (!testdaten.kundeAnlegen(bank, kundennummer)) {
+				throw new IllegalStateException("Neue Kundennummer " + kundennummer + " war bereits vergeben");
+			}
+			neueKunden.increment();
+			kundennummern.hinzufuegen(kundennummer);
+			break;
+		case KONTO:
+			kontoEroeffnen(zufall);
+			break;
+		case LESEN:
+			lesen(zufall);
+			break;
+		case LISTE:
+			List<Kunde> seite = bank.getClientsPage(kundennummern.zufaellig(zufall), SEITE);
+			for (int i = 1; i < seite.size(); i++) {
+				if (seite.get(i - 1).compareTo(seite.get(i)) >= 0) {
+					throw new IllegalStateException("Kundenliste nicht sortiert: " + seite.get(i - 1).getKundennummer()
+							+ " vor " + seite.get(i).getKundennummer());
+				}
+			}
+			break;
+		case UEBERWEISUNG:
+			String von = ibans.zufaellig(zufall);
+			String nach = ibans.zufaellig(zufall);
+			if (von != null && nach != null) {
+				ueberweisungen[bank.transfer(von, nach, (1 + zufall.nextInt(50000)) / 100.0).ordinal()].increment();
+			}
+			break;
+		default:
+			throw new IllegalArgumentException("Unbekannter Vorgang: " + vorgang);
+		}
+	}
+
+	private void kontoEroeffnen(Random zufall) {
+		String kundennummer = kundennummern.zufaellig(zufall);
+		if (kundennummer == null) {
+			return;
+		}
+		String iban = (zufall.nextInt(10) == 0) ? umkaempft.get() : bank.newIban();
+		long cent = einzahlung(iban);
+		Bank.Kontoeroeffnung ergebnis = bank.openAccount(kundennummer, iban, cent / 100.0);
+		eroeffnungen[ergebnis.ordinal()].increment();
+		if (ergebnis == Bank.Kontoeroeffnung.ERFOLG) {
+			eingezahlt.add(cent);
+			ibans.hinzufuegen(iban);
+			umkaempft.compareAndSet(iban, bank.newIban());
+		}
+	}
+
+	/*
+	 * Startkapital eines neuen Kontos in Cent (0 bis 4.999,99), aus der IBAN abgeleitet, damit die Prfung der
+	 * Abbilder es ohne Absprache mit den Schaltern kennt
+	 */
+	private static long einzahlung(String iban) {
+		return Math.floorMod(iban.hashCode() * 0x9E3779B97F4A7C15L, 500000L);
+	}
+
+	private void lesen(Random zufall) {
+		int art = zufall.nextInt(3);
+		if (art == 2) {
+			String iban = ibans.zufaellig(zufall);
+			if (iban != null && bank.findAccount(iban) == null) {
+				throw new IllegalStateException("Konto " + iban + " nicht gefunden");
+			}
+			return;
+		}
+		String kundennummer = kundennummern.zufaellig(zufall);
+		if (kundennummer == null) {
+			return;
+		}
+		Kunde kunde = bank.findClientByKdnr(kundennummer);
+		if (kunde == null) {
+			throw new IllegalStateException("Kunde " + kundennummer + " nicht gefunden");
+		}
+		if (art == 1 && !bank.findClientsByNameFuzzy(kunde.getName(), 0).contains(kunde)) {
+			throw new IllegalStateException("Kunde " + kundennummer + " nicht unter seinem Namen gefunden");
+		}
+	}
+
+	/**
+	 * Hlt alle Schalter an und prft die Invarianten aus der Klassenbeschreibung
+	 * @return
+	 * 			die gefundenen Verletzungen, leer wenn alles stimmt
+	 */
+	List<String> pruefen() {
+		List<String> fehler = new ArrayList<String>();
+		sperre.writeLock().lock();
+		try {
+			Set<String> vergeben = new HashSet<String>();
+			long summe = 0;
+			int kunden = 0;
+			int konten = 0;
+			for (Kunde kunde : bank.getKundenNurLesen()) {
+				kunden++;
+				Konto[] eigene = kunde.getKontenArray();
+				if (eigene.length > Kontenliste.MAX_KONTEN) {
+					fehler.add("Kunde " + kunde.getKundennummer() + " hat " + eigene.length + " Konten");
+				}
+				for (Konto konto : eigene) {
+					konten++;
+					long cent = konto.getCent();
+					summe += cent;
+					if (!vergeben.add(konto.getIban())) {
+						fehler.add("IBAN " + konto.getIban() + " ist mehrfach vergeben");
+					}
+					if (konto.getInhaber() != kunde) {
+						fehler.add("Konto " + konto.getIban() + " gehrt nicht Kunde " + kunde.getKundennummer());
+					}
+					if (cent < 0) {
+						fehler.add("Konto " + konto.getIban() + " ist im Minus: " + betrag(cent));
+					}
+				}
+			}
+			long erwartet = anfangssumme + eingezahlt.sum();
+			if (summe != erwartet) {
+				fehler.add("Summe der Kontostnde " + betrag(summe) + " statt " + betrag(erwartet));
+			}
+			long spiegel = Konto.inCent(bank.getTotalBalance());
+			if (spiegel != summe) {
+				fehler.add("Saldenspiegel " + betrag(spiegel) + " statt " + betrag(summe));
+			}
+			if (bank.getKundenZahl() != kunden) {
+				fehler.add("Kundenzahl " + bank.getKundenZahl() + " statt " + kunden);
+			}
+			if (bank.getKontenZahl() != konten) {
+				fehler.add("Kontenzahl im Bankabbild " + bank.getKontenZahl() + " statt " + konten);
+			}
+		} finally {
+			sperre.writeLock().unlock();
+		}
+		verletzungen.addAndGet(fehler.size());
+		return fehler;
+	}
+
+	/*
+	 * Schleife des Prfers, bis der Test beendet ist. Luft ohne Sperre, also whrend die Schalter weiterarbeiten.
+	 */
+	private void abbilderPruefen() {
+		Random zufall = new Random(startwert * 1000 - 1);
+		while (!beendet) {
+			List<String> fehler;
+			try {
+				fehler = abbildPruefen();
+				fehler.addAll(kundenlistePruefen(zufall));
+			} catch (RuntimeException e) {
+				fehler = List.of("Ausnahme beim Prfen eines Abbilds oder der Kundenliste: " + e);
+			}
+			for (String text : fehler) {
+				if (verletzungen.getAndIncrement() < 10) {
+					System.out.println("VERLETZT (Abbild): " + text);
+				}
+			}
+			abbilder.increment();
+		}
+	}
+
+	/**
+	 * Prft ein Abbild der Bank, siehe Klassenbeschreibung
+	 * @return
+	 * 			die gefundenen Verletzungen, leer wenn alles stimmt
+	 */
+	List<String> abbildPruefen() {
+		List<String> fehler = new ArrayList<String>();
+		Bankabbild abbild = bank.snapshot();
+		long summe = 0;
+		long erwartet = anfangssumme;
+		int konten = 0;
+		for (Kunde kunde : abbild.getKunden()) {
+			for (Konto konto : kunde.getKontenArray()) {
+				konten++;
+				long cent = konto.getCent();
+				summe += cent;
+				if (!anfangsIbans.contains(konto.getIban())) {
+					erwartet += einzahlung(konto.getIban());
+				}
+				if (cent < 0) {
+					fehler.add("Konto " + konto.getIban() + " ist im Abbild im Minus: " + betrag(cent));
+				}
+			}
+		}
+		if (summe != erwartet) {
+			fehler.add("Summe der Kontostnde im Abbild " + betrag(summe) + " statt " + betrag(erwartet));
+		}
+		long gesamt = Konto.inCent(abbild.getTotalBalance());
+		if (gesamt != summe) {
+			fehler.add("Gesamtsaldo des Abbilds " + betrag(gesamt) + " statt " + betrag(summe));
+		}
+		if (abbild.getKontenZahl() != konten) {
+			fehler.add("Kontenzahl des Abbilds " + abbild.getKontenZahl() + " statt " + konten);
+		}
+		return fehler;
+	}
+
+	/**
+	 * Durchsucht die Kundenliste der Bank, whrend die Schalter weiterarbeiten, siehe Klassenbeschreibung
+	 * @param zufall
+	 * 			whlt den gesuchten Kunden
+	 * @return
+	 * 			die gefundenen Verletzungen, leer wenn alles stimmt
+	 */
+	List<String> kundenlistePruefen(Random zufall) {
+		List<String> fehler = new ArrayList<String>();
+		String kundennummer = kundennummern.zufaellig(zufall);
+		Kunde kunde = (kundennummer == null) ? null : bank.findClientByKdnr(kundennummer);
+		if (kunde != null) {
+			boolean gefunden = false;
+			for (Kunde treffer : bank.findClientsByName(kunde.getName())) {
+				gefunden |= (treffer == kunde);
+				if (!treffer.getName().equalsIgnoreCase(kunde.getName())) {
+					fehler.add("Suche nach " + kunde.getName() + " liefert " + treffer.getName());
+				}
+			}
+			if (!gefunden) {
+				fehler.add("Kunde " + kundennummer + " nicht unter seinem Namen " + kunde.getName() + " gefunden");
+			}
+		}
+		int vorher = bank.snapshot().getKundenZahl();
+		int gefunden = bank.query().wo("alle", k -> true).ausfuehren().size();
+		int nachher = bank.getKundenZahl();
+		if (gefunden < vorher || gefunden > nachher) {
+			fehler.add("Abfrage ber alle Kunden liefert " + gefunden + " Kunden, erwartet " + vorher + " bis " + nachher);
+		}
+		return fehler;
+	}
+
+	private static String betrag(long cent) {
+		return String.format("%,.2f", cent / 100.0);
+	}
+
+	/*
+	 * Summe von Anzahl und Dauer aller Garbage Collections seit dem Start der JVM
+	 */
+	private static long[] gcStand() {
+		long[] stand = new long[2];
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			stand[0] += Math.max(0, gc.getCollectionCount());
+			stand[1] += Math.max(0, gc.getCollectionTime());
+		}
+		return stand;
+	}
+
+	/**
+	 * Fhrt den Test aus und gibt nach jedem Intervall einen Bericht aus
+	 * @param threads
+	 * 			Anzahl der Schalter
+	 * @param sekunden
+	 * 			Dauer des Tests
+	 * @param intervall
+	 * 			Sekunden zwischen zwei Berichten und Prfungen
+	 * @return
+	 * 			true, wenn keine Invariante verletzt wurde und keine Ausnahme auftrat
+	 * @throws InterruptedException
+	 * 			falls der aufrufende Thread unterbrochen wird
+	 */
+	boolean ausfuehren(int threads, int sekunden, int intervall) throws InterruptedException {
+		Thread[] schalter = new Thread[threads];
+		for (int t = 0; t < threads; t++) {
+			int nr = t;
+			schalter[t] = new Thread(() -> schalter(nr), "Schalter-" + t);
+			schalter[t].setDaemon(true);
+		}
+		Thread pruefer = new Thread(this::abbilderPruefen, "Abbildprfung");
+		pruefer.setDaemon(true);
+		long start = System.nanoTime();
+		long ende = start + sekunden * 1_000_000_000L;
+		long[] gcVorher = gcStand();
+		for (Thread t : schalter) {
+			t.start();
+		}
+		pruefer.start();
+		long letzter = start;
+		while (letzter < ende) {
+			long naechster = Math.min(ende, letzter + intervall * 1_000_000_000L);
+			long warten = naechster - System.nanoTime();
+			if (warten > 0) {
+				Thread.sleep(warten / 1_000_000, (int) (warten % 1_000_000));
+			}
+			long vorPruefung = System.nanoTime();
+			List<String> fehler = pruefen();
+			long nachPruefung = System.nanoTime();
+			long[] gcJetzt = gcStand();
+			bericht((nachPruefung - start) / 1e9, (nachPruefung - letzter) / 1e9, gcJetzt[0] - gcVorher[0],
+					gcJetzt[1] - gcVorher[1], (nachPruefung - vorPruefung) / 1e6, fehler);
+			gcVorher = gcJetzt;
+			letzter = nachPruefung;
+		}
+		beendet = true;
+		for (Thread t : schalter) {
+			t.join();
+		}
+		pruefer.join();
+		List<String> fehler = pruefen();
+		zusammenfassung((System.nanoTime() - start) / 1e9, threads, fehler);
+		return verletzungen.get() == 0;
+	}
+
+	private void bericht(double seit, double dauer, long gcAnzahl, long gcMillis, double pruefung, List<String> fehler) {
+		MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+		long[][] faecher = new long[vorgaenge.length][];
+		long gesamt = 0;
+		for (int i = 0; i < vorgaenge.length; i++) {
+			faecher[i] = vorgaenge[i].intervall();
+			gesamt += anzahl(faecher[i]);
+		}
+		long geprueft = abbilder.sum();
+		System.out.printf("--- %5.0f s: %,.0f Vorgnge/s | Heap %,d von %,d MB | GC %d x, %d ms | Prfung %.1f ms: %s"
+				+ " | %,d Abbilder geprft%n", seit, gesamt / dauer, heap.getUsed() >> 20, heap.getMax() >> 20, gcAnzahl,
+				gcMillis, pruefung, fehler.isEmpty() ? "ok" : fehler.size() + " Verletzungen", geprueft - abbilderVorher);
+		abbilderVorher = geprueft;
+		for (String text : fehler) {
+			System.out.println("VERLETZT: " + text);
+		}
+		System.out.printf("%-14s %10s %10s %9s %9s %9s %7s%n", "Vorgang", "Anzahl", "pro s", "p50 ms", "p99 ms", "max ms",
+				"Fehler");
+		for (int i = 0; i < vorgaenge.length; i++) {
+			long n = anzahl(faecher[i]);
+			System.out.printf("%-14s %,10d %,10.0f %9.3f %9.3f %9.3f %7d%n", VORGAENGE[i], n, n / dauer,
+					perzentil(faecher[i], n, 50), perzentil(faecher[i], n, 99), vorgaenge[i].maximum.getThenReset() / 1e6,
+					vorgaenge[i].fehlerImIntervall());
+		}
+		for (int i = 0; i < vorgaenge.length; i++) {
+			RuntimeException e = vorgaenge[i].ersterFehler.get();
+			if (e != null && !vorgaenge[i].ersterGemeldet) {
+				System.out.println("FEHLER bei " + VORGAENGE[i] + " (erste Ausnahme):");
+				e.printStackTrace(System.out);
+				vorgaenge[i].ersterGemeldet = true;
+			}
+		}
+	}
+
+	private void zusammenfassung(double dauer, int threads, List<String> fehler) {
+		for (String text : fehler) {
+			System.out.println("VERLETZT: " + text);
+		}
+		System.out.printf("%n=== Gesamt nach %.0f s mit %d Schaltern%n", dauer, threads);
+		System.out.printf("%-14s %12s %10s %9s %9s %9s %9s%n", "Vorgang", "Anzahl", "pro s", "p50 ms", "p99 ms", "p99.9 ms",
+				"Fehler");
+		long gesamt = 0;
+		for (int i = 0; i < vorgaenge.length; i++) {
+			long[] alle = vorgaenge[i].gesamt();
+			long n = anzahl(alle);
+			gesamt += n;
+			System.out.printf("%-14s %,12d %,10.0f %9.3f %9.3f %9.3f %,9d%n", VORGAENGE[i], n, n / dauer,
+					perzentil(alle, n, 50), perzentil(alle, n, 99), perzentil(alle, n, 99.9), vorgaenge[i].fehler.sum());
+		}
+		System.out.printf("%-14s %,12d %,10.0f%n", "alle", gesamt, gesamt / dauer);
+		for (int i = 0; i < vorgaenge.length; i++) {
+			RuntimeException e = vorgaenge[i].ersterFehler.get();
+			if (e != null) {
+				System.out.printf("%nErste von %,d Ausnahmen bei %s:%n", vorgaenge[i].fehler.sum(), VORGAENGE[i]);
+				e.printStackTrace(System.out);
+			}
+		}
+		System.out.printf("%nNeue Kunden: %,d, Kunden insgesamt: %,d, Konten insgesamt: %,d, Abbilder geprft: %,d%n",
+				neueKunden.sum(), bank.getKundenZahl(), bank.getKontenZahl(), abbilder.sum());
+		System.out.print("Kontoerffnungen:");
+		for (Bank.Kontoeroeffnung ergebnis : Bank.Kontoeroeffnung.values()) {
+			System.out.printf(" %s %,d", ergebnis, eroeffnungen[ergebnis.ordinal()].sum());
+		}
+		System.out.print("\nberweisungen:");
+		for (Bank.Ueberweisung ergebnis : Bank.Ueberweisung.values()) {
+			System.out.printf(" %s %,d", ergebnis, ueberweisungen[ergebnis.ordinal()].sum());
+		}
+		System.out.printf("%nSumme der Kontostnde: %,.2f (zu Beginn %,.2f, eingezahlt %,.2f)%n",
+				bank.getTotalBalance(), anfangssumme / 100.0, eingezahlt.sum() / 100.0);
+		System.out.println(verletzungen.get() == 0 ? "Alle Invarianten eingehalten"
+				: verletzungen.get() + " Verletzungen und Fehler");
+	}
+
+	/**
+	 * Startet den Test von der Kommandozeile, siehe Klassenbeschreibung. Endet mit Status 1, wenn eine Invariante
+	 * verletzt wurde.
+	 * @param args
+	 * 			die Optionen
+	 */
+	static void main(String[] args) {
+		int anzahlKunden = 50000;
+		int threads = 200;
+		int sekunden = 60;
+		int intervall = 10;
+		int[] gewichte = { 2, 3, 45, 5, 45 };
+		long startwert = 1;
+		try {
+			for (String arg : args) {
+				if (arg.equals("--belastungstest")) {
+					continue;
+				} else if (arg.startsWith("--kunden=")) {
+					anzahlKunden = Integer.parseInt(wert(arg));
+				} else if (arg.startsWith("--threads=")) {
+					threads = Integer.parseInt(wert(arg));
+				} else if (arg.startsWith("--sekunden=")) {
+					sekunden = Integer.parseInt(wert(arg));
+				} else if (arg.startsWith("--intervall=")) {
+					intervall = Integer.parseInt(wert(arg));
+				} else if (arg.startsWith("--mischung=")) {
+					gewichte = mischung(wert(arg));
+				} else if (arg.startsWith("--startwert=")) {
+					startwert = Long.parseLong(wert(arg));
+				} else {
+					throw new IllegalArgumentException("Unbekannte Option: " + arg);
+				}
+			}
+			if (anzahlKunden < 1 || threads < 1 || sekunden < 1 || intervall < 1) {
+				throw new IllegalArgumentException("Kunden, Threads, Sekunden und Intervall mssen grer als 0 sein");
+			}
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println("Aufruf: --belastungstest [--kunden=N] [--threads=N] [--sekunden=S] [--intervall=S] "
+					+ "[--mischung=kunde=2,konto=3,lesen=45,liste=5,ueberweisung=45] [--startwert=S]");
+			System.exit(2);
+		}
+
+		Bank bank = Testdaten.erzeugen(anzahlKunden, startwert);
+		Belastungstest test = new Belastungstest(bank, gewichte, startwert);
+		System.out.printf("Belastungstest mit %,d Kunden, %d Schaltern, %d s, Mischung", anzahlKunden, threads, sekunden);
+		for (int i = 0; i < VORGAENGE.length; i++) {
+			System.out.printf(" %s=%d", VORGAENGE[i], gewichte[i]);
+		}
+		System.out.printf("%n%n");
+		boolean ok;
+		try {
+			ok = test.ausfuehren(threads, sekunden, intervall);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return;
+		}
+		if (!ok) {
+			System.exit(1);
+		}
+	}
+
+	/*
+	 * Liest eine Mischung wie "lesen=80,ueberweisung=20", nicht genannte Vorgnge erhalten das Gewicht 0
+	 */
+	private static int[] mischung(String text) {
+		int[] gewichte = new int[VORGAENGE.length];
+		int summe = 0;
+		for (String teil : text.split(",")) {
+			String[] paar = teil.split("=");
+			int i = List.of(VORGAENGE).indexOf(paar[0].trim());
+			if (i < 0 || paar.length != 2) {
+				throw new IllegalArgumentException("Unbekannter Vorgang in der Mischung: " + teil);
+			}
+			gewichte[i] = Integer.parseInt(paar[1].trim());
+			if (gewichte[i] < 0) {
+				throw new IllegalArgumentException("Negatives Gewicht in der Mischung: " + teil);
+			}
+			summe += gewichte[i];
+		}
+		if (summe == 0) {
+			throw new IllegalArgumentException("Die Mischung enthlt keinen Vorgang");
+		}
+		return gewichte;
+	}
+
+	private static String wert(String arg) {
+		return arg.substring(arg.indexOf('=') + 1);
+	}
+}
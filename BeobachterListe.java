@@ -0,0 +1,111 @@
+package kontoverwaltung;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Ein Beobachter, der alle Benachrichtigungen an eine Liste weiterer Beobachter verteilt.
+ * Die Liste ist eine CopyOnWriteArrayList, da Beobachter selten an- und abgemeldet werden,
+ * die Benachrichtigungen aber bei jeder nderung durchlaufen werden.
+ *
+ * Da jeder Kunde einer Bank ihre Liste kennt, gibt die Liste auerdem den AdressPool der Bank weiter, damit auch
+ * Adressen, die ber Kunde.setAdresse gesetzt werden, geteilt werden.
+ *
+ * @author aschwegmann
+ * @version 1.0
+ *
+ * @see BankBeobachter
+ */
+class BeobachterListe implements BankBeobachter {
+
+	private final List<BankBeobachter> beobachter = new CopyOnWriteArrayList<BankBeobachter>();
+	private volatile AdressPool adressPool;
+
+	void setAdressPool(AdressPool adressPool) {
+		this.adressPool = adressPool;
+	}
+
+	/**
+	 * Gibt die geteilte Adresse gleichen Inhalts aus dem AdressPool zurck, ohne Pool die bergebene Adresse
+	 * @param adresse
+	 * 			die neue Adresse eines Kunden
+	 * @return
+	 * 			die Adresse, die der Kunde speichern soll
+	 */
+	Adresse teilen(Adresse adresse) {
+		AdressPool pool = adressPool;
+		return (pool == null) ? adresse : pool.teilen(adresse);
+	}
+
+	void anmelden(BankBeobachter b) {
+		beobachter.add(b);
+	}
+
+	void abmelden(BankBeobachter b) {
+		beobachter.remove(b);
+	}
+
+	@Override
+	public void kundeAngelegt(Kunde kunde) {
+		for (BankBeobachter b : beobachter) {
+			b.kundeAngelegt(kunde);
+		}
+	}
+
+	@Override
+	public void kundenAngelegt(Kunde[] kunden) {
+		for (BankBeobachter b : beobachter) {
+			b.kundenAngelegt(kunden);
+		}
+	}
+
+	@Override
+	public void kontoAngelegt(Kunde kunde, Konto konto) {
+		for (BankBeobachter b : beobachter) {
+			b.kontoAngelegt(kunde, konto);
+		}
+	}
+
+	@Override
+	public void kontenAngelegt(Kunde kunde, Konto[] konten) {
+		for (BankBeobachter b : beobachter) {
+			b.kontenAngelegt(kunde, konten);
+		}
+	}
+
+	@Override
+	public void kontoEntfernt(Kunde kunde, Konto konto) {
+		for (BankBeobachter b : beobachter) {
+			b.kontoEntfernt(kunde, konto);
+		}
+	}
+
+	@Override
+	public void kontostandGeaendert(Konto konto, long altCent, long neuCent) {
+		for (BankBeobachter b : beobachter) {
+			b.kontostandGeaendert(konto, altCent, neuCent);
+		}
+	}
+
+	@Override
+	public void adresseGeaendert(Kunde kunde, Adresse alt, Adresse neu) {
+		for (BankBeobachter b : beobachter) {
+			b.adresseGeaendert(kunde, alt, neu);
+		}
+	}
+
+	@Override
+	public void geburtstagGeaendert(Privatkunde kunde, LocalDate alt, LocalDate neu) {
+		for (BankBeobachter b : beobachter) {
+			b.geburtstagGeaendert(kunde, alt, neu);
+		}
+	}
+
+	@Override
+	public void stammdatenGeaendert(Kunde kunde) {
+		for (BankBeobachter b : beobachter) {
+			b.stammdatenGeaendert(kunde);
+		}
+	}
+}
@@ -0,0 +1,425 @@
+package kontoverwaltung;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.math.RoundingMode;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.FieldPosition;
+import java.text.NumberFormat;
+import java.time.LocalDate;
+
+import kontoverwaltung.UserInterface.Style;
+
+/**
+ *
+ * Erzeugt die Konsolenansichten (COMPACT, NORMAL, DETAILED) fr Kunden und Konten in einen einzigen, wiederverwendeten
+ * Puffer. Der Text entspricht genau dem, was die toString()-Methoden von Kunde, Adresse und Konto liefern, es werden
+ * aber keine Zwischenstrings erzeugt und die Formatierer werden nur einmal pro Renderer angelegt.
+ * Der Puffer wird erst geschrieben, wenn er voll ist oder flush() aufgerufen wird.
+ *
+ * Ziel kann ein beliebiges Appendable (z.B. ein StringBuilder) oder ein WritableByteChannel sein.
+ * Ein PrintStream wie System.out wird mit seinem eigenen Zeichensatz beschrieben (ein String pro Puffer), ein
+ * anderer OutputStream wird intern als Kanal im Standardzeichensatz beschrieben.
+ *
+ * Ein Renderer ist nicht threadsicher und sollte pro Ausgabe (bzw. pro Thread) verwendet werden.
+ *
+ * @author aschwegmann
+ * @version 1.0
+ *
+ * @see Bank
+ * @see UserInterface.Style
+ */
+class BerichtRenderer implements Flushable {
+
+	private final static int PUFFERGROESSE = 64 * 1024;
+	private final static String ZEILENENDE = System.lineSeparator();
+
+	private final StringBuilder puffer = new StringBuilder(PUFFERGROESSE + 4096);
+	private final Appendable ziel;
+	private final Writer writer; // gesetzt, wenn das Ziel ein Writer ist, dann wird ohne Zwischenstring geschrieben
+	private final boolean kanalSchliessen; // nur einen bergebenen Kanal schliessen, nie z.B. System.out
+	private final NumberFormat waehrung = NumberFormat.getCurrencyInstance();
+	private final StringBuffer zahl = new StringBuffer(32); // NumberFormat schreibt nur in StringBuffer
+	private final FieldPosition feld = new FieldPosition(0);
+
+	/*
+	 * Die Bestandteile des Whrungsformats werden einmal aus dem DecimalFormat gelesen, Betrge werden dann
+	 * direkt in den Puffer geschrieben. NumberFormat.format ist im Vergleich dazu der mit Abstand teuerste Teil
+	 * einer Zeile. Ist das Format kein DecimalFormat, wird NumberFormat verwendet.
+	 */
+	private final boolean schnellesFormat;
+	private String plusPraefix, plusSuffix, minusPraefix, minusSuffix;
+	private char dezimaltrenner, tausendertrenner, nullZiffer;
+	private int nachkommastellen, gruppengroesse;
+	private long faktor;
+	private final char[] ziffern = new char[20];
+
+	/**
+	 * Erzeugt einen Renderer, der in ein Appendable schreibt. Ein PrintStream (z.B. System.out) kodiert selbst,
+	 * damit die Ausgabe denselben Zeichensatz hat wie dessen print-Methoden. Jeder andere OutputStream wird
+	 * direkt als Kanal beschrieben.
+	 * @param ziel
+	 * 			das Ausgabeziel
+	 */
+	BerichtRenderer(Appendable ziel) {
+		if (ziel instanceof OutputStream && !(ziel instanceof PrintStream)) {
+			this.writer = new KanalWriter(Channels.newChannel((OutputStream) ziel), Charset.defaultCharset(), PUFFERGROESSE);
+			this.ziel = this.writer;
+		} else {
+			this.writer = (ziel instanceof Writer) ? (Writer) ziel : null;
+			this.ziel = ziel;
+		}
+		this.kanalSchliessen = false;
+		this.schnellesFormat = formatZerlegen();
+	}
+
+	/**
+	 * Erzeugt einen Renderer, der in einen Kanal schreibt, z.B. in einen FileChannel
+	 * @param kanal
+	 * 			das Ausgabeziel
+	 * @param zeichensatz
+	 * 			Zeichensatz der Ausgabe
+	 */
+	BerichtRenderer(WritableByteChannel kanal, Charset zeichensatz) {
+		this.writer = new KanalWriter(kanal, zeichensatz, 4 * PUFFERGROESSE);
+		this.ziel = this.writer;
+		this.kanalSchliessen = true;
+		this.schnellesFormat = formatZerlegen();
+	}
+
+	private boolean formatZerlegen() {
+		if (!(waehrung instanceof DecimalFormat)) {
+			return false;
+		}
+		DecimalFormat df = (DecimalFormat) waehrung;
+		nachkommastellen = df.getMaximumFractionDigits();
+		if (nachkommastellen != df.getMinimumFractionDigits() || nachkommastellen > 4
+				|| df.getRoundingMode() != RoundingMode.HALF_EVEN || df.getMultiplier() != 1) {
+			return false;
+		}
+		DecimalFormatSymbols symbole = df.getDecimalFormatSymbols();
+		plusPraefix = df.getPositivePrefix();
+		plusSuffix = df.getPositiveSuffix();
+		minusPraefix = df.getNegativePrefix();
+		minusSuffix = df.getNegativeSuffix();
+		dezimaltrenner = symbole.getMonetaryDecimalSeparator();
+		tausendertrenner = symbole.getGroupingSeparator();
+		nullZiffer = symbole.getZeroDigit();
+		gruppengroesse = df.isGroupingUsed() ? df.getGroupingSize() : 0;
+		faktor = 1;
+		for (int i = 0; i < nachkommastellen; i++) {
+			faktor *= 10;
+		}
+		return true;
+	}
+
+	// Ansichten wie in Bank.getAllClients/getAllClientsSorted/getAllAccounts
+
+	/**
+	 * Schreibt einen Kunden im bergebenen Detailgrad, gefolgt von einem Zeilenumbruch
+	 * 		COMPACT:	Nur die Kundennummer und der Name
+	 * 		NORMAL:		Kundennummer, Name und Adresse
+	 * 		DETAILED:	Alle Informationen inkl. Konten
+	 * @param kunde
+	 * 			der auszugebende Kunde
+	 * @param style
+	 * 			Detailgrad
+	 */
+	void kunde(Kunde kunde, Style style) {
+		switch (style) {
+		case COMPACT:
+			puffer.append("Kundennummer ").append(kunde.getKundennummer()).append(": ").append(kunde.getName());
+			break;
+		case NORMAL:
+			puffer.append("Kundennummer ").append(kunde.getKundennummer()).append(":\n").append(kunde.getName()).append('\n');
+			adresseKompakt(kunde.getAdresse());
+			break;
+		case DETAILED:
+			kundeDetailliert(kunde);
+			break;
+		default:
+			break;
+		}
+		zeileBeenden();
+	}
+
+	/**
+	 * Schreibt ein Konto im bergebenen Detailgrad, gefolgt von einem Zeilenumbruch
+	 * 		COMPACT:	Nur die IBAN und das Saldo
+	 * 		NORMAL:		IBAN, Saldo, und der Kunde, auf den das Konto registriert ist
+	 * 		DETAILED:	IBAN, Saldo, und alle Kundeninformationen
+	 * @param konto
+	 * 			das auszugebende Konto
+	 * @param inhaber
+	 * 			der Kunde, dem das Konto gehrt
+	 * @param style
+	 * 			Detailgrad
+	 */
+	void konto(Konto konto, Kunde inhaber, Style style) {
+		switch (style) {
+		case COMPACT:
+			konto(konto);
+			break;
+		case NORMAL:
+			konto(konto);
+			puffer.append(" Registriert auf: ").append(inhaber.getName());
+			break;
+		case DETAILED:
+			konto(konto);
+			puffer.append("\nRegistriert auf: ");
+			kundeDetailliert(inhaber);
+			break;
+		default:
+			break;
+		}
+		zeileBeenden();
+	}
+
+	// Bausteine, entsprechen den toString()-Methoden der Modellklassen
+
+	/**
+	 * Schreibt einen Kunden wie Privatkunde.toString() bzw. Firmenkunde.toString()
+	 * @param kunde
+	 * 			der auszugebende Kunde
+	 */
+	void kundeDetailliert(Kunde kunde) {
+		puffer.append("\nName:\t\t\t").append(kunde.getName());
+		if (kunde instanceof Privatkunde) {
+			puffer.append("\nGeburtstag:\t\t");
+			datum(((Privatkunde) kunde).getGeburtsdatum());
+			puffer.append('\n');
+			kundeGemeinsam(kunde);
+			puffer.append('\n');
+		} else if (kunde instanceof Firmenkunde) {
+			puffer.append('\n');
+			kundeGemeinsam(kunde);
+			puffer.append("\nAnsprechpartner:\t");
+			ansprechpartner(((Firmenkunde) kunde).getAnsprechpartner());
+		} else {
+			puffer.append('\n');
+			kundeGemeinsam(kunde);
+		}
+	}
+
+	/*
+	 * entspricht Kunde.toString()
+	 */
+	private void kundeGemeinsam(Kunde kunde) {
+		puffer.append("Kundennummer:\t\t").append(kunde.getKundennummer())
+				.append("\nTelefonnummer:\t\t").append(kunde.getTelefonnummer())
+				.append("\nEmail:\t\t\t").append(kunde.getEmail())
+				.append("\nAdresse:\t\t");
+		adresse(kunde.getAdresse());
+		Konto[] konten = kunde.getKontenArray();
+		puffer.append("Gelistete Konten: (").append(konten.length).append(")\t[");
+		for (int i = 0; i < konten.length; i++) {
+			if (i > 0) {
+				puffer.append(", ");
+			}
+			konto(konten[i]);
+		}
+		puffer.append(']');
+	}
+
+	/**
+	 * Schreibt eine Adresse wie Adresse.toString()
+	 * @param adresse
+	 * 			die auszugebende Adresse
+	 */
+	void adresse(Adresse adresse) {
+		puffer.append(adresse.getAdresszeile1()).append("\n\t\t\t");
+		if (istLeer(adresse.getAdresszeile2())) {
+			plz(adresse.getPlz());
+		} else {
+			puffer.append(adresse.getAdresszeile2()).append("\n\t\t\t").append(adresse.getPlz());
+		}
+		puffer.append(' ').append(adresse.getOrt()).append('\n');
+	}
+
+	/**
+	 * Schreibt eine Adresse wie Adresse.toStringCompact()
+	 * @param adresse
+	 * 			die auszugebende Adresse
+	 */
+	void adresseKompakt(Adresse adresse) {
+		puffer.append(adresse.getAdresszeile1()).append('\n');
+		if (!istLeer(adresse.getAdresszeile2())) {
+			puffer.append(adresse.getAdresszeile2()).append('\n');
+		}
+		puffer.append(adresse.getPlz()).append(' ').append(adresse.getOrt()).append('\n');
+	}
+
+	/**
+	 * Schreibt ein Konto wie Konto.toString()
+	 * @param konto
+	 * 			das auszugebende Konto
+	 */
+	void konto(Konto konto) {
+		kontozeile(konto.getIban(), konto.getKontostand());
+	}
+
+	/**
+	 * Schreibt eine Kontozeile aus IBAN und Kontostand wie Konto.toString()
+	 * @param iban
+	 * 			die IBAN
+	 * @param kontostand
+	 * 			der Kontostand
+	 */
+	void kontozeile(String iban, double kontostand) {
+		puffer.append(iban).append(":\tSaldo:\t");
+		betrag(kontostand);
+		puffer.append('\t');
+	}
+
+	/**
+	 * Schreibt einen Ansprechpartner wie Ansprechpartner.toString()
+	 * @param ansprechpartner
+	 * 			der auszugebende Ansprechpartner
+	 */
+	void ansprechpartner(Ansprechpartner ansprechpartner) {
+		puffer.append(ansprechpartner.getVorname()).append(' ').append(ansprechpartner.getNachname())
+				.append("\nTel.:\t\t\t").append(ansprechpartner.getTelefonnummer()).append('\n');
+	}
+
+	/**
+	 * Schreibt einen Betrag im Whrungsformat, ohne dafr einen String zu erzeugen
+	 * @param wert
+	 * 			der Betrag
+	 */
+	void betrag(double wert) {
+		double skaliert = wert * faktor;
+		double nachkomma = Math.abs(skaliert - Math.floor(skaliert));
+		// Betrge nahe an einer Rundungsgrenze (z.B. 0,005) rundet NumberFormat exakt anhand des double-Wertes
+		if (!schnellesFormat || Double.isNaN(wert) || Math.abs(skaliert) >= 1e12 || Math.abs(nachkomma - 0.5) < 1e-3) {
+			zahl.setLength(0);
+			waehrung.format(wert, zahl, feld);
+			puffer.append(zahl);
+			return;
+		}
+		long einheiten = (long) Math.rint(skaliert); // rint rundet wie DecimalFormat (HALF_EVEN)
+		boolean negativ = einheiten < 0 || (einheiten == 0 && (wert < 0 || 1 / wert < 0)); // auch -0,00 wie NumberFormat
+		long rest = Math.abs(einheiten);
+		puffer.append(negativ ? minusPraefix : plusPraefix);
+
+		int n = 0;
+		for (int i = 0; i < nachkommastellen; i++) {
+			ziffern[n++] = (char) (nullZiffer + rest % 10);
+			rest /= 10;
+		}
+		if (nachkommastellen > 0) {
+			ziffern[n++] = dezimaltrenner;
+		}
+		int stellen = 0;
+		do {
+			if (gruppengroesse > 0 && stellen > 0 && stellen % gruppengroesse == 0) {
+				ziffern[n++] = tausendertrenner;
+			}
+			ziffern[n++] = (char) (nullZiffer + rest % 10);
+			rest /= 10;
+			stellen++;
+		} while (rest > 0);
+		while (n > 0) {
+			puffer.append(ziffern[--n]);
+		}
+
+		puffer.append(negativ ? minusSuffix : plusSuffix);
+	}
+
+	/**
+	 * Schreibt ein Datum im mittleren Format der eingestellten Sprache
+	 * @param datum
+	 * 			das Datum
+	 */
+	void datum(LocalDate datum) {
+		Privatkunde.DATUMSFORMAT.formatTo(datum, puffer);
+	}
+
+	/**
+	 * Schreibt beliebigen Text in den Puffer
+	 * @param text
+	 * 			der Text
+	 * @return
+	 * 			dieser Renderer
+	 */
+	BerichtRenderer text(CharSequence text) {
+		puffer.append(text);
+		return this;
+	}
+
+	/**
+	 * Schliesst eine Zeile ab (wie println) und schreibt den Puffer, falls er voll ist
+	 */
+	void zeileBeenden() {
+		puffer.append(ZEILENENDE);
+		if (puffer.length() >= PUFFERGROESSE) {
+			pufferSchreiben();
+		}
+	}
+
+	/*
+	 * fnfstellige Postleitzahl mit fhrenden Nullen, wie String.format("%05d", plz)
+	 */
+	private void plz(int plz) {
+		for (int grenze = 10000; grenze > 1 && plz < grenze; grenze /= 10) {
+			puffer.append('0');
+		}
+		puffer.append(plz);
+	}
+
+	private static boolean istLeer(String text) {
+		return text == null || text.isEmpty();
+	}
+
+	private void pufferSchreiben() {
+		try {
+			if (writer != null) {
+				writer.append(puffer); // KanalWriter kopiert ohne Zwischenstring
+			} else {
+				ziel.append(puffer);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		puffer.setLength(0);
+	}
+
+	/**
+	 * Schreibt den Inhalt des Puffers in das Ziel
+	 */
+	@Override
+	public void flush() {
+		pufferSchreiben();
+		try {
+			if (writer != null) {
+				writer.flush();
+			} else if (ziel instanceof Flushable) {
+				((Flushable) ziel).flush();
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Schreibt den Inhalt des Puffers in das Ziel und schliesst den Kanal, falls der Renderer fr einen
+	 * Kanal erzeugt wurde. Ein bergebenes Appendable oder OutputStream wird nicht geschlossen.
+	 */
+	void close() {
+		flush();
+		if (kanalSchliessen) {
+			try {
+				writer.close();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+}
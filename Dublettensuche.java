@@ -0,0 +1,271 @@
+package kontoverwaltung;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+/**
+ *
+ * Sucht nach Kunden, die vermutlich doppelt angelegt wurden (z.B. weil die Kundennummer von Hand vergeben wird).
+ *
+ * Anstatt jeden Kunden mit jedem anderen zu vergleichen (bei Millionen Kunden nicht machbar), werden fr jeden
+ * Kunden einige Blockschlssel berechnet: normalisierter Name + PLZ, E-Mail, Telefonnummer und bei Privatkunden
+ * Nachname + Geburtstag. Verglichen werden nur Kunden, die mindestens einen Blockschlssel gemeinsam haben.
+ * Der Aufwand ist damit im Wesentlichen linear in der Anzahl der Kunden.
+ * Sehr groe Blcke (z.B. eine zentrale Telefonnummer, die viele Firmen angeben) werden bersprungen, da sie
+ * kaum Aussagekraft haben und den Aufwand quadratisch machen wrden.
+ *
+ * @author aschwegmann
+ * @version 1.0
+ *
+ * @see Bank
+ */
+class Dublettensuche {
+
+	private final static Pattern RECHTSFORM = Pattern.compile("\\b(gmbh|ag|kg|ohg|gbr|ug|e\\.?\\s?v|e\\.?\\s?k|co|mbh|haftungsbeschraenkt)\\b\\.?");
+	private final static Pattern KEINE_ZIFFER = Pattern.compile("\\D");
+	private final static Pattern KEIN_BUCHSTABE = Pattern.compile("[^\\p{L}\\p{N} ]");
+	private final static int MAX_BLOCKGROESSE = 200;
+	private final static double SCHWELLE = 0.6;
+	private final static double MIN_NAMENSAEHNLICHKEIT = 0.75; // verschiedene Personen einer Familie sollen nicht auffallen
+
+	private int uebersprungeneBloecke;
+
+	/**
+	 * Ein Verdachtsfall: zwei Kunden, die vermutlich dieselbe Person oder Firma sind
+	 */
+	public static final class Verdacht {
+		private final Kunde erster;
+		private final Kunde zweiter;
+		private final double punkte;
+		private final String gruende;
+
+		private Verdacht(Kunde erster, Kunde zweiter, double punkte, String gruende) {
+			this.erster = erster;
+			this.zweiter = zweiter;
+			this.punkte = punkte;
+			this.gruende = gruende;
+		}
+
+		/**
+		 * @return der erste Kunde (mit der kleineren Kundennummer)
+		 */
+		public Kunde getErster() {
+			return erster;
+		}
+
+		/**
+		 * @return der zweite Kunde
+		 */
+		public Kunde getZweiter() {
+			return zweiter;
+		}
+
+		/**
+		 * @return Bewertung zwischen 0 und 1, je hher desto wahrscheinlicher eine Dublette
+		 */
+		public double getPunkte() {
+			return punkte;
+		}
+
+		/**
+		 * @return bereinstimmungen, die zum Verdacht gefhrt haben
+		 */
+		public String getGruende() {
+			return gruende;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%.2f\t%s\t%s\t%s\t%s\t%s", punkte, erster.getKundennummer(), erster.getName(),
+					zweiter.getKundennummer(), zweiter.getName(), gruende);
+		}
+	}
+
+	/**
+	 * Durchsucht die bergebenen Kunden nach vermutlichen Dubletten
+	 * @param kunden
+	 * 			die zu prfenden Kunden
+	 * @return
+	 * 			Liste der Verdachtsflle, absteigend nach Bewertung sortiert
+	 */
+	List<Verdacht> suchen(Iterable<? extends Kunde> kunden) {
+
+		final List<Kunde> liste = new ArrayList<Kunde>();
+		for (Kunde kunde : kunden) {
+			liste.add(kunde);
+		}
+
+		// die Berechnung der Schlssel (Normalisierung) ist der teuerste Teil und wird parallel ausgefhrt
+		final List<List<String>> alleSchluessel = new ArrayList<List<String>>(Collections.nCopies(liste.size(), (List<String>) null));
+		IntStream.range(0, liste.size()).parallel().forEach(i -> alleSchluessel.set(i, blockschluessel(liste.get(i))));
+
+		Map<String, List<Kunde>> bloecke = new HashMap<String, List<Kunde>>();
+
+		for (int i = 0; i < liste.size(); i++) {
+			Kunde kunde = liste.get(i);
+			for (String schluessel : alleSchluessel.get(i)) {
+				List<Kunde> block = bloecke.get(schluessel);
+				if (block == null) {
+					block = new ArrayList<Kunde>(2);
+					bloecke.put(schluessel, block);
+				}
+				block.add(kunde);
+			}
+		}
+
+		List<Verdacht> ergebnis = new ArrayList<Verdacht>();
+		Set<String> verglichen = new HashSet<String>(); // jedes Paar nur einmal bewerten, auch wenn es in mehreren Blcken liegt
+		uebersprungeneBloecke = 0;
+
+		for (List<Kunde> block : bloecke.values()) {
+			if (block.size() < 2) {
+				continue;
+			}
+			if (block.size() > MAX_BLOCKGROESSE) {
+				uebersprungeneBloecke++;
+				continue;
+			}
+			for (int i = 0; i < block.size(); i++) {
+				for (int j = i + 1; j < block.size(); j++) {
+					Kunde a = block.get(i);
+					Kunde b = block.get(j);
+					if (a.compareTo(b) > 0) {
+						Kunde t = a; a = b; b = t;
+					}
+					if (!verglichen.add(a.getKundennummer() + "|" + b.getKundennummer())) {
+						continue;
+					}
+					Verdacht verdacht = bewerten(a, b);
+					if (verdacht != null) {
+						ergebnis.add(verdacht);
+					}
+				}
+			}
+		}
+
+		Collections.sort(ergebnis, (v1, v2) -> Double.compare(v2.punkte, v1.punkte));
+		return ergebnis;
+	}
+
+	/**
+	 * Gibt zurck, wie viele Blcke beim letzten Suchlauf wegen ihrer Gre bersprungen wurden
+	 * @return
+	 * 			Anzahl bersprungener Blcke
+	 */
+	int getUebersprungeneBloecke() {
+		return uebersprungeneBloecke;
+	}
+
+	/**
+	 * Schreibt einen Bericht der Verdachtsflle als tabulatorgetrennte Zeilen
+	 * @param verdachtsfaelle
+	 * 			die Verdachtsflle, z.B. aus suchen()
+	 * @param ziel
+	 * 			Ausgabeziel, z.B. System.out
+	 * @throws IOException
+	 * 			falls beim Schreiben ein Fehler auftritt
+	 */
+	void berichtSchreiben(List<Verdacht> verdachtsfaelle, Appendable ziel) throws IOException {
+		ziel.append("Punkte\tKundennummer\tName\tKundennummer\tName\tGruende\n");
+		for (Verdacht v : verdachtsfaelle) {
+			ziel.append(v.toString()).append('\n');
+		}
+		ziel.append(verdachtsfaelle.size() + " Verdachtsflle, " + uebersprungeneBloecke + " zu groe Blcke bersprungen\n");
+	}
+
+	/*
+	 * Berechnet die Blockschlssel eines Kunden. Das Prfix verhindert, dass z.B. ein Name zufllig einer
+	 * E-Mail-Adresse gleicht.
+	 */
+	private static List<String> blockschluessel(Kunde kunde) {
+		List<String> schluessel = new ArrayList<String>(4);
+		schluessel.add("N|" + namensschluessel(kunde) + "|" + kunde.getAdresse().getPlz());
+		schluessel.add("E|" + kunde.getEmail().trim().toLowerCase());
+		schluessel.add("T|" + telefonschluessel(kunde.getTelefonnummer()));
+		if (kunde instanceof Privatkunde) {
+			Privatkunde pk = (Privatkunde) kunde;
+			schluessel.add("G|" + Normalisierer.normalisiere(pk.getNachname()) + "|" + pk.getGeburtsdatumEpochTag());
+		}
+		return schluessel;
+	}
+
+	/*
+	 * Normalisierter Name mit sortierten Namensteilen ("Meier Hans" = "Hans Meier"), bei Firmen ohne Rechtsform
+	 */
+	private static String namensschluessel(Kunde kunde) {
+		String name = Normalisierer.normalisiere(kunde.getName());
+		if (kunde instanceof Firmenkunde) {
+			name = RECHTSFORM.matcher(name).replaceAll(" ");
+		}
+		String[] teile = KEIN_BUCHSTABE.matcher(name).replaceAll(" ").trim().split("\\s+");
+		Arrays.sort(teile);
+		return String.join(" ", teile);
+	}
+
+	/*
+	 * Nur die Ziffern der Telefonnummer, internationale Vorwahl fr Deutschland durch 0 ersetzt
+	 */
+	private static String telefonschluessel(String telefonnummer) {
+		String ziffern = KEINE_ZIFFER.matcher(telefonnummer).replaceAll("");
+		if (ziffern.startsWith("0049")) {
+			return "0" + ziffern.substring(4);
+		}
+		if (telefonnummer.trim().startsWith("+49")) {
+			return "0" + ziffern.substring(2);
+		}
+		return ziffern;
+	}
+
+	/*
+	 * Vergleicht zwei Kunden anhand mehrerer Merkmale. Gleiche E-Mail oder Telefonnummer alleine reichen nicht
+	 * (Familien, Firmen im selben Haus), erst zusammen mit einem hnlichen Namen entsteht ein Verdacht.
+	 */
+	private static Verdacht bewerten(Kunde a, Kunde b) {
+
+		if (a.getClass() != b.getClass()) {
+			return null;
+		}
+
+		StringBuilder gruende = new StringBuilder();
+		double name = Textvergleich.aehnlichkeit(namensschluessel(a), namensschluessel(b));
+		double punkte = 0.5 * name;
+		gruende.append(String.format("Name %.0f%%", name * 100));
+
+		if (a.getEmail().equalsIgnoreCase(b.getEmail().trim())) {
+			punkte += 0.2;
+			gruende.append(", E-Mail");
+		}
+		if (telefonschluessel(a.getTelefonnummer()).equals(telefonschluessel(b.getTelefonnummer()))) {
+			punkte += 0.15;
+			gruende.append(", Telefon");
+		}
+		if (a.getAdresse().getPlz() == b.getAdresse().getPlz()) {
+			punkte += 0.05;
+			gruende.append(", PLZ");
+			if (Normalisierer.normalisiere(a.getAdresse().getAdresszeile1())
+					.equals(Normalisierer.normalisiere(b.getAdresse().getAdresszeile1()))) {
+				punkte += 0.1;
+				gruende.append(", Strasse");
+			}
+		}
+		if (a instanceof Privatkunde
+				&& ((Privatkunde) a).getGeburtsdatumEpochTag() == ((Privatkunde) b).getGeburtsdatumEpochTag()) {
+			punkte += 0.15;
+			gruende.append(", Geburtstag");
+		}
+
+		if (name < MIN_NAMENSAEHNLICHKEIT || punkte < SCHWELLE) {
+			return null;
+		}
+		return new Verdacht(a, b, Math.min(punkte, 1.0), gruende.toString());
+	}
+}
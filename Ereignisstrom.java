@@ -0,0 +1,181 @@
+package kontoverwaltung;
+
+import java.time.LocalDate;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ *
+ * Verteilt die nderungen an einer Bank als BankEreignis an beliebig viele Abonnenten (java.util.concurrent.Flow).
+ * Der Ereignisstrom ist ein BankBeobachter und wird wie die Indizes bei jeder nderung benachrichtigt.
+ *
+ * Der Weg vom ndernden Thread zu den Abonnenten hat zwei Stufen, damit eine Buchung nie auf einen Abonnenten
+ * wartet:
+ *
+ * 1. Der ndernde Thread erzeugt das Ereignis und legt es in eine ConcurrentLinkedQueue (ohne Sperre, nur
+ *    compareAndSet). Ist die Warteschlange voll (WARTESCHLANGE Ereignisse), wird das Ereignis verworfen und
+ *    gezhlt. Gibt es keinen Abonnenten, wird gar kein Ereignis erzeugt. Ein Ereignis ist daher hchstens etwa
+ *    eine Millisekunde unterwegs, bevor es verteilt wird (siehe verteilen).
+ * 2. Ein eigener Verteiler-Thread nimmt die Ereignisse heraus, nummeriert sie und reicht sie an einen
+ *    SubmissionPublisher weiter.
+ *    Der fhrt fr jeden Abonnenten einen eigenen Puffer (PUFFER Ereignisse) und liefert daraus nur so viele
+ *    Ereignisse, wie der Abonnent ber request angefordert hat. Ist der Puffer eines Abonnenten voll, wird das
+ *    Ereignis nur fr diesen Abonnenten verworfen. Ein langsamer Abonnent hlt also weder die Bank noch die
+ *    brigen Abonnenten auf.
+ *
+ * Da nur der Verteiler nummeriert, sind die Nummern in der Reihenfolge der Auslieferung fortlaufend, ohne dass
+ * die ndernden Threads sich absprechen mssen. Fr jedes in Stufe 1 verworfene Ereignis berspringt er vor dem
+ * nchsten Ereignis eine Nummer, ein im Puffer eines Abonnenten verworfenes Ereignis fehlt diesem ohnehin. Jede
+ * Lcke in den Nummern, die ein Abonnent erhlt, ist also ein verlorenes Ereignis. Bei Verlusten in Stufe 1 steht
+ * die Lcke allerdings nur ungefhr an der Stelle des verlorenen Ereignisses.
+ *
+ * Jeder Abonnent wird in einem eigenen Thread beliefert. Alle Threads sind Daemon-Threads.
+ *
+ * @author aschwegmann
+ * @version 1.0
+ *
+ * @see Bank#events()
+ * @see BankEreignis
+ */
+class Ereignisstrom implements BankBeobachter, Flow.Publisher<BankEreignis> {
+
+	final static int WARTESCHLANGE = 1 << 16;
+	final static int PUFFER = 1 << 12;
+	private final static int WECKEN = 256;	// ab so vielen wartenden Ereignissen wird der Verteiler geweckt
+	private final static long SCHLAFEN = 1_000_000;	// sonst schaut er sptestens nach 1 ms wieder nach, solange es Abonnenten gibt
+
+	private final SubmissionPublisher<BankEreignis> verteilung;
+	private final Queue<BankEreignis> warteschlange = new ConcurrentLinkedQueue<BankEreignis>();
+	private final AtomicInteger wartend = new AtomicInteger();
+	private final LongAdder verworfen = new LongAdder();
+	private final LongAdder nichtEingereiht = new LongAdder();	// in Stufe 1 verworfen, berspringt Nummern
+	private volatile Thread verteiler;	// wird mit dem ersten Abonnenten gestartet
+	private volatile boolean schlaeft;
+
+	Ereignisstrom() {
+		ExecutorService threads = Executors.newCachedThreadPool(aufgabe -> {
+			Thread thread = new Thread(aufgabe, "Bank-Ereignisse-Abonnent");
+			thread.setDaemon(true);
+			return thread;
+		});
+		verteilung = new SubmissionPublisher<BankEreignis>(threads, PUFFER);
+	}
+
+	@Override
+	public void subscribe(Flow.Subscriber<? super BankEreignis> abonnent) {
+		verteilung.subscribe(abonnent);
+		Thread laufend = verteiler;
+		if (laufend != null) {
+			LockSupport.unpark(laufend);	// schlft ohne Frist, solange es keinen Abonnenten gab
+		} else {
+			synchronized (this) {
+				if (verteiler == null) {
+					Thread thread = new Thread(this::verteilen, "Bank-Ereignisse-Verteiler");
+					thread.setDaemon(true);
+					thread.start();
+					verteiler = thread;
+				}
+			}
+		}
+	}
+
+	/*
+	 * Schleife des Verteiler-Threads. Ist die Warteschlange leer, legt er sich fr hchstens SCHLAFEN Nanosekunden
+	 * schlafen. Ein ndernder Thread weckt ihn nur, wenn sich WECKEN Ereignisse angesammelt haben. Das Wecken
+	 * kostet einen Systemaufruf und soll daher nicht bei jeder Buchung anfallen. Ohne Abonnenten entstehen keine
+	 * Ereignisse, er schlft dann ohne Frist, bis subscribe ihn weckt.
+	 */
+	private void verteilen() {
+		long naechsteNummer = 1;
+		long uebersprungen = 0;	// bereits bersprungene Nummern fr nichtEingereiht
+		while (true) {
+			BankEreignis ereignis = warteschlange.poll();
+			if (ereignis == null) {
+				schlaeft = true;
+				if (warteschlange.isEmpty()) {
+					if (verteilung.hasSubscribers()) {
+						LockSupport.parkNanos(this, SCHLAFEN);
+					} else {
+						LockSupport.park(this);
+					}
+				}
+				schlaeft = false;
+				continue;
+			}
+			wartend.decrementAndGet();
+			long verloren = nichtEingereiht.sum();
+			naechsteNummer += verloren - uebersprungen;
+			uebersprungen = verloren;
+			verteilung.offer(ereignis.mitNummer(naechsteNummer++), (abonnent, verworfenesEreignis) -> {
+				verworfen.increment();
+				return false; // nicht erneut versuchen, die anderen Abonnenten sollen nicht warten
+			});
+		}
+	}
+
+	private void veroeffentlichen(BankEreignis.Art art, String kundennummer, String iban, long altCent, long neuCent) {
+		if (!verteilung.hasSubscribers()) {
+			return;
+		}
+		int anzahl = wartend.incrementAndGet();
+		if (anzahl > WARTESCHLANGE) {
+			wartend.decrementAndGet();
+			verworfen.increment();
+			nichtEingereiht.increment();
+			return;
+		}
+		warteschlange.offer(new BankEreignis(0, art, kundennummer, iban, altCent, neuCent));	// Nummer vom Verteiler
+		if (anzahl == WECKEN && schlaeft) {
+			LockSupport.unpark(verteiler);
+		}
+	}
+
+	/**
+	 * Gibt die Anzahl der Ereignisse zurck, die verworfen wurden, weil die Warteschlange oder der Puffer eines
+	 * Abonnenten voll war. Ein Ereignis, das bei mehreren Abonnenten verworfen wurde, zhlt mehrfach.
+	 * @return
+	 * 			Anzahl der verworfenen Ereignisse seit dem Start
+	 */
+	long getVerworfen() {
+		return verworfen.sum();
+	}
+
+	@Override
+	public void kundeAngelegt(Kunde kunde) {
+		veroeffentlichen(BankEreignis.Art.KUNDE_ANGELEGT, kunde.getKundennummer(), null, 0, 0);
+	}
+
+	@Override
+	public void kontoAngelegt(Kunde kunde, Konto konto) {
+		veroeffentlichen(BankEreignis.Art.KONTO_ANGELEGT, kunde.getKundennummer(), konto.getIban(), 0, 0);
+	}
+
+	@Override
+	public void kontoEntfernt(Kunde kunde, Konto konto) {
+		veroeffentlichen(BankEreignis.Art.KONTO_ENTFERNT, kunde.getKundennummer(), konto.getIban(), 0, 0);
+	}
+
+	@Override
+	public void kontostandGeaendert(Konto konto, long altCent, long neuCent) {
+		Kunde inhaber = konto.getInhaber();
+		veroeffentlichen(BankEreignis.Art.KONTOSTAND_GEAENDERT, (inhaber == null) ? null : inhaber.getKundennummer(),
+				konto.getIban(), altCent, neuCent);
+	}
+
+	@Override
+	public void adresseGeaendert(Kunde kunde, Adresse alt, Adresse neu) {
+		veroeffentlichen(BankEreignis.Art.ADRESSE_GEAENDERT, kunde.getKundennummer(), null, 0, 0);
+	}
+
+	@Override
+	public void geburtstagGeaendert(Privatkunde kunde, LocalDate alt, LocalDate neu) {
+		veroeffentlichen(BankEreignis.Art.GEBURTSTAG_GEAENDERT, kunde.getKundennummer(), null, 0, 0);
+	}
+}
@@ -0,0 +1,289 @@
+package kontoverwaltung;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+
+/**
+ *
+ * Exportiert alle Kunden mit Adressen, Ansprechpartnern und Konten einer Bank als CSV-Datei oder als
+ * JSON-Datei mit einem Kunden pro Zeile (newline-delimited JSON) fr die bergabe an nachgelagerte Systeme.
+ *
+ * Geschrieben wird ber einen FileChannel mit einem groen Direct Buffer (siehe KanalWriter). Die Kunden werden
+ * nacheinander direkt in den Puffer geschrieben, es werden keine Zeilen- oder Objektkopien angelegt.
+ * Der Speicherbedarf ist daher unabhngig von der Anzahl der Kunden.
+ *
+ * CSV-Format: Semikolon als Trennzeichen, UTF-8, eine Zeile pro Konto. Kunden ohne Konto erscheinen in einer Zeile
+ * mit leeren Kontospalten. Felder mit Semikolon, Anfhrungszeichen oder Zeilenumbruch werden in Anfhrungszeichen
+ * gesetzt. Betrge haben einen Punkt als Dezimaltrenner, Datumsangaben das Format JJJJ-MM-TT.
+ *
+ * @author aschwegmann
+ * @version 1.0
+ *
+ * @see Bank
+ * @see KanalWriter
+ */
+class Exporter {
+
+	private final static int PUFFERGROESSE = 4 * 1024 * 1024;
+	private final static String CSV_KOPF = "typ;kundennummer;name;vorname;nachname;geburtstag;firmenname;telefonnummer;email;"
+			+ "adresszeile1;adresszeile2;plz;ort;ap_vorname;ap_nachname;ap_telefonnummer;iban;kontostand\n";
+
+	/**
+	 * Exportiert die Kunden als CSV-Datei. Eine vorhandene Datei wird berschrieben.
+	 * @param kunden
+	 * 			die zu exportierenden Kunden
+	 * @param datei
+	 * 			die Zieldatei
+	 * @return
+	 * 			Anzahl der geschriebenen Bytes
+	 * @throws IOException
+	 * 			falls beim Schreiben ein Fehler auftritt
+	 */
+	long csvExportieren(Iterable<? extends Kunde> kunden, Path datei) throws IOException {
+		KanalWriter out = oeffnen(datei);
+		try {
+			out.write(CSV_KOPF);
+			for (Kunde kunde : kunden) {
+				Konto[] konten = kunde.getKontenArray();
+				if (konten.length == 0) {
+					csvKunde(out, kunde);
+					out.write(";;\n");
+					continue;
+				}
+				for (Konto konto : konten) {
+					csvKunde(out, kunde);
+					out.write(';');
+					csvFeld(out, konto.getIban());
+					out.write(';');
+					Json.betrag(out, konto.getCent());
+					out.write('\n');
+				}
+			}
+		} finally {
+			out.close();
+		}
+		return out.getGeschriebeneBytes();
+	}
+
+	/**
+	 * Exportiert die Kunden als JSON mit einem Kunden-Objekt pro Zeile. Eine vorhandene Datei wird berschrieben.
+	 * @param kunden
+	 * 			die zu exportierenden Kunden
+	 * @param datei
+	 * 			die Zieldatei
+	 * @return
+	 * 			Anzahl der geschriebenen Bytes
+	 * @throws IOException
+	 * 			falls beim Schreiben ein Fehler auftritt
+	 */
+	long jsonExportieren(Iterable<? extends Kunde> kunden, Path datei) throws IOException {
+		KanalWriter out = oeffnen(datei);
+		try {
+			for (Kunde kunde : kunden) {
+				jsonKunde(out, kunde);
+				out.write('\n');
+			}
+		} finally {
+			out.close();
+		}
+		return out.getGeschriebeneBytes();
+	}
+
+	private static KanalWriter oeffnen(Path datei) throws IOException {
+		FileChannel kanal = FileChannel.open(datei, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		return new KanalWriter(kanal, StandardCharsets.UTF_8, PUFFERGROESSE);
+	}
+
+	/*
+	 * Schreibt die Kundenspalten einer CSV-Zeile (ohne Kontospalten)
+	 */
+	private static void csvKunde(KanalWriter out, Kunde kunde) throws IOException {
+		Privatkunde pk = (kunde instanceof Privatkunde) ? (Privatkunde) kunde : null;
+		Firmenkunde fk = (kunde instanceof Firmenkunde) ? (Firmenkunde) kunde : null;
+		Adresse adresse = kunde.getAdresse();
+
+		out.write((pk != null) ? "privat;" : "firma;");
+		csvFeld(out, kunde.getKundennummer());
+		out.write(';');
+		csvFeld(out, kunde.getName());
+		out.write(';');
+		if (pk != null) {
+			csvFeld(out, pk.getVorname());
+			out.write(';');
+			csvFeld(out, pk.getNachname());
+			out.write(';');
+			datum(out, pk.getGeburtsdatum());
+			out.write(";;");
+		} else {
+			out.write(";;;");
+			csvFeld(out, (fk != null) ? fk.getFirmenname() : null);
+			out.write(';');
+		}
+		csvFeld(out, kunde.getTelefonnummer());
+		out.write(';');
+		csvFeld(out, kunde.getEmail());
+		out.write(';');
+		csvFeld(out, adresse.getAdresszeile1());
+		out.write(';');
+		csvFeld(out, adresse.getAdresszeile2());
+		out.write(';');
+		plz(out, adresse.getPlz());
+		out.write(';');
+		csvFeld(out, adresse.getOrt());
+		out.write(';');
+		if (fk != null && fk.getAnsprechpartner() != null) {
+			Ansprechpartner ap = fk.getAnsprechpartner();
+			csvFeld(out, ap.getVorname());
+			out.write(';');
+			csvFeld(out, ap.getNachname());
+			out.write(';');
+			csvFeld(out, ap.getTelefonnummer());
+		} else {
+			out.write(";;");
+		}
+	}
+
+	/*
+	 * Schreibt ein CSV-Feld, bei Bedarf in Anfhrungszeichen mit verdoppelten inneren Anfhrungszeichen
+	 */
+	private static void csvFeld(KanalWriter out, String wert) throws IOException {
+		if (wert == null) {
+			return;
+		}
+		boolean maskieren = false;
+		for (int i = 0; i < wert.length() && !maskieren; i++) {
+			char c = wert.charAt(i);
+			maskieren = (c == ';' || c == '"' || c == '\n' || c == '\r');
+		}
+		if (!maskieren) {
+			out.write(wert);
+			return;
+		}
+		out.write('"');
+		int start = 0;
+		for (int i = 0; i < wert.length(); i++) {
+			if (wert.charAt(i) == '"') {
+				out.write(wert, start, i - start + 1);
+				out.write('"');
+				start = i + 1;
+			}
+		}
+		out.write(wert, start, wert.length() - start);
+		out.write('"');
+	}
+
+	/**
+	 * Schreibt einen Kunden als JSON-Objekt, wie es auch im JSON-Export steht (ohne Zeilenumbruch)
+	 * @param out
+	 * 			Ausgabeziel
+	 * @param kunde
+	 * 			der Kunde
+	 * @throws IOException
+	 * 			falls beim Schreiben ein Fehler auftritt
+	 */
+	static void jsonKunde(Writer out, Kunde kunde) throws IOException {
+		out.write('{');
+		Json.feld(out, "typ", true);
+		if (kunde instanceof Privatkunde) {
+			Privatkunde pk = (Privatkunde) kunde;
+			out.write("\"privat\"");
+			Json.feld(out, "kundennummer", false);
+			Json.string(out, kunde.getKundennummer());
+			Json.feld(out, "vorname", false);
+			Json.string(out, pk.getVorname());
+			Json.feld(out, "nachname", false);
+			Json.string(out, pk.getNachname());
+			Json.feld(out, "geburtstag", false);
+			out.write('"');
+			datum(out, pk.getGeburtsdatum());
+			out.write('"');
+		} else {
+			out.write("\"firma\"");
+			Json.feld(out, "kundennummer", false);
+			Json.string(out, kunde.getKundennummer());
+			Json.feld(out, "firmenname", false);
+			Json.string(out, kunde.getName());
+		}
+		Json.feld(out, "telefonnummer", false);
+		Json.string(out, kunde.getTelefonnummer());
+		Json.feld(out, "email", false);
+		Json.string(out, kunde.getEmail());
+
+		Adresse adresse = kunde.getAdresse();
+		Json.feld(out, "adresse", false);
+		out.write('{');
+		Json.feld(out, "adresszeile1", true);
+		Json.string(out, adresse.getAdresszeile1());
+		Json.feld(out, "adresszeile2", false);
+		Json.string(out, adresse.getAdresszeile2());
+		Json.feld(out, "plz", false);
+		out.write('"');
+		plz(out, adresse.getPlz());
+		out.write('"');
+		Json.feld(out, "ort", false);
+		Json.string(out, adresse.getOrt());
+		out.write('}');
+
+		if (kunde instanceof Firmenkunde && ((Firmenkunde) kunde).getAnsprechpartner() != null) {
+			Ansprechpartner ap = ((Firmenkunde) kunde).getAnsprechpartner();
+			Json.feld(out, "ansprechpartner", false);
+			out.write('{');
+			Json.feld(out, "vorname", true);
+			Json.string(out, ap.getVorname());
+			Json.feld(out, "nachname", false);
+			Json.string(out, ap.getNachname());
+			Json.feld(out, "telefonnummer", false);
+			Json.string(out, ap.getTelefonnummer());
+			out.write('}');
+		}
+
+		Json.feld(out, "konten", false);
+		out.write('[');
+		boolean erstes = true;
+		for (Konto konto : kunde.getKontenArray()) {
+			if (!erstes) {
+				out.write(',');
+			}
+			erstes = false;
+			out.write('{');
+			Json.feld(out, "iban", true);
+			Json.string(out, konto.getIban());
+			Json.feld(out, "kontostand", false);
+			Json.betrag(out, konto.getCent());
+			out.write('}');
+		}
+		out.write("]}");
+	}
+
+	/*
+	 * Datum im Format JJJJ-MM-TT
+	 */
+	private static void datum(Writer out, LocalDate datum) throws IOException {
+		Json.zahl(out, datum.getYear());
+		out.write('-');
+		zweistellig(out, datum.getMonthValue());
+		out.write('-');
+		zweistellig(out, datum.getDayOfMonth());
+	}
+
+	private static void zweistellig(Writer out, int wert) throws IOException {
+		out.write('0' + wert / 10);
+		out.write('0' + wert % 10);
+	}
+
+	/*
+	 * fnfstellige Postleitzahl mit fhrenden Nullen
+	 */
+	private static void plz(Writer out, int plz) throws IOException {
+		for (int grenze = 10000; grenze > 1 && plz < grenze; grenze /= 10) {
+			out.write('0');
+		}
+		Json.zahl(out, plz);
+	}
+}
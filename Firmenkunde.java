@@ -42,6 +42,19 @@ public class Firmenkunde extends Kunde {
 		this.setAnsprechpartner(ansprechpartner);
 	}
 
+	/**
+	 * Kopierkonstruktor fr Abbilder, bernimmt alle Stammdaten ohne Konten. Der Ansprechpartner wird mit kopiert,
+	 * da er vernderbar ist und von mehreren Firmenkunden geteilt wird.
+	 * @param vorlage
+	 * 			der Firmenkunde, dessen Stammdaten bernommen werden
+	 * @see Kunde#Kunde(Kunde)
+	 */
+	Firmenkunde(Firmenkunde vorlage) {
+		super(vorlage);
+		this.firmenname = vorlage.firmenname;
+		this.ansprechpartner = new Ansprechpartner(vorlage.ansprechpartner);
+	}
+
 	/**
 	 * Gibt das Feld "firmenname" dieses Geschftskunden-Objektes zurck
 	 * @return
@@ -58,6 +71,7 @@ public class Firmenkunde extends Kunde {
 	 */
 	public void setFirmenname(String firmenname) {
 		this.firmenname = firmenname;
+		stammdatenMelden();
 	}
 
 	/**
@@ -76,6 +90,7 @@ public class Firmenkunde extends Kunde {
 	 */
 	public void setAnsprechpartner(Ansprechpartner ansprechpartner) {
 		this.ansprechpartner = ansprechpartner;
+		stammdatenMelden();
 	}
 
 	@Override
@@ -0,0 +1,101 @@
+package kontoverwaltung;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ *
+ * Index ber die Geburtstage der Privatkunden einer Bank. Es werden zwei sortierte int-Indizes gepflegt:
+ * einer nach Monat und Tag (Schlssel MMTT, z.B. 1224 fr den 24.12.) fr Abfragen wie "wer hat diese Woche
+ * Geburtstag" und einer nach dem vollstndigen Datum (Epochentag) fr Altersabfragen.
+ * Beide Abfragen lesen nur den betroffenen Schlsselbereich und durchsuchen nicht alle Kunden.
+ *
+ * @author aschwegmann
+ * @version 1.0
+ *
+ * @see Bank
+ * @see SortierterIntIndex
+ */
+class GeburtstagsIndex implements BankBeobachter {
+
+	private final SortierterIntIndex<Privatkunde> nachTag = new SortierterIntIndex<Privatkunde>();
+	private final SortierterIntIndex<Privatkunde> nachDatum = new SortierterIntIndex<Privatkunde>();
+
+	@Override
+	public void kundeAngelegt(Kunde kunde) {
+		if (kunde instanceof Privatkunde) {
+			Privatkunde pk = (Privatkunde) kunde;
+			einfuegen(pk, pk.getGeburtsdatum());
+		}
+	}
+
+	@Override
+	public void geburtstagGeaendert(Privatkunde kunde, LocalDate alt, LocalDate neu) {
+		if (alt != null) {
+			nachTag.remove(tagesSchluessel(alt), kunde);
+			nachDatum.remove((int) alt.toEpochDay(), kunde);
+		}
+		einfuegen(kunde, neu);
+	}
+
+	private void einfuegen(Privatkunde kunde, LocalDate geburtstag) {
+		nachTag.add(tagesSchluessel(geburtstag), kunde);
+		nachDatum.add(kunde.getGeburtsdatumEpochTag(), kunde);
+	}
+
+	private static int tagesSchluessel(LocalDate datum) {
+		return datum.getMonthValue() * 100 + datum.getDayOfMonth();
+	}
+
+	/**
+	 * Gibt alle Privatkunden zurck, deren Geburtstag (Tag und Monat) im bergebenen Zeitraum liegt.
+	 * Zeitrume ber den Jahreswechsel werden in zwei Bereiche aufgeteilt. Der 29.02. wird bercksichtigt,
+	 * wenn er im Zeitraum liegt.
+	 * @param von
+	 * 			erster Tag des Zeitraums (einschliesslich)
+	 * @param bis
+	 * 			letzter Tag des Zeitraums (einschliesslich)
+	 * @return
+	 * 			Liste der Privatkunden, nach Monat und Tag sortiert
+	 */
+	List<Privatkunde> getGeburtstageZwischen(LocalDate von, LocalDate bis) {
+		if (ChronoUnit.DAYS.between(von, bis) >= 365) { // ein ganzes Jahr oder mehr
+			return nachTag.bereich(101, 1231);
+		}
+		int start = tagesSchluessel(von);
+		int ende = tagesSchluessel(bis);
+		if (start <= ende && von.getYear() == bis.getYear()) {
+			return nachTag.bereich(start, ende);
+		}
+		List<Privatkunde> ergebnis = nachTag.bereich(start, 1231); // ber den Jahreswechsel
+		ergebnis.addAll(nachTag.bereich(101, ende));
+		return ergebnis;
+	}
+
+	/**
+	 * Gibt alle Privatkunden zurck, die im bergebenen Zeitraum geboren wurden
+	 * @param von
+	 * 			frhestes Geburtsdatum (einschliesslich)
+	 * @param bis
+	 * 			sptestes Geburtsdatum (einschliesslich)
+	 * @return
+	 * 			Liste der Privatkunden, nach Geburtsdatum sortiert
+	 */
+	List<Privatkunde> getGeborenZwischen(LocalDate von, LocalDate bis) {
+		return nachDatum.bereich((int) von.toEpochDay(), (int) bis.toEpochDay());
+	}
+
+	/**
+	 * Zhlt die Privatkunden, die im bergebenen Zeitraum geboren wurden
+	 * @param von
+	 * 			frhestes Geburtsdatum (einschliesslich)
+	 * @param bis
+	 * 			sptestes Geburtsdatum (einschliesslich)
+	 * @return
+	 * 			Anzahl der Privatkunden
+	 */
+	int getAnzahlGeborenZwischen(LocalDate von, LocalDate bis) {
+		return nachDatum.anzahl((int) von.toEpochDay(), (int) bis.toEpochDay());
+	}
+}
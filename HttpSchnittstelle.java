@@ -0,0 +1,543 @@
+package kontoverwaltung;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ *
+ * HTTP-Schnittstelle zu einer Bank, damit andere Dienste Kunden und Konten ohne die Konsole anlegen und abfragen
+ * knnen. Alle Anfragen und Antworten sind JSON (UTF-8), Kunden haben dasselbe Format wie im JSON-Export (siehe
+ * Exporter). Ein gelesener Kunde kann also unverndert wieder angelegt werden.
+ *
+ *   GET  /kunden?nach=K&amp;anzahl=N       Kunden nach Kundennummer sortiert, seitenweise (nach: letzte Kundennummer
+ *                                       der vorigen Seite, anzahl: hchstens MAX_SEITE, Standard STANDARD_SEITE)
+ *   GET  /kunden?name=X&amp;distanz=D      Kunden mit diesem Namen, auf D Tippfehler genau (Standard 0, hchstens
+ *                                       MAX_DISTANZ)
+ *   GET  /kunden/{kundennummer}        ein Kunde mit seinen Konten
+ *   POST /kunden                       legt einen Kunden an (Objekt) oder mehrere (Array), ohne Kundennummer wird
+ *                                       eine neue vergeben
+ *   GET  /konten/{iban}                ein Konto mit Kontostand und Kundennummer des Inhabers
+ *   POST /konten                       legt ein Konto an: kundennummer, iban (ohne: neue IBAN), startkapital
+ *
+ * Fehler werden mit passendem Statuscode (400, 404, 405, 409, 422) und einem Objekt {"fehler": "..."} beantwortet.
+ * Unerwartete Fehler (500) werden nur mit einer allgemeinen Meldung beantwortet und mit ihrer Ursache protokolliert
+ * (java.util.logging), damit keine Interna der Bank nach auen gelangen.
+ *
+ * Ohne Angabe einer Adresse ist die Schnittstelle nur ber localhost erreichbar. Fr andere Rechner muss sie
+ * ausdrcklich an eine Adresse gebunden werden (z.B. 0.0.0.0 fr alle).
+ *
+ * Jede Anfrage wird in einem eigenen Thread bearbeitet. Ab Java 21 sind das virtuelle Threads, die beim Warten auf
+ * das Netz keinen Plattform-Thread belegen; unter lteren Versionen ein mitwachsender Pool. Lesende Anfragen laufen
+ * gleichzeitig ber die threadsicheren Indizes und Abbilder der Bank, anlegende Anfragen ebenfalls gleichzeitig (die
+ * Bank sperrt nur kurz ihre Kundenliste, siehe Bank).
+ *
+ * Aufruf: java kontoverwaltung.UserInterface --http [--port=N] [--adresse=A]
+ *
+ * @author aschwegmann
+ * @version 1.0
+ *
+ * @see Bank
+ * @see Lasttest
+ */
+class HttpSchnittstelle {
+
+	final static int STANDARD_PORT = 8080;
+	final static int STANDARD_SEITE = 50;
+	final static int MAX_SEITE = 1000;
+	final static int MAX_DISTANZ = 3;	// grere Distanzen prfen fast alle Namen unter der Sperre des Namensindex
+	private final static int MAX_ANFRAGE = 1 << 20;	// grte angenommene Anfrage in Bytes
+	private final static Logger LOG = Logger.getLogger(HttpSchnittstelle.class.getName());
+
+	private final Bank bank;
+	private final HttpServer server;
+	private final ExecutorService threads;
+	private final boolean virtuelleThreads;
+
+	/**
+	 * Erzeugt die Schnittstelle auf localhost, gestartet wird sie mit starten
+	 * @param bank
+	 * 			die Bank
+	 * @param port
+	 * 			der Port, 0 fr einen freien Port
+	 * @throws IOException
+	 * 			falls der Port nicht belegt werden kann
+	 */
+	HttpSchnittstelle(Bank bank, int port) throws IOException {
+		this(bank, InetAddress.getLoopbackAddress(), port);
+	}
+
+	/**
+	 * Erzeugt die Schnittstelle auf der bergebenen Adresse, gestartet wird sie mit starten
+	 * @param bank
+	 * 			die Bank
+	 * @param adresse
+	 * 			die Adresse, an die der Server gebunden wird, z.B. 0.0.0.0 fr alle Netzwerkschnittstellen
+	 * @param port
+	 * 			der Port, 0 fr einen freien Port
+	 * @throws IOException
+	 * 			falls der Port nicht belegt werden kann
+	 */
+	HttpSchnittstelle(Bank bank, InetAddress adresse, int port) throws IOException {
+		this.bank = bank;
+		this.server = HttpServer.create(new InetSocketAddress(adresse, port), 0);
+		ExecutorService virtuelle = virtuelleThreads();
+		this.virtuelleThreads = (virtuelle != null);
+		this.threads = (virtuelle != null) ? virtuelle : Executors.newCachedThreadPool();
+		server.setExecutor(threads);
+		server.createContext("/kunden", this::kunden);
+		server.createContext("/konten", this::konten);
+	}
+
+	/**
+	 * Schaltet fr alle danach gestarteten HTTP-Server dieser JVM TCP_NODELAY ein, falls es nicht schon ber
+	 * -Dsun.net.httpserver.nodelay festgelegt ist. Ohne TCP_NODELAY warten kurze Antworten auf das verzgerte ACK des
+	 * Clients (ca. 40 ms pro Anfrage). Da die Einstellung fr die ganze JVM gilt und nur beim ersten Start eines
+	 * HttpServer gelesen wird, ist sie Sache des Programmstarts (siehe UserInterface und Lasttest), nicht der
+	 * Schnittstelle.
+	 */
+	static void nodelayVorgeben() {
+		if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+			System.setProperty("sun.net.httpserver.nodelay", "true");
+		}
+	}
+
+	/*
+	 * Virtuelle Threads gibt es erst ab Java 21, der Aufruf geht daher ber Reflection. Gibt null zurck, wenn es
+	 * sie nicht gibt.
+	 */
+	private static ExecutorService virtuelleThreads() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) { // lteres Java
+			return null;
+		}
+	}
+
+	/**
+	 * Gibt zurck, ob die Anfragen in virtuellen Threads bearbeitet werden
+	 * @return
+	 * 			true ab Java 21
+	 */
+	boolean isVirtuelleThreads() {
+		return virtuelleThreads;
+	}
+
+	/**
+	 * Startet die Schnittstelle
+	 */
+	void starten() {
+		server.start();
+	}
+
+	/**
+	 * Beendet die Schnittstelle. Laufende Anfragen werden noch bis zu einer Sekunde lang zu Ende bearbeitet.
+	 */
+	void beenden() {
+		server.stop(1);
+		threads.shutdown();
+	}
+
+	/**
+	 * Gibt den Port zurck, auf dem die Schnittstelle Anfragen annimmt
+	 * @return
+	 * 			der Port
+	 */
+	int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	// Anfragen
+
+	/*
+	 * Eine Antwort: Statuscode und Inhalt
+	 */
+	private static final class Antwort {
+
+		private final int status;
+		private final byte[] inhalt;
+
+		private Antwort(int status, byte[] inhalt) {
+			this.status = status;
+			this.inhalt = inhalt;
+		}
+	}
+
+	/*
+	 * Schreibt den Inhalt einer Antwort
+	 */
+	@FunctionalInterface
+	private interface Inhalt {
+		void schreiben(Writer out) throws IOException;
+	}
+
+	private void kunden(HttpExchange anfrage) throws IOException {
+		bearbeiten(anfrage, () -> {
+			String nummer = pfadRest(anfrage, "/kunden");
+			switch (anfrage.getRequestMethod()) {
+			case "GET":
+				return (nummer == null) ? kundenAuflisten(parameter(anfrage)) : kundeLesen(nummer);
+			case "POST":
+				if (nummer != null) {
+					return fehler(405, "Kunden werden mit POST /kunden angelegt");
+				}
+				return kundenAnlegen(Json.lesen(inhalt(anfrage)));
+			default:
+				return fehler(405, "Methode " + anfrage.getRequestMethod() + " wird nicht untersttzt");
+			}
+		});
+	}
+
+	private void konten(HttpExchange anfrage) throws IOException {
+		bearbeiten(anfrage, () -> {
+			String iban = pfadRest(anfrage, "/konten");
+			switch (anfrage.getRequestMethod()) {
+			case "GET":
+				if (iban == null) {
+					return fehler(404, "Konten werden einzeln ber GET /konten/{iban} gelesen");
+				}
+				return kontoLesen(iban);
+			case "POST":
+				if (iban != null) {
+					return fehler(405, "Konten werden mit POST /konten angelegt");
+				}
+				return kontoAnlegen(objekt(Json.lesen(inhalt(anfrage))));
+			default:
+				return fehler(405, "Methode " + anfrage.getRequestMethod() + " wird nicht untersttzt");
+			}
+		});
+	}
+
+	@FunctionalInterface
+	private interface Bearbeitung {
+		Antwort ausfuehren() throws IOException;
+	}
+
+	/*
+	 * Fhrt eine Bearbeitung aus und sendet ihre Antwort. Ungltige Eingaben (IllegalArgumentException, auch aus
+	 * den Prfungen der Kunden und Adressen) werden mit 400 beantwortet, andere Fehler protokolliert und ohne
+	 * Einzelheiten mit 500.
+	 */
+	private static void bearbeiten(HttpExchange anfrage, Bearbeitung bearbeitung) throws IOException {
+		Antwort antwort;
+		try {
+			antwort = bearbeitung.ausfuehren();
+		} catch (IllegalArgumentException | DateTimeParseException e) {
+			antwort = fehler(400, e.getMessage());
+		} catch (RuntimeException e) {
+			LOG.log(Level.SEVERE, anfrage.getRequestMethod() + " " + anfrage.getRequestURI() + " fehlgeschlagen", e);
+			antwort = fehler(500, "Interner Fehler");
+		}
+		try {
+			anfrage.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+			anfrage.sendResponseHeaders(antwort.status, antwort.inhalt.length);
+			try (OutputStream out = anfrage.getResponseBody()) {
+				out.write(antwort.inhalt);
+			}
+		} finally {
+			anfrage.close();
+		}
+	}
+
+	private Antwort kundeLesen(String kundennummer) throws IOException {
+		Kunde kunde = bank.findClientByKdnr(kundennummer);
+		if (kunde == null) {
+			return fehler(404, "Keinen Eintrag fr Kundennummer " + kundennummer + " gefunden");
+		}
+		return antwort(200, out -> Exporter.jsonKunde(out, kunde));
+	}
+
+	private Antwort kundenAuflisten(Map<String, String> parameter) throws IOException {
+		int anzahl = ganzzahl(parameter, "anzahl", STANDARD_SEITE);
+		if (anzahl < 1 || anzahl > MAX_SEITE) {
+			throw new IllegalArgumentException("anzahl muss zwischen 1 und " + MAX_SEITE + " liegen");
+		}
+		List<Kunde> kunden;
+		String weiter = null;
+		if (parameter.containsKey("name")) {
+			int distanz = ganzzahl(parameter, "distanz", 0);
+			if (distanz < 0 || distanz > MAX_DISTANZ) {
+				throw new IllegalArgumentException("distanz muss zwischen 0 und " + MAX_DISTANZ + " liegen");
+			}
+			kunden = bank.findClientsByNameFuzzy(parameter.get("name"), distanz);
+			if (kunden.size() > anzahl) {
+				kunden = kunden.subList(0, anzahl);
+			}
+		} else {
+			kunden = bank.getClientsPage(parameter.get("nach"), anzahl);
+			if (kunden.size() == anzahl) {
+				weiter = kunden.get(anzahl - 1).getKundennummer();
+			}
+		}
+		List<Kunde> liste = kunden;
+		String naechste = weiter;
+		return antwort(200, out -> {
+			out.write('{');
+			Json.feld(out, "kunden", true);
+			out.write('[');
+			for (int i = 0; i < liste.size(); i++) {
+				if (i > 0) {
+					out.write(',');
+				}
+				Exporter.jsonKunde(out, liste.get(i));
+			}
+			out.write(']');
+			Json.feld(out, "weiter", false);
+			Json.string(out, naechste);
+			out.write('}');
+		});
+	}
+
+	private Antwort kundenAnlegen(Object inhalt) throws IOException {
+		boolean einzeln = !(inhalt instanceof List);
+		List<Object> objekte = einzeln ? Collections.singletonList(inhalt) : castListe(inhalt);
+		List<Bank.Kundenantrag> antraege = new ArrayList<Bank.Kundenantrag>();
+		for (Object objekt : objekte) {
+			antraege.add(kundenantrag(objekt(objekt)));
+		}
+		List<Bank.Kundenanlage> ergebnisse = bank.addClients(antraege);
+		if (einzeln) {
+			String kundennummer = antraege.get(0).getKundennummer();
+			switch (ergebnisse.get(0)) {
+			case ERFOLG:
+				return antwort(201, out -> Exporter.jsonKunde(out, bank.findClientByKdnr(kundennummer)));
+			case KUNDENNUMMER_VERGEBEN:
+				return fehler(409, "Kundennummer " + kundennummer + " ist bereits vergeben");
+			default:
+				return fehler(400, "Ungltige Kundendaten");
+			}
+		}
+		return antwort(200, out -> {
+			out.write('{');
+			Json.feld(out, "ergebnisse", true);
+			out.write('[');
+			for (int i = 0; i < ergebnisse.size(); i++) {
+				if (i > 0) {
+					out.write(',');
+				}
+				out.write('{');
+				Json.feld(out, "kundennummer", true);
+				Json.string(out, antraege.get(i).getKundennummer());
+				Json.feld(out, "ergebnis", false);
+				Json.string(out, ergebnisse.get(i).name());
+				out.write('}');
+			}
+			out.write("]}");
+		});
+	}
+
+	/*
+	 * Wandelt ein Kunden-Objekt im Format des JSON-Exports in einen Antrag um. Ohne Kundennummer wird eine neue
+	 * vergeben.
+	 */
+	private Bank.Kundenantrag kundenantrag(Map<String, Object> kunde) {
+		String kundennummer = text(kunde, "kundennummer", false);
+		if (kundennummer == null) {
+			kundennummer = bank.newClientNumber();
+		}
+		Map<String, Object> adresse = objekt(pflicht(kunde, "adresse"));
+		String zeile1 = text(adresse, "adresszeile1", true);
+		String zeile2 = text(adresse, "adresszeile2", false);
+		int plz = ganzzahl(pflicht(adresse, "plz"), "plz");
+		String ort = text(adresse, "ort", true);
+		String telefonnummer = text(kunde, "telefonnummer", true);
+		String email = text(kunde, "email", true);
+		String typ = text(kunde, "typ", true);
+		switch (typ) {
+		case "privat":
+			return Bank.Kundenantrag.privatkunde(kundennummer, text(kunde, "vorname", true), text(kunde, "nachname", true),
+					zeile1, (zeile2 == null) ? "" : zeile2, plz, ort, telefonnummer, email,
+					LocalDate.parse(text(kunde, "geburtstag", true)));
+		case "firma":
+			Map<String, Object> ap = objekt(pflicht(kunde, "ansprechpartner"));
+			return Bank.Kundenantrag.firmenkunde(kundennummer, text(kunde, "firmenname", true), zeile1,
+					(zeile2 == null) ? "" : zeile2, plz, ort, telefonnummer, email, text(ap, "vorname", true),
+					text(ap, "nachname", true), text(ap, "telefonnummer", true));
+		default:
+			throw new IllegalArgumentException("typ muss \"privat\" oder \"firma\" sein");
+		}
+	}
+
+	private Antwort kontoLesen(String iban) throws IOException {
+		Konto konto = bank.findAccount(iban);
+		if (konto == null) {
+			return fehler(404, "Kein Konto mit der IBAN " + iban + " gefunden");
+		}
+		return antwort(200, out -> konto(out, konto.getIban(), konto.getCent(), konto.getInhaber()));
+	}
+
+	private Antwort kontoAnlegen(Map<String, Object> antrag) throws IOException {
+		String kundennummer = text(antrag, "kundennummer", true);
+		Object startkapital = antrag.get("startkapital");
+		double betrag = (startkapital == null) ? 0 : zahl(startkapital, "startkapital");
+		String iban = text(antrag, "iban", false);
+		if (iban == null) {
+			iban = bank.newIban();
+		}
+		Bank.Kontoeroeffnung ergebnis = bank.openAccount(kundennummer, iban, betrag);
+		switch (ergebnis) {
+		case ERFOLG:
+			Konto konto = bank.findAccount(iban);
+			return antwort(201, out -> konto(out, konto.getIban(), konto.getCent(), konto.getInhaber()));
+		case KUNDE_UNBEKANNT:
+			return fehler(404, "Keinen Eintrag fr Kundennummer " + kundennummer + " gefunden");
+		case IBAN_VERGEBEN:
+			return fehler(409, "Das Konto mit der IBAN " + iban + " existiert bereits");
+		case LIMIT_ERREICHT:
+			return fehler(422, "Der Kunde hat bereits die maximale Kontenzahl erreicht (" + Kontenliste.MAX_KONTEN + ")");
+		default:
+			return fehler(400, "Ungltiges IBAN-Format: " + iban);
+		}
+	}
+
+	private static void konto(Writer out, String iban, long cent, Kunde inhaber) throws IOException {
+		out.write('{');
+		Json.feld(out, "iban", true);
+		Json.string(out, iban);
+		Json.feld(out, "kontostand", false);
+		Json.betrag(out, cent);
+		Json.feld(out, "kundennummer", false);
+		Json.string(out, (inhaber == null) ? null : inhaber.getKundennummer());
+		out.write('}');
+	}
+
+	// Hilfsmethoden
+
+	private static Antwort antwort(int status, Inhalt inhalt) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+		Writer out = new OutputStreamWriter(bytes, StandardCharsets.UTF_8);
+		inhalt.schreiben(out);
+		out.flush();
+		return new Antwort(status, bytes.toByteArray());
+	}
+
+	private static Antwort fehler(int status, String meldung) {
+		try {
+			return antwort(status, out -> {
+				out.write('{');
+				Json.feld(out, "fehler", true);
+				Json.string(out, meldung);
+				out.write('}');
+			});
+		} catch (IOException e) { // schreibt nur in den Speicher
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/*
+	 * Der dekodierte Teil des Pfades hinter dem Kontext ohne fhrenden Schrgstrich, null wenn es keinen gibt
+	 */
+	private static String pfadRest(HttpExchange anfrage, String kontext) {
+		String pfad = anfrage.getRequestURI().getPath();
+		if (pfad.length() <= kontext.length() + 1) {
+			return null;
+		}
+		return pfad.substring(kontext.length() + 1);
+	}
+
+	private static Map<String, String> parameter(HttpExchange anfrage) {
+		Map<String, String> parameter = new HashMap<String, String>();
+		String query = anfrage.getRequestURI().getRawQuery();
+		if (query == null) {
+			return parameter;
+		}
+		for (String paar : query.split("&")) {
+			int gleich = paar.indexOf('=');
+			if (gleich > 0) {
+				parameter.put(URLDecoder.decode(paar.substring(0, gleich), StandardCharsets.UTF_8),
+						URLDecoder.decode(paar.substring(gleich + 1), StandardCharsets.UTF_8));
+			}
+		}
+		return parameter;
+	}
+
+	private static String inhalt(HttpExchange anfrage) throws IOException {
+		try (InputStream in = anfrage.getRequestBody()) {
+			byte[] bytes = in.readNBytes(MAX_ANFRAGE + 1);
+			if (bytes.length > MAX_ANFRAGE) {
+				throw new IllegalArgumentException("Anfrage ist grer als " + MAX_ANFRAGE + " Bytes");
+			}
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+	}
+
+	private static int ganzzahl(Map<String, String> parameter, String name, int standard) {
+		String wert = parameter.get(name);
+		if (wert == null) {
+			return standard;
+		}
+		try {
+			return Integer.parseInt(wert);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException(name + " muss eine ganze Zahl sein");
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Map<String, Object> objekt(Object wert) {
+		if (!(wert instanceof Map)) {
+			throw new IllegalArgumentException("JSON-Objekt erwartet");
+		}
+		return (Map<String, Object>) wert;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static List<Object> castListe(Object wert) {
+		return (List<Object>) wert;
+	}
+
+	private static Object pflicht(Map<String, Object> objekt, String name) {
+		Object wert = objekt.get(name);
+		if (wert == null) {
+			throw new IllegalArgumentException("Feld " + name + " fehlt");
+		}
+		return wert;
+	}
+
+	private static String text(Map<String, Object> objekt, String name, boolean pflicht) {
+		Object wert = pflicht ? pflicht(objekt, name) : objekt.get(name);
+		if (wert == null || wert instanceof String) {
+			return (String) wert;
+		}
+		throw new IllegalArgumentException("Feld " + name + " muss ein String sein");
+	}
+
+	/*
+	 * Eine ganze Zahl als JSON-Zahl oder String, z.B. die PLZ "01067" aus dem JSON-Export
+	 */
+	private static int ganzzahl(Object wert, String name) {
+		try {
+			return (wert instanceof Long) ? Math.toIntExact((Long) wert) : Integer.parseInt((String) wert);
+		} catch (ClassCastException | NumberFormatException | ArithmeticException e) {
+			throw new IllegalArgumentException("Feld " + name + " muss eine ganze Zahl sein");
+		}
+	}
+
+	private static double zahl(Object wert, String name) {
+		if (!(wert instanceof Number)) {
+			throw new IllegalArgumentException("Feld " + name + " muss eine Zahl sein");
+		}
+		return ((Number) wert).doubleValue();
+	}
+}
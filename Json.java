@@ -0,0 +1,339 @@
+package kontoverwaltung;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ *
+ * Kleine Hilfsklasse zum Schreiben von JSON, ohne Zwischenstrings zu erzeugen.
+ * Es werden nur die Bausteine bereitgestellt, die fr den Export und die Schnittstellen gebraucht werden.
+ * Zum Lesen von Anfragen (siehe HttpSchnittstelle) gibt es einen einfachen Parser, der JSON in Maps, Listen,
+ * Strings, Zahlen und Wahrheitswerte umwandelt.
+ *
+ * @author aschwegmann
+ * @version 1.0
+ *
+ */
+final class Json {
+
+	private final static char[] HEX = "0123456789abcdef".toCharArray();
+
+	private Json() { // nur statische Methoden
+	}
+
+	/**
+	 * Schreibt einen Text als JSON-String inkl. Anfhrungszeichen, Sonderzeichen werden maskiert.
+	 * null wird als JSON null geschrieben.
+	 * @param ziel
+	 * 			Ausgabeziel
+	 * @param text
+	 * 			der Text
+	 * @throws IOException
+	 * 			falls beim Schreiben ein Fehler auftritt
+	 */
+	static void string(Appendable ziel, String text) throws IOException {
+		if (text == null) {
+			ziel.append("null");
+			return;
+		}
+		ziel.append('"');
+		int start = 0;
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c >= 0x20 && c != '"' && c != '\\') {
+				continue;
+			}
+			ziel.append(text, start, i);
+			switch (c) {
+			case '"':
+				ziel.append("\\\"");
+				break;
+			case '\\':
+				ziel.append("\\\\");
+				break;
+			case '\n':
+				ziel.append("\\n");
+				break;
+			case '\r':
+				ziel.append("\\r");
+				break;
+			case '\t':
+				ziel.append("\\t");
+				break;
+			default:
+				ziel.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xF]);
+				break;
+			}
+			start = i + 1;
+		}
+		ziel.append(text, start, text.length());
+		ziel.append('"');
+	}
+
+	/**
+	 * Schreibt einen Namen und den Doppelpunkt eines JSON-Feldes, mit fhrendem Komma falls ntig
+	 * @param ziel
+	 * 			Ausgabeziel
+	 * @param name
+	 * 			Feldname (wird nicht maskiert)
+	 * @param erstes
+	 * 			true, wenn es das erste Feld des Objektes ist
+	 * @throws IOException
+	 * 			falls beim Schreiben ein Fehler auftritt
+	 */
+	static void feld(Appendable ziel, String name, boolean erstes) throws IOException {
+		if (!erstes) {
+			ziel.append(',');
+		}
+		ziel.append('"').append(name).append("\":");
+	}
+
+	/**
+	 * Schreibt einen Betrag in Cent als JSON-Zahl mit zwei Nachkommastellen, z.B. -12.05
+	 * @param ziel
+	 * 			Ausgabeziel
+	 * @param cent
+	 * 			Betrag in Cent
+	 * @throws IOException
+	 * 			falls beim Schreiben ein Fehler auftritt
+	 */
+	static void betrag(Appendable ziel, long cent) throws IOException {
+		if (cent < 0) {
+			ziel.append('-');
+		}
+		long rest = Math.abs(cent);
+		zahl(ziel, rest / 100);
+		ziel.append('.');
+		long nachkomma = rest % 100;
+		ziel.append((char) ('0' + nachkomma / 10)).append((char) ('0' + nachkomma % 10));
+	}
+
+	/**
+	 * Schreibt eine ganze Zahl ohne einen String zu erzeugen
+	 * @param ziel
+	 * 			Ausgabeziel
+	 * @param wert
+	 * 			die Zahl
+	 * @throws IOException
+	 * 			falls beim Schreiben ein Fehler auftritt
+	 */
+	static void zahl(Appendable ziel, long wert) throws IOException {
+		if (wert < 0) {
+			if (wert == Long.MIN_VALUE) {
+				ziel.append(Long.toString(wert));
+				return;
+			}
+			ziel.append('-');
+			wert = -wert;
+		}
+		long teiler = 1;
+		while (teiler <= wert / 10) {
+			teiler *= 10;
+		}
+		for (; teiler > 0; teiler /= 10) {
+			ziel.append((char) ('0' + (wert / teiler) % 10));
+		}
+	}
+
+	/**
+	 * Liest einen JSON-Text. Objekte werden zu einer Map (Reihenfolge der Felder bleibt erhalten), Arrays zu einer
+	 * Liste, Zahlen ohne Nachkommastellen und Exponent zu Long, andere Zahlen zu Double, null zu null.
+	 * @param text
+	 * 			der JSON-Text
+	 * @return
+	 * 			der gelesene Wert
+	 * @throws IllegalArgumentException
+	 * 			falls der Text kein gltiges JSON ist
+	 */
+	static Object lesen(String text) {
+		Leser leser = new Leser(text);
+		Object wert = leser.wert();
+		leser.leerzeichen();
+		if (leser.pos < text.length()) {
+			throw leser.fehler("Unerwartetes Zeichen");
+		}
+		return wert;
+	}
+
+	/*
+	 * Parser nach dem Prinzip des rekursiven Abstiegs, ein Objekt pro gelesenem Text
+	 */
+	private static final class Leser {
+
+		private final String text;
+		private int pos;
+
+		private Leser(String text) {
+			this.text = text;
+		}
+
+		private Object wert() {
+			leerzeichen();
+			if (pos >= text.length()) {
+				throw fehler("Unerwartetes Ende");
+			}
+			char c = text.charAt(pos);
+			switch (c) {
+			case '{':
+				return objekt();
+			case '[':
+				return liste();
+			case '"':
+				return string();
+			case 't':
+				return wort("true", Boolean.TRUE);
+			case 'f':
+				return wort("false", Boolean.FALSE);
+			case 'n':
+				return wort("null", null);
+			default:
+				if (c == '-' || (c >= '0' && c <= '9')) {
+					return zahl();
+				}
+				throw fehler("Unerwartetes Zeichen");
+			}
+		}
+
+		private Map<String, Object> objekt() {
+			Map<String, Object> objekt = new LinkedHashMap<String, Object>();
+			pos++;
+			leerzeichen();
+			if (naechstes('}')) {
+				return objekt;
+			}
+			do {
+				leerzeichen();
+				if (pos >= text.length() || text.charAt(pos) != '"') {
+					throw fehler("Feldname erwartet");
+				}
+				String name = string();
+				leerzeichen();
+				if (!naechstes(':')) {
+					throw fehler("':' erwartet");
+				}
+				objekt.put(name, wert());
+				leerzeichen();
+			} while (naechstes(','));
+			if (!naechstes('}')) {
+				throw fehler("'}' erwartet");
+			}
+			return objekt;
+		}
+
+		private List<Object> liste() {
+			List<Object> liste = new ArrayList<Object>();
+			pos++;
+			leerzeichen();
+			if (naechstes(']')) {
+				return liste;
+			}
+			do {
+				liste.add(wert());
+				leerzeichen();
+			} while (naechstes(','));
+			if (!naechstes(']')) {
+				throw fehler("']' erwartet");
+			}
+			return liste;
+		}
+
+		private String string() {
+			pos++;
+			StringBuilder sb = new StringBuilder();
+			while (pos < text.length()) {
+				char c = text.charAt(pos++);
+				if (c == '"') {
+					return sb.toString();
+				}
+				if (c != '\\') {
+					sb.append(c);
+					continue;
+				}
+				if (pos >= text.length()) {
+					break;
+				}
+				char maskiert = text.charAt(pos++);
+				switch (maskiert) {
+				case 'n':
+					sb.append('\n');
+					break;
+				case 'r':
+					sb.append('\r');
+					break;
+				case 't':
+					sb.append('\t');
+					break;
+				case 'b':
+					sb.append('\b');
+					break;
+				case 'f':
+					sb.append('\f');
+					break;
+				case 'u':
+					if (pos + 4 > text.length()) {
+						throw fehler("Unvollstndiges \\u");
+					}
+					try {
+						sb.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+					} catch (NumberFormatException e) {
+						throw fehler("Ungltiges \\u");
+					}
+					pos += 4;
+					break;
+				default: // \" \\ \/
+					sb.append(maskiert);
+				}
+			}
+			throw fehler("Unvollstndiger String");
+		}
+
+		private Number zahl() {
+			int start = pos;
+			boolean ganz = true;
+			while (pos < text.length()) {
+				char c = text.charAt(pos);
+				if (c == '.' || c == 'e' || c == 'E') {
+					ganz = false;
+				} else if (!(c == '-' || c == '+' || (c >= '0' && c <= '9'))) {
+					break;
+				}
+				pos++;
+			}
+			String zahl = text.substring(start, pos);
+			try {
+				return ganz ? (Number) Long.valueOf(zahl) : (Number) Double.valueOf(zahl);
+			} catch (NumberFormatException e) {
+				throw fehler("Ungltige Zahl " + zahl);
+			}
+		}
+
+		private Object wort(String wort, Object wert) {
+			if (!text.startsWith(wort, pos)) {
+				throw fehler("Unerwartetes Zeichen");
+			}
+			pos += wort.length();
+			return wert;
+		}
+
+		private boolean naechstes(char c) {
+			if (pos < text.length() && text.charAt(pos) == c) {
+				pos++;
+				return true;
+			}
+			return false;
+		}
+
+		private void leerzeichen() {
+			while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+				pos++;
+			}
+		}
+
+		private IllegalArgumentException fehler(String meldung) {
+			return new IllegalArgumentException("Ungltiges JSON: " + meldung + " an Stelle " + pos);
+		}
+	}
+}
@@ -0,0 +1,177 @@
+package kontoverwaltung;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ *
+ * Ein Writer, der Zeichen direkt in einen WritableByteChannel schreibt (z.B. einen FileChannel oder
+ * Channels.newChannel(System.out)). Zeichen- und Bytepuffer werden einmal angelegt und wiederverwendet,
+ * der Bytepuffer ist ein Direct Buffer, so dass beim Schreiben in eine Datei keine weitere Kopie ntig ist.
+ * Beim Schreiben groer Datenmengen entstehen daher keine Objekte pro Zeile.
+ *
+ * Ein KanalWriter ist nicht threadsicher.
+ *
+ * @author aschwegmann
+ * @version 1.0
+ *
+ */
+class KanalWriter extends Writer {
+
+	private final WritableByteChannel kanal;
+	private final CharsetEncoder encoder;
+	private final CharBuffer zeichen;
+	private final ByteBuffer bytes;
+	private long geschriebeneBytes;
+
+	/**
+	 * Erzeugt einen KanalWriter mit Puffern der bergebenen Gre
+	 * @param kanal
+	 * 			der Kanal, in den geschrieben wird
+	 * @param zeichensatz
+	 * 			Zeichensatz fr die Umwandlung der Zeichen in Bytes
+	 * @param puffergroesse
+	 * 			Gre des Bytepuffers in Bytes, z.B. 1 MB fr Dateien
+	 */
+	KanalWriter(WritableByteChannel kanal, Charset zeichensatz, int puffergroesse) {
+		this.kanal = kanal;
+		this.encoder = zeichensatz.newEncoder().onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		this.zeichen = CharBuffer.allocate(Math.max(1024, puffergroesse / 4));
+		this.bytes = ByteBuffer.allocateDirect(Math.max(1024, puffergroesse));
+	}
+
+	@Override
+	public void write(char[] cbuf, int off, int len) throws IOException {
+		while (len > 0) {
+			int n = Math.min(len, zeichen.remaining());
+			zeichen.put(cbuf, off, n);
+			off += n;
+			len -= n;
+			if (!zeichen.hasRemaining()) {
+				kodieren(false);
+			}
+		}
+	}
+
+	@Override
+	public void write(String str, int off, int len) throws IOException {
+		while (len > 0) {
+			int n = Math.min(len, zeichen.remaining());
+			str.getChars(off, off + n, zeichen.array(), zeichen.arrayOffset() + zeichen.position()); // ohne Zwischenkopie
+			zeichen.position(zeichen.position() + n);
+			off += n;
+			len -= n;
+			if (!zeichen.hasRemaining()) {
+				kodieren(false);
+			}
+		}
+	}
+
+	@Override
+	public void write(int c) throws IOException {
+		if (!zeichen.hasRemaining()) {
+			kodieren(false);
+		}
+		zeichen.put((char) c);
+	}
+
+	@Override
+	public Writer append(CharSequence csq) throws IOException {
+		return append(csq, 0, csq.length());
+	}
+
+	@Override
+	public Writer append(CharSequence csq, int start, int end) throws IOException {
+		if (csq instanceof String) {
+			write((String) csq, start, end - start);
+			return this;
+		}
+		if (csq instanceof StringBuilder) {
+			StringBuilder sb = (StringBuilder) csq;
+			while (start < end) {
+				int n = Math.min(end - start, zeichen.remaining());
+				sb.getChars(start, start + n, zeichen.array(), zeichen.arrayOffset() + zeichen.position());
+				zeichen.position(zeichen.position() + n);
+				start += n;
+				if (!zeichen.hasRemaining()) {
+					kodieren(false);
+				}
+			}
+			return this;
+		}
+		for (int i = start; i < end; i++) {
+			write(csq.charAt(i));
+		}
+		return this;
+	}
+
+	/*
+	 * Wandelt die gesammelten Zeichen in Bytes um und schreibt volle Bytepuffer in den Kanal.
+	 * Unvollstndige Zeichen (z.B. ein halbes Surrogate-Paar) bleiben im Zeichenpuffer.
+	 */
+	private void kodieren(boolean ende) throws IOException {
+		zeichen.flip();
+		while (true) {
+			CoderResult ergebnis = encoder.encode(zeichen, bytes, ende);
+			if (ergebnis.isOverflow()) {
+				leeren();
+			} else {
+				break;
+			}
+		}
+		zeichen.compact();
+	}
+
+	/*
+	 * Schreibt den Inhalt des Bytepuffers vollstndig in den Kanal
+	 */
+	private void leeren() throws IOException {
+		bytes.flip();
+		while (bytes.hasRemaining()) {
+			geschriebeneBytes += kanal.write(bytes);
+		}
+		bytes.clear();
+	}
+
+	/**
+	 * Schreibt alle gepufferten Zeichen in den Kanal
+	 */
+	@Override
+	public void flush() throws IOException {
+		kodieren(false);
+		leeren();
+	}
+
+	/**
+	 * Schreibt alle gepufferten Zeichen in den Kanal und schliesst den Kanal
+	 */
+	@Override
+	public void close() throws IOException {
+		if (!kanal.isOpen()) {
+			return;
+		}
+		kodieren(true);
+		while (encoder.flush(bytes).isOverflow()) {
+			leeren();
+		}
+		leeren();
+		kanal.close();
+	}
+
+	/**
+	 * Gibt die Anzahl der bisher in den Kanal geschriebenen Bytes zurck
+	 * @return
+	 * 			Anzahl der Bytes
+	 */
+	long getGeschriebeneBytes() {
+		return geschriebeneBytes;
+	}
+}
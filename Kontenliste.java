@@ -0,0 +1,214 @@
+package kontoverwaltung;
+
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ *
+ * Die Konten eines Kunden als kompaktes Set. Die Konten liegen in einem Array, das genau so gro ist wie die Anzahl
+ * der Konten, hchstens aber MAX_KONTEN gro. Ein Kunde mit einem Konto belegt damit statt HashSet, HashMap,
+ * Tabelle und einem Knoten pro Konto nur dieses Objekt und ein Array mit einem Eintrag.
+ *
+ * Bei jeder nderung wird ein neues Array angelegt (bei hchstens 10 Eintrgen billig), das bisherige Array wird
+ * nie verndert. Lesende Zugriffe brauchen daher keine Sperre und sehen immer einen vollstndigen Stand, auch
+ * wenn gleichzeitig Konten hinzugefgt werden. Die ndernden Methoden sind synchronisiert.
+ *
+ * Die Reihenfolge ist die Reihenfolge des Hinzufgens. Doppelte Konten (gleiche IBAN) werden wie bei einem
+ * HashSet nicht aufgenommen.
+ *
+ * @author aschwegmann
+ * @version 1.0
+ *
+ * @see Kunde
+ */
+class Kontenliste extends AbstractSet<Konto> implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Hchstzahl der Konten pro Kunde
+	 */
+	final static int MAX_KONTEN = 10;
+
+	private final static Konto[] LEER = new Konto[0];
+
+	private volatile Konto[] konten = LEER;
+
+	/**
+	 * Erzeugt eine leere Kontenliste
+	 */
+	Kontenliste() {
+	}
+
+	/**
+	 * Erzeugt eine Kontenliste mit den bergebenen Konten, z.B. beim Laden einer Datenbank, in der die Konten
+	 * noch als HashSet gespeichert sind
+	 * @param konten
+	 * 			die Konten
+	 * @throws IllegalStateException
+	 * 			falls es mehr als MAX_KONTEN Konten sind
+	 */
+	Kontenliste(Collection<? extends Konto> konten) {
+		addAll(konten);
+	}
+
+	@Override
+	public int size() {
+		return konten.length;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return indexOf(konten, o) >= 0;
+	}
+
+	/**
+	 * Fgt ein Konto hinzu
+	 * @param konto
+	 * 			das Konto
+	 * @return
+	 * 			true, wenn das Konto hinzugefgt wurde, false wenn es bereits enthalten war
+	 * @throws IllegalStateException
+	 * 			falls bereits MAX_KONTEN Konten enthalten sind
+	 */
+	@Override
+	public synchronized boolean add(Konto konto) {
+		if (konto == null) {
+			throw new NullPointerException();
+		}
+		Konto[] alt = konten;
+		if (indexOf(alt, konto) >= 0) {
+			return false;
+		}
+		if (alt.length >= MAX_KONTEN) {
+			throw new IllegalStateException("Maximum limit of accounts: " + MAX_KONTEN);
+		}
+		Konto[] neu = Arrays.copyOf(alt, alt.length + 1);
+		neu[alt.length] = konto;
+		konten = neu;
+		return true;
+	}
+
+	/**
+	 * Fgt mehrere Konten auf einmal hinzu, entweder alle oder keines. Andere Threads sehen entweder den alten
+	 * Stand oder alle neuen Konten, nie nur einen Teil davon.
+	 * @param neue
+	 * 			die neuen Konten, untereinander verschieden
+	 * @return
+	 * 			true, wenn alle Konten hinzugefgt wurden, false wenn eines bereits enthalten war oder
+	 * 			danach mehr als MAX_KONTEN Konten enthalten wren
+	 */
+	synchronized boolean alleHinzufuegen(Konto[] neue) {
+		Konto[] alt = konten;
+		if (alt.length + neue.length > MAX_KONTEN) {
+			return false;
+		}
+		for (Konto konto : neue) {
+			if (indexOf(alt, konto) >= 0) {
+				return false;
+			}
+		}
+		Konto[] neu = Arrays.copyOf(alt, alt.length + neue.length);
+		System.arraycopy(neue, 0, neu, alt.length, neue.length);
+		konten = neu;
+		return true;
+	}
+
+	@Override
+	public synchronized boolean remove(Object o) {
+		Konto[] alt = konten;
+		int pos = indexOf(alt, o);
+		if (pos < 0) {
+			return false;
+		}
+		entfernen(alt, pos);
+		return true;
+	}
+
+	private void entfernen(Konto[] alt, int pos) {
+		if (alt.length == 1) {
+			konten = LEER;
+			return;
+		}
+		Konto[] neu = new Konto[alt.length - 1];
+		System.arraycopy(alt, 0, neu, 0, pos);
+		System.arraycopy(alt, pos + 1, neu, pos, alt.length - pos - 1);
+		konten = neu;
+	}
+
+	@Override
+	public synchronized void clear() {
+		konten = LEER;
+	}
+
+	private static int indexOf(Konto[] konten, Object o) {
+		for (int i = 0; i < konten.length; i++) {
+			if (konten[i].equals(o)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Gibt das Konto an der bergebenen Position zurck (Reihenfolge des Hinzufgens)
+	 * @param index
+	 * 			Position, von 0 bis size() - 1
+	 * @return
+	 * 			das Konto
+	 */
+	Konto get(int index) {
+		return konten[index];
+	}
+
+	/**
+	 * Gibt den aktuellen Stand der Konten als Array zurck, ohne es zu kopieren. Damit knnen die Konten ohne
+	 * Iterator-Objekt durchlaufen werden. Das Array wird von der Kontenliste nie verndert und darf auch vom
+	 * Aufrufer nicht verndert werden.
+	 * @return
+	 * 			die Konten zum Zeitpunkt des Aufrufs
+	 */
+	Konto[] alsArray() {
+		return konten;
+	}
+
+	/**
+	 * Gibt einen Iterator ber den Stand der Konten zum Zeitpunkt des Aufrufs zurck.
+	 * Iterator.remove entfernt das Konto aus der Kontenliste.
+	 */
+	@Override
+	public Iterator<Konto> iterator() {
+		final Konto[] stand = konten;
+		return new Iterator<Konto>() {
+			private int naechstes;
+			private Konto letztes;
+
+			@Override
+			public boolean hasNext() {
+				return naechstes < stand.length;
+			}
+
+			@Override
+			public Konto next() {
+				if (naechstes >= stand.length) {
+					throw new NoSuchElementException();
+				}
+				letztes = stand[naechstes++];
+				return letztes;
+			}
+
+			@Override
+			public void remove() {
+				if (letztes == null) {
+					throw new IllegalStateException();
+				}
+				Kontenliste.this.remove(letztes);
+				letztes = null;
+			}
+		};
+	}
+}
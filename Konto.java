@@ -1,5 +1,9 @@
 package kontoverwaltung;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.text.NumberFormat;
 import java.util.regex.Matcher;
@@ -9,6 +13,13 @@ import java.util.regex.Pattern;
  * 
  * Eine Klasse zur Reprsentation von Bankkonten mit einer IBAN und einem Kontostand.
  * 
+ * Der Kontostand wird in ganzen Cent gefhrt. Den Beobachter und die Abbildstnde der Bank (fr die Stnde der
+ * Abbilder) erreicht das Konto ber seinen Inhaber.
+ * 
+ * Der Kontostand bleibt bewusst ein einfaches Feld im Konto. Eine Ablage auerhalb des Heaps verkrzt die Pausen
+ * der Speicherbereinigung nicht, da sie primitive Felder ohnehin nicht verfolgt, macht aber Lesen und Schreiben
+ * deutlich langsamer.
+ * 
  * @author aschwegmann
  * @version 1.0
  *
@@ -16,9 +27,19 @@ import java.util.regex.Pattern;
 public class Konto implements Serializable {
 
 	private static final long serialVersionUID = 1L;
+	final static ThreadLocal<NumberFormat> WAEHRUNG = new ThreadLocal<NumberFormat>() { // NumberFormat ist nicht threadsicher
+		@Override
+		protected NumberFormat initialValue() {
+			return NumberFormat.getCurrencyInstance();
+		}
+	};
 	final static Pattern VALID_IBAN = Pattern.compile("^[\\p{Alpha}]{2}\\d{2}\\s?(\\w{4}\\s?){4}\\w{2}$");
+	private final static ObjectStreamField[] serialPersistentFields = { // gespeichertes Format wie bisher
+			new ObjectStreamField("iban", String.class), new ObjectStreamField("kontostand", double.class) };
 	private String iban;
-	private double kontostand;
+	private transient volatile long cent;			// Kontostand in Cent, lesbar ohne Sperre
+	private transient int epoche;					// Epoche der Abbildstnde bei der letzten nderung, siehe Abbildstaende
+	private transient Kunde inhaber;				// wird beim Hinzufgen zu einem Kunden gesetzt
 
 	//Anmerkung: Ich habe teilweise auch die runtime-Exceptions dokumentiert, bevor ich wusste, dass dies nicht ntig ist. Habe es drin gelassen.
 	
@@ -41,6 +62,26 @@ public class Konto implements Serializable {
 		this.setKontostand(kontostand);
 	}
 
+	private Konto() {
+	}
+
+	/**
+	 * Erzeugt ein Konto fr ein Abbild der Bank (siehe Bankabbild) ohne erneute Prfung der IBAN. Das Konto gehrt
+	 * keinem Kunden.
+	 * @param iban
+	 * 			die bereits geprfte IBAN
+	 * @param cent
+	 * 			der Kontostand in Cent
+	 * @return
+	 * 			das neue Konto
+	 */
+	static Konto kopie(String iban, long cent) {
+		Konto konto = new Konto();
+		konto.iban = iban;
+		konto.cent = cent;
+		return konto;
+	}
+
 	/**
 	 * Gibt die IBAN dieses Kontos aus
 	 * @return iban
@@ -77,16 +118,142 @@ public class Konto implements Serializable {
 	 * 			Kontostand dieses Kontos
 	 */
 	public double getKontostand() {
-		return kontostand;
+		return getCent() / 100.0;
+	}
+
+	/**
+	 * Gibt den Kontostand dieses Kontos in ganzen Cent zurck
+	 * @return
+	 * 			Kontostand in Cent
+	 */
+	long getCent() {
+		return cent;
 	}
 
 	/**
-	 * Setzt das Feld "Kontostand" dieses Kontos
+	 * Setzt das Feld "Kontostand" dieses Kontos. Ist das Konto bei einer Bank angemeldet, wird diese
+	 * ber die nderung informiert. Die Methode ist synchronisiert, damit alter und neuer Kontostand
+	 * auch bei gleichzeitigen Aufrufen immer zusammenpassen.
 	 * @param kontostand
-	 * 			Kontostand dieses Kontos
+	 * 			Kontostand dieses Kontos, wird auf ganze Cent gerundet
+	 */
+	public synchronized void setKontostand(double kontostand) {
+		setCent(inCent(kontostand));
+	}
+
+	/**
+	 * Setzt den Kontostand dieses Kontos in ganzen Cent, sonst wie setKontostand. Gehrt das Konto einer Bank,
+	 * luft die nderung als Buchung ihrer Abbildstnde.
+	 * @param neuCent
+	 * 			Kontostand in Cent
+	 */
+	synchronized void setCent(long neuCent) {
+		Abbildstaende staende = (inhaber != null) ? inhaber.getAbbildstaende() : null;
+		long altCent;
+		if (staende == null) {
+			altCent = buchen(neuCent);
+		} else {
+			long stempel = staende.buchungBeginnen();
+			try {
+				altCent = buchen(neuCent);
+			} finally {
+				staende.buchungBeenden(stempel);
+			}
+		}
+		melden(altCent, neuCent);
+	}
+
+	/**
+	 * Schreibt den Kontostand ohne Benachrichtigung und sichert vorher den alten Kontostand fr die offenen Stnde
+	 * der Abbilder. Der Aufrufer hlt die Sperre dieses Kontos und, wenn das Konto einer Bank gehrt, eine Buchung
+	 * ihrer Abbildstnde, z.B. fr beide Konten einer berweisung zusammen.
+	 * @param neuCent
+	 * 			Kontostand in Cent
+	 * @return
+	 * 			der bisherige Kontostand in Cent
+	 * @see Abbildstaende#buchungBeginnen()
 	 */
-	public void setKontostand(double kontostand) {
-		this.kontostand = kontostand;
+	long buchen(long neuCent) {
+		long altCent = cent;
+		Abbildstaende staende = (inhaber != null) ? inhaber.getAbbildstaende() : null;
+		if (staende != null) {
+			epoche = staende.sichern(this, epoche, altCent);
+		}
+		cent = neuCent;
+		return altCent;
+	}
+
+	/**
+	 * Benachrichtigt den Beobachter der Bank ber eine nderung des Kontostands. Der Aufrufer hlt die Sperre
+	 * dieses Kontos, aber keine Buchung mehr.
+	 * @param altCent
+	 * 			der bisherige Kontostand in Cent
+	 * @param neuCent
+	 * 			der neue Kontostand in Cent
+	 */
+	void melden(long altCent, long neuCent) {
+		Kunde k = inhaber;
+		if (k != null && k.getBeobachter() != null) {
+			k.getBeobachter().kontostandGeaendert(this, altCent, neuCent);
+		}
+	}
+
+	/**
+	 * Gibt den Kunden zurck, dem dieses Konto zugeordnet ist
+	 * @return
+	 * 			der Inhaber dieses Kontos oder null, wenn das Konto noch keinem Kunden zugeordnet wurde
+	 */
+	public Kunde getInhaber() {
+		return inhaber;
+	}
+
+	/**
+	 * Ordnet dieses Konto einem Kunden zu. Wird von Kunde aufgerufen. Verlsst das Konto dabei die Abbildstnde
+	 * einer Bank (inhaber null), wird sein Kontostand fr die noch offenen Stnde gesichert, sptere nderungen
+	 * sehen diese also nicht mehr. Kommt es zu einer Bank, sichert die erste nderung den Kontostand fr alle
+	 * offenen Stnde.
+	 * @param inhaber
+	 * 			der Kunde, dem das Konto gehrt, oder null
+	 */
+	synchronized void anmelden(Kunde inhaber) {
+		Abbildstaende alt = (this.inhaber != null) ? this.inhaber.getAbbildstaende() : null;
+		Abbildstaende neu = (inhaber != null) ? inhaber.getAbbildstaende() : null;
+		this.inhaber = inhaber;
+		if (alt != neu) {
+			if (alt != null) {
+				long stempel = alt.buchungBeginnen();
+				try {
+					alt.sichern(this, epoche, cent);
+				} finally {
+					alt.buchungBeenden(stempel);
+				}
+			}
+			epoche = 0;	// gilt als vor allen Stnden gendert, ein schon angelegtes Abbild kann das Konto noch aufnehmen
+		}
+	}
+
+	/**
+	 * Rechnet einen Betrag in ganze Cent um, damit Summen von Kontostnden exakt gebildet werden knnen.
+	 * @param betrag
+	 * 			Betrag in lokaler Whrung
+	 * @return
+	 * 			der auf ganze Cent gerundete Betrag
+	 */
+	static long inCent(double betrag) {
+		return Math.round(betrag * 100);
+	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		ObjectOutputStream.PutField felder = out.putFields();
+		felder.put("iban", iban);
+		felder.put("kontostand", getKontostand());
+		out.writeFields();
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		ObjectInputStream.GetField felder = in.readFields();
+		iban = (String) felder.get("iban", null);
+		cent = inCent(felder.get("kontostand", 0.0));
 	}
 
 	@Override
@@ -116,7 +283,7 @@ public class Konto implements Serializable {
 
 	@Override
 	public String toString() {
-		return iban + ":\tSaldo:\t" + NumberFormat.getCurrencyInstance().format(kontostand) + "\t";
+		return iban + ":\tSaldo:\t" + WAEHRUNG.get().format(getKontostand()) + "\t";
 	}
 
 }
\ No newline at end of file
@@ -1,7 +1,9 @@
 package kontoverwaltung;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
-import java.util.HashSet;
+import java.util.Collections;
 import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -30,14 +32,16 @@ public abstract class Kunde implements Serializable, Comparable<Kunde> {
 	private String telefonnummer;
 	private String email;
 	private Adresse adresse;
-	private Set<Konto> konten; // max 10
+	private Set<Konto> konten; // max 10, Laufzeittyp Kontenliste (ltere Datenbanken: HashSet, wird beim Laden umgewandelt)
+	private transient BeobachterListe beobachter; // wird von der Bank gesetzt
+	private transient Abbildstaende abbildstaende; // wird von der Bank gesetzt, sichert Kontostnde fr ihre Abbilder
 
 	
 	
 	/**
 	 * Parametrisierter Konstruktor, mit dem die gemeinsamen Elemente eines neuen Kundenobjektes
 	 * gesetzt werden. Der Konstruktor kann nur ber den super-Aufruf von erbenden Subklassen verwendet werden.
-	 * Das Konten-Set wird immer als leeres HashSet erzeugt (keine doppelten Konten). Ein neuer Kunde hat somit
+	 * Das Konten-Set wird immer als leere Kontenliste erzeugt (keine doppelten Konten). Ein neuer Kunde hat somit
 	 * immer ein leeres Konten-Set.
 	 * 
 	 * @param kundennummer
@@ -55,7 +59,31 @@ public abstract class Kunde implements Serializable, Comparable<Kunde> {
 		this.setTelefonnummer(telefonnummer);
 		this.setEmail(email);
 		this.setAdresse(adresse);
-		konten = new HashSet<Konto>();
+		konten = new Kontenliste();
+	}
+
+	/**
+	 * Kopierkonstruktor fr Abbilder (siehe Bankabbild). bernimmt die Stammdaten des bergebenen Kunden ohne
+	 * erneute Prfung, die Kopie hat noch keine Konten und gehrt keiner Bank.
+	 * @param vorlage
+	 * 			der Kunde, dessen Stammdaten bernommen werden
+	 */
+	Kunde(Kunde vorlage) {
+		this.kundennummer = vorlage.kundennummer;
+		this.telefonnummer = vorlage.telefonnummer;
+		this.email = vorlage.email;
+		this.adresse = vorlage.adresse;	// Adressen sind unvernderlich
+		konten = new Kontenliste();
+	}
+
+	/**
+	 * Wandelt die Konten aus Datenbanken, die noch mit einem HashSet gespeichert wurden, in eine Kontenliste um
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		if (!(konten instanceof Kontenliste)) {
+			konten = new Kontenliste(konten);
+		}
 	}
 
 	/**
@@ -105,6 +133,7 @@ public abstract class Kunde implements Serializable, Comparable<Kunde> {
 			throw new IllegalArgumentException("Ungltiges Eingabeformat fr Telefonnummer. Erlaubte Formate sind z.B. 01234 56789 oder 0049 1234 56789 oder +49 1234 56789");
 		}
 		this.telefonnummer = telefonnummer;
+		stammdatenMelden();
 	}
 
 	/**
@@ -128,6 +157,7 @@ public abstract class Kunde implements Serializable, Comparable<Kunde> {
 			throw new IllegalArgumentException("Ungltige E-Mail Adresse.");
 		}
 		this.email = email;
+		stammdatenMelden();
 	}
 
 	/**
@@ -140,21 +170,42 @@ public abstract class Kunde implements Serializable, Comparable<Kunde> {
 	}
 
 	/**
-	 * Setzt das Feld Adresse dieses Kunden
+	 * Setzt das Feld Adresse dieses Kunden. Gehrt der Kunde einer Bank, wird stattdessen die inhaltlich gleiche
+	 * Adresse aus deren AdressPool gesetzt, die bergebene Adresse bleibt also unverndert und ungeteilt.
 	 * @param adresse
 	 * 			die Adresse dieses Kunden als Adresse-Objekt
 	 */
 	public void setAdresse(Adresse adresse) {
+		Adresse alt = this.adresse;
+		if (beobachter != null) {
+			adresse = beobachter.teilen(adresse);
+		}
 		this.adresse = adresse;
+		if (beobachter != null) {
+			beobachter.adresseGeaendert(this, alt, adresse);
+		}
 	}
 
 	/**
-	 * Gibt das Feld Konten dieses Objektes als Set (Laufzeittyp: HashSet) dieses Objektes zurck
+	 * Gibt die Konten dieses Objektes als nicht vernderbare Sicht zurck. Konten werden nur ber addKonto,
+	 * addKonten und removeKonto hinzugefgt oder entfernt, da nur diese die Bank (Indizes, Summen, Ereignisse)
+	 * benachrichtigen.
 	 * @return
-	 * 			die Konten dieses Objektes als Set (Laufzeittyp: HashSet)
+	 * 			die Konten dieses Objektes als nicht vernderbares Set
 	 */
 	public Set<Konto> getKonten() {
-		return konten;
+		return Collections.unmodifiableSet(konten);
+	}
+
+	/**
+	 * Gibt die Konten dieses Kunden als Array zurck, ohne ein Iterator-Objekt anzulegen.
+	 * Das Array darf nicht verndert werden.
+	 * @return
+	 * 			die Konten zum Zeitpunkt des Aufrufs
+	 * @see Kontenliste#alsArray()
+	 */
+	Konto[] getKontenArray() {
+		return ((Kontenliste) konten).alsArray();
 	}
 
 	/**
@@ -170,8 +221,8 @@ public abstract class Kunde implements Serializable, Comparable<Kunde> {
 	 */
 	@SuppressWarnings("unused")
 	private void setKonten(Set<Konto> konten) throws AccountLimitReachedException{
-		if (konten.size() > 10) throw new AccountLimitReachedException("Maximum limit of accounts: 10");
-		this.konten = konten;
+		if (konten.size() > Kontenliste.MAX_KONTEN) throw new AccountLimitReachedException("Maximum limit of accounts: 10");
+		this.konten = new Kontenliste(konten);
 	}
 
 	/**
@@ -185,8 +236,56 @@ public abstract class Kunde implements Serializable, Comparable<Kunde> {
 	 * 			pro Kunde auf 10 begrenzt wurde.
 	 */
 	public boolean addKonto(Konto konto) throws AccountLimitReachedException{ // max 10 > eigene exception
-		if (konten.size() >= 10) throw new AccountLimitReachedException("Maximum limit of accounts: 10");
-		return this.konten.add(konto);
+		try {
+			if (!this.konten.add(konto)) {
+				return false;
+			}
+		} catch (IllegalStateException e) { // die Kontenliste nimmt hchstens 10 Konten auf
+			throw new AccountLimitReachedException("Maximum limit of accounts: 10");
+		}
+		synchronized (konto) { // keine Buchung zwischen Anmelden und Benachrichtigen, siehe Saldenspiegel
+			konto.anmelden(this);
+			if (beobachter != null) {
+				beobachter.kontoAngelegt(this, konto);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Fgt der Kontoliste dieses Kunden mehrere Konten auf einmal hinzu, entweder alle oder keines
+	 * @param neue
+	 * 			die neuen Konten, untereinander verschieden
+	 * @return
+	 * 			true, wenn alle Konten hinzugefgt wurden, false wenn eines bereits vorhanden war oder die
+	 * 			maximale Kontenzahl berschritten wrde (dann wurde keines hinzugefgt)
+	 * @see Kontenliste#alleHinzufuegen(Konto[])
+	 */
+	boolean addKonten(Konto[] neue) {
+		if (!((Kontenliste) konten).alleHinzufuegen(neue)) {
+			return false;
+		}
+		anmeldenUndMelden(neue, 0);
+		return true;
+	}
+
+	/*
+	 * Sperrt die neuen Konten ab Position i nacheinander und meldet sie unter allen Sperren an, wie in addKonto.
+	 * Die Konten sind noch ber kein Verzeichnis erreichbar, die Reihenfolge der Sperren ist daher beliebig.
+	 */
+	private void anmeldenUndMelden(Konto[] neue, int i) {
+		if (i < neue.length) {
+			synchronized (neue[i]) {
+				anmeldenUndMelden(neue, i + 1);
+			}
+			return;
+		}
+		for (Konto konto : neue) {
+			konto.anmelden(this);
+		}
+		if (beobachter != null) {
+			beobachter.kontenAngelegt(this, neue);
+		}
 	}
 
 	/**
@@ -196,7 +295,61 @@ public abstract class Kunde implements Serializable, Comparable<Kunde> {
 	 * 			
 	 */
 	public boolean removeKonto(Konto konto) {
-		return this.konten.remove(konto);
+		if (!this.konten.remove(konto)) {
+			return false;
+		}
+		synchronized (konto) {
+			if (beobachter != null) {
+				beobachter.kontoEntfernt(this, konto);
+			}
+			konto.anmelden(null);
+		}
+		return true;
+	}
+
+	/**
+	 * Benachrichtigt den Beobachter der Bank ber eine nderung der Stammdaten (siehe
+	 * BankBeobachter.stammdatenGeaendert). Wird von den Settern aufgerufen, solange der Kunde keiner Bank gehrt,
+	 * passiert nichts.
+	 */
+	void stammdatenMelden() {
+		if (beobachter != null) {
+			beobachter.stammdatenGeaendert(this);
+		}
+	}
+
+	/**
+	 * Gibt den Beobachter der Bank zurck, bei der dieser Kunde angemeldet ist
+	 * @return
+	 * 			der Beobachter oder null, solange der Kunde keiner Bank gehrt
+	 */
+	BankBeobachter getBeobachter() {
+		return beobachter;
+	}
+
+	/**
+	 * Meldet diesen Kunden und alle seine Konten beim Beobachter und bei den Abbildstnden einer Bank an. Wird von der
+	 * Bank beim Anlegen des Kunden und nach dem Laden aus einer Datei aufgerufen.
+	 * @param beobachter
+	 * 			der Beobachter der Bank
+	 * @param abbildstaende
+	 * 			die Abbildstnde der Bank
+	 */
+	void anmelden(BeobachterListe beobachter, Abbildstaende abbildstaende) {
+		this.beobachter = beobachter;
+		this.abbildstaende = abbildstaende;
+		for (Konto konto : getKontenArray()) {
+			konto.anmelden(this);
+		}
+	}
+
+	/**
+	 * Gibt die Abbildstnde der Bank zurck, bei der dieser Kunde angemeldet ist
+	 * @return
+	 * 			die Abbildstnde oder null, solange der Kunde keiner Bank gehrt
+	 */
+	Abbildstaende getAbbildstaende() {
+		return abbildstaende;
 	}
 
 	@Override
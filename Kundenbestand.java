@@ -0,0 +1,154 @@
+package kontoverwaltung;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ *
+ * Die Kunden einer Bank, abgelegt nach Kundennummer. Ersetzt das HashSet der Bank: Kundennummern, die sich
+ * verlustfrei als long darstellen lassen (siehe Verzeichnis.schluessel), liegen in einer LongTabelle mit primitiven
+ * Schlsseln, ohne Knotenobjekt und ohne Boxing. Alle brigen Kundennummern stehen in einer gewhnlichen Hash-Map.
+ * Die Suche nach Kundennummer luft direkt ber diese Tabelle, einen zweiten Index dafr gibt es nicht.
+ *
+ * Wie beim HashSet gelten zwei Kunden mit derselben Kundennummer als gleich. Suchen ist aus jedem Thread mglich,
+ * ndern und Durchlaufen nur unter synchronized auf dieses Objekt (siehe Bank).
+ *
+ * Serialisiert werden nur die Anzahl und die Kunden, die Tabelle wird beim Laden in passender Gre neu aufgebaut.
+ * ltere Datenbanken enthalten an dieser Stelle noch ein HashSet, die Bank bernimmt es beim Laden.
+ *
+ * @author aschwegmann
+ * @version 1.0
+ *
+ * @see Bank
+ * @see LongTabelle
+ */
+class Kundenbestand extends AbstractSet<Kunde> implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private transient LongTabelle<Kunde> tabelle;
+	private transient Map<String, Kunde> sonstige;	// nicht als long darstellbar
+
+	/**
+	 * Erzeugt einen leeren Bestand
+	 */
+	Kundenbestand() {
+		this(0);
+	}
+
+	/**
+	 * Erzeugt einen Bestand mit den bergebenen Kunden, z.B. aus einer lteren Datenbank
+	 * @param kunden
+	 * 			die Kunden
+	 */
+	Kundenbestand(Collection<? extends Kunde> kunden) {
+		this(kunden.size());
+		addAll(kunden);
+	}
+
+	private Kundenbestand(int erwarteteAnzahl) {
+		anlegen(erwarteteAnzahl);
+	}
+
+	private void anlegen(int erwarteteAnzahl) {
+		tabelle = new LongTabelle<Kunde>(erwarteteAnzahl);
+		sonstige = new ConcurrentHashMap<String, Kunde>();
+	}
+
+	/**
+	 * Sucht den Kunden mit der bergebenen Kundennummer
+	 * @param kundennummer
+	 * 			die Kundennummer
+	 * @return
+	 * 			der Kunde oder null, wenn die Kundennummer nicht vergeben ist
+	 */
+	Kunde get(String kundennummer) {
+		long key = Verzeichnis.schluessel(kundennummer);
+		return (key >= 0) ? tabelle.get(key) : sonstige.get(kundennummer);
+	}
+
+	@Override
+	public boolean add(Kunde kunde) {
+		if (get(kunde.getKundennummer()) != null) {
+			return false;
+		}
+		long key = Verzeichnis.schluessel(kunde.getKundennummer());
+		if (key >= 0) {
+			tabelle.put(key, kunde);
+		} else {
+			sonstige.put(kunde.getKundennummer(), kunde);
+		}
+		return true;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return (o instanceof Kunde) && get(((Kunde) o).getKundennummer()) != null;
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		if (!(o instanceof Kunde)) {
+			return false;
+		}
+		Kunde kunde = (Kunde) o;
+		long key = Verzeichnis.schluessel(kunde.getKundennummer());
+		return (key >= 0) ? tabelle.remove(key, kunde) : sonstige.remove(kunde.getKundennummer()) != null;
+	}
+
+	@Override
+	public int size() {
+		return tabelle.size() + sonstige.size();
+	}
+
+	/**
+	 * Durchluft erst die Tabelle, dann die brigen Kunden. Entfernen ber den Iterator ist nicht mglich.
+	 */
+	@Override
+	public Iterator<Kunde> iterator() {
+		final Iterator<Kunde> erste = tabelle.werte();
+		final Iterator<Kunde> zweite = sonstige.values().iterator();
+		return new Iterator<Kunde>() {
+			@Override
+			public boolean hasNext() {
+				return erste.hasNext() || zweite.hasNext();
+			}
+
+			@Override
+			public Kunde next() {
+				if (erste.hasNext()) {
+					return erste.next();
+				}
+				if (zweite.hasNext()) {
+					return zweite.next();
+				}
+				throw new NoSuchElementException();
+			}
+		};
+	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		out.writeInt(size());
+		for (Kunde kunde : this) {
+			out.writeObject(kunde);
+		}
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		int anzahl = in.readInt();
+		anlegen(anzahl);
+		for (int i = 0; i < anzahl; i++) {
+			add((Kunde) in.readObject());
+		}
+	}
+}
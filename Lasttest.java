@@ -0,0 +1,291 @@
+package kontoverwaltung;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *
+ * Lasttest fr die HttpSchnittstelle auf localhost. Erzeugt eine Bank (siehe Testdaten), startet die Schnittstelle
+ * auf einem freien Port und schickt aus mehreren Threads gleichzeitig Anfragen. Jeder Thread wartet auf die
+ * Antwort, bevor er die nchste Anfrage schickt (geschlossene Last). Die Zahl der Threads wird stufenweise erhht.
+ * Pro Stufe werden Durchsatz und die Verteilung der Antwortzeiten (p50, p90, p99, Maximum) ausgegeben. Der grte
+ * gemessene Durchsatz ist der Durchsatz der Schnittstelle, ab da steigt mit mehr Threads nur noch die Antwortzeit.
+ *
+ * Die Anfragen sind gemischt: Kunde lesen 40 %, Konto lesen 30 %, Seite der Kundenliste 10 %, Namenssuche 10 %,
+ * Konto anlegen 10 % (bzw. der mit --schreibanteil gewhlte Anteil, die Lesezugriffe schrumpfen entsprechend).
+ * Antworten mit Status 5xx und Verbindungsfehler zhlen als Fehler. Abgelehnte Kontoerffnungen (z.B. 422 bei
+ * zehn Konten) sind gltige Antworten.
+ *
+ * Aufruf: java kontoverwaltung.UserInterface --lasttest [--kunden=N] [--sekunden=S] [--threads=1,4,16,64]
+ * [--schreibanteil=0-100] [--startwert=S]
+ *
+ * @author aschwegmann
+ * @version 1.0
+ *
+ * @see HttpSchnittstelle
+ */
+class Lasttest {
+
+	private final static int AUFWAERMEN = 3;	// Sekunden vor der ersten Stufe, damit der JIT-Compiler fertig ist
+
+	private final String basis;
+	private final HttpClient client;
+	private final String[] kundennummern;
+	private final String[] ibans;
+	private final String[] namen;
+	private final int schreibanteil;
+
+	/**
+	 * Erzeugt einen Lasttest gegen eine laufende Schnittstelle
+	 * @param port
+	 * 			der Port der Schnittstelle auf localhost
+	 * @param bank
+	 * 			die Bank hinter der Schnittstelle, aus ihr werden Kundennummern, IBANs und Namen fr die Anfragen
+	 * 			gewhlt
+	 * @param schreibanteil
+	 * 			Anteil der Kontoerffnungen in Prozent
+	 */
+	Lasttest(int port, Bank bank, int schreibanteil) {
+		this.basis = "http://localhost:" + port;
+		this.client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).connectTimeout(Duration.ofSeconds(5))
+				.build();
+		this.schreibanteil = schreibanteil;
+		List<String> nummern = new ArrayList<String>();
+		List<String> kontonummern = new ArrayList<String>();
+		List<String> kundennamen = new ArrayList<String>();
+		for (Kunde kunde : bank.getKundenNurLesen()) {
+			nummern.add(kunde.getKundennummer());
+			kundennamen.add(kunde.getName());
+			for (Konto konto : kunde.getKontenArray()) {
+				kontonummern.add(konto.getIban());
+			}
+		}
+		this.kundennummern = nummern.toArray(new String[0]);
+		this.ibans = kontonummern.toArray(new String[0]);
+		this.namen = kundennamen.toArray(new String[0]);
+	}
+
+	/*
+	 * Ergebnis einer Stufe
+	 */
+	private static final class Stufe {
+
+		private final int threads;
+		private final long anfragen;
+		private final long fehler;
+		private final double sekunden;
+		private final long[] zeiten;	// Antwortzeiten in Nanosekunden, sortiert
+
+		private Stufe(int threads, long fehler, double sekunden, long[] zeiten) {
+			this.threads = threads;
+			this.anfragen = zeiten.length;
+			this.fehler = fehler;
+			this.sekunden = sekunden;
+			this.zeiten = zeiten;
+		}
+
+		private double durchsatz() {
+			return anfragen / sekunden;
+		}
+
+		private double perzentil(double p) {
+			if (zeiten.length == 0) {
+				return 0;
+			}
+			int i = (int) Math.ceil(p / 100 * zeiten.length) - 1;
+			return zeiten[Math.max(0, Math.min(zeiten.length - 1, i))] / 1e6;
+		}
+	}
+
+	/**
+	 * Fhrt eine Stufe aus: threads Threads schicken sekunden lang Anfragen
+	 * @param threads
+	 * 			Anzahl gleichzeitiger Clients
+	 * @param sekunden
+	 * 			Dauer der Stufe
+	 * @param startwert
+	 * 			Startwert der Zufallsgeneratoren
+	 * @return
+	 * 			das Ergebnis
+	 * @throws InterruptedException
+	 * 			falls der aufrufende Thread unterbrochen wird
+	 */
+	private Stufe stufe(int threads, int sekunden, long startwert) throws InterruptedException {
+		long ende = System.nanoTime() + sekunden * 1_000_000_000L;
+		AtomicLong fehler = new AtomicLong();
+		long[][] zeiten = new long[threads][];
+		int[] anzahl = new int[threads];
+		Thread[] clients = new Thread[threads];
+		for (int t = 0; t < threads; t++) {
+			int nr = t;
+			clients[t] = new Thread(() -> {
+				Random zufall = new Random(startwert * 1000 + nr);
+				long[] eigene = new long[1024];
+				int n = 0;
+				while (System.nanoTime() < ende) {
+					HttpRequest anfrage = anfrage(zufall);
+					long start = System.nanoTime();
+					try {
+						HttpResponse<byte[]> antwort = client.send(anfrage, HttpResponse.BodyHandlers.ofByteArray());
+						if (antwort.statusCode() >= 500) {
+							fehler.incrementAndGet();
+						}
+					} catch (IOException e) {
+						fehler.incrementAndGet();
+						continue;
+					} catch (InterruptedException e) {
+						break;
+					}
+					if (n == eigene.length) {
+						eigene = Arrays.copyOf(eigene, n * 2);
+					}
+					eigene[n++] = System.nanoTime() - start;
+				}
+				zeiten[nr] = eigene;
+				anzahl[nr] = n;
+			}, "Lasttest-" + t);
+			clients[t].start();
+		}
+		long start = System.nanoTime();
+		for (Thread client : clients) {
+			client.join();
+		}
+		double dauer = (System.nanoTime() - start) / 1e9;
+		int summe = 0;
+		for (int n : anzahl) {
+			summe += n;
+		}
+		long[] alle = new long[summe];
+		int pos = 0;
+		for (int t = 0; t < threads; t++) {
+			System.arraycopy(zeiten[t], 0, alle, pos, anzahl[t]);
+			pos += anzahl[t];
+		}
+		Arrays.sort(alle);
+		return new Stufe(threads, fehler.get(), dauer, alle);
+	}
+
+	/*
+	 * Whlt eine Anfrage nach der Mischung aus der Klassenbeschreibung
+	 */
+	private HttpRequest anfrage(Random zufall) {
+		int wurf = zufall.nextInt(100);
+		if (wurf < schreibanteil) {
+			String inhalt = "{\"kundennummer\":\"" + kundennummern[zufall.nextInt(kundennummern.length)]
+					+ "\",\"startkapital\":" + zufall.nextInt(10000) + "}";
+			return HttpRequest.newBuilder(URI.create(basis + "/konten"))
+					.POST(HttpRequest.BodyPublishers.ofString(inhalt, StandardCharsets.UTF_8))
+					.header("Content-Type", "application/json").build();
+		}
+		int lesen = (wurf - schreibanteil) * 100 / (100 - schreibanteil);	// 0..99 ber die Lesezugriffe verteilt
+		String pfad;
+		if (lesen < 44) {
+			pfad = "/kunden/" + kundennummern[zufall.nextInt(kundennummern.length)];
+		} else if (lesen < 77) {
+			pfad = "/konten/" + kodieren(ibans[zufall.nextInt(ibans.length)]).replace("+", "%20");
+		} else if (lesen < 89) {
+			pfad = "/kunden?anzahl=20&nach=" + kundennummern[zufall.nextInt(kundennummern.length)];
+		} else {
+			pfad = "/kunden?name=" + kodieren(namen[zufall.nextInt(namen.length)]) + "&distanz=1";
+		}
+		return HttpRequest.newBuilder(URI.create(basis + pfad)).GET().build();
+	}
+
+	private static String kodieren(String text) {
+		return URLEncoder.encode(text, StandardCharsets.UTF_8);
+	}
+
+	private static void ausgeben(PrintStream aus, Stufe stufe) {
+		aus.printf("%8d %12.0f %10.2f %10.2f %10.2f %10.2f %8d%n", stufe.threads, stufe.durchsatz(), stufe.perzentil(50),
+				stufe.perzentil(90), stufe.perzentil(99), stufe.perzentil(100), stufe.fehler);
+	}
+
+	/**
+	 * Startet den Lasttest von der Kommandozeile, siehe Klassenbeschreibung
+	 * @param args
+	 * 			die Optionen
+	 */
+	static void main(String[] args) {
+		int anzahlKunden = 100000;
+		int sekunden = 10;
+		int[] stufen = { 1, 4, 16, 64 };
+		int schreibanteil = 10;
+		long startwert = 1;
+		try {
+			for (String arg : args) {
+				if (arg.equals("--lasttest")) {
+					continue;
+				} else if (arg.startsWith("--kunden=")) {
+					anzahlKunden = Integer.parseInt(wert(arg));
+				} else if (arg.startsWith("--sekunden=")) {
+					sekunden = Integer.parseInt(wert(arg));
+				} else if (arg.startsWith("--threads=")) {
+					stufen = Arrays.stream(wert(arg).split(",")).mapToInt(Integer::parseInt).toArray();
+				} else if (arg.startsWith("--schreibanteil=")) {
+					schreibanteil = Integer.parseInt(wert(arg));
+				} else if (arg.startsWith("--startwert=")) {
+					startwert = Long.parseLong(wert(arg));
+				} else {
+					throw new IllegalArgumentException("Unbekannte Option: " + arg);
+				}
+			}
+			if (schreibanteil < 0 || schreibanteil > 99) {
+				throw new IllegalArgumentException("Der Schreibanteil muss zwischen 0 und 99 liegen");
+			}
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println("Aufruf: --lasttest [--kunden=N] [--sekunden=S] [--threads=1,4,16,64] [--schreibanteil=0-99] [--startwert=S]");
+			System.exit(2);
+		}
+
+		Bank bank = Testdaten.erzeugen(anzahlKunden, startwert);
+		HttpSchnittstelle schnittstelle;
+		try {
+			HttpSchnittstelle.nodelayVorgeben();
+			schnittstelle = new HttpSchnittstelle(bank, 0);
+		} catch (IOException e) {
+			System.err.println("Die HTTP-Schnittstelle konnte nicht gestartet werden: " + e.getMessage());
+			System.exit(1);
+			return;
+		}
+		schnittstelle.starten();
+		try {
+			Lasttest test = new Lasttest(schnittstelle.getPort(), bank, schreibanteil);
+			System.out.printf("Lasttest mit %,d Kunden, %d %% Kontoerffnungen, %d s pro Stufe, %s%n%n", anzahlKunden,
+					schreibanteil, sekunden, schnittstelle.isVirtuelleThreads() ? "virtuelle Threads" : "Thread-Pool");
+			test.stufe(stufen[0], AUFWAERMEN, startwert);
+			System.out.printf("%8s %12s %10s %10s %10s %10s %8s%n", "Threads", "Anfragen/s", "p50 ms", "p90 ms", "p99 ms",
+					"max ms", "Fehler");
+			Stufe beste = null;
+			for (int threads : stufen) {
+				Stufe stufe = test.stufe(threads, sekunden, startwert + threads);
+				ausgeben(System.out, stufe);
+				if (beste == null || stufe.durchsatz() > beste.durchsatz()) {
+					beste = stufe;
+				}
+			}
+			System.out.printf("%nHchster Durchsatz: %,.0f Anfragen/s mit %d Threads (p99 %.2f ms)%n", beste.durchsatz(),
+					beste.threads, beste.perzentil(99));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			schnittstelle.beenden();
+		}
+	}
+
+	private static String wert(String arg) {
+		return arg.substring(arg.indexOf('=') + 1);
+	}
+}
@@ -0,0 +1,224 @@
+package kontoverwaltung;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ *
+ * Eine Hash-Tabelle mit primitiven long-Schlsseln und offener Adressierung (lineares Sondieren). Schlssel und Werte
+ * liegen in zwei parallelen Arrays. Es gibt also weder Boxing der Schlssel noch ein Knotenobjekt pro Eintrag wie bei
+ * HashMap. Ein Platz ist frei, wenn dort kein Wert steht, daher sind null-Werte nicht erlaubt. Dafr kann jeder
+ * long-Wert als Schlssel verwendet werden, auch 0.
+ *
+ * Beim Entfernen werden die nachfolgenden Eintrge der Sondierkette zurckgeschoben, so dass keine Grabsteine
+ * entstehen und die Suche auch nach vielen Lschungen kurz bleibt. Die Tabelle wird bei einem Fllgrad von 70%
+ * verdoppelt.
+ *
+ * Alle Methoden sind synchronisiert.
+ *
+ * @author aschwegmann
+ * @version 1.0
+ *
+ * @param <T>
+ * 			Typ der Werte
+ */
+class LongTabelle<T> {
+
+	private final static float FUELLGRAD = 0.7f;
+
+	private long[] schluessel;
+	private Object[] werte;
+	private int anzahl;
+	private int grenze;	// ab dieser Anzahl wird vergrert
+
+	/**
+	 * Erzeugt eine leere Tabelle
+	 */
+	LongTabelle() {
+		this(16);
+	}
+
+	/**
+	 * Erzeugt eine leere Tabelle, die die bergebene Anzahl von Eintrgen ohne Vergrerung aufnehmen kann
+	 * @param erwarteteAnzahl
+	 * 			erwartete Anzahl der Eintrge
+	 */
+	LongTabelle(int erwarteteAnzahl) {
+		int kapazitaet = Integer.highestOneBit(Math.max(16, (int) (erwarteteAnzahl / FUELLGRAD)) - 1) << 1;
+		anlegen(kapazitaet);
+	}
+
+	private void anlegen(int kapazitaet) {
+		schluessel = new long[kapazitaet];
+		werte = new Object[kapazitaet];
+		grenze = (int) (kapazitaet * FUELLGRAD);
+	}
+
+	/*
+	 * Streut die Schlssel ber die Tabelle (Fibonacci-Hashing), damit auch fortlaufende Nummern
+	 * keine langen Sondierketten bilden
+	 */
+	private static int platz(long key, int maske) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32)) & maske;
+	}
+
+	/**
+	 * Gibt den Wert zum bergebenen Schlssel zurck
+	 * @param key
+	 * 			der Schlssel
+	 * @return
+	 * 			der Wert oder null, wenn der Schlssel nicht vorhanden ist
+	 */
+	@SuppressWarnings("unchecked")
+	synchronized T get(long key) {
+		int maske = schluessel.length - 1;
+		for (int i = platz(key, maske); werte[i] != null; i = (i + 1) & maske) {
+			if (schluessel[i] == key) {
+				return (T) werte[i];
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Legt einen Wert unter dem bergebenen Schlssel ab. Ein vorhandener Wert wird ersetzt.
+	 * @param key
+	 * 			der Schlssel
+	 * @param wert
+	 * 			der Wert, nicht null
+	 * @return
+	 * 			der bisherige Wert oder null, wenn der Schlssel neu ist
+	 */
+	@SuppressWarnings("unchecked")
+	synchronized T put(long key, T wert) {
+		if (wert == null) {
+			throw new NullPointerException("null-Werte sind nicht erlaubt");
+		}
+		int maske = schluessel.length - 1;
+		int i = platz(key, maske);
+		for (; werte[i] != null; i = (i + 1) & maske) {
+			if (schluessel[i] == key) {
+				T alt = (T) werte[i];
+				werte[i] = wert;
+				return alt;
+			}
+		}
+		schluessel[i] = key;
+		werte[i] = wert;
+		if (++anzahl > grenze) {
+			vergroessern();
+		}
+		return null;
+	}
+
+	/**
+	 * Entfernt den Eintrag zum bergebenen Schlssel, aber nur, wenn er auf den bergebenen Wert verweist
+	 * @param key
+	 * 			der Schlssel
+	 * @param wert
+	 * 			der erwartete Wert
+	 * @return
+	 * 			true, wenn der Eintrag entfernt wurde
+	 */
+	synchronized boolean remove(long key, T wert) {
+		int maske = schluessel.length - 1;
+		for (int i = platz(key, maske); werte[i] != null; i = (i + 1) & maske) {
+			if (schluessel[i] == key) {
+				if (!werte[i].equals(wert)) {
+					return false;
+				}
+				zurueckschieben(i, maske);
+				anzahl--;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/*
+	 * Leert den Platz frei und schiebt die folgenden Eintrge der Sondierkette nach, die sonst
+	 * hinter der Lcke nicht mehr gefunden wrden
+	 */
+	private void zurueckschieben(int frei, int maske) {
+		int i = frei;
+		while (true) {
+			i = (i + 1) & maske;
+			if (werte[i] == null) {
+				break;
+			}
+			int ziel = platz(schluessel[i], maske);
+			// der Eintrag darf nur verschoben werden, wenn sein Zielplatz nicht zwischen frei (exklusiv) und i liegt
+			boolean zwischen = (frei <= i) ? (frei < ziel && ziel <= i) : (frei < ziel || ziel <= i);
+			if (!zwischen) {
+				schluessel[frei] = schluessel[i];
+				werte[frei] = werte[i];
+				frei = i;
+			}
+		}
+		werte[frei] = null;
+		schluessel[frei] = 0;
+	}
+
+	private void vergroessern() {
+		long[] alteSchluessel = schluessel;
+		Object[] alteWerte = werte;
+		anlegen(alteSchluessel.length * 2);
+		int maske = schluessel.length - 1;
+		for (int j = 0; j < alteWerte.length; j++) {
+			if (alteWerte[j] != null) {
+				int i = platz(alteSchluessel[j], maske);
+				while (werte[i] != null) {
+					i = (i + 1) & maske;
+				}
+				schluessel[i] = alteSchluessel[j];
+				werte[i] = alteWerte[j];
+			}
+		}
+	}
+
+	/**
+	 * Gibt einen Iterator ber die Werte zurck. Er luft ber die Arrays zum Zeitpunkt des Aufrufs und ist nur
+	 * verlsslich, solange die Tabelle dabei nicht gendert wird. Entfernen ber den Iterator ist nicht mglich.
+	 * @return
+	 * 			Iterator ber die Werte in der Reihenfolge der Pltze
+	 */
+	synchronized Iterator<T> werte() {
+		final Object[] plaetze = werte;
+		return new Iterator<T>() {
+			private int i = naechster(0);
+
+			private int naechster(int von) {
+				while (von < plaetze.length && plaetze[von] == null) {
+					von++;
+				}
+				return von;
+			}
+
+			@Override
+			public boolean hasNext() {
+				return i < plaetze.length;
+			}
+
+			@Override
+			@SuppressWarnings("unchecked")
+			public T next() {
+				if (i >= plaetze.length) {
+					throw new NoSuchElementException();
+				}
+				T wert = (T) plaetze[i];
+				i = naechster(i + 1);
+				return wert;
+			}
+		};
+	}
+
+	/**
+	 * Gibt die Anzahl der Eintrge zurck
+	 * @return
+	 * 			Anzahl der Eintrge
+	 */
+	synchronized int size() {
+		return anzahl;
+	}
+}
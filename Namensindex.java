@@ -0,0 +1,320 @@
+package kontoverwaltung;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ *
+ * Index fr die unscharfe Suche nach Kundennamen. Gefunden werden alle Namen, die sich vom Suchbegriff um
+ * hchstens k Einfgungen, Lschungen oder Ersetzungen unterscheiden (Levenshtein-Distanz), z.B. "Mayer" fr
+ * "Meyer". Verglichen werden normalisierte Namen (siehe Normalisierer), "Mller" und "Mueller" sind also gleich.
+ *
+ * Jeder verschiedene Name erhlt eine fortlaufende Nummer. Zu jedem Trigramm (drei aufeinanderfolgende Zeichen
+ * des Namens mit Rand, aus "^meyer$" werden "^me", "mey", "eye", "yer" und "er$") fhrt der Index die Liste der
+ * Namen, in denen es vorkommt. Eine einzelne nderung zerstrt hchstens drei Trigramme. Ein Name mit hchstens
+ * k nderungen enthlt daher von den verschiedenen Trigrammen des Suchbegriffs alle bis auf hchstens 3k, und
+ * unter je 3k + 1 Trigrammen des Suchbegriffs ist mindestens eines auch in ihm enthalten. Vollstndig gelesen
+ * werden deshalb nur die 3k + 1 krzesten Listen. In den brigen, meist langen Listen wird nur noch nach diesen
+ * Kandidaten gesprungen, um zu zhlen, wie viele Trigramme sie mit dem Suchbegriff gemeinsam haben. Nur wer
+ * genug gemeinsame Trigramme hat, wird mit Textvergleich.levenshtein genau geprft.
+ * Hat der Suchbegriff zu wenige Trigramme dafr (sehr kurze Namen), werden alle Namen passender Lnge geprft.
+ *
+ * Der Index wird beim Anlegen eines Kunden aktualisiert. Da die Benachrichtigung ber genderte Stammdaten den
+ * alten Namen nicht enthlt, merkt er sich zu jedem Kunden die Nummer seines Namens. ndert sich der Name, wird
+ * der Kunde dort ausgetragen und unter dem neuen Namen eingetragen. Der alte Name bleibt mit seinen Trigrammen
+ * stehen, auch wenn er keine Kunden mehr hat, und kann spter wieder belegt werden.
+ *
+ * Alle Methoden sind synchronisiert.
+ *
+ * @author aschwegmann
+ * @version 1.0
+ *
+ * @see Bank#findClientsByNameFuzzy(String, int)
+ * @see Textvergleich
+ */
+class Namensindex implements BankBeobachter {
+
+	private final static char RAND_ANFANG = '^';
+	private final static char RAND_ENDE = '$';
+
+	private final Map<String, Integer> nummern = new HashMap<String, Integer>();
+	private final Map<Kunde, Integer> eingetragen = new HashMap<Kunde, Integer>();	// Nummer des Namens pro Kunde
+	private final LongTabelle<Liste> trigramme = new LongTabelle<Liste>();
+	private final List<Liste> nachLaenge = new ArrayList<Liste>();	// Namen pro Lnge, fr kurze Suchbegriffe
+	private String[] namen = new String[16];
+	private Kunde[][] kunden = new Kunde[16][];
+	private int anzahl;
+
+	/*
+	 * Eine aufsteigende Liste von Namensnummern
+	 */
+	private static final class Liste {
+
+		private int[] nummern = new int[2];
+		private int anzahl;
+
+		private void anhaengen(int nummer) {
+			if (anzahl > 0 && nummern[anzahl - 1] == nummer) { // Trigramm kommt im Namen mehrfach vor
+				return;
+			}
+			if (anzahl == nummern.length) {
+				nummern = Arrays.copyOf(nummern, anzahl * 2);
+			}
+			nummern[anzahl++] = nummer;
+		}
+	}
+
+	@Override
+	public void kundeAngelegt(Kunde kunde) {
+		eintragen(kunde.getName(), kunde);
+	}
+
+	@Override
+	public synchronized void kundenAngelegt(Kunde[] kunden) {
+		for (Kunde kunde : kunden) {
+			eintragen(kunde.getName(), kunde);
+		}
+	}
+
+	@Override
+	public synchronized void stammdatenGeaendert(Kunde kunde) {
+		Integer bisher = eingetragen.get(kunde);
+		if (bisher == null) { // noch nicht angelegt
+			return;
+		}
+		String name = kunde.getName();
+		if (namen[bisher].equals(Normalisierer.normalisiere(name))) {
+			return;
+		}
+		austragen(bisher, kunde);
+		eintragen(name, kunde);
+	}
+
+	/*
+	 * Entfernt den Kunden aus der Liste der Kunden mit dem Namen der bergebenen Nummer
+	 */
+	private void austragen(int nummer, Kunde kunde) {
+		Kunde[] bisher = kunden[nummer];
+		for (int i = 0; i < bisher.length; i++) {
+			if (bisher[i] == kunde) {
+				Kunde[] neu = Arrays.copyOf(bisher, bisher.length - 1);
+				System.arraycopy(bisher, i + 1, neu, i, bisher.length - i - 1);
+				kunden[nummer] = neu;
+				break;
+			}
+		}
+		eingetragen.remove(kunde);
+	}
+
+	/**
+	 * Trgt einen Kunden unter dem bergebenen Namen ein
+	 * @param name
+	 * 			der Name, wie ihn Kunde.getName liefert
+	 * @param kunde
+	 * 			der Kunde
+	 */
+	synchronized void eintragen(String name, Kunde kunde) {
+		String normalisiert = Normalisierer.normalisiere(name);
+		Integer vorhanden = nummern.get(normalisiert);
+		if (vorhanden != null) {
+			Kunde[] bisher = kunden[vorhanden];
+			Kunde[] neu = Arrays.copyOf(bisher, bisher.length + 1);
+			neu[bisher.length] = kunde;
+			kunden[vorhanden] = neu;
+			eingetragen.put(kunde, vorhanden);
+			return;
+		}
+		if (anzahl == namen.length) {
+			namen = Arrays.copyOf(namen, anzahl * 2);
+			kunden = Arrays.copyOf(kunden, anzahl * 2);
+		}
+		int nummer = anzahl++;
+		namen[nummer] = normalisiert;
+		kunden[nummer] = new Kunde[] { kunde };
+		nummern.put(normalisiert, nummer);
+		eingetragen.put(kunde, nummer);
+		for (long trigramm : trigramme(normalisiert)) {
+			Liste liste = trigramme.get(trigramm);
+			if (liste == null) {
+				liste = new Liste();
+				trigramme.put(trigramm, liste);
+			}
+			liste.anhaengen(nummer);
+		}
+		while (nachLaenge.size() <= normalisiert.length()) {
+			nachLaenge.add(new Liste());
+		}
+		nachLaenge.get(normalisiert.length()).anhaengen(nummer);
+	}
+
+	/*
+	 * Zerlegt einen normalisierten Namen in seine Trigramme, je drei Zeichen in einem long. Doppelte Trigramme
+	 * werden nicht entfernt.
+	 */
+	private static long[] trigramme(String name) {
+		int laenge = name.length() + 2;
+		long[] ergebnis = new long[laenge - 2];
+		for (int i = 0; i < ergebnis.length; i++) {
+			ergebnis[i] = ((long) zeichen(name, i - 1) << 32) | ((long) zeichen(name, i) << 16) | zeichen(name, i + 1);
+		}
+		return ergebnis;
+	}
+
+	private static char zeichen(String name, int i) {
+		return (i < 0) ? RAND_ANFANG : (i >= name.length()) ? RAND_ENDE : name.charAt(i);
+	}
+
+	/**
+	 * Sucht alle Kunden, deren Name sich vom bergebenen Namen um hchstens maxDistanz nderungen unterscheidet
+	 * @param name
+	 * 			der gesuchte Name
+	 * @param maxDistanz
+	 * 			grte erlaubte Levenshtein-Distanz zwischen den normalisierten Namen, z.B. 1 oder 2. Grere Werte
+	 * 			als die Lnge des Suchbegriffs plus die des lngsten Namens finden nichts mehr hinzu und werden
+	 * 			darauf begrenzt.
+	 * @return
+	 * 			Liste der Kunden, die hnlichsten Namen zuerst, bei gleicher Distanz nach Name und Kundennummer
+	 */
+	synchronized List<Kunde> suchen(String name, int maxDistanz) {
+		if (maxDistanz < 0) {
+			throw new IllegalArgumentException("Die Distanz darf nicht negativ sein: " + maxDistanz);
+		}
+		String gesucht = Normalisierer.normalisiere(name);
+		maxDistanz = Math.min(maxDistanz, gesucht.length() + Math.max(0, nachLaenge.size() - 1));	// gegen berlauf
+		long[] eigene = trigramme(gesucht);
+		Arrays.sort(eigene);
+		List<Liste> listen = new ArrayList<Liste>();
+		for (int i = 0; i < eigene.length; i++) {
+			if (i == 0 || eigene[i] != eigene[i - 1]) {
+				Liste liste = trigramme.get(eigene[i]);
+				listen.add((liste == null) ? new Liste() : liste);
+			}
+		}
+		int noetig = 3 * maxDistanz + 1;
+		int[] kandidaten = (listen.size() >= noetig) ? filtern(listen, noetig) : nachLaenge(gesucht.length(), maxDistanz);
+		List<int[]> gefunden = new ArrayList<int[]>();	// Nummer und Distanz
+		for (int nummer : kandidaten) {
+			int distanz = Textvergleich.levenshtein(gesucht, namen[nummer], maxDistanz);
+			if (distanz <= maxDistanz) {
+				gefunden.add(new int[] { nummer, distanz });
+			}
+		}
+		gefunden.sort((a, b) -> (a[1] != b[1]) ? Integer.compare(a[1], b[1]) : namen[a[0]].compareTo(namen[b[0]]));
+		List<Kunde> ergebnis = new ArrayList<Kunde>();
+		for (int[] treffer : gefunden) { // umbenannte Kunden hinterlassen Namen ohne Kunden, die nichts beitragen
+			Kunde[] gleicherName = kunden[treffer[0]].clone();
+			Arrays.sort(gleicherName);
+			ergebnis.addAll(Arrays.asList(gleicherName));
+		}
+		return ergebnis;
+	}
+
+	/*
+	 * Liest die noetig krzesten Listen vollstndig und zhlt fr jeden Kandidaten, in wie vielen der brigen
+	 * Listen er vorkommt. Die brigen Listen sind aufsteigend sortiert und werden nur galoppierend
+	 * durchsprungen. Ein Kandidat fllt heraus, sobald er die ntige Anzahl an Trigrammen nicht mehr erreichen
+	 * kann.
+	 */
+	private static int[] filtern(List<Liste> listen, int noetig) {
+		listen.sort(Comparator.comparingInt(liste -> liste.anzahl));
+		int summe = 0;
+		for (int i = 0; i < noetig; i++) {
+			summe += listen.get(i).anzahl;
+		}
+		int[] alle = new int[summe];
+		int n = 0;
+		for (int i = 0; i < noetig; i++) {
+			Liste liste = listen.get(i);
+			System.arraycopy(liste.nummern, 0, alle, n, liste.anzahl);
+			n += liste.anzahl;
+		}
+		Arrays.sort(alle);
+		int[] kandidaten = new int[n];
+		int[] treffer = new int[n];	// Anzahl der Listen, in denen der Kandidat vorkommt
+		int m = 0;
+		for (int i = 0; i < n; i++) {
+			if (m > 0 && kandidaten[m - 1] == alle[i]) {
+				treffer[m - 1]++;
+			} else {
+				kandidaten[m] = alle[i];
+				treffer[m++] = 1;
+			}
+		}
+		int schwelle = listen.size() - noetig + 1;	// so viele Trigramme bleiben bei maxDistanz nderungen erhalten
+		for (int l = noetig; l < listen.size() && m > 0; l++) {
+			Liste liste = listen.get(l);
+			int rest = listen.size() - l - 1;
+			int pos = 0;
+			int behalten = 0;
+			for (int i = 0; i < m; i++) {
+				pos = galoppieren(liste, pos, kandidaten[i]);
+				int anzahl = treffer[i] + ((pos < liste.anzahl && liste.nummern[pos] == kandidaten[i]) ? 1 : 0);
+				if (anzahl + rest >= schwelle) {
+					kandidaten[behalten] = kandidaten[i];
+					treffer[behalten++] = anzahl;
+				}
+			}
+			m = behalten;
+		}
+		return Arrays.copyOf(kandidaten, m);
+	}
+
+	/*
+	 * Sucht ab pos die erste Stelle der Liste, deren Nummer nicht kleiner als nummer ist: erst in wachsenden
+	 * Sprngen, dann binr
+	 */
+	private static int galoppieren(Liste liste, int pos, int nummer) {
+		int sprung = 1;
+		while (pos + sprung < liste.anzahl && liste.nummern[pos + sprung] < nummer) {
+			sprung <<= 1;
+		}
+		int von = pos + (sprung >> 1);
+		int bis = Math.min(pos + sprung, liste.anzahl);
+		if (von < liste.anzahl && liste.nummern[von] >= nummer) {
+			return von;
+		}
+		while (von < bis) {
+			int mitte = (von + bis) >>> 1;
+			if (liste.nummern[mitte] < nummer) {
+				von = mitte + 1;
+			} else {
+				bis = mitte;
+			}
+		}
+		return von;
+	}
+
+	/*
+	 * Alle Namen, deren Lnge hchstens maxDistanz von der bergebenen abweicht
+	 */
+	private int[] nachLaenge(int laenge, int maxDistanz) {
+		int von = Math.max(0, laenge - maxDistanz);
+		int bis = Math.min(nachLaenge.size() - 1, laenge + maxDistanz);
+		int summe = 0;
+		for (int l = von; l <= bis; l++) {
+			summe += nachLaenge.get(l).anzahl;
+		}
+		int[] kandidaten = new int[summe];
+		int n = 0;
+		for (int l = von; l <= bis; l++) {
+			Liste liste = nachLaenge.get(l);
+			System.arraycopy(liste.nummern, 0, kandidaten, n, liste.anzahl);
+			n += liste.anzahl;
+		}
+		return kandidaten;
+	}
+
+	/**
+	 * Gibt die Anzahl der verschiedenen Namen zurck, einschlielich der Namen, die nach nderungen keine Kunden
+	 * mehr haben
+	 * @return
+	 * 			Anzahl der Namen
+	 */
+	synchronized int getAnzahlNamen() {
+		return anzahl;
+	}
+}
@@ -0,0 +1,74 @@
+package kontoverwaltung;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ *
+ * Hilfsklasse zur Normalisierung von Texten fr Indizes und Vergleiche.
+ * Normalisierte Texte sind kleingeschrieben, Umlaute und  sind ausgeschrieben ( > ae,  > ss),
+ * sonstige Akzente sind entfernt und Leerraum ist auf ein einzelnes Leerzeichen reduziert.
+ * So werden z.B. "Mller", "MUELLER" und " Mueller " als gleich erkannt.
+ *
+ * @author aschwegmann
+ * @version 1.0
+ *
+ */
+final class Normalisierer {
+
+	private final static Pattern AKZENTE = Pattern.compile("\\p{M}+");
+	private final static Pattern LEERRAUM = Pattern.compile("\\s+");
+
+	private Normalisierer() { // nur statische Methoden
+	}
+
+	/**
+	 * Normalisiert einen Text
+	 * @param text
+	 * 			der zu normalisierende Text
+	 * @return
+	 * 			der normalisierte Text, ein leerer String bei null
+	 */
+	static String normalisiere(String text) {
+		if (text == null) {
+			return "";
+		}
+		StringBuilder sb = new StringBuilder(text.length() + 4);
+		String klein = text.trim().toLowerCase(Locale.GERMAN);
+		boolean nurAscii = true;
+		boolean leerraum = false;
+		for (int i = 0; i < klein.length(); i++) {
+			char c = klein.charAt(i);
+			if (c > 127) {
+				nurAscii = false;
+			}
+			if (Character.isWhitespace(c) && (leerraum || c != ' ')) { // mehrfacher oder anderer Leerraum als ' '
+				nurAscii = false;
+			}
+			leerraum = Character.isWhitespace(c);
+			switch (c) {
+			case '':
+				sb.append("ae");
+				break;
+			case '':
+				sb.append("oe");
+				break;
+			case '':
+				sb.append("ue");
+				break;
+			case '':
+				sb.append("ss");
+				break;
+			default:
+				sb.append(c);
+				break;
+			}
+		}
+		if (nurAscii) { // hufigster Fall, hier sind keine Akzente oder doppelten Leerzeichen zu entfernen
+			return sb.toString();
+		}
+		String ohneAkzente = AKZENTE.matcher(Normalizer.normalize(sb, Normalizer.Form.NFD)).replaceAll("");
+		return LEERRAUM.matcher(ohneAkzente).replaceAll(" ");
+	}
+}
@@ -0,0 +1,211 @@
+package kontoverwaltung;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ *
+ * Vergibt eindeutige Kundennummern und Kontonummern fr neue IBANs. Jeder Thread reserviert sich einen Block von
+ * Nummern und vergibt diese ohne jede Synchronisation. Nur das Reservieren eines neuen Blocks ist synchronisiert,
+ * so dass sich auch viele gleichzeitig anlegende Threads kaum gegenseitig aufhalten.
+ *
+ * Die Obergrenze der reservierten Blcke (Hochwassermarke) wird vor der Herausgabe des Blocks in eine Datei
+ * geschrieben. Nach einem Neustart wird dort fortgesetzt, eine Nummer wird also nie zweimal vergeben. Nicht
+ * verbrauchte Nummern eines Blocks gehen beim Beenden verloren, es entstehen also Lcken.
+ *
+ * @author aschwegmann
+ * @version 1.0
+ *
+ * @see Bank
+ */
+class NummernVergabe {
+
+	final static int BLOCKGROESSE = 1000;
+	final static long ERSTE_KUNDENNUMMER = 100000000L;	// mindestens 9-stellig, siehe UserInterface.VALID_KNR
+	final static long LETZTE_KUNDENNUMMER = 999999999999999999L;	// 18 Stellen, passt noch in ein long
+	final static long ERSTE_KONTONUMMER = 1L;
+	final static long LETZTE_KONTONUMMER = 9999999999L;	// 10-stellige Kontonummer in der IBAN
+
+	private final Path datei;	// null: Hochwassermarken nur im Speicher
+	private final Folge kundennummern = new Folge(ERSTE_KUNDENNUMMER, LETZTE_KUNDENNUMMER);
+	private final Folge kontonummern = new Folge(ERSTE_KONTONUMMER, LETZTE_KONTONUMMER);
+
+	/*
+	 * Eine Nummernfolge mit ihrer Hochwassermarke und dem Block des aktuellen Threads ({nchste, ende})
+	 */
+	private static final class Folge {
+		private long hochwasser;
+		private final long letzte;
+		private final ThreadLocal<long[]> block = ThreadLocal.withInitial(() -> new long[2]);
+
+		Folge(long erste, long letzte) {
+			this.hochwasser = erste;
+			this.letzte = letzte;
+		}
+	}
+
+	/**
+	 * Erzeugt eine Nummernvergabe, deren Hochwassermarken nur im Speicher gehalten werden
+	 */
+	NummernVergabe() {
+		this.datei = null;
+	}
+
+	/**
+	 * Erzeugt eine Nummernvergabe, die ihre Hochwassermarken in der bergebenen Datei speichert.
+	 * Existiert die Datei bereits, wird bei den dort gespeicherten Nummern fortgesetzt.
+	 * @param datei
+	 * 			Datei fr die Hochwassermarken, z.B. nummernvergabe.dat
+	 * @throws IOException
+	 * 			falls die vorhandene Datei nicht gelesen werden kann
+	 */
+	NummernVergabe(Path datei) throws IOException {
+		this.datei = datei;
+		if (Files.exists(datei)) {
+			ByteBuffer inhalt = ByteBuffer.wrap(Files.readAllBytes(datei));
+			if (inhalt.remaining() < 16) {
+				throw new IOException("Datei der Nummernvergabe ist beschdigt: " + datei);
+			}
+			kundennummern.hochwasser = Math.max(ERSTE_KUNDENNUMMER, inhalt.getLong());
+			kontonummern.hochwasser = Math.max(ERSTE_KONTONUMMER, inhalt.getLong());
+		}
+	}
+
+	/**
+	 * Gibt eine neue, noch nie vergebene Kundennummer zurck
+	 * @return
+	 * 			die Kundennummer (mindestens 9 Stellen)
+	 */
+	long naechsteKundennummer() {
+		return naechste(kundennummern);
+	}
+
+	/**
+	 * Gibt eine neue, noch nie vergebene Kontonummer zurck
+	 * @return
+	 * 			die Kontonummer (hchstens 10 Stellen)
+	 * @throws IllegalStateException
+	 * 			falls alle Kontonummern vergeben sind
+	 */
+	long naechsteKontonummer() {
+		return naechste(kontonummern);
+	}
+
+	private long naechste(Folge folge) {
+		long[] block = folge.block.get();
+		if (block[0] >= block[1]) {
+			reservieren(folge, block);
+		}
+		return block[0]++;
+	}
+
+	/*
+	 * Reserviert einen neuen Block fr den aktuellen Thread. Die neue Hochwassermarke wird gespeichert, bevor
+	 * eine Nummer aus dem Block herausgegeben wird.
+	 */
+	private synchronized void reservieren(Folge folge, long[] block) {
+		long start = folge.hochwasser;
+		if (start > folge.letzte) {
+			throw new IllegalStateException("Alle Nummern sind vergeben.");
+		}
+		long ende = Math.min(start + BLOCKGROESSE, folge.letzte + 1);	// letzte + 1 luft nicht ber
+		folge.hochwasser = ende;
+		try {
+			speichern();
+		} catch (IOException e) {
+			folge.hochwasser = start;
+			throw new UncheckedIOException("Nummernvergabe konnte nicht gespeichert werden", e);
+		}
+		block[0] = start;
+		block[1] = ende;
+	}
+
+	/**
+	 * Stellt sicher, dass keine Nummern unterhalb der bergebenen Werte mehr vergeben werden, z.B. weil diese
+	 * in einer bestehenden Datenbank bereits von Hand vergeben wurden. Bereits reservierte Blcke bleiben gltig.
+	 * @param kundennummer
+	 * 			kleinste Kundennummer, die noch vergeben werden darf
+	 * @param kontonummer
+	 * 			kleinste Kontonummer, die noch vergeben werden darf
+	 */
+	synchronized void anheben(long kundennummer, long kontonummer) {
+		if (kundennummer > kundennummern.hochwasser || kontonummer > kontonummern.hochwasser) {
+			kundennummern.hochwasser = Math.max(kundennummern.hochwasser, kundennummer);
+			kontonummern.hochwasser = Math.max(kontonummern.hochwasser, kontonummer);
+			try {
+				speichern();
+			} catch (IOException e) {
+				throw new UncheckedIOException("Nummernvergabe konnte nicht gespeichert werden", e);
+			}
+		}
+	}
+
+	/*
+	 * Schreibt die Hochwassermarken in eine temporre Datei und ersetzt damit die bisherige Datei,
+	 * so dass nach einem Absturz immer eine vollstndige Datei vorhanden ist.
+	 */
+	private void speichern() throws IOException {
+		if (datei == null) {
+			return;
+		}
+		Path temp = datei.resolveSibling(datei.getFileName() + ".tmp");
+		ByteBuffer inhalt = ByteBuffer.allocate(16);
+		inhalt.putLong(kundennummern.hochwasser).putLong(kontonummern.hochwasser).flip();
+		try (FileChannel kanal = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			while (inhalt.hasRemaining()) {
+				kanal.write(inhalt);
+			}
+			kanal.force(true);
+		}
+		Files.move(temp, datei, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Bildet eine deutsche IBAN aus Bankleitzahl und Kontonummer inkl. Prfziffern (ISO 13616, Modulo 97)
+	 * @param blz
+	 * 			die achtstellige Bankleitzahl
+	 * @param kontonummer
+	 * 			die Kontonummer, hchstens 10 Stellen
+	 * @return
+	 * 			die IBAN in der Schreibweise nach DIN 5008, z.B. DE89 3704 0044 0532 0130 00
+	 */
+	static String iban(String blz, long kontonummer) {
+		if (blz == null || !blz.matches("\\d{8}")) {
+			throw new IllegalArgumentException("Ungltige Bankleitzahl: " + blz);
+		}
+		if (kontonummer < 0 || kontonummer > LETZTE_KONTONUMMER) {
+			throw new IllegalArgumentException("Ungltige Kontonummer: " + kontonummer);
+		}
+		StringBuilder bban = new StringBuilder(18).append(blz);
+		String nummer = Long.toString(kontonummer);
+		for (int i = nummer.length(); i < 10; i++) {
+			bban.append('0');
+		}
+		bban.append(nummer);
+
+		int rest = 0;	// BBAN + "DE00" mit D = 13, E = 14, ziffernweise modulo 97
+		for (int i = 0; i < bban.length(); i++) {
+			rest = (rest * 10 + (bban.charAt(i) - '0')) % 97;
+		}
+		rest = (rest * 10000 + 1314) % 97;
+		rest = (rest * 100) % 97;
+		int pruefziffer = 98 - rest;
+
+		StringBuilder iban = new StringBuilder(27).append("DE").append((char) ('0' + pruefziffer / 10))
+				.append((char) ('0' + pruefziffer % 10));
+		for (int i = 0; i < bban.length(); i++) {
+			if (i % 4 == 0) {
+				iban.append(' ');
+			}
+			iban.append(bban.charAt(i));
+		}
+		return iban.toString();
+	}
+}
@@ -0,0 +1,312 @@
+package kontoverwaltung;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ *
+ * Eine unvernderliche Hash-Tabelle mit String-Schlsseln (Hash Array Mapped Trie). Jede nderung liefert eine neue
+ * Tabelle und lsst die bisherige unverndert. Dabei werden nur die Knoten auf dem Weg von der Wurzel zum genderten
+ * Eintrag kopiert (bei einer Million Eintrgen etwa vier bis fnf Knoten), alle brigen Knoten teilen sich alte und
+ * neue Tabelle. Eine Tabelle kann daher ohne Sperre und ohne Kopie beliebig lange gelesen werden, whrend daneben
+ * neue Fassungen entstehen.
+ *
+ * Jeder Knoten verteilt die Eintrge nach fnf Bits des Hashwertes auf bis zu 32 Pltze. Zwei Bitmasken geben an,
+ * welche Pltze einen Eintrag und welche einen Unterknoten enthalten. Die Eintrge stehen als Paare (Schlssel,
+ * Wert) am Anfang des Arrays, die Unterknoten in umgekehrter Reihenfolge am Ende. Leere Pltze belegen also keinen
+ * Speicher. Schlssel mit gleichem Hashwert landen unterhalb der letzten Ebene in einem Kollisionsknoten, der die
+ * Paare nur noch nebeneinander ablegt.
+ *
+ * Entfernen wird nicht angeboten, da die Bank keine Kunden lscht. Null-Werte sind nicht erlaubt.
+ *
+ * @author aschwegmann
+ * @version 1.0
+ *
+ * @param <T>
+ * 			Typ der Werte
+ *
+ * @see Bankabbild
+ */
+final class PersistenteTabelle<T> implements Iterable<T> {
+
+	private final static int BITS = 5;
+	private final static PersistenteTabelle<Object> LEER = new PersistenteTabelle<Object>(new Knoten(0, 0, new Object[0]), 0);
+
+	private final Knoten wurzel;
+	private final int anzahl;
+
+	private PersistenteTabelle(Knoten wurzel, int anzahl) {
+		this.wurzel = wurzel;
+		this.anzahl = anzahl;
+	}
+
+	/**
+	 * Gibt die leere Tabelle zurck
+	 * @return
+	 * 			die leere Tabelle
+	 */
+	@SuppressWarnings("unchecked")
+	static <T> PersistenteTabelle<T> leer() {
+		return (PersistenteTabelle<T>) LEER;
+	}
+
+	/*
+	 * Streut die Hashwerte der Strings, damit auch fortlaufende Kundennummern alle Bits nutzen.
+	 * Beide Schritte sind umkehrbar, gleiche Hashwerte entstehen also nur bei gleichem String-Hashwert.
+	 */
+	private static int hash(String key) {
+		int h = key.hashCode() * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * Gibt den Wert zum bergebenen Schlssel zurck
+	 * @param key
+	 * 			der Schlssel
+	 * @return
+	 * 			der Wert oder null, wenn der Schlssel nicht vorhanden ist
+	 */
+	@SuppressWarnings("unchecked")
+	T get(String key) {
+		return (T) wurzel.get(key, hash(key), 0);
+	}
+
+	/**
+	 * Gibt eine Tabelle zurck, die zustzlich den bergebenen Eintrag enthlt. Ein vorhandener Wert unter demselben
+	 * Schlssel wird in der neuen Tabelle ersetzt. Diese Tabelle bleibt unverndert.
+	 * @param key
+	 * 			der Schlssel
+	 * @param wert
+	 * 			der Wert, nicht null
+	 * @return
+	 * 			die neue Tabelle, oder diese, wenn der Wert bereits eingetragen ist
+	 */
+	PersistenteTabelle<T> mit(String key, T wert) {
+		if (wert == null) {
+			throw new NullPointerException("null-Werte sind nicht erlaubt");
+		}
+		int h = hash(key);
+		boolean neu = wurzel.get(key, h, 0) == null;
+		Knoten knoten = wurzel.mit(key, h, wert, 0);
+		return (knoten == wurzel) ? this : new PersistenteTabelle<T>(knoten, neu ? anzahl + 1 : anzahl);
+	}
+
+	/**
+	 * Gibt die Anzahl der Eintrge zurck
+	 * @return
+	 * 			Anzahl der Eintrge
+	 */
+	int size() {
+		return anzahl;
+	}
+
+	/**
+	 * Durchluft die Werte in der Reihenfolge der Hashwerte, also ohne erkennbare Ordnung
+	 */
+	@Override
+	public Iterator<T> iterator() {
+		return new Durchlauf<T>(wurzel);
+	}
+
+	/*
+	 * Ein Knoten des Baumes. Kollisionsknoten haben keine Bits gesetzt und enthalten nur Paare.
+	 */
+	private static final class Knoten {
+
+		private final int datenBits;
+		private final int knotenBits;
+		private final Object[] inhalt;
+
+		private Knoten(int datenBits, int knotenBits, Object[] inhalt) {
+			this.datenBits = datenBits;
+			this.knotenBits = knotenBits;
+			this.inhalt = inhalt;
+		}
+
+		private boolean istKollision() {
+			return datenBits == 0 && knotenBits == 0 && inhalt.length > 0;
+		}
+
+		private int anzahlDaten() {
+			return istKollision() ? inhalt.length / 2 : Integer.bitCount(datenBits);
+		}
+
+		private int anzahlKnoten() {
+			return Integer.bitCount(knotenBits);
+		}
+
+		private Knoten knoten(int index) {
+			return (Knoten) inhalt[inhalt.length - 1 - index];
+		}
+
+		private static int index(int bits, int bit) {
+			return Integer.bitCount(bits & (bit - 1));
+		}
+
+		private Object get(String key, int hash, int shift) {
+			if (shift >= Integer.SIZE) {
+				for (int i = 0; i < inhalt.length; i += 2) {
+					if (key.equals(inhalt[i])) {
+						return inhalt[i + 1];
+					}
+				}
+				return null;
+			}
+			int bit = 1 << ((hash >>> shift) & 31);
+			if ((datenBits & bit) != 0) {
+				int i = 2 * index(datenBits, bit);
+				return key.equals(inhalt[i]) ? inhalt[i + 1] : null;
+			}
+			if ((knotenBits & bit) != 0) {
+				return knoten(index(knotenBits, bit)).get(key, hash, shift + BITS);
+			}
+			return null;
+		}
+
+		private Knoten mit(String key, int hash, Object wert, int shift) {
+			if (shift >= Integer.SIZE) {
+				return kollisionMit(key, wert);
+			}
+			int bit = 1 << ((hash >>> shift) & 31);
+			if ((datenBits & bit) != 0) {
+				int i = 2 * index(datenBits, bit);
+				String vorhanden = (String) inhalt[i];
+				if (vorhanden.equals(key)) {
+					if (inhalt[i + 1] == wert) {
+						return this;
+					}
+					Object[] kopie = inhalt.clone();
+					kopie[i + 1] = wert;
+					return new Knoten(datenBits, knotenBits, kopie);
+				}
+				// der Platz ist mit einem anderen Schlssel belegt, beide wandern eine Ebene tiefer
+				Knoten unter = paar(vorhanden, hash(vorhanden), inhalt[i + 1], key, hash, wert, shift + BITS);
+				return datenZuKnoten(bit, i, unter);
+			}
+			if ((knotenBits & bit) != 0) {
+				int j = inhalt.length - 1 - index(knotenBits, bit);
+				Knoten alt = (Knoten) inhalt[j];
+				Knoten neu = alt.mit(key, hash, wert, shift + BITS);
+				if (neu == alt) {
+					return this;
+				}
+				Object[] kopie = inhalt.clone();
+				kopie[j] = neu;
+				return new Knoten(datenBits, knotenBits, kopie);
+			}
+			int i = 2 * index(datenBits, bit);
+			Object[] kopie = new Object[inhalt.length + 2];
+			System.arraycopy(inhalt, 0, kopie, 0, i);
+			kopie[i] = key;
+			kopie[i + 1] = wert;
+			System.arraycopy(inhalt, i, kopie, i + 2, inhalt.length - i);
+			return new Knoten(datenBits | bit, knotenBits, kopie);
+		}
+
+		/*
+		 * Ersetzt das Paar ab Index i durch den Unterknoten, der es jetzt aufnimmt
+		 */
+		private Knoten datenZuKnoten(int bit, int i, Knoten unter) {
+			int neueKnotenBits = knotenBits | bit;
+			Object[] kopie = new Object[inhalt.length - 1];
+			System.arraycopy(inhalt, 0, kopie, 0, i);
+			int j = kopie.length - 1 - index(neueKnotenBits, bit);	// Position des neuen Unterknotens
+			System.arraycopy(inhalt, i + 2, kopie, i, j - i);
+			kopie[j] = unter;
+			System.arraycopy(inhalt, j + 2, kopie, j + 1, inhalt.length - j - 2);
+			return new Knoten(datenBits & ~bit, neueKnotenBits, kopie);
+		}
+
+		private static Knoten paar(String key1, int hash1, Object wert1, String key2, int hash2, Object wert2, int shift) {
+			if (shift >= Integer.SIZE) {
+				return new Knoten(0, 0, new Object[] { key1, wert1, key2, wert2 });
+			}
+			int teil1 = (hash1 >>> shift) & 31;
+			int teil2 = (hash2 >>> shift) & 31;
+			if (teil1 == teil2) {
+				return new Knoten(0, 1 << teil1, new Object[] { paar(key1, hash1, wert1, key2, hash2, wert2, shift + BITS) });
+			}
+			Object[] inhalt = (teil1 < teil2) ? new Object[] { key1, wert1, key2, wert2 } : new Object[] { key2, wert2, key1, wert1 };
+			return new Knoten((1 << teil1) | (1 << teil2), 0, inhalt);
+		}
+
+		private Knoten kollisionMit(String key, Object wert) {
+			for (int i = 0; i < inhalt.length; i += 2) {
+				if (key.equals(inhalt[i])) {
+					if (inhalt[i + 1] == wert) {
+						return this;
+					}
+					Object[] kopie = inhalt.clone();
+					kopie[i + 1] = wert;
+					return new Knoten(0, 0, kopie);
+				}
+			}
+			Object[] kopie = new Object[inhalt.length + 2];
+			System.arraycopy(inhalt, 0, kopie, 0, inhalt.length);
+			kopie[inhalt.length] = key;
+			kopie[inhalt.length + 1] = wert;
+			return new Knoten(0, 0, kopie);
+		}
+	}
+
+	/*
+	 * Durchluft den Baum mit einem eigenen Stapel. Mehr als acht Ebenen gibt es nicht (sieben Ebenen zu je fnf
+	 * Bits und die Kollisionsknoten).
+	 */
+	private static final class Durchlauf<T> implements Iterator<T> {
+
+		private final Knoten[] knoten = new Knoten[8];
+		private final int[] position = new int[8];	// nchster Eintrag bzw. nchster Unterknoten
+		private int tiefe;
+		private Knoten daten;	// Knoten, dessen Eintrge gerade geliefert werden
+		private int naechster;
+		private int ende;
+
+		private Durchlauf(Knoten wurzel) {
+			knoten[0] = wurzel;
+			daten = wurzel;
+			ende = wurzel.anzahlDaten();
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (naechster == ende) {
+				if (!absteigen()) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/*
+		 * Sucht den nchsten Knoten mit Eintrgen. Die Eintrge eines Knotens werden geliefert, bevor seine
+		 * Unterknoten besucht werden.
+		 */
+		private boolean absteigen() {
+			while (tiefe >= 0) {
+				Knoten k = knoten[tiefe];
+				if (position[tiefe] < k.anzahlKnoten()) {
+					Knoten unter = k.knoten(position[tiefe]++);
+					tiefe++;
+					knoten[tiefe] = unter;
+					position[tiefe] = 0;
+					daten = unter;
+					naechster = 0;
+					ende = unter.anzahlDaten();
+					return true;
+				}
+				tiefe--;
+			}
+			return false;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public T next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			return (T) daten.inhalt[2 * naechster++ + 1];
+		}
+	}
+}
@@ -1,7 +1,14 @@
 package kontoverwaltung;
 
-import java.text.DateFormat;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.FormatStyle;
 import java.util.Calendar;
+import java.util.GregorianCalendar;
 
 /**
  * 
@@ -18,9 +25,19 @@ public class Privatkunde extends Kunde {
 	 * 
 	 */
 	private static final long serialVersionUID = 1L;
+	final static DateTimeFormatter DATUMSFORMAT = DateTimeFormatter.ofLocalizedDate(FormatStyle.MEDIUM); // threadsicher, wird geteilt
 	private String vorname;
 	private String nachname;
-	private Calendar geburtstag;
+	private int geburtsdatum; // Tage seit dem 01.01.1970 (LocalDate.toEpochDay), statt eines ganzen Calendar-Objektes
+
+	/*
+	 * Felder im serialisierten Format. ltere Datenbanken enthalten den Geburtstag noch als Calendar
+	 * im Feld "geburtstag", dieser wird in readObject umgewandelt.
+	 */
+	private static final ObjectStreamField[] serialPersistentFields = {
+			new ObjectStreamField("vorname", String.class),
+			new ObjectStreamField("nachname", String.class),
+			new ObjectStreamField("geburtsdatum", Integer.TYPE) };
 
 
 	/**
@@ -41,15 +58,51 @@ public class Privatkunde extends Kunde {
 	 * @param nachname
 	 * 			der Nachname dieses Privatkunden als String
 	 * @param geburtstag
-	 * 			der Geburtstag dieses Privatkunden als Calendar-Objekt
+	 * 			der Geburtstag dieses Privatkunden als LocalDate
 	 */
-	public Privatkunde(String kundennummer, String telefonnummer, String email, Adresse adresse, String vorname, String nachname, Calendar geburtstag) {
+	public Privatkunde(String kundennummer, String telefonnummer, String email, Adresse adresse, String vorname, String nachname, LocalDate geburtstag) {
 		super(kundennummer, telefonnummer, email, adresse);
 		this.setVorname(vorname);
 		this.setNachname(nachname);
 		this.setGeburtstag(geburtstag);
 	}
 
+	/**
+	 * Ein Parametrisierter Konstruktor zur Erzeugung eines neuen Privatkunden-Objektes mit dem Geburtstag als
+	 * Calendar-Objekt. Gespeichert werden nur Jahr, Monat und Tag.
+	 * 
+	 * @param kundennummer
+	 * 			die Kundennummer dieses Privatkunden als String
+	 * @param telefonnummer
+	 * 			die Telefonnummer dieses Privatkunden als String
+	 * @param email
+	 * 			die Email-Adresse dieses Privatkunden als String
+	 * @param adresse
+	 * 			die Adresse dieses Privatkunden als Adresse-Objekt
+	 * @param vorname
+	 * 			der Vorname dieses Privatkunden als String
+	 * @param nachname
+	 * 			der Nachname dieses Privatkunden als String
+	 * @param geburtstag
+	 * 			der Geburtstag dieses Privatkunden als Calendar-Objekt
+	 */
+	public Privatkunde(String kundennummer, String telefonnummer, String email, Adresse adresse, String vorname, String nachname, Calendar geburtstag) {
+		this(kundennummer, telefonnummer, email, adresse, vorname, nachname, datum(geburtstag));
+	}
+
+	/**
+	 * Kopierkonstruktor fr Abbilder, bernimmt alle Stammdaten ohne Konten
+	 * @param vorlage
+	 * 			der Privatkunde, dessen Stammdaten bernommen werden
+	 * @see Kunde#Kunde(Kunde)
+	 */
+	Privatkunde(Privatkunde vorlage) {
+		super(vorlage);
+		this.vorname = vorlage.vorname;
+		this.nachname = vorlage.nachname;
+		this.geburtsdatum = vorlage.geburtsdatum;
+	}
+
 	/**
 	 * Gibt das Feld "vorname" dieses Privatkunden-Objektes zurck
 	 * @return
@@ -66,6 +119,7 @@ public class Privatkunde extends Kunde {
 	 */
 	public void setVorname(String vorname) {
 		this.vorname = vorname;
+		stammdatenMelden();
 	}
 
 	/**
@@ -84,24 +138,72 @@ public class Privatkunde extends Kunde {
 	 */
 	public void setNachname(String nachname) {
 		this.nachname = nachname;
+		stammdatenMelden();
 	}
 
 	/**
-	 * Gibt das Feld "geburtstag" dieses Privatkunden-Objektes zurck
+	 * Gibt den Geburtstag dieses Privatkunden-Objektes zurck. Da nur der Tag gespeichert wird, ist das
+	 * Calendar-Objekt bei jedem Aufruf neu, nderungen daran ndern den Kunden nicht (siehe setGeburtstag).
 	 * @return
 	 * 			Der Geburtstag dieses Privatkunden als Calendar-Objekt
 	 */
 	public Calendar getGeburtstag() {
-		return geburtstag;
+		LocalDate datum = getGeburtsdatum();
+		return new GregorianCalendar(datum.getYear(), datum.getMonthValue() - 1, datum.getDayOfMonth());
+	}
+
+	/**
+	 * Gibt den Geburtstag dieses Privatkunden-Objektes zurck
+	 * @return
+	 * 			Der Geburtstag dieses Privatkunden als LocalDate
+	 */
+	public LocalDate getGeburtsdatum() {
+		return LocalDate.ofEpochDay(geburtsdatum);
+	}
+
+	/**
+	 * Gibt den Geburtstag als Anzahl der Tage seit dem 01.01.1970 zurck. Fr Indizes und Vergleiche,
+	 * bei denen kein LocalDate-Objekt erzeugt werden soll.
+	 * @return
+	 * 			Der Geburtstag als Epochentag
+	 */
+	int getGeburtsdatumEpochTag() {
+		return geburtsdatum;
 	}
 
 	/**
-	 * Setzt das Feld geburtstag dieses Privatkunden-Objektes
+	 * Setzt den Geburtstag dieses Privatkunden-Objektes. Ist der Kunde bei einer Bank angemeldet,
+	 * wird diese ber die nderung informiert.
+	 * @param geburtstag
+	 * 			Der Geburtstag dieses Privatkunden als LocalDate
+	 * @throws NullPointerException
+	 * 			falls null bergeben wird
+	 */
+	public void setGeburtstag(LocalDate geburtstag) {
+		LocalDate alt = (getBeobachter() == null) ? null : getGeburtsdatum();
+		this.geburtsdatum = Math.toIntExact(geburtstag.toEpochDay());
+		if (getBeobachter() != null) {
+			getBeobachter().geburtstagGeaendert(this, alt, geburtstag);
+		}
+	}
+
+	/**
+	 * Setzt den Geburtstag dieses Privatkunden-Objektes, gespeichert werden nur Jahr, Monat und Tag
 	 * @param geburtstag
 	 * 			Der Geburtstag dieses Privatkunden als Calendar-Objekt
+	 * @throws NullPointerException
+	 * 			falls null bergeben wird
+	 * @see #setGeburtstag(LocalDate)
 	 */
 	public void setGeburtstag(Calendar geburtstag) {
-		this.geburtstag = geburtstag;
+		setGeburtstag(datum(geburtstag));
+	}
+
+	/*
+	 * Jahr, Monat und Tag eines Calendar-Objektes als LocalDate
+	 */
+	static LocalDate datum(Calendar kalender) {
+		return LocalDate.of(kalender.get(Calendar.YEAR), kalender.get(Calendar.MONTH) + 1, kalender.get(Calendar.DAY_OF_MONTH));
 	}
 
 	@Override
@@ -119,7 +221,27 @@ public class Privatkunde extends Kunde {
 	@Override
 	public String toString() {
 		return "\nName:\t\t\t" + getName() + "\nGeburtstag:\t\t"
-				+ DateFormat.getDateInstance(DateFormat.MEDIUM).format(getGeburtstag().getTime()) + "\n" + super.toString() + "\n";
+				+ DATUMSFORMAT.format(getGeburtsdatum()) + "\n" + super.toString() + "\n";
+	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		ObjectOutputStream.PutField felder = out.putFields();
+		felder.put("vorname", vorname);
+		felder.put("nachname", nachname);
+		felder.put("geburtsdatum", geburtsdatum);
+		out.writeFields();
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		ObjectInputStream.GetField felder = in.readFields();
+		vorname = (String) felder.get("vorname", null);
+		nachname = (String) felder.get("nachname", null);
+		if (felder.getObjectStreamClass().getField("geburtstag") != null) { // altes Format mit Calendar
+			Calendar alt = (Calendar) felder.get("geburtstag", null);
+			geburtsdatum = (alt == null) ? 0 : Math.toIntExact(datum(alt).toEpochDay());
+		} else {
+			geburtsdatum = felder.get("geburtsdatum", 0);
+		}
 	}
 
 }
@@ -0,0 +1,250 @@
+package kontoverwaltung;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ *
+ * Laufend aktualisierte Ranglisten der Konten nach Kontostand und der Kunden nach der Summe ihrer Kontostnde.
+ * Beide Listen sind absteigend sortierte Skip-Listen, die bei jeder nderung eines Kontostandes um genau einen
+ * Eintrag umsortiert werden. Eine Abfrage der grten N Eintrge liest daher nur die ersten N Elemente,
+ * anstatt alle Konten zu sortieren.
+ *
+ * @author aschwegmann
+ * @version 1.0
+ *
+ * @see Bank
+ * @see BankBeobachter
+ */
+class Rangliste implements BankBeobachter {
+
+	/*
+	 * Ein Eintrag ist unvernderlich. Bei einer nderung wird der alte Eintrag entfernt und ein neuer eingefgt.
+	 * Der Schlssel (IBAN bzw. Kundennummer) macht Eintrge mit gleichem Betrag eindeutig.
+	 */
+	private static final class Eintrag<T> {
+		private final long cent;
+		private final String schluessel;
+		private final T objekt;
+
+		private Eintrag(long cent, String schluessel, T objekt) {
+			this.cent = cent;
+			this.schluessel = schluessel;
+			this.objekt = objekt;
+		}
+	}
+
+	private static final Comparator<Eintrag<?>> ABSTEIGEND = new Comparator<Eintrag<?>>() {
+		@Override
+		public int compare(Eintrag<?> a, Eintrag<?> b) {
+			int c = Long.compare(b.cent, a.cent);
+			return (c != 0) ? c : a.schluessel.compareTo(b.schluessel);
+		}
+	};
+
+	private final NavigableSet<Eintrag<?>> konten = new ConcurrentSkipListSet<Eintrag<?>>(ABSTEIGEND);
+	private final NavigableSet<Eintrag<?>> kunden = new ConcurrentSkipListSet<Eintrag<?>>(ABSTEIGEND);
+	private final Map<String, Eintrag<Konto>> kontoEintraege = new ConcurrentHashMap<String, Eintrag<Konto>>();
+	private final Map<String, Eintrag<Kunde>> kundenEintraege = new ConcurrentHashMap<String, Eintrag<Kunde>>();
+
+	@Override
+	public void kundeAngelegt(Kunde kunde) {
+		Eintrag<Kunde> eintrag = new Eintrag<Kunde>(0, kunde.getKundennummer(), kunde);
+		kundenEintraege.put(eintrag.schluessel, eintrag);
+		kunden.add(eintrag);
+	}
+
+	@Override
+	public void kontoAngelegt(Kunde kunde, Konto konto) {
+		synchronized (konto) {
+			long cent = konto.getCent();
+			Eintrag<Konto> eintrag = new Eintrag<Konto>(cent, konto.getIban(), konto);
+			kontoEintraege.put(eintrag.schluessel, eintrag);
+			konten.add(eintrag);
+			kundeUmbuchen(kunde, cent);
+		}
+	}
+
+	/*
+	 * Wie kontoAngelegt, der Kunde wird aber nur einmal umsortiert
+	 */
+	@Override
+	public void kontenAngelegt(Kunde kunde, Konto[] neue) {
+		long summe = 0;
+		for (Konto konto : neue) {
+			synchronized (konto) {
+				long cent = konto.getCent();
+				Eintrag<Konto> eintrag = new Eintrag<Konto>(cent, konto.getIban(), konto);
+				kontoEintraege.put(eintrag.schluessel, eintrag);
+				konten.add(eintrag);
+				summe += cent;
+			}
+		}
+		kundeUmbuchen(kunde, summe);
+	}
+
+	@Override
+	public void kontoEntfernt(Kunde kunde, Konto konto) {
+		synchronized (konto) {
+			Eintrag<Konto> eintrag = kontoEintraege.remove(konto.getIban());
+			if (eintrag != null) {
+				konten.remove(eintrag);
+				kundeUmbuchen(kunde, -eintrag.cent);
+			}
+		}
+	}
+
+	@Override
+	public void kontostandGeaendert(Konto konto, long altCent, long neuCent) {
+		synchronized (konto) {
+			Eintrag<Konto> alt = kontoEintraege.get(konto.getIban());
+			if (alt == null) { // Konto ist (noch) nicht bei der Bank angemeldet
+				return;
+			}
+			Eintrag<Konto> neu = new Eintrag<Konto>(neuCent, alt.schluessel, konto);
+			konten.remove(alt);
+			konten.add(neu);
+			kontoEintraege.put(neu.schluessel, neu);
+			if (konto.getInhaber() != null) {
+				kundeUmbuchen(konto.getInhaber(), neuCent - alt.cent);
+			}
+		}
+	}
+
+	/*
+	 * Sortiert den Eintrag eines Kunden um. Synchronisiert ber den Kunden, da mehrere seiner Konten
+	 * gleichzeitig gebucht werden knnen.
+	 */
+	private void kundeUmbuchen(Kunde kunde, long deltaCent) {
+		if (deltaCent == 0) {
+			return;
+		}
+		synchronized (kunde) {
+			Eintrag<Kunde> alt = kundenEintraege.get(kunde.getKundennummer());
+			if (alt == null) {
+				return;
+			}
+			Eintrag<Kunde> neu = new Eintrag<Kunde>(alt.cent + deltaCent, alt.schluessel, kunde);
+			kunden.remove(alt);
+			kunden.add(neu);
+			kundenEintraege.put(neu.schluessel, neu);
+		}
+	}
+
+	/**
+	 * Gibt die N Konten mit dem hchsten Kontostand zurck
+	 * @param n
+	 * 			Anzahl der gewnschten Konten
+	 * @return
+	 * 			Liste der Konten, absteigend nach Kontostand sortiert
+	 */
+	List<Konto> getTopKonten(int n) {
+		return erste(konten, n, Konto.class);
+	}
+
+	/**
+	 * Gibt die N Kunden mit der hchsten Summe ihrer Kontostnde zurck
+	 * @param n
+	 * 			Anzahl der gewnschten Kunden
+	 * @return
+	 * 			Liste der Kunden, absteigend nach Summe der Kontostnde sortiert
+	 */
+	List<Kunde> getTopKunden(int n) {
+		return erste(kunden, n, Kunde.class);
+	}
+
+	/**
+	 * Gibt die Inhaber aller Konten mit einem Kontostand von mindestens minCent zurck. Gelesen werden nur die
+	 * Konten oberhalb der Grenze.
+	 * @param minCent
+	 * 			der Mindestkontostand in Cent
+	 * @return
+	 * 			Liste der Kunden, jeder Kunde nur einmal
+	 */
+	List<Kunde> getInhaberAb(long minCent) {
+		Set<Kunde> inhaber = new LinkedHashSet<Kunde>();
+		for (Eintrag<?> eintrag : konten) {
+			if (eintrag.cent < minCent) {
+				break;
+			}
+			Kunde kunde = ((Konto) eintrag.objekt).getInhaber();
+			if (kunde != null) {
+				inhaber.add(kunde);
+			}
+		}
+		return new ArrayList<Kunde>(inhaber);
+	}
+
+	/**
+	 * Gibt alle Kunden zurck, deren Kontostnde zusammen mindestens minCent betragen
+	 * @param minCent
+	 * 			die Mindestsumme in Cent
+	 * @return
+	 * 			Liste der Kunden, absteigend nach Summe der Kontostnde sortiert
+	 */
+	List<Kunde> getKundenAb(long minCent) {
+		List<Kunde> ergebnis = new ArrayList<Kunde>();
+		for (Eintrag<?> eintrag : kunden) {
+			if (eintrag.cent < minCent) {
+				break;
+			}
+			ergebnis.add((Kunde) eintrag.objekt);
+		}
+		return ergebnis;
+	}
+
+	/**
+	 * Zhlt die Konten mit einem Kontostand von mindestens minCent. Die Zhlung bricht nach grenze + 1 Konten ab,
+	 * damit eine Schtzung fr die Wahl eines Index nicht die ganze Liste liest.
+	 * @param minCent
+	 * 			der Mindestkontostand in Cent
+	 * @param grenze
+	 * 			hchstens so weit wird genau gezhlt
+	 * @return
+	 * 			Anzahl der Konten, hchstens grenze + 1
+	 */
+	int zaehleKontenAb(long minCent, int grenze) {
+		return zaehlen(konten, minCent, grenze);
+	}
+
+	/**
+	 * Zhlt die Kunden, deren Kontostnde zusammen mindestens minCent betragen, hchstens bis grenze + 1
+	 * @param minCent
+	 * 			die Mindestsumme in Cent
+	 * @param grenze
+	 * 			hchstens so weit wird genau gezhlt
+	 * @return
+	 * 			Anzahl der Kunden, hchstens grenze + 1
+	 */
+	int zaehleKundenAb(long minCent, int grenze) {
+		return zaehlen(kunden, minCent, grenze);
+	}
+
+	private static int zaehlen(NavigableSet<Eintrag<?>> liste, long minCent, int grenze) {
+		int anzahl = 0;
+		for (Eintrag<?> eintrag : liste) {
+			if (eintrag.cent < minCent || anzahl > grenze) {
+				break;
+			}
+			anzahl++;
+		}
+		return anzahl;
+	}
+
+	private static <T> List<T> erste(NavigableSet<Eintrag<?>> liste, int n, Class<T> typ) {
+		List<T> ergebnis = new ArrayList<T>(Math.max(0, Math.min(n, 1024)));
+		Iterator<Eintrag<?>> it = liste.iterator();
+		while (ergebnis.size() < n && it.hasNext()) {
+			ergebnis.add(typ.cast(it.next().objekt));
+		}
+		return ergebnis;
+	}
+}
@@ -0,0 +1,156 @@
+package kontoverwaltung;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ *
+ * Laufend aktualisierte Summen der Kontostnde einer Bank: pro Kunde, pro Kundentyp, pro Postleitzahl
+ * und fr die ganze Bank. Die Summen werden bei jeder Kontoanlage und jeder nderung eines Kontostandes
+ * angepasst, so dass das Auslesen keine Schleife ber alle Kunden und Konten mehr bentigt.
+ *
+ * Alle Summen werden in ganzen Cent als long gefhrt und ber atomare Operationen gendert, damit sie
+ * auch bei gleichzeitigen Buchungen exakt bleiben. Der Kontostand eines neuen oder entfernten Kontos wird unter
+ * der Sperre des Kontos gelesen (Kunde ruft kontoAngelegt und kontoEntfernt darin auf), eine gleichzeitige
+ * Buchung wird also entweder ber kontostandGeaendert oder ber den gelesenen Kontostand gezhlt, nie doppelt.
+ *
+ * @author aschwegmann
+ * @version 1.0
+ *
+ * @see Bank
+ * @see BankBeobachter
+ */
+class Saldenspiegel implements BankBeobachter {
+
+	private final AtomicLong gesamt = new AtomicLong();
+	private final Map<String, Posten> proKunde = new ConcurrentHashMap<String, Posten>();
+	private final Map<Class<? extends Kunde>, AtomicLong> proTyp = new ConcurrentHashMap<Class<? extends Kunde>, AtomicLong>();
+	private final AtomicLongArray proPlz = new AtomicLongArray(100000); // Postleitzahlen sind fnfstellig
+
+	/*
+	 * Der Posten eines Kunden merkt sich neben der Summe auch die Postleitzahl, unter der die Summe
+	 * verbucht ist. nderungen laufen synchronisiert ber den Posten, damit ein Umzug und eine gleichzeitige
+	 * Buchung die Summen der Postleitzahlen nicht durcheinanderbringen.
+	 */
+	private static final class Posten {
+		private long saldo;
+		private int plz;
+
+		private Posten(int plz) {
+			this.plz = plz;
+		}
+
+		private synchronized long getSaldo() {
+			return saldo;
+		}
+	}
+
+	@Override
+	public void kundeAngelegt(Kunde kunde) {
+		proKunde.put(kunde.getKundennummer(), new Posten(kunde.getAdresse().getPlz()));
+	}
+
+	@Override
+	public void kontoAngelegt(Kunde kunde, Konto konto) {
+		buchen(kunde, konto.getCent());
+	}
+
+	@Override
+	public void kontoEntfernt(Kunde kunde, Konto konto) {
+		buchen(kunde, -konto.getCent());
+	}
+
+	@Override
+	public void kontostandGeaendert(Konto konto, long altCent, long neuCent) {
+		if (konto.getInhaber() != null) {
+			buchen(konto.getInhaber(), neuCent - altCent);
+		}
+	}
+
+	@Override
+	public void adresseGeaendert(Kunde kunde, Adresse alt, Adresse neu) {
+		Posten posten = proKunde.get(kunde.getKundennummer());
+		if (posten == null) {
+			return;
+		}
+		synchronized (posten) {
+			proPlz.addAndGet(posten.plz, -posten.saldo);
+			posten.plz = neu.getPlz();
+			proPlz.addAndGet(posten.plz, posten.saldo);
+		}
+	}
+
+	/*
+	 * Verbucht eine nderung in Cent auf allen Summen, zu denen der Kunde gehrt.
+	 */
+	private void buchen(Kunde kunde, long deltaCent) {
+		if (deltaCent == 0) {
+			return;
+		}
+		Posten posten = proKunde.get(kunde.getKundennummer());
+		if (posten == null) { // Kunde wurde (noch) nicht ber die Bank angelegt
+			return;
+		}
+		synchronized (posten) {
+			posten.saldo += deltaCent;
+			proPlz.addAndGet(posten.plz, deltaCent);
+		}
+		typSumme(kunde.getClass()).addAndGet(deltaCent);
+		gesamt.addAndGet(deltaCent);
+	}
+
+	private AtomicLong typSumme(Class<? extends Kunde> typ) {
+		AtomicLong summe = proTyp.get(typ);
+		if (summe == null) {
+			proTyp.putIfAbsent(typ, new AtomicLong());
+			summe = proTyp.get(typ);
+		}
+		return summe;
+	}
+
+	/**
+	 * Gibt die Summe aller Kontostnde der Bank zurck
+	 * @return
+	 * 			Summe in Cent
+	 */
+	long getGesamtCent() {
+		return gesamt.get();
+	}
+
+	/**
+	 * Gibt die Summe aller Kontostnde eines Kunden zurck
+	 * @param kundennummer
+	 * 			die Kundennummer des Kunden
+	 * @return
+	 * 			Summe in Cent, 0 wenn der Kunde nicht existiert
+	 */
+	long getKundeCent(String kundennummer) {
+		Posten posten = proKunde.get(kundennummer);
+		return (posten == null) ? 0 : posten.getSaldo();
+	}
+
+	/**
+	 * Gibt die Summe aller Kontostnde der Kunden eines Typs zurck
+	 * @param typ
+	 * 			der Kundentyp, z.B. Privatkunde.class
+	 * @return
+	 * 			Summe in Cent
+	 */
+	long getTypCent(Class<? extends Kunde> typ) {
+		AtomicLong summe = proTyp.get(typ);
+		return (summe == null) ? 0 : summe.get();
+	}
+
+	/**
+	 * Gibt die Summe aller Kontostnde der Kunden mit der bergebenen Postleitzahl zurck
+	 * @param plz
+	 * 			fnfstellige Postleitzahl
+	 * @return
+	 * 			Summe in Cent
+	 */
+	long getPlzCent(int plz) {
+		return proPlz.get(plz);
+	}
+}
@@ -0,0 +1,205 @@
+package kontoverwaltung;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ *
+ * Eine nach einem String-Schlssel sortierte Folge von Werten fr das seitenweise Auflisten, z.B. der Kunden nach
+ * Kundennummer. Die Werte liegen in Blcken zu hchstens BLOCK Referenzen, die Blcke selbst in einem Array.
+ * Pro Wert kostet der Index damit nur eine Referenz im Block (bei halb bis ganz vollen Blcken 4 bis 8 Byte mit
+ * komprimierten Referenzen), statt eines Knotens mit Index-Ebenen wie bei ConcurrentSkipListMap. Die Schlssel
+ * werden nicht gespeichert, sondern bei Bedarf ber die Schlsselfunktion aus den Werten gelesen.
+ *
+ * Gesucht wird binr, erst ber die ersten Werte der Blcke, dann im Block. Einfgen und Entfernen verschieben nur
+ * die Werte eines Blocks. Ein voller Block wird geteilt, ein leerer entfernt, das verschiebt die Blockliste.
+ *
+ * Alle Methoden sind synchronisiert.
+ *
+ * @author aschwegmann
+ * @version 1.0
+ *
+ * @param <T>
+ * 			Typ der Werte
+ */
+class Seitenindex<T> {
+
+	private final static int BLOCK = 512;
+
+	private final Function<? super T, String> schluessel;
+	private Object[][] bloecke = new Object[][] { new Object[BLOCK] };
+	private int[] fuellung = new int[1];
+	private int anzahlBloecke = 1;
+	private int anzahl;
+
+	/**
+	 * Erzeugt einen leeren Index
+	 * @param schluessel
+	 * 			liefert den Schlssel eines Wertes, der sich nicht ndern darf, solange der Wert im Index steht
+	 */
+	Seitenindex(Function<? super T, String> schluessel) {
+		this.schluessel = schluessel;
+	}
+
+	@SuppressWarnings("unchecked")
+	private String schluessel(Object[] block, int i) {
+		return schluessel.apply((T) block[i]);
+	}
+
+	/*
+	 * Der Block, in den der Schlssel gehrt: der letzte, dessen erster Wert nicht grer ist, sonst der erste
+	 */
+	private int blockSuchen(String key) {
+		int von = 1;
+		int bis = anzahlBloecke - 1;
+		while (von <= bis) {
+			int mitte = (von + bis) >>> 1;
+			if (schluessel(bloecke[mitte], 0).compareTo(key) <= 0) {
+				von = mitte + 1;
+			} else {
+				bis = mitte - 1;
+			}
+		}
+		return von - 1;
+	}
+
+	/*
+	 * Stelle des Schlssels im Block, oder -(Einfgestelle + 1) wie Arrays.binarySearch
+	 */
+	private int stelleSuchen(int b, String key) {
+		Object[] block = bloecke[b];
+		int von = 0;
+		int bis = fuellung[b] - 1;
+		while (von <= bis) {
+			int mitte = (von + bis) >>> 1;
+			int vergleich = schluessel(block, mitte).compareTo(key);
+			if (vergleich < 0) {
+				von = mitte + 1;
+			} else if (vergleich > 0) {
+				bis = mitte - 1;
+			} else {
+				return mitte;
+			}
+		}
+		return -(von + 1);
+	}
+
+	/**
+	 * Fgt einen Wert ein
+	 * @param wert
+	 * 			der Wert
+	 * @return
+	 * 			false, wenn es bereits einen Wert mit diesem Schlssel gibt
+	 */
+	synchronized boolean einfuegen(T wert) {
+		String key = schluessel.apply(wert);
+		int b = blockSuchen(key);
+		int i = stelleSuchen(b, key);
+		if (i >= 0) {
+			return false;
+		}
+		i = -i - 1;
+		if (fuellung[b] == BLOCK) {
+			teilen(b);
+			if (i > BLOCK / 2) {
+				i -= BLOCK / 2;
+				b++;
+			}
+		}
+		Object[] block = bloecke[b];
+		System.arraycopy(block, i, block, i + 1, fuellung[b] - i);
+		block[i] = wert;
+		fuellung[b]++;
+		anzahl++;
+		return true;
+	}
+
+	/*
+	 * Teilt einen vollen Block in zwei halb volle
+	 */
+	private void teilen(int b) {
+		if (anzahlBloecke == bloecke.length) {
+			Object[][] neu = new Object[anzahlBloecke * 2][];
+			System.arraycopy(bloecke, 0, neu, 0, anzahlBloecke);
+			bloecke = neu;
+			int[] neueFuellung = new int[anzahlBloecke * 2];
+			System.arraycopy(fuellung, 0, neueFuellung, 0, anzahlBloecke);
+			fuellung = neueFuellung;
+		}
+		System.arraycopy(bloecke, b + 1, bloecke, b + 2, anzahlBloecke - b - 1);
+		System.arraycopy(fuellung, b + 1, fuellung, b + 2, anzahlBloecke - b - 1);
+		anzahlBloecke++;
+
+		Object[] hinten = new Object[BLOCK];
+		System.arraycopy(bloecke[b], BLOCK / 2, hinten, 0, BLOCK / 2);
+		Arrays.fill(bloecke[b], BLOCK / 2, BLOCK, null);
+		bloecke[b + 1] = hinten;
+		fuellung[b] = BLOCK / 2;
+		fuellung[b + 1] = BLOCK / 2;
+	}
+
+	/**
+	 * Entfernt den Wert mit dem Schlssel des bergebenen Wertes
+	 * @param wert
+	 * 			der Wert
+	 * @return
+	 * 			true, wenn ein Wert entfernt wurde
+	 */
+	synchronized boolean entfernen(T wert) {
+		String key = schluessel.apply(wert);
+		int b = blockSuchen(key);
+		int i = stelleSuchen(b, key);
+		if (i < 0) {
+			return false;
+		}
+		Object[] block = bloecke[b];
+		System.arraycopy(block, i + 1, block, i, fuellung[b] - i - 1);
+		block[--fuellung[b]] = null;
+		anzahl--;
+		if (fuellung[b] == 0 && anzahlBloecke > 1) {
+			System.arraycopy(bloecke, b + 1, bloecke, b, anzahlBloecke - b - 1);
+			System.arraycopy(fuellung, b + 1, fuellung, b, anzahlBloecke - b - 1);
+			anzahlBloecke--;
+			bloecke[anzahlBloecke] = null;
+		}
+		return true;
+	}
+
+	/**
+	 * Gibt die Werte nach einem Schlssel in aufsteigender Reihenfolge zurck
+	 * @param nach
+	 * 			die Liste beginnt mit dem ersten Wert, dessen Schlssel grer ist, null fr den Anfang
+	 * @param hoechstens
+	 * 			hchstens so viele Werte
+	 * @return
+	 * 			die Werte, aufsteigend nach Schlssel
+	 */
+	@SuppressWarnings("unchecked")
+	synchronized List<T> nach(String nach, int hoechstens) {
+		List<T> seite = new ArrayList<T>(Math.max(0, Math.min(hoechstens, Math.min(anzahl, 1024))));
+		int b = 0;
+		int i = 0;
+		if (nach != null) {
+			b = blockSuchen(nach);
+			i = stelleSuchen(b, nach);
+			i = (i >= 0) ? i + 1 : -i - 1;
+		}
+		for (; b < anzahlBloecke && seite.size() < hoechstens; b++, i = 0) {
+			for (; i < fuellung[b] && seite.size() < hoechstens; i++) {
+				seite.add((T) bloecke[b][i]);
+			}
+		}
+		return seite;
+	}
+
+	/**
+	 * Gibt die Anzahl der Werte zurck
+	 * @return
+	 * 			Anzahl der Werte
+	 */
+	synchronized int size() {
+		return anzahl;
+	}
+}
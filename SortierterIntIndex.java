@@ -0,0 +1,160 @@
+package kontoverwaltung;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ *
+ * Ein nach int-Schlsseln sortierter Index, der jedem Schlssel eine Menge von Werten zuordnet.
+ * Die Schlssel liegen als primitives, sortiertes int-Array vor (kein Boxing, keine Knotenobjekte pro Schlssel),
+ * gesucht wird binr. Dadurch sind neben exakten Abfragen auch Bereichsabfragen mglich, z.B. alle
+ * Postleitzahlen von 50000 bis 50999.
+ *
+ * Einfgen eines neuen Schlssels verschiebt die dahinterliegenden Schlssel und ist daher O(Anzahl Schlssel).
+ * Das ist fr Postleitzahlen oder Datumswerte unkritisch, da neue Schlssel im Verhltnis zu neuen Werten selten sind.
+ *
+ * Alle Methoden sind synchronisiert.
+ *
+ * @author aschwegmann
+ * @version 1.0
+ *
+ * @param <T>
+ * 			Typ der indizierten Werte
+ */
+class SortierterIntIndex<T> {
+
+	private int[] schluessel = new int[16];
+	private Object[] werte = new Object[16]; // Set<T> pro Schlssel
+	private int anzahlSchluessel;
+	private int anzahlWerte;
+
+	/**
+	 * Fgt einen Wert unter dem bergebenen Schlssel ein
+	 * @param key
+	 * 			der Schlssel
+	 * @param wert
+	 * 			der Wert
+	 * @return
+	 * 			true, wenn der Wert unter diesem Schlssel noch nicht vorhanden war
+	 */
+	synchronized boolean add(int key, T wert) {
+		int pos = Arrays.binarySearch(schluessel, 0, anzahlSchluessel, key);
+		if (pos < 0) {
+			pos = -pos - 1;
+			if (anzahlSchluessel == schluessel.length) {
+				schluessel = Arrays.copyOf(schluessel, anzahlSchluessel * 2);
+				werte = Arrays.copyOf(werte, anzahlSchluessel * 2);
+			}
+			System.arraycopy(schluessel, pos, schluessel, pos + 1, anzahlSchluessel - pos);
+			System.arraycopy(werte, pos, werte, pos + 1, anzahlSchluessel - pos);
+			schluessel[pos] = key;
+			werte[pos] = new HashSet<T>(4);
+			anzahlSchluessel++;
+		}
+		if (menge(pos).add(wert)) {
+			anzahlWerte++;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Entfernt einen Wert unter dem bergebenen Schlssel. Leere Schlssel werden entfernt.
+	 * @param key
+	 * 			der Schlssel
+	 * @param wert
+	 * 			der Wert
+	 * @return
+	 * 			true, wenn der Wert vorhanden war
+	 */
+	synchronized boolean remove(int key, T wert) {
+		int pos = Arrays.binarySearch(schluessel, 0, anzahlSchluessel, key);
+		if (pos < 0 || !menge(pos).remove(wert)) {
+			return false;
+		}
+		anzahlWerte--;
+		if (menge(pos).isEmpty()) {
+			System.arraycopy(schluessel, pos + 1, schluessel, pos, anzahlSchluessel - pos - 1);
+			System.arraycopy(werte, pos + 1, werte, pos, anzahlSchluessel - pos - 1);
+			anzahlSchluessel--;
+			werte[anzahlSchluessel] = null;
+		}
+		return true;
+	}
+
+	/**
+	 * Gibt alle Werte zurck, deren Schlssel im Bereich von bis einschliesslich bis liegen,
+	 * aufsteigend nach Schlssel sortiert
+	 * @param von
+	 * 			kleinster Schlssel (einschliesslich)
+	 * @param bis
+	 * 			grter Schlssel (einschliesslich)
+	 * @return
+	 * 			Liste der Werte (Kopie)
+	 */
+	synchronized List<T> bereich(int von, int bis) {
+		if (von > bis) {
+			return Collections.emptyList();
+		}
+		int start = untereGrenze(von);
+		List<T> ergebnis = new ArrayList<T>();
+		for (int i = start; i < anzahlSchluessel && schluessel[i] <= bis; i++) {
+			ergebnis.addAll(menge(i));
+		}
+		return ergebnis;
+	}
+
+	/**
+	 * Gibt alle Werte zu genau einem Schlssel zurck
+	 * @param key
+	 * 			der Schlssel
+	 * @return
+	 * 			Liste der Werte (Kopie)
+	 */
+	List<T> get(int key) {
+		return bereich(key, key);
+	}
+
+	/**
+	 * Zhlt die Werte im Bereich von bis einschliesslich bis, ohne sie zu kopieren
+	 * @param von
+	 * 			kleinster Schlssel (einschliesslich)
+	 * @param bis
+	 * 			grter Schlssel (einschliesslich)
+	 * @return
+	 * 			Anzahl der Werte
+	 */
+	synchronized int anzahl(int von, int bis) {
+		int summe = 0;
+		for (int i = untereGrenze(von); i < anzahlSchluessel && schluessel[i] <= bis; i++) {
+			summe += menge(i).size();
+		}
+		return summe;
+	}
+
+	/**
+	 * Gibt die Anzahl aller Werte in diesem Index zurck
+	 * @return
+	 * 			Anzahl der Werte
+	 */
+	synchronized int size() {
+		return anzahlWerte;
+	}
+
+	/*
+	 * Position des ersten Schlssels, der grer oder gleich key ist
+	 */
+	private int untereGrenze(int key) {
+		int pos = Arrays.binarySearch(schluessel, 0, anzahlSchluessel, key);
+		return (pos < 0) ? -pos - 1 : pos;
+	}
+
+	@SuppressWarnings("unchecked")
+	private Set<T> menge(int pos) {
+		return (Set<T>) werte[pos];
+	}
+}
@@ -0,0 +1,520 @@
+package kontoverwaltung;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+
+/**
+ *
+ * Misst den Speicherbedarf des Datenmodells an einer erzeugten Bank (siehe Testdaten) und schtzt daraus, wie
+ * viele Kunden in einen Heap gegebener Gre passen.
+ *
+ * Der Bedarf der Bank insgesamt und der einzelnen Indizes wird als Differenz des belegten Heaps nach einer
+ * Garbage Collection gemessen. Jeder Index wird dazu noch einmal aus denselben Kunden aufgebaut, wie es die Bank
+ * beim Anmelden eines Kunden tut. Die Kunden, Konten, Adressen und Ansprechpartner selbst werden ber ihre Felder
+ * ausgezhlt (Objektkopf, Felder, Strings und Arrays, auf 8 Byte ausgerichtet wie bei HotSpot). Jedes Objekt wird
+ * nur einmal gezhlt, geteilte Adressen und Ansprechpartner also nur beim ersten Kunden.
+ *
+ * Zum Vergleich werden die Strukturen gemessen, die der Kundenbestand und der Seitenindex ersetzen (HashSet der
+ * Kunden, HashMap nach Kundennummer, ConcurrentSkipListMap fr die Seiten). Fr Kundenbestand und HashMap wird
+ * auerdem die mittlere Dauer einer Suche nach Kundennummer gemessen. Gesucht wird in zuflliger Reihenfolge mit
+ * jeweils neu erzeugten Strings, wie sie aus einer Eingabe kommen, deren Hashwert also noch nicht berechnet ist.
+ *
+ * Aufruf: java kontoverwaltung.UserInterface --speicherprofil [--kunden=N] [--privatanteil=P] [--konten=MIN-MAX]
+ * [--xmx=GROESSE] [--startwert=S]
+ *
+ * @author aschwegmann
+ * @version 1.0
+ *
+ * @see Testdaten
+ */
+class Speicherprofil {
+
+	/**
+	 * Anteil des Heaps, der fr die Garbage Collection und kurzlebige Objekte (Speichern, Export, Abfragen)
+	 * frei bleiben soll
+	 */
+	final static double RESERVE = 0.3;
+
+	private final static int MINDESTSAMMLUNGEN = 5;
+
+	/**
+	 * Die ausgezhlten Objektarten des Datenmodells
+	 */
+	enum Art {
+		KUNDE("Kunde"), KONTO("Konto"), ADRESSE("Adresse"), ANSPRECHPARTNER("Ansprechpartner");
+
+		private final String bezeichnung;
+
+		Art(String bezeichnung) {
+			this.bezeichnung = bezeichnung;
+		}
+	}
+
+	private final int kopf;			// Objektkopf
+	private final int arrayKopf;	// Objektkopf und Lnge eines Arrays
+	private final int referenz;		// Gre einer Referenz
+	private final Set<Object> gezaehlt = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+	private final Map<Class<?>, Long> flacheGroessen = new IdentityHashMap<Class<?>, Long>();
+
+	private final long[] anzahl = new long[Art.values().length];
+	private final long[] bytes = new long[Art.values().length];
+	private final Map<String, Long> indizes = new LinkedHashMap<String, Long>();
+	private final Map<String, Long> vergleiche = new LinkedHashMap<String, Long>();	// nicht in der Summe
+	private final Map<String, Double> suchzeiten = new LinkedHashMap<String, Double>();	// ns pro Suche
+	private int kunden;
+	private int konten;
+	private long grundlast;
+	private long gesamt;
+	private Object gemessen;	// der gerade gemessene Index, nur whrend der Messung gesetzt
+
+	/**
+	 * Erzeugt ein leeres Speicherprofil fr die laufende JVM
+	 */
+	Speicherprofil() {
+		boolean komprimierteReferenzen = vmOption("UseCompressedOops", Runtime.getRuntime().maxMemory() < (32L << 30));
+		boolean komprimierteKlassen = vmOption("UseCompressedClassPointers", komprimierteReferenzen);
+		this.referenz = komprimierteReferenzen ? 4 : 8;
+		this.kopf = komprimierteKlassen ? 12 : 16;
+		this.arrayKopf = komprimierteKlassen ? 16 : 24;
+	}
+
+	private static boolean vmOption(String name, boolean standard) {
+		try {
+			HotSpotDiagnosticMXBean hotspot = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+			return Boolean.parseBoolean(hotspot.getVMOption(name).getValue());
+		} catch (RuntimeException e) { // keine HotSpot-JVM oder Option unbekannt
+			return standard;
+		}
+	}
+
+	/**
+	 * Erzeugt eine Bank mit den bergebenen Eigenschaften und misst ihren Speicherbedarf
+	 * @param anzahlKunden
+	 * 			Anzahl der Kunden
+	 * @param privatanteil
+	 * 			Anteil der Privatkunden in Prozent
+	 * @param minKonten
+	 * 			Mindestzahl der Konten pro Kunde
+	 * @param maxKonten
+	 * 			Hchstzahl der Konten pro Kunde
+	 * @param startwert
+	 * 			Startwert fr die Testdaten
+	 * @throws IllegalArgumentException
+	 * 			falls die Eigenschaften nicht zulssig sind, siehe Testdaten
+	 */
+	void messen(int anzahlKunden, int privatanteil, int minKonten, int maxKonten, long startwert) {
+		grundlast = belegt();
+		Bank bank = Testdaten.erzeugen(anzahlKunden, privatanteil, minKonten, maxKonten, startwert);
+		gesamt = belegt() - grundlast;
+
+		Set<Kunde> alle = bank.getKundenNurLesen();
+		for (Kunde kunde : alle) {
+			kunden++;
+			zaehlen(kunde, Art.KUNDE);
+			for (Konto konto : kunde.getKontenArray()) {
+				konten++;
+				zaehlen(konto, Art.KONTO);
+			}
+			zaehlen(kunde.getAdresse(), Art.ADRESSE);
+			if (kunde instanceof Firmenkunde) {
+				zaehlen(((Firmenkunde) kunde).getAnsprechpartner(), Art.ANSPRECHPARTNER);
+			}
+		}
+		gezaehlt.clear();
+
+		indexMessen("Kundenbestand", () -> new Kundenbestand(alle));
+		indexMessen("Verzeichnis", () -> anmelden(new Verzeichnis(), alle));
+		indexMessen("Saldenspiegel", () -> anmelden(new Saldenspiegel(), alle));
+		indexMessen("Rangliste", () -> anmelden(new Rangliste(), alle));
+		indexMessen("AdressIndex", () -> anmelden(new AdressIndex(), alle));
+		indexMessen("GeburtstagsIndex", () -> anmelden(new GeburtstagsIndex(), alle));
+		indexMessen("Volltextindex", () -> anmelden(new Volltextindex(), alle));
+		indexMessen("Namensindex", () -> anmelden(new Namensindex(), alle));
+		indexMessen("Bankabbild", () -> anmelden(new Abbildpflege(), alle));
+		List<Adresse> ungeteilt = new ArrayList<Adresse>(alle.size());	// die Adressen der Bank gehren schon ihrem Pool
+		for (Kunde kunde : alle) {
+			Adresse adresse = kunde.getAdresse();
+			ungeteilt.add(new Adresse(adresse.getAdresszeile1(), adresse.getAdresszeile2(), adresse.getPlz(), adresse.getOrt()));
+		}
+		indexMessen("AdressPool", () -> {
+			AdressPool pool = new AdressPool();
+			for (Adresse adresse : ungeteilt) {
+				pool.teilen(adresse);
+			}
+			return pool;
+		});
+
+		vergleiche.put("Kundenbestand", indizes.get("Kundenbestand"));
+		messen(vergleiche, "HashSet<Kunde>", () -> new HashSet<Kunde>(alle));
+		messen(vergleiche, "HashMap nach Kundennummer", () -> nachKundennummer(new HashMap<String, Kunde>(), alle));
+		messen(vergleiche, "ConcurrentSkipListMap", () -> nachKundennummer(new ConcurrentSkipListMap<String, Kunde>(), alle));
+		messen(vergleiche, "Seitenindex", () -> {
+			Seitenindex<Kunde> seiten = new Seitenindex<Kunde>(Kunde::getKundennummer);
+			for (Kunde kunde : alle) {
+				seiten.einfuegen(kunde);
+			}
+			return seiten;
+		});
+
+		List<String> nummern = new ArrayList<String>(alle.size());
+		for (Kunde kunde : alle) {
+			nummern.add(kunde.getKundennummer());
+		}
+		Collections.shuffle(nummern, new Random(startwert));
+		StringBuilder eingaben = new StringBuilder();	// alle Nummern hintereinander, wie frisch gelesene Eingaben
+		int[] enden = new int[nummern.size()];
+		for (int i = 0; i < enden.length; i++) {
+			enden[i] = eingaben.append(nummern.get(i)).length();
+		}
+		nummern = null;
+		Kundenbestand bestand = new Kundenbestand(alle);
+		suchzeiten.put("Kundenbestand", suchzeit(bestand::get, eingaben, enden));
+		bestand = null;
+		Map<String, Kunde> karte = nachKundennummer(new HashMap<String, Kunde>(), alle);
+		suchzeiten.put("HashMap nach Kundennummer", suchzeit(karte::get, eingaben, enden));
+		Reference.reachabilityFence(bank);
+	}
+
+	private static Map<String, Kunde> nachKundennummer(Map<String, Kunde> karte, Set<Kunde> kunden) {
+		for (Kunde kunde : kunden) {
+			karte.put(kunde.getKundennummer(), kunde);
+		}
+		return karte;
+	}
+
+	/*
+	 * Mittlere Dauer einer Suche in ns, gemessen in der letzten von drei Runden (die ersten wrmen auf). Jede
+	 * Kundennummer wird als neuer String aus dem fortlaufenden Text der Eingaben geschnitten, so dass nur die Suche
+	 * selbst auf verstreute Objekte zugreift.
+	 */
+	private static double suchzeit(Function<String, Kunde> suche, CharSequence eingaben, int[] enden) {
+		long dauer = 0;
+		int gefunden = 0;
+		for (int runde = 0; runde < 3; runde++) {
+			long start = System.nanoTime();
+			int anfang = 0;
+			for (int ende : enden) {
+				if (suche.apply(eingaben.subSequence(anfang, ende).toString()) != null) {
+					gefunden++;
+				}
+				anfang = ende;
+			}
+			dauer = System.nanoTime() - start;
+		}
+		if (gefunden != 3 * enden.length) {
+			throw new IllegalStateException("Suche unvollstndig");
+		}
+		return (enden.length == 0) ? 0 : (double) dauer / enden.length;
+	}
+
+	/*
+	 * Meldet alle Kunden und Konten bei dem Beobachter an, wie es die Bank beim Anlegen tut
+	 */
+	private static BankBeobachter anmelden(BankBeobachter index, Set<Kunde> kunden) {
+		for (Kunde kunde : kunden) {
+			index.kundeAngelegt(kunde);
+			for (Konto konto : kunde.getKontenArray()) {
+				index.kontoAngelegt(kunde, konto);
+			}
+		}
+		return index;
+	}
+
+	private void indexMessen(String name, Supplier<Object> aufbau) {
+		messen(indizes, name, aufbau);
+	}
+
+	private void messen(Map<String, Long> zeilen, String name, Supplier<Object> aufbau) {
+		long vorher = belegt();
+		gemessen = aufbau.get();
+		long nachher = belegt();
+		gemessen = null;
+		zeilen.put(name, nachher - vorher);
+	}
+
+	/*
+	 * Belegter Heap nach einer vollstndigen Garbage Collection. Eine vollstndige Sammlung verschiebt nicht jedes
+	 * Mal alle Objekte, sondern lsst kleine Lcken aus toten Objekten stehen, die weiter als belegt zhlen. Erst
+	 * jede MarkSweepAlwaysCompactCount-te Sammlung (Standard 4) rumt vollstndig auf. Daher wird mindestens so
+	 * oft gesammelt und danach, bis sich der Wert kaum noch ndert.
+	 */
+	private static long belegt() {
+		long vorher = Long.MAX_VALUE;
+		long jetzt = 0;
+		for (int i = 0; i < MINDESTSAMMLUNGEN + 5; i++) {
+			jetzt = sammeln();
+			if (i >= MINDESTSAMMLUNGEN && Math.abs(vorher - jetzt) < (64 << 10)) {
+				break;
+			}
+			vorher = jetzt;
+		}
+		return jetzt;
+	}
+
+	private static long sammeln() {
+		System.gc();
+		try {
+			Thread.sleep(20);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+	}
+
+	/*
+	 * Zhlt ein Objekt des Datenmodells mit allem, was nur zu ihm gehrt
+	 */
+	private void zaehlen(Object objekt, Art art) {
+		if (objekt == null || !gezaehlt.add(objekt)) {
+			return;
+		}
+		anzahl[art.ordinal()]++;
+		bytes[art.ordinal()] += flach(objekt.getClass()) + felder(objekt);
+	}
+
+	/*
+	 * Gre der Objekte, auf die die Felder verweisen. Andere Objekte des Datenmodells und die Beobachter werden
+	 * nicht mitgezhlt, sie haben ihre eigene Zeile im Bericht.
+	 */
+	private long felder(Object objekt) {
+		long summe = 0;
+		for (Class<?> k = objekt.getClass(); k != null; k = k.getSuperclass()) {
+			for (Field feld : k.getDeclaredFields()) {
+				if (Modifier.isStatic(feld.getModifiers()) || feld.getType().isPrimitive()) {
+					continue;
+				}
+				try {
+					feld.setAccessible(true);
+					summe += tief(feld.get(objekt));
+				} catch (ReflectiveOperationException | RuntimeException e) { // Feld einer Klasse des JDK, nicht lesbar
+				}
+			}
+		}
+		return summe;
+	}
+
+	private long tief(Object objekt) {
+		if (objekt == null || objekt instanceof Kunde || objekt instanceof Konto || objekt instanceof Adresse
+				|| objekt instanceof Ansprechpartner || objekt instanceof BankBeobachter || objekt instanceof Abbildstaende
+				|| !gezaehlt.add(objekt)) {
+			return 0;
+		}
+		Class<?> klasse = objekt.getClass();
+		if (klasse == String.class) {
+			String text = (String) objekt;
+			int breite = 1;	// kompakte Strings: ein Byte pro Zeichen, solange alle Zeichen in Latin-1 liegen
+			for (int i = 0; i < text.length() && breite == 1; i++) {
+				if (text.charAt(i) > 0xFF) {
+					breite = 2;
+				}
+			}
+			return flach(klasse) + ausrichten(arrayKopf + (long) breite * text.length());
+		}
+		if (klasse.isArray()) {
+			int laenge = Array.getLength(objekt);
+			Class<?> element = klasse.getComponentType();
+			long summe = ausrichten(arrayKopf + (long) laenge * groesse(element));
+			if (!element.isPrimitive()) {
+				for (int i = 0; i < laenge; i++) {
+					summe += tief(Array.get(objekt, i));
+				}
+			}
+			return summe;
+		}
+		return flach(klasse) + felder(objekt);
+	}
+
+	/*
+	 * Gre eines Objekts ohne die Objekte, auf die es verweist
+	 */
+	private long flach(Class<?> klasse) {
+		Long bekannt = flacheGroessen.get(klasse);
+		if (bekannt != null) {
+			return bekannt;
+		}
+		long summe = kopf;
+		for (Class<?> k = klasse; k != null; k = k.getSuperclass()) {
+			for (Field feld : k.getDeclaredFields()) {
+				if (!Modifier.isStatic(feld.getModifiers())) {
+					summe += groesse(feld.getType());
+				}
+			}
+		}
+		summe = ausrichten(summe);
+		flacheGroessen.put(klasse, summe);
+		return summe;
+	}
+
+	private int groesse(Class<?> typ) {
+		if (typ == long.class || typ == double.class) {
+			return 8;
+		} else if (typ == int.class || typ == float.class) {
+			return 4;
+		} else if (typ == short.class || typ == char.class) {
+			return 2;
+		} else if (typ == byte.class || typ == boolean.class) {
+			return 1;
+		}
+		return referenz;
+	}
+
+	private static long ausrichten(long groesse) {
+		return (groesse + 7) & ~7L;
+	}
+
+	/**
+	 * Gibt den gemessenen Bedarf der ganzen Bank pro Kunde zurck
+	 * @return
+	 * 			Bytes pro Kunde inkl. Konten, Adressen und Indizes
+	 */
+	double getBytesProKunde() {
+		return kunden == 0 ? 0 : (double) gesamt / kunden;
+	}
+
+	/**
+	 * Schtzt, wie viele Kunden mit der gemessenen Zusammensetzung in einen Heap der bergebenen Gre passen.
+	 * Vom Heap werden die Grundlast der JVM und die RESERVE abgezogen.
+	 * @param heap
+	 * 			maximale Heapgre in Bytes (-Xmx)
+	 * @return
+	 * 			geschtzte Anzahl der Kunden, 0 wenn der Heap nicht einmal fr die Grundlast reicht
+	 */
+	long kapazitaet(long heap) {
+		double nutzbar = heap * (1 - RESERVE) - grundlast;
+		if (nutzbar <= 0 || getBytesProKunde() <= 0) {
+			return 0;
+		}
+		return (long) (nutzbar / getBytesProKunde());
+	}
+
+	/**
+	 * Gibt den Bericht aus
+	 * @param aus
+	 * 			Ziel der Ausgabe
+	 * @param heap
+	 * 			Heapgre in Bytes, fr die die Kapazitt geschtzt wird
+	 */
+	void ausgeben(PrintStream aus, long heap) {
+		aus.printf("Speicherprofil fr %,d Kunden mit %,d Konten (Referenzen %d Byte, Objektkopf %d Byte)%n%n",
+				kunden, konten, referenz, kopf);
+		aus.printf("%-24s %12s %14s %10s %10s%n", "Objektart", "Anzahl", "Bytes", "pro Obj.", "pro Kunde");
+		long summe = 0;
+		for (Art art : Art.values()) {
+			int i = art.ordinal();
+			aus.printf("%-24s %,12d %,14d %10.1f %10.1f%n", art.bezeichnung, anzahl[i], bytes[i],
+					anzahl[i] == 0 ? 0.0 : (double) bytes[i] / anzahl[i], (double) bytes[i] / Math.max(1, kunden));
+			summe += bytes[i];
+		}
+		aus.println();
+		aus.printf("%-24s %12s %14s %10s %10s%n", "Index", "", "Bytes", "", "pro Kunde");
+		for (Map.Entry<String, Long> index : indizes.entrySet()) {
+			aus.printf("%-24s %12s %,14d %10s %10.1f%n", index.getKey(), "", index.getValue(), "",
+					(double) index.getValue() / Math.max(1, kunden));
+			summe += index.getValue();
+		}
+		aus.println();
+		aus.printf("%-24s %12s %,14d %10s %10.1f%n", "Summe der Zeilen", "", summe, "", (double) summe / Math.max(1, kunden));
+		aus.printf("%-24s %12s %,14d %10s %10.1f%n", "Bank gemessen", "", gesamt, "", getBytesProKunde());
+		aus.printf("%-24s %12s %,14d%n", "Grundlast der JVM", "", grundlast);
+		aus.println();
+		aus.printf("%-26s %10s %14s %10s %10s%n", "Zum Vergleich", "", "Bytes", "ns/Suche", "pro Kunde");
+		for (Map.Entry<String, Long> vergleich : vergleiche.entrySet()) {
+			Double suchzeit = suchzeiten.get(vergleich.getKey());
+			aus.printf("%-26s %10s %,14d %10s %10.1f%n", vergleich.getKey(), "", vergleich.getValue(),
+					suchzeit == null ? "" : String.format("%.0f", suchzeit), (double) vergleich.getValue() / Math.max(1, kunden));
+		}
+		aus.println();
+		aus.printf("Kapazitt bei -Xmx %,d MB und %d%% Reserve: ca. %,d Kunden%n", heap >> 20, (int) (RESERVE * 100),
+				kapazitaet(heap));
+	}
+
+	/**
+	 * Startet die Messung von der Kommandozeile, siehe Klassenbeschreibung
+	 * @param args
+	 * 			die Optionen, ein fhrendes --speicherprofil wird ignoriert
+	 */
+	static void main(String[] args) {
+		int anzahlKunden = 100000;
+		int privatanteil = 70;
+		int minKonten = 1;
+		int maxKonten = 3;
+		long startwert = 1;
+		long heap = Runtime.getRuntime().maxMemory();
+		try {
+			for (String arg : args) {
+				if (arg.equals("--speicherprofil")) {
+					continue;
+				} else if (arg.startsWith("--kunden=")) {
+					anzahlKunden = Integer.parseInt(wert(arg));
+				} else if (arg.startsWith("--privatanteil=")) {
+					privatanteil = Integer.parseInt(wert(arg));
+				} else if (arg.startsWith("--konten=")) {
+					String[] grenzen = wert(arg).split("-", 2);
+					minKonten = Integer.parseInt(grenzen[0]);
+					maxKonten = Integer.parseInt(grenzen[grenzen.length - 1]);
+				} else if (arg.startsWith("--xmx=")) {
+					heap = heapgroesse(wert(arg));
+				} else if (arg.startsWith("--startwert=")) {
+					startwert = Long.parseLong(wert(arg));
+				} else {
+					throw new IllegalArgumentException("Unbekannte Option: " + arg);
+				}
+			}
+			Speicherprofil profil = new Speicherprofil();
+			profil.messen(anzahlKunden, privatanteil, minKonten, maxKonten, startwert);
+			profil.ausgeben(System.out, heap);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println("Aufruf: --speicherprofil [--kunden=N] [--privatanteil=0-100] [--konten=MIN-MAX] [--xmx=8g] [--startwert=S]");
+			System.exit(2);
+		}
+	}
+
+	private static String wert(String arg) {
+		return arg.substring(arg.indexOf('=') + 1);
+	}
+
+	/*
+	 * Wandelt eine Heapgre wie bei -Xmx (z.B. 512m, 8g, 1073741824) in Bytes um
+	 */
+	static long heapgroesse(String text) {
+		String klein = text.trim().toLowerCase();
+		int faktor = 0;
+		switch (klein.isEmpty() ? ' ' : klein.charAt(klein.length() - 1)) {
+		case 'k':
+			faktor = 10;
+			break;
+		case 'm':
+			faktor = 20;
+			break;
+		case 'g':
+			faktor = 30;
+			break;
+		case 't':
+			faktor = 40;
+			break;
+		default:
+			return Long.parseLong(klein);
+		}
+		return Long.parseLong(klein.substring(0, klein.length() - 1)) << faktor;
+	}
+}
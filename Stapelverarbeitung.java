@@ -0,0 +1,347 @@
+package kontoverwaltung;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ *
+ * Fhrt die Menpunkte 01 bis 10 des UserInterface im Stapelbetrieb aus, d.h. ohne Rckfragen, Pausen und
+ * Verzgerungen. Jede Zeile der Eingabe ist ein Befehl, die Felder werden durch Semikolon getrennt und stehen in
+ * derselben Reihenfolge wie im Sammelarray des UserInterface. Leere Zeilen und Zeilen, die mit # beginnen, werden
+ * bersprungen.
+ *
+ * <pre>
+ * 01;kundennummer;vorname;nachname;adresszeile1;adresszeile2;plz;ort;telefonnummer;email;geburtstag(TT.MM.JJJJ)
+ * 02;kundennummer;firmenname;adresszeile1;adresszeile2;plz;ort;telefonnummer;email;apVorname;apNachname;apTelefonnummer
+ * 03;kundennummer;iban;startkapital
+ * 04;kundennummer
+ * 05;name
+ * 06;iban
+ * 07 / 08 / 09
+ * 10;1|2|3		(1 = speichern, 2 = speichern und beenden, 3 = beenden ohne speichern)
+ * </pre>
+ *
+ * Bei 01 und 02 kann die Kundennummer, bei 03 die IBAN leer bleiben, dann wird sie wie im Dialog neu vergeben.
+ * Die Eingaben werden mit denselben Mustern geprft wie im Dialog, eine Rckfrage bei bereits vorhandenem Namen
+ * gibt es nicht.
+ * Die Auflistungen 07 bis 09 geben nur die Anzahl aus, nicht die ganze Datenbank.
+ *
+ * Pro Befehl wird eine tabulatorgetrennte Zeile geschrieben: Zeilennummer, Befehl, OK oder FEHLER und ein Detail
+ * (z.B. die neue Kundennummer oder der Fehlergrund). Auch ein unerwarteter Fehler in einem Befehl ergibt nur eine
+ * FEHLER-Zeile, die brigen Befehle werden weiter ausgefhrt. Am Ende folgt eine Zusammenfassung mit # am Zeilenanfang,
+ * die auch die Anzahl der Befehle pro Sekunde enthlt. Ohne Befehl 10 wird die Bank nicht gespeichert.
+ *
+ * @author aschwegmann
+ * @version 1.0
+ *
+ * @see UserInterface
+ */
+class Stapelverarbeitung {
+
+	private final Bank bank;
+	private int ok;
+	private int fehler;
+	private boolean beendet;
+
+	/**
+	 * Erzeugt eine Stapelverarbeitung fr die bergebene Bank
+	 * @param bank
+	 * 			die Bank, auf der die Befehle ausgefhrt werden
+	 */
+	Stapelverarbeitung(Bank bank) {
+		this.bank = bank;
+	}
+
+	/**
+	 * Fhrt alle Befehle der Eingabe aus, bis sie zu Ende ist oder Befehl 10 mit 2 oder 3 die Verarbeitung beendet.
+	 * @param befehle
+	 * 			die Befehle, eine Zeile pro Befehl
+	 * @param ausgabe
+	 * 			Ziel fr die Ergebniszeilen
+	 * @throws IOException
+	 * 			falls beim Lesen oder Schreiben ein Fehler auftritt
+	 */
+	void ausfuehren(BufferedReader befehle, Writer ausgabe) throws IOException {
+
+		long start = System.nanoTime();
+		int zeilennummer = 0;
+		String zeile;
+
+		while (!beendet && (zeile = befehle.readLine()) != null) {
+			zeilennummer++;
+			zeile = zeile.trim();
+			if (zeile.isEmpty() || zeile.startsWith("#")) {
+				continue;
+			}
+
+			String[] felder = zeile.split(";", -1);
+			for (int i = 0; i < felder.length; i++) {
+				felder[i] = felder[i].trim();
+			}
+
+			String ergebnis;
+			boolean erfolg;
+			try {
+				ergebnis = befehl(felder);
+				erfolg = true;
+			} catch (IllegalArgumentException e) { // ungltige Eingaben, auch aus den Konstruktoren der Datenklassen
+				ergebnis = e.getMessage();
+				erfolg = false;
+			} catch (RuntimeException e) { // unerwarteter Fehler in einem Befehl, die brigen Zeilen laufen trotzdem
+				ergebnis = e.toString();
+				erfolg = false;
+			}
+
+			if (erfolg) {
+				ok++;
+			} else {
+				fehler++;
+			}
+			ausgabe.append(Integer.toString(zeilennummer)).append('\t').append(felder[0]).append('\t')
+					.append(erfolg ? "OK" : "FEHLER").append('\t').append(ohneTabs(ergebnis)).append('\n');
+		}
+
+		double sekunden = (System.nanoTime() - start) / 1e9;
+		int anzahl = ok + fehler;
+		ausgabe.append(String.format(Locale.ROOT, "# %d Befehle, %d OK, %d FEHLER in %.3f s (%.0f Befehle/s)%n",
+				anzahl, ok, fehler, sekunden, (sekunden > 0) ? anzahl / sekunden : 0.0));
+	}
+
+	/*
+	 * Fhrt einen einzelnen Befehl aus und gibt das Detail fr die Ergebniszeile zurck.
+	 * Fehler werden als IllegalArgumentException mit dem Fehlergrund gemeldet.
+	 */
+	private String befehl(String[] f) {
+
+		switch (f[0]) {
+		case "01":
+		case "1":
+			return privatkundeAnlegen(f);
+		case "02":
+		case "2":
+			return firmenkundeAnlegen(f);
+		case "03":
+		case "3":
+			return kontoAnlegen(f);
+		case "04":
+		case "4": {
+			felder(f, 2);
+			Kunde kunde = bank.findClientByKdnr(kundennummer(f[1]));
+			if (kunde == null) {
+				throw new IllegalArgumentException("Kein Kunde mit dieser Kundennummer in der Datenbank.");
+			}
+			return kunde.getName() + ", " + kunde.getKonten().size() + " Konten";
+		}
+		case "05":
+		case "5": {
+			felder(f, 2);
+			List<Kunde> treffer = bank.findClientsByName(f[1]);
+			if (treffer.isEmpty()) {
+				throw new IllegalArgumentException("Kein Kunde dieses Namens in der Datenbank.");
+			}
+			StringBuilder sb = new StringBuilder().append(treffer.size()).append(" Treffer:");
+			for (Kunde kunde : treffer) {
+				sb.append(' ').append(kunde.getKundennummer());
+			}
+			return sb.toString();
+		}
+		case "06":
+		case "6": {
+			felder(f, 2);
+			Konto konto = bank.findAccount(iban(f[1]));
+			if (konto == null) {
+				throw new IllegalArgumentException("Konto nicht gefunden.");
+			}
+			return konto.getInhaber().getKundennummer() + ", " + String.format(Locale.ROOT, "%.2f", konto.getKontostand());
+		}
+		case "07":
+		case "7":
+		case "08":
+		case "8":
+			return bank.getKundenZahl() + " Kunden";
+		case "09":
+		case "9":
+			return bank.getKontenZahl() + " Konten";
+		case "10":
+			return beenden(f);
+		default:
+			throw new IllegalArgumentException("Unbekannter Befehl.");
+		}
+	}
+
+	private String privatkundeAnlegen(String[] f) {
+
+		felder(f, 11);
+		if (!UserInterface.VALID_NAME.matcher(f[2] + " " + f[3]).find()) {
+			throw new IllegalArgumentException("Ungltiger Name: " + f[2] + " " + f[3]);
+		}
+		String kundennummer = neueKundennummer(f[1]);
+		String datum = UserInterface.createFormattedDate(f[10]);
+		if (datum == null) {
+			throw new IllegalArgumentException("Ungltiges Datum! \"" + f[10] + "\"");
+		}
+
+		if (!bank.addPrivateClient(kundennummer, f[2], f[3], strasse(f[4]), f[5], plz(f[6]), ort(f[7]),
+				telefonnummer(f[8]), email(f[9]), LocalDate.parse(datum, UserInterface.DATUMSFORMAT))) {
+			throw new IllegalArgumentException("Kundennummer " + kundennummer + " ist bereits vergeben.");
+		}
+		return kundennummer;
+	}
+
+	private String firmenkundeAnlegen(String[] f) {
+
+		felder(f, 12);
+		if (f[2].isEmpty()) {
+			throw new IllegalArgumentException("Ungltiger Name! " + f[2]);
+		}
+		if (!UserInterface.VALID_NAME.matcher(f[9] + " " + f[10]).find()) {
+			throw new IllegalArgumentException("Ungltiger Name: " + f[9] + " " + f[10]);
+		}
+		String kundennummer = neueKundennummer(f[1]);
+
+		if (!bank.addBusinessClient(kundennummer, f[2], strasse(f[3]), f[4], plz(f[5]), ort(f[6]), telefonnummer(f[7]),
+				email(f[8]), f[9], f[10], telefonnummer(f[11]))) {
+			throw new IllegalArgumentException("Kundennummer " + kundennummer + " ist bereits vergeben.");
+		}
+		return kundennummer;
+	}
+
+	private String kontoAnlegen(String[] f) {
+
+		felder(f, 4);
+		String kundennummer = kundennummer(f[1]);
+		String iban = f[2].isEmpty() ? bank.newIban() : iban(f[2]);
+		double startkapital;
+		try {
+			startkapital = Double.parseDouble(f[3].replace(',', '.'));
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Fehlerhafte Eingabe. Bitte ohne Whrungszeichen oder dergleichen eingeben");
+		}
+
+		switch (bank.openAccount(kundennummer, iban, startkapital)) {
+		case ERFOLG:
+			return iban;
+		case KUNDE_UNBEKANNT:
+			throw new IllegalArgumentException("Es existiert kein Kunde mit der Kundennummer " + kundennummer);
+		case IBAN_VERGEBEN:
+			throw new IllegalArgumentException("Das Konto mit der IBAN " + iban + " existiert bereits!");
+		case LIMIT_ERREICHT:
+			throw new IllegalArgumentException("Der Kunde hat bereits die maximale Kontenzahl erreicht. (10)");
+		default:
+			throw new IllegalArgumentException("Fehlerhaftes IBAN Format!");
+		}
+	}
+
+	private String beenden(String[] f) {
+
+		String auswahl = (f.length > 1 && !f[1].isEmpty()) ? f[1] : "1";
+		switch (auswahl) {
+		case "1":
+		case "2":
+			if (!UserInterface.speichereBank(bank)) {
+				throw new IllegalArgumentException("Speichern fehlgeschlagen.");
+			}
+			beendet = auswahl.equals("2");
+			return beendet ? "gespeichert, beendet" : "gespeichert";
+		case "3":
+			beendet = true;
+			return "beendet ohne Speichern";
+		default:
+			throw new IllegalArgumentException("Ungltige Eingabe: " + auswahl);
+		}
+	}
+
+	// Prfung der einzelnen Felder mit denselben Mustern wie im Dialog
+
+	private static void felder(String[] f, int anzahl) {
+		if (f.length != anzahl) {
+			throw new IllegalArgumentException("Erwartet " + (anzahl - 1) + " Felder, gefunden " + (f.length - 1));
+		}
+	}
+
+	private String neueKundennummer(String eingabe) {
+		if (eingabe.isEmpty()) {
+			return bank.newClientNumber(); // wie im Dialog
+		}
+		return kundennummer(eingabe);
+	}
+
+	private static String kundennummer(String eingabe) {
+		String kundennummer = eingabe.replace(" ", "");
+		if (!UserInterface.VALID_KNR.matcher(kundennummer).find()) {
+			throw new IllegalArgumentException("Ungltiges Format! Eine Kundennummer hat mindestens 9 Stellen.");
+		}
+		return kundennummer;
+	}
+
+	private static String iban(String eingabe) {
+		String iban = UserInterface.createFormattedIban(eingabe);
+		if (iban == null) {
+			throw new IllegalArgumentException("Fehlerhaftes IBAN Format!");
+		}
+		return iban;
+	}
+
+	private static String strasse(String eingabe) {
+		String strasseHausnummer = eingabe.replaceAll("\\s+", " ");
+		if (!strasseHausnummer.contains(" ") || !UserInterface.VALID_STR_HNR.matcher(strasseHausnummer).find()) {
+			throw new IllegalArgumentException("Ungltige Adresse! Schreibweise berprfen.");
+		}
+		return strasseHausnummer;
+	}
+
+	private static int plz(String eingabe) {
+		if (!UserInterface.VALID_PLZ.matcher(eingabe).find()) {
+			throw new IllegalArgumentException("Ungltige PLZ! Die PLZ muss in der Form 12345 vorliegen!");
+		}
+		return Integer.parseInt(eingabe);
+	}
+
+	private static String ort(String eingabe) {
+		if (eingabe.length() < 2) {
+			throw new IllegalArgumentException("Ungltige Eingabe! Wohnort nicht angegeben!");
+		}
+		return eingabe.replaceAll("\\s+", " ");
+	}
+
+	private static String telefonnummer(String eingabe) {
+		String telefonnummer = UserInterface.createFormattedPhoneNumber(eingabe);
+		if (telefonnummer == null) {
+			throw new IllegalArgumentException("Ungltige Telefonnummer! \"" + eingabe + "\"");
+		}
+		return telefonnummer;
+	}
+
+	private static String email(String eingabe) {
+		if (!UserInterface.VALID_EMAIL.matcher(eingabe).find()) {
+			throw new IllegalArgumentException("Ungltige E-Mail Adresse! \"" + eingabe + "\"");
+		}
+		return eingabe;
+	}
+
+	private static String ohneTabs(String text) {
+		return (text == null) ? "" : text.replace('\t', ' ').replace('\n', ' ');
+	}
+
+	/**
+	 * Gibt die Anzahl der erfolgreich ausgefhrten Befehle zurck
+	 * @return
+	 * 			Anzahl der Befehle mit Ergebnis OK
+	 */
+	int getOk() {
+		return ok;
+	}
+
+	/**
+	 * Gibt die Anzahl der fehlgeschlagenen Befehle zurck
+	 * @return
+	 * 			Anzahl der Befehle mit Ergebnis FEHLER
+	 */
+	int getFehler() {
+		return fehler;
+	}
+}
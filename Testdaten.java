@@ -0,0 +1,212 @@
+package kontoverwaltung;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ *
+ * Erzeugt eine Bank mit einer frei whlbaren Anzahl zuflliger, aber plausibler Kunden und Konten, z.B. um
+ * Speicherbedarf und Laufzeit mit groen Datenbestnden zu messen. Bei gleichem Startwert entsteht immer derselbe
+ * Datenbestand.
+ *
+ * Die Daten sind so verteilt wie in einem echten Kundenstamm: Die Kunden verteilen sich auf eine berschaubare
+ * Zahl von Orten, etwa ein Drittel der Privatkunden wohnt mit einem anderen Kunden zusammen (Familien), ein Viertel
+ * der Firmenkunden sitzt im selben Gebude wie eine andere Firma. Die Firmenkunden teilen sich ANSPRECHPARTNER
+ * verschiedene Ansprechpartner. Der Anteil der Privatkunden und die Zahl der Konten pro Kunde sind whlbar,
+ * ohne Angabe sind 70% der Kunden Privatkunden mit je ein bis drei Konten.
+ *
+ * Alle Texte werden wie bei einer Eingabe ber die Konsole fr jeden Kunden neu erzeugt, es werden also keine
+ * String-Konstanten geteilt.
+ *
+ * @author aschwegmann
+ * @version 1.0
+ *
+ * @see Bank
+ */
+class Testdaten {
+
+	private final static String[] ORTE = { "Berlin", "Hamburg", "Mnchen", "Kln", "Frankfurt am Main", "Stuttgart",
+			"Dsseldorf", "Leipzig", "Dortmund", "Essen", "Bremen", "Dresden", "Hannover", "Nrnberg", "Duisburg",
+			"Bochum", "Wuppertal", "Bielefeld", "Bonn", "Mnster", "Mannheim", "Karlsruhe", "Augsburg", "Wiesbaden",
+			"Mnchengladbach", "Gelsenkirchen", "Aachen", "Braunschweig", "Kiel", "Chemnitz", "Halle", "Magdeburg",
+			"Freiburg im Breisgau", "Krefeld", "Mainz", "Lbeck", "Erfurt", "Oberhausen", "Rostock", "Kassel",
+			"Osnabrck", "Oldenburg", "Paderborn", "Gtersloh", "Bocholt" };
+	private final static int[] PLZ = { 10115, 20095, 80331, 50667, 60311, 70173, 40213, 4109, 44135, 45127, 28195,
+			1067, 30159, 90402, 47051, 44787, 42103, 33602, 53111, 48143, 68159, 76133, 86150, 65183, 41061, 45879,
+			52062, 38100, 24103, 9111, 6108, 39104, 79098, 47798, 55116, 23552, 99084, 46045, 18055, 34117, 49074,
+			26122, 33098, 33330, 46395 };
+	private final static String[] STRASSEN = { "Hauptstrae", "Schulstrae", "Gartenstrae", "Bahnhofstrae",
+			"Dorfstrae", "Bergstrae", "Birkenweg", "Lindenstrae", "Kirchstrae", "Waldstrae", "Ringstrae",
+			"Schillerstrae", "Goethestrae", "Am Markt", "Wiesenweg", "Rosenstrae", "Industriestrae",
+			"Mhlenweg", "Friedhofstrae", "Parkstrae" };
+	private final static String[] VORNAMEN = { "Anna", "Maria", "Emma", "Sophie", "Laura", "Julia", "Lena", "Hanna",
+			"Klara", "Ute", "Peter", "Michael", "Thomas", "Andreas", "Stefan", "Jan", "Lukas", "Felix", "Jrgen",
+			"Karl" };
+	private final static String[] NACHNAMEN = { "Mller", "Schmidt", "Schneider", "Fischer", "Weber", "Meyer",
+			"Wagner", "Becker", "Schulz", "Hoffmann", "Schfer", "Koch", "Bauer", "Richter", "Klein", "Wolf",
+			"Schrder", "Neumann", "Schwarz", "Zimmermann", "Braun", "Krger", "Hofmann", "Hartmann", "Lange" };
+	private final static String[] BRANCHEN = { "Bckerei", "Metallbau", "Steuerberatung", "Elektro", "Autohaus",
+			"Gartenbau", "Software", "Druckerei", "Spedition", "Immobilien" };
+	private final static int ANSPRECHPARTNER = 500;
+	private final static String[] ZUSAETZE = { "", "", "", "", "Hinterhaus", "Erdgeschoss", "2. OG" };
+
+	private final Random zufall;
+	private final int privatanteil;
+	private final int minKonten;
+	private final int maxKonten;
+	private final List<Adresse> privatAdressen = new ArrayList<Adresse>();
+	private final List<Adresse> firmenAdressen = new ArrayList<Adresse>();
+	private int laufendeNummer;
+
+	private Testdaten(long startwert, int privatanteil, int minKonten, int maxKonten) {
+		if (privatanteil < 0 || privatanteil > 100) {
+			throw new IllegalArgumentException("Der Anteil der Privatkunden muss zwischen 0 und 100 liegen: " + privatanteil);
+		}
+		if (minKonten < 0 || maxKonten < minKonten || maxKonten > Kontenliste.MAX_KONTEN) {
+			throw new IllegalArgumentException("Ungltige Zahl von Konten pro Kunde: " + minKonten + "-" + maxKonten);
+		}
+		this.zufall = new Random(startwert);
+		this.privatanteil = privatanteil;
+		this.minKonten = minKonten;
+		this.maxKonten = maxKonten;
+	}
+
+	/**
+	 * Erzeugt eine neue Bank mit zuflligen Kunden und Konten, 70% Privatkunden und ein bis drei Konten pro Kunde
+	 * @param anzahlKunden
+	 * 			Anzahl der Kunden
+	 * @param startwert
+	 * 			Startwert des Zufallsgenerators
+	 * @return
+	 * 			die Bank
+	 */
+	static Bank erzeugen(int anzahlKunden, long startwert) {
+		return erzeugen(anzahlKunden, 70, 1, 3, startwert);
+	}
+
+	/**
+	 * Erzeugt eine neue Bank mit zuflligen Kunden und Konten
+	 * @param anzahlKunden
+	 * 			Anzahl der Kunden
+	 * @param privatanteil
+	 * 			Anteil der Privatkunden in Prozent, der Rest sind Firmenkunden
+	 * @param minKonten
+	 * 			Mindestzahl der Konten pro Kunde
+	 * @param maxKonten
+	 * 			Hchstzahl der Konten pro Kunde, hchstens Kontenliste.MAX_KONTEN
+	 * @param startwert
+	 * 			Startwert des Zufallsgenerators
+	 * @return
+	 * 			die Bank
+	 * @throws IllegalArgumentException
+	 * 			falls Anteil oder Kontenzahl auerhalb der erlaubten Grenzen liegen
+	 */
+	static Bank erzeugen(int anzahlKunden, int privatanteil, int minKonten, int maxKonten, long startwert) {
+		Testdaten testdaten = new Testdaten(startwert, privatanteil, minKonten, maxKonten);
+		Bank bank = new Bank("Testbank", "TESTDEFFXXX", UserInterface.STANDARD_BLZ,
+				new Adresse("Hauptstrae 1", "", 10115, "Berlin"));
+		testdaten.fuellen(bank, anzahlKunden);
+		return bank;
+	}
+
+	/**
+	 * Erzeugt einen Generator fr einzelne zufllige Kunden (70% Privatkunden), z.B. um whrend eines
+	 * Belastungstests Kunden anzulegen. Ein Generator ist nicht threadsicher, jeder Thread braucht einen eigenen.
+	 * @param startwert
+	 * 			Startwert des Zufallsgenerators
+	 * @return
+	 * 			der Generator
+	 * @see #kundeAnlegen(Bank, String)
+	 */
+	static Testdaten generator(long startwert) {
+		return new Testdaten(startwert, 70, 0, 0);
+	}
+
+	/**
+	 * Legt einen zuflligen Kunden ohne Konten an
+	 * @param bank
+	 * 			die Bank
+	 * @param kundennummer
+	 * 			die Kundennummer des neuen Kunden
+	 * @return
+	 * 			true, wenn der Kunde angelegt wurde, false wenn die Kundennummer bereits vergeben ist
+	 */
+	boolean kundeAnlegen(Bank bank, String kundennummer) {
+		if (zufall.nextInt(100) < privatanteil) {
+			return privatkunde(bank, kundennummer);
+		}
+		return firmenkunde(bank, kundennummer);
+	}
+
+	private void fuellen(Bank bank, int anzahlKunden) {
+		for (int i = 0; i < anzahlKunden; i++) {
+			String kundennummer = bank.newClientNumber();
+			kundeAnlegen(bank, kundennummer);
+			int konten = minKonten + zufall.nextInt(maxKonten - minKonten + 1);
+			for (int k = 0; k < konten; k++) {
+				bank.openAccount(kundennummer, bank.newIban(), zufall.nextInt(5000000) / 100.0);
+			}
+		}
+	}
+
+	private boolean privatkunde(Bank bank, String kundennummer) {
+		Adresse adresse = wohnung(privatAdressen, 3);
+		String vorname = neu(waehle(VORNAMEN));
+		String nachname = neu(waehle(NACHNAMEN));
+		LocalDate geburtstag = LocalDate.of(1940, 1, 1).plusDays(zufall.nextInt(365 * 65));
+		return bank.addPrivateClient(kundennummer, vorname, nachname, adresse.getAdresszeile1(), adresse.getAdresszeile2(),
+				adresse.getPlz(), adresse.getOrt(), telefonnummer(), email(vorname + "." + nachname), geburtstag);
+	}
+
+	private boolean firmenkunde(Bank bank, String kundennummer) {
+		Adresse adresse = wohnung(firmenAdressen, 4);
+		String firmenname = waehle(BRANCHEN) + " " + waehle(NACHNAMEN) + " GmbH";
+		int ap = zufall.nextInt(ANSPRECHPARTNER);
+		return bank.addBusinessClient(kundennummer, firmenname, adresse.getAdresszeile1(), adresse.getAdresszeile2(),
+				adresse.getPlz(), adresse.getOrt(), telefonnummer(), email("info." + kundennummer),
+				VORNAMEN[ap % VORNAMEN.length], NACHNAMEN[ap % NACHNAMEN.length], "0" + (2000 + ap) + " " + (1000 + ap));
+	}
+
+	/*
+	 * Gibt mit Wahrscheinlichkeit 1 / teiler die Adresse eines frheren Kunden zurck, sonst eine neue Adresse.
+	 * Die Texte werden in jedem Fall neu erzeugt.
+	 */
+	private Adresse wohnung(List<Adresse> bisher, int teiler) {
+		Adresse adresse;
+		if (!bisher.isEmpty() && zufall.nextInt(teiler) == 0) {
+			adresse = bisher.get(zufall.nextInt(bisher.size()));
+		} else {
+			int ort = zufall.nextInt(ORTE.length);
+			adresse = new Adresse(waehle(STRASSEN) + " " + (1 + zufall.nextInt(120)), waehle(ZUSAETZE),
+					PLZ[ort] + zufall.nextInt(10), ORTE[ort]);
+			if (bisher.size() < 100000) {
+				bisher.add(adresse);
+			} else {
+				bisher.set(zufall.nextInt(bisher.size()), adresse);
+			}
+		}
+		return new Adresse(neu(adresse.getAdresszeile1()), neu(adresse.getAdresszeile2()), adresse.getPlz(),
+				neu(adresse.getOrt()));
+	}
+
+	private String telefonnummer() {
+		return "0" + (2000 + zufall.nextInt(8000)) + " " + (100000 + zufall.nextInt(900000));
+	}
+
+	private String email(String lokalerTeil) {
+		return Normalisierer.normalisiere(lokalerTeil).replace(' ', '.') + (++laufendeNummer) + "@example.de";
+	}
+
+	private String waehle(String[] werte) {
+		return werte[zufall.nextInt(werte.length)];
+	}
+
+	/*
+	 * Kopiert einen Text, wie er bei einer Eingabe neu entstehen wrde
+	 */
+	private static String neu(String text) {
+		return new String(text.toCharArray());
+	}
+}
@@ -0,0 +1,83 @@
+package kontoverwaltung;
+
+/**
+ *
+ * Hilfsklasse fr den unscharfen Vergleich von Texten, z.B. fr die Dublettensuche.
+ * Die Texte sollten vorher mit dem Normalisierer vereinheitlicht werden.
+ *
+ * @author aschwegmann
+ * @version 1.0
+ *
+ * @see Normalisierer
+ */
+final class Textvergleich {
+
+	private Textvergleich() { // nur statische Methoden
+	}
+
+	/**
+	 * Berechnet die Levenshtein-Distanz (Anzahl der Einfgungen, Lschungen und Ersetzungen) zwischen zwei Texten.
+	 * Die Berechnung bricht ab, sobald feststeht, dass die Distanz grer als max ist. Dadurch sind Vergleiche
+	 * mit kleinem max deutlich schneller als eine vollstndige Berechnung.
+	 * @param a
+	 * 			erster Text
+	 * @param b
+	 * 			zweiter Text
+	 * @param max
+	 * 			grte Distanz, die noch genau berechnet werden soll
+	 * @return
+	 * 			die Distanz, oder max + 1, falls die Distanz grer als max ist
+	 */
+	static int levenshtein(CharSequence a, CharSequence b, int max) {
+		int n = a.length();
+		int m = b.length();
+		if (Math.abs(n - m) > max) {
+			return max + 1;
+		}
+		if (n > m) { // die krzere Zeile wird als Spalte verwendet
+			CharSequence t = a; a = b; b = t;
+			n = a.length(); m = b.length();
+		}
+		int[] vorher = new int[n + 1];
+		int[] aktuell = new int[n + 1];
+		for (int i = 0; i <= n; i++) {
+			vorher[i] = i;
+		}
+		for (int j = 1; j <= m; j++) {
+			aktuell[0] = j;
+			int zeilenMin = j;
+			char cb = b.charAt(j - 1);
+			for (int i = 1; i <= n; i++) {
+				int kosten = (a.charAt(i - 1) == cb) ? 0 : 1;
+				int wert = Math.min(Math.min(aktuell[i - 1] + 1, vorher[i] + 1), vorher[i - 1] + kosten);
+				aktuell[i] = wert;
+				if (wert < zeilenMin) {
+					zeilenMin = wert;
+				}
+			}
+			if (zeilenMin > max) {
+				return max + 1;
+			}
+			int[] t = vorher; vorher = aktuell; aktuell = t;
+		}
+		return Math.min(vorher[n], max + 1);
+	}
+
+	/**
+	 * Berechnet die hnlichkeit zweier Texte als Wert zwischen 0 (vllig verschieden) und 1 (gleich),
+	 * basierend auf der Levenshtein-Distanz im Verhltnis zur Lnge des lngeren Textes.
+	 * @param a
+	 * 			erster Text
+	 * @param b
+	 * 			zweiter Text
+	 * @return
+	 * 			hnlichkeit zwischen 0 und 1
+	 */
+	static double aehnlichkeit(CharSequence a, CharSequence b) {
+		int laenge = Math.max(a.length(), b.length());
+		if (laenge == 0) {
+			return 1;
+		}
+		return 1.0 - (double) levenshtein(a, b, laenge) / laenge;
+	}
+}
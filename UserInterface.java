@@ -1,16 +1,32 @@
 
 package kontoverwaltung;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.EOFException;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.util.GregorianCalendar;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.ResolverStyle;
 import java.util.InputMismatchException;
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -51,12 +67,18 @@ public abstract class UserInterface {
 	final static Pattern VALID_STR_HNR = Pattern.compile("^([\\p{Alpha}]\\.?{2,}(\\s|\\-)?)+\\d+[\\p{Alpha}]?$");
 	final static Pattern VALID_KNR = Pattern.compile("^\\d{9,}$");
 	final static Pattern VALID_PLZ = Pattern.compile("^\\d{5}$");
+	final static String DATENBANK = "clientDatabase.dat";
+	final static String NUMMERNVERGABE = "nummernvergabe.dat";
+	final static String STANDARD_BLZ = "55550120";	// fr Datenbanken, die noch ohne Bankleitzahl gespeichert wurden
+	final static DateTimeFormatter DATUMSFORMAT = DateTimeFormatter.ofPattern("dd.MM.uuuu").withResolverStyle(ResolverStyle.STRICT);
 	
 	/**
 	 *  Das "bank"-Objekt, dass smtliche Daten speichert
 	 */
 	static Bank bank = null;
 
+	private final static AsynchronePersistenz persistenz = new AsynchronePersistenz();	// schreibt im Hintergrund
+
 	
 	
 	public static void main(String[] args) {
@@ -68,7 +90,6 @@ public abstract class UserInterface {
 		Scanner userTokenInput = new Scanner(System.in);
 		boolean exit = false;
 		boolean abort = false;
-		ObjectInputStream ois = null;
 		String kundennummer = "";
 		String iban = "";
 				
@@ -79,41 +100,30 @@ public abstract class UserInterface {
 		 * implementieren.
 		 */
 		
-		System.out.println("Lade... bitte warten.");
-
-		try {
-			ois = new ObjectInputStream(new FileInputStream("clientDatabase.dat"));
-			while (true) {
-				try {
-					bank = (Bank) (ois.readObject());
-				} catch (EOFException eof) {
-					break;
-				}
-			}
-			System.out.println("Laden komplett! Herzlich willkommen!");
-		} catch (FileNotFoundException e) {
-
-			System.out.println("Datenbank nicht gefunden. Erzeuge neue leere Datenbank.");
+		if (args.length > 0 && args[0].equals("--batch")) {
+			stapelverarbeitung(args);
+			return;
+		}
+		if (args.length > 0 && args[0].equals("--speicherprofil")) {
+			Speicherprofil.main(args);
+			return;
+		}
+		if (args.length > 0 && args[0].equals("--http")) {
+			httpSchnittstelle(args);
+			return;
+		}
+		if (args.length > 0 && args[0].equals("--lasttest")) {
+			Lasttest.main(args);
+			return;
+		}
+		if (args.length > 0 && args[0].equals("--belastungstest")) {
+			Belastungstest.main(args);
+			return;
+		}
 
-			// TODO Hier knnte man einen schnen Begrungstext hinschreiben,
-			// in der die Bank ihren Namen, und Daten angeben kann. Quasi eine
-			// Erstinitialisierung anstelle von folgender zeile >>
-			bank = new Bank("Geldgeier eV", "GEGEIER1CLV",new Adresse("Hauptstrasse 58", null, 55555, "Kleinhenneborn"));  // erzeugt ein neues Bank-Objekt
+		System.out.println("Lade... bitte warten.");
 
-			
-		} catch (IOException e) {
-			e.printStackTrace();
-		} catch (ClassNotFoundException e) {
-			System.out.println("Klasse nicht gefunden!");
-			e.printStackTrace();
-		} finally {
-			try {
-				ois.close();
-			} catch (IOException e) {
-				e.printStackTrace();
-			} catch (NullPointerException e) {
-			}
-		}
+		bank = ladeBank(System.out);
 
 		
 		
@@ -180,10 +190,7 @@ public abstract class UserInterface {
 
 				System.out.println(bank.addPrivateClient(data[0], data[1], data[2], data[3], data[4],
 						Integer.parseInt(data[5]), data[6], data[7], data[8],
-						new GregorianCalendar(Integer.parseInt(data[9].substring(6, 10)),
-								Integer.parseInt(data[9].substring(3, 5)) - 1,
-								Integer.parseInt(data[9].substring(0, 2)))) ? "Vorgang erfolgreich"
-										: "Fehler bei Vorgang");
+						LocalDate.parse(data[9], DATUMSFORMAT)) ? "Vorgang erfolgreich" : "Fehler bei Vorgang");
 
 				System.out.println("Anzahl an Kunden jetzt " + bank.getKundenZahl());
 				waitForEnter();
@@ -258,9 +265,15 @@ public abstract class UserInterface {
 
 				while (true && !abort) {
 					
-					System.out.print("IBAN des neuen Kontos:\n   > ");
+					System.out.print("IBAN des neuen Kontos (leer lassen fr eine neue IBAN dieser Bank):\n   > ");
 
-					iban = createFormattedIban(userLineInput.next());
+					String eingabe = userLineInput.next().trim();
+					if (eingabe.length() == 0) {
+						iban = bank.newIban();
+						System.out.println("Neue IBAN: " + iban);
+						break;
+					}
+					iban = createFormattedIban(eingabe);
 					if (iban!=null) break;
 					System.err.println("Fehlerhaftes IBAN Format!"); aTinyDelay();
 					
@@ -420,38 +433,20 @@ public abstract class UserInterface {
 					}
 				}
 
-				ObjectOutputStream oos = null;
-				
 				switch (selection) {
 				case 1:
-					try {
-						oos = new ObjectOutputStream(new FileOutputStream("clientDatabase.dat"));
-						oos.writeObject(bank);
-						System.out.println("Eingaben wurden gespeichert.");
-					} catch (IOException e) {
-						e.printStackTrace();
-					} finally {
-						try {
-							oos.close();
-						} catch (IOException e) {
-							e.printStackTrace();
+					speichereBankAsynchron(bank).whenComplete((datei, fehler) -> { // weiterarbeiten, Meldung folgt
+						if (fehler == null) {
+							System.out.println("Eingaben wurden gespeichert.");
+						} else {
+							System.err.println("Speichern fehlgeschlagen: " + AsynchronePersistenz.ursache(fehler));
 						}
-					}
+					});
 					exit = false;
 					break;
 				case 2:
-					try {
-						oos = new ObjectOutputStream(new FileOutputStream("clientDatabase.dat"));
-						oos.writeObject(bank);
+					if (speichereBank(bank)) {
 						System.out.println("Eingaben wurden gespeichert.");
-					} catch (IOException e) {
-						e.printStackTrace();
-					} finally {
-						try {
-							oos.close();
-						} catch (IOException e) {
-							e.printStackTrace();
-						}
 					}
 					exit = true;
 					break;
@@ -486,9 +481,6 @@ public abstract class UserInterface {
 				default:
 					break;
 				}
-				try {
-					oos.close();
-				} catch (Exception e) {	} // soll es einfach nur versuchen und nicht abstrzen falls oos nicht existiert
 				break;
 
 			default:
@@ -498,6 +490,9 @@ public abstract class UserInterface {
 
 		}
 
+		if (!persistenz.abwarten()) { // noch laufende Sicherungen aus dem Men nicht abbrechen
+			System.err.println("Die letzte Sicherung ist fehlgeschlagen.");
+		}
 		System.out.println("Danke fr die Nutzung dieses Systems\nAuf Wiedersehen!");
 
 		userChoiceInput.close();
@@ -506,6 +501,182 @@ public abstract class UserInterface {
 
 	}
 
+	/**
+	 * Ldt die lokale Datenbank clientDatabase.dat. Existiert sie nicht, wird eine neue Standardbank ohne Kunden
+	 * erzeugt. (hier knnte man noch eine Nutzerinteraktion zur Anlage einer neuen Bank implementieren)
+	 * 
+	 * @param meldungen
+	 * 			Ausgabe fr die Statusmeldungen, z.B. System.out oder im Stapelbetrieb System.err
+	 * @return
+	 * 			die geladene oder neu erzeugte Bank, bei einem Lesefehler null
+	 */
+	static Bank ladeBank(PrintStream meldungen) {
+
+		Bank geladen = null;
+		ObjectInputStream ois = null;
+
+		try {
+			ois = new ObjectInputStream(new FileInputStream(DATENBANK));
+			while (true) {
+				try {
+					geladen = (Bank) (ois.readObject());
+				} catch (EOFException eof) {
+					break;
+				}
+			}
+			meldungen.println("Laden komplett! Herzlich willkommen!");
+		} catch (FileNotFoundException e) {
+
+			meldungen.println("Datenbank nicht gefunden. Erzeuge neue leere Datenbank.");
+
+			// TODO Hier knnte man einen schnen Begrungstext hinschreiben,
+			// in der die Bank ihren Namen, und Daten angeben kann. Quasi eine
+			// Erstinitialisierung anstelle von folgender zeile >>
+			geladen = new Bank("Geldgeier eV", "GEGEIER1CLV", STANDARD_BLZ, new Adresse("Hauptstrasse 58", null, 55555, "Kleinhenneborn"));  // erzeugt ein neues Bank-Objekt
+
+		} catch (IOException e) {
+			e.printStackTrace();
+		} catch (ClassNotFoundException e) {
+			meldungen.println("Klasse nicht gefunden!");
+			e.printStackTrace();
+		} finally {
+			try {
+				if (ois != null) {
+					ois.close();
+				}
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+
+		if (geladen != null) {
+			if (geladen.getBlz() == null) {
+				geladen.setBlz(STANDARD_BLZ);
+			}
+			try {
+				geladen.openNumberAllocator(Paths.get(NUMMERNVERGABE)); // vergebene Nummern auch nach Neustart nicht erneut vergeben
+			} catch (IOException e) {
+				meldungen.println("Nummernvergabe konnte nicht geladen werden: " + e.getMessage());
+				return null;
+			}
+		}
+		return geladen;
+	}
+
+	/**
+	 * Speichert die Bank in die lokale Datenbank clientDatabase.dat und wartet, bis sie dauerhaft geschrieben ist
+	 * 
+	 * @param zuSpeichern
+	 * 			die zu speichernde Bank
+	 * @return
+	 * 			true, wenn das Speichern erfolgreich war, sonst false
+	 */
+	static boolean speichereBank(Bank zuSpeichern) {
+		try {
+			speichereBankAsynchron(zuSpeichern).join();
+			return true;
+		} catch (CompletionException e) {
+			AsynchronePersistenz.ursache(e).printStackTrace();
+			return false;
+		}
+	}
+
+	/**
+	 * Speichert die Bank in die lokale Datenbank clientDatabase.dat, ohne auf die Festplatte zu warten. Kehrt
+	 * zurck, sobald die Bank serialisiert ist, danach darf sie wieder verndert werden. Geschrieben wird im
+	 * Hintergrund ber eine temporre Datei, siehe AsynchronePersistenz.
+	 * 
+	 * @param zuSpeichern
+	 * 			die zu speichernde Bank
+	 * @return
+	 * 			wird erfllt, wenn die Datenbank dauerhaft geschrieben ist, oder mit dem Fehler abgebrochen
+	 */
+	static CompletableFuture<Path> speichereBankAsynchron(Bank zuSpeichern) {
+		return persistenz.speichern(zuSpeichern, Paths.get(DATENBANK));
+	}
+
+	/*
+	 * Stapelbetrieb: java kontoverwaltung.UserInterface --batch <datei|->
+	 * Liest Befehle aus einer Datei oder von der Standardeingabe (-) und fhrt sie ohne Rckfragen aus.
+	 * Die Ergebnisse gehen auf System.out, Statusmeldungen auf System.err. Format siehe Stapelverarbeitung.
+	 */
+	private static void stapelverarbeitung(String[] args) {
+
+		if (args.length < 2) {
+			System.err.println("Aufruf: --batch <Befehlsdatei | - fr Standardeingabe>");
+			System.exit(2);
+		}
+
+		bank = ladeBank(System.err);
+		if (bank == null) {
+			System.exit(1);
+		}
+
+		Stapelverarbeitung stapel = new Stapelverarbeitung(bank);
+		try {
+			Reader eingabe = args[1].equals("-") ? new InputStreamReader(System.in, StandardCharsets.UTF_8)
+					: Files.newBufferedReader(Paths.get(args[1]), StandardCharsets.UTF_8);
+			try (BufferedReader befehle = new BufferedReader(eingabe)) {
+				Writer ausgabe = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16);
+				stapel.ausfuehren(befehle, ausgabe);
+				ausgabe.flush();
+			}
+		} catch (IOException e) {
+			System.err.println("Befehlsdatei konnte nicht gelesen werden: " + e.getMessage());
+			System.exit(1);
+		}
+		System.exit(stapel.getFehler() == 0 ? 0 : 1);
+	}
+
+	/**
+	 * Startet die HTTP-Schnittstelle fr die gespeicherte Bank. Das Programm luft, bis es beendet wird (z.B. mit
+	 * Strg+C), dann wird die Bank gespeichert.
+	 * @param args
+	 * 			--http [--port=N] [--adresse=A], ohne Adresse nur ber localhost erreichbar
+	 */
+	private static void httpSchnittstelle(String[] args) {
+
+		int port = HttpSchnittstelle.STANDARD_PORT;
+		InetAddress adresse = InetAddress.getLoopbackAddress();
+		for (int i = 1; i < args.length; i++) {
+			if (args[i].startsWith("--port=")) {
+				port = Integer.parseInt(args[i].substring("--port=".length()));
+			} else if (args[i].startsWith("--adresse=")) {
+				try {
+					adresse = InetAddress.getByName(args[i].substring("--adresse=".length()));
+				} catch (UnknownHostException e) {
+					System.err.println("Unbekannte Adresse: " + e.getMessage());
+					System.exit(2);
+				}
+			} else {
+				System.err.println("Aufruf: --http [--port=N] [--adresse=A]");
+				System.exit(2);
+			}
+		}
+
+		bank = ladeBank(System.err);
+		if (bank == null) {
+			System.exit(1);
+		}
+
+		HttpSchnittstelle schnittstelle;
+		try {
+			HttpSchnittstelle.nodelayVorgeben();
+			schnittstelle = new HttpSchnittstelle(bank, adresse, port);
+		} catch (IOException e) {
+			System.err.println("Port " + port + " konnte nicht belegt werden: " + e.getMessage());
+			System.exit(1);
+			return;
+		}
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			schnittstelle.beenden();
+			speichereBank(bank);
+		}));
+		schnittstelle.starten();
+		System.out.println("HTTP-Schnittstelle luft auf " + adresse.getHostAddress() + ":" + schnittstelle.getPort()
+				+ ", beenden mit Strg+C");
+	}
+
 	/**
 	 * Nutzerabfrage zum Detailgrad der Konsolenausgabe
 	 * @return
@@ -584,7 +755,7 @@ public abstract class UserInterface {
 
 		}
 
-		sammelArray[0] = Integer.toString(bank.getKundenZahl() + 100000000); // generiert eine Mindestens 9-stellige Kundennummer
+		sammelArray[0] = bank.newClientNumber(); // vergibt eine neue, mindestens 9-stellige Kundennummer
 
 		for (int i = 0; i < 5; i++) {
 
@@ -758,21 +929,21 @@ public abstract class UserInterface {
 		while (true) {
 			System.out.print("Geburtstag (DD.MM.YYYY):   > ");
 
-			StringBuilder tmp = new StringBuilder(pcDataScanner.next().trim());
+			String eingabe = pcDataScanner.next().trim();
 
-			Matcher m = VALID_DATE.matcher(tmp);
-
-			if (!m.find()) {
-				System.err.println("Ungltiges Format! \"" + tmp + "\""); aTinyDelay();
+			if (!VALID_DATE.matcher(eingabe).find()) {
+				System.err.println("Ungltiges Format! \"" + eingabe + "\""); aTinyDelay();
 				continue; // nur den switch
 			}
 
-			if (tmp.charAt(1) == '.')
-				tmp.insert(0, '0');
-			if (tmp.charAt(4) == '.')
-				tmp.insert(3, '0');
+			String datum = createFormattedDate(eingabe);
+
+			if (datum == null) {
+				System.err.println("Ungltiges Datum! \"" + eingabe + "\""); aTinyDelay();
+				continue;
+			}
 
-			sammelArray[9] = tmp.toString(); // umwandlung in kalenderobjekt folgt oben
+			sammelArray[9] = datum; // umwandlung in LocalDate folgt oben
 			return sammelArray;
 
 		}
@@ -848,31 +1019,71 @@ public abstract class UserInterface {
 
 			System.out.print("Telefonnummer:\t\t   > "); 
 			
-			StringBuilder sb = new StringBuilder(phoneScanner.next().replaceAll("[\\s/]", "").replace("+", "00"));
-
-			Matcher m = VALID_PHONE_NR.matcher(sb);
+			String eingabe = phoneScanner.next();
+			String telefonnummer = createFormattedPhoneNumber(eingabe);
 
-			if (!m.find()) {
-				System.err.println("Ungltige Telefonnummer! \"" + sb + "\""); aTinyDelay();
+			if (telefonnummer == null) {
+				System.err.println("Ungltige Telefonnummer! \"" + eingabe.replaceAll("[\\s/]", "").replace("+", "00") + "\""); aTinyDelay();
 			} else {
-
-				if (Pattern.compile("^0[1-9]\\d{5,}$").matcher(sb).find()) {
-					sb.insert(5, ' ');
-				} else if (Pattern.compile("^00[1-9]{3}\\d{5,}$").matcher(sb).find()) {
-					sb.insert(8, ' ');
-					sb.insert(4, ' ');
-				} else {
-					assert false : "unexpected phone number format";
-				}
-				return sb.toString().trim();
+				return telefonnummer;
 			}
 		}
 	}
+
+	/*
+	 * Ausgelagerte Methode, um eine eingegebene Telefonnummer zu prfen und einheitlich zu formatieren
+	 * (z.B. 02211 2345 oder 0049 2211 2345). Gibt null zurck, wenn die Eingabe keine gltige Telefonnummer ist.
+	 */
+	static String createFormattedPhoneNumber(String input) {
+
+		StringBuilder sb = new StringBuilder(input.replaceAll("[\\s/]", "").replace("+", "00"));
+
+		Matcher m = VALID_PHONE_NR.matcher(sb);
+
+		if (!m.find()) {
+			return null;
+		}
+
+		if (Pattern.compile("^0[1-9]\\d{5,}$").matcher(sb).find()) {
+			sb.insert(5, ' ');
+		} else if (Pattern.compile("^00[1-9]{3}\\d{5,}$").matcher(sb).find()) {
+			sb.insert(8, ' ');
+			sb.insert(4, ' ');
+		} else {
+			assert false : "unexpected phone number format";
+		}
+		return sb.toString().trim();
+	}
+
+	/*
+	 * Ausgelagerte Methode, um ein eingegebenes Datum (z.B. 1.2.1980) zu prfen und in die Form TT.MM.JJJJ zu bringen.
+	 * Gibt null zurck, wenn die Eingabe kein gltiges Datum ist, z.B. der 31.02.
+	 */
+	static String createFormattedDate(String input) {
+
+		StringBuilder tmp = new StringBuilder(input.trim());
+
+		if (!VALID_DATE.matcher(tmp).find()) {
+			return null;
+		}
+
+		if (tmp.charAt(1) == '.')
+			tmp.insert(0, '0');
+		if (tmp.charAt(4) == '.')
+			tmp.insert(3, '0');
+
+		try {
+			LocalDate.parse(tmp, DATUMSFORMAT); // prft, ob es den Tag wirklich gibt, z.B. kein 31.02.
+		} catch (DateTimeException e) {
+			return null;
+		}
+		return tmp.toString();
+	}
 	
 	/*
 	 * Ausgelagerte Methode, um eine Eingegebene IBAN zu prfen, und in DIN 5008  zu formatieren
 	 */
-	private static String createFormattedIban(String input){
+	static String createFormattedIban(String input){
 		
 		StringBuilder ibantmp = new StringBuilder(input.trim().replace(" ", "").toUpperCase());
 		
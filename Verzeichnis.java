@@ -0,0 +1,92 @@
+package kontoverwaltung;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ *
+ * Index ber die IBANs und die Reihenfolge der Kundennummern einer Bank. Damit kosten die Suche nach einem Konto
+ * und die Prfung, ob eine IBAN schon vergeben ist, nur noch einen Zugriff auf eine Hash-Map statt eines
+ * Durchlaufs ber alle Kunden und Konten. Kunden werden direkt im Kundenbestand der Bank nach Kundennummer gesucht.
+ *
+ * Fr das seitenweise Auflisten der Kunden nach Kundennummer (z.B. ber die HttpSchnittstelle) stehen die Kunden
+ * zustzlich sortiert in einem Seitenindex, der pro Kunde nur eine Referenz kostet. Eine Seite kostet damit eine
+ * binre Suche nach der Startposition und das Lesen der Seite, unabhngig von der Anzahl der Kunden.
+ *
+ * Der Index wird ber die Benachrichtigungen der Bank (siehe BankBeobachter) aktuell gehalten.
+ *
+ * @author aschwegmann
+ * @version 1.0
+ *
+ * @see Bank
+ * @see Kundenbestand
+ */
+class Verzeichnis implements BankBeobachter {
+
+	private final Map<String, Konto> konten = new ConcurrentHashMap<String, Konto>();
+	private final Seitenindex<Kunde> sortiert = new Seitenindex<Kunde>(Kunde::getKundennummer);
+
+	@Override
+	public void kundeAngelegt(Kunde kunde) {
+		sortiert.einfuegen(kunde);
+	}
+
+	@Override
+	public void kontoAngelegt(Kunde kunde, Konto konto) {
+		konten.put(konto.getIban(), konto);
+	}
+
+	@Override
+	public void kontoEntfernt(Kunde kunde, Konto konto) {
+		konten.remove(konto.getIban(), konto);
+	}
+
+	/**
+	 * Gibt die Kunden nach einer Kundennummer in aufsteigender Reihenfolge zurck
+	 * @param nachKundennummer
+	 * 			die Liste beginnt mit dem ersten Kunden nach dieser Kundennummer, null fr den Anfang
+	 * @param anzahl
+	 * 			hchstens so viele Kunden
+	 * @return
+	 * 			die Kunden, aufsteigend nach Kundennummer (wie Kunde.compareTo)
+	 */
+	List<Kunde> getKundenNach(String nachKundennummer, int anzahl) {
+		return sortiert.nach(nachKundennummer, anzahl);
+	}
+
+	/**
+	 * Sucht das Konto mit der bergebenen IBAN
+	 * @param iban
+	 * 			die IBAN in der gespeicherten Schreibweise (DIN 5008)
+	 * @return
+	 * 			das Konto oder null, wenn die IBAN nicht vergeben ist
+	 */
+	Konto getKonto(String iban) {
+		return konten.get(iban);
+	}
+
+	/**
+	 * Wandelt eine Kundennummer in den long-Schlssel des Kundenbestands um. Nummern mit fhrender Null werden nicht
+	 * umgewandelt, da sonst z.B. 0123456789 und 123456789 denselben Schlssel htten.
+	 * @param kundennummer
+	 * 			die Kundennummer
+	 * @return
+	 * 			der Schlssel oder -1, wenn die Kundennummer nicht verlustfrei als long darstellbar ist
+	 */
+	static long schluessel(String kundennummer) {
+		int laenge = kundennummer.length();
+		if (laenge == 0 || laenge > 18 || (laenge > 1 && kundennummer.charAt(0) == '0')) {
+			return -1;
+		}
+		long wert = 0;
+		for (int i = 0; i < laenge; i++) {
+			char c = kundennummer.charAt(i);
+			if (c < '0' || c > '9') {
+				return -1;
+			}
+			wert = wert * 10 + (c - '0');
+		}
+		return wert;
+	}
+}
@@ -0,0 +1,433 @@
+package kontoverwaltung;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ *
+ * Invertierter Index ber die Namen (Vor- und Nachname bzw. Firmenname), E-Mail-Adressen und Adresszeilen der
+ * Kunden einer Bank. Damit lassen sich Kunden ber Bruchstcke finden, z.B. ber ein Wort der Strae, die Domain
+ * der E-Mail-Adresse oder ein Wort des Firmennamens.
+ *
+ * Die Texte werden normalisiert (siehe Normalisierer) und an allen Zeichen ausser Buchstaben und Ziffern in
+ * Begriffe zerlegt, aus "mueller@firma-gmbh.de" werden also "mueller", "firma", "gmbh" und "de". Jeder Kunde
+ * erhlt beim Eintragen eine fortlaufende Dokumentnummer. Pro Begriff fhrt der Index die Liste der Dokumente, in
+ * denen er vorkommt. Da neue Dokumente immer die hchste Nummer haben, wird nur am Ende angehngt, und die Liste
+ * kann kompakt gespeichert werden: Statt der Nummer steht der Abstand zur vorherigen Nummer als variabel langer
+ * Wert (7 Bit pro Byte) im Byte-Array, dahinter ein Byte mit den Feldern, in denen der Begriff vorkam. Bei
+ * fortlaufend angelegten Kunden belegt ein Eintrag so meist zwei Byte statt eines Objekts.
+ *
+ * ndern sich Adresse oder Stammdaten (Name, E-Mail-Adresse) eines Kunden, erhlt er eine neue Dokumentnummer
+ * und wird neu eingetragen. Die alte Nummer bleibt zunchst in den Listen stehen und wird beim Lesen
+ * bersprungen. Gibt es mehr berholte als gltige Nummern, wird der Index verdichtet: Die berholten Nummern
+ * werden aus allen Listen entfernt und die gltigen lckenlos neu vergeben. Das kostet einen Durchlauf ber alle
+ * Listen, verteilt auf mindestens so viele nderungen, wie es Kunden gibt.
+ *
+ * Die Treffer werden nach Relevanz sortiert: Jeder gefundene Begriff zhlt mit seiner inversen
+ * Dokumenthufigkeit (seltene Begriffe zhlen mehr), gewichtet nach dem Feld, in dem er vorkam (Name vor E-Mail
+ * vor Adresse).
+ *
+ * Alle Methoden sind synchronisiert.
+ *
+ * @author aschwegmann
+ * @version 1.0
+ *
+ * @see Bank#searchClients(String, boolean)
+ */
+class Volltextindex implements BankBeobachter {
+
+	private final static int NAME = 1;
+	private final static int EMAIL = 2;
+	private final static int ADRESSE = 4;
+
+	private final TreeMap<String, Postings> begriffe = new TreeMap<String, Postings>();	// sortiert fr Prfixsuche
+	private final Map<Kunde, Integer> nummern = new HashMap<Kunde, Integer>();
+	private Kunde[] dokumente = new Kunde[16];	// null fr berholte Nummern
+	private int anzahlDokumente;
+	private int ueberholt;	// Nummern, die auf null stehen
+
+	/*
+	 * Die Liste der Dokumente zu einem Begriff: pro Dokument der Abstand zur vorherigen Nummer als variabel langer
+	 * Wert und ein Byte mit den Feldern
+	 */
+	private static final class Postings {
+
+		private byte[] daten = new byte[4];
+		private int laenge;
+		private int letzte = -1;
+		private int anzahl;
+
+		private void anhaengen(int dokument, int feld) {
+			if (dokument == letzte) { // Begriff kommt im selben Dokument mehrfach vor
+				daten[laenge - 1] |= feld;
+				return;
+			}
+			if (laenge + 6 > daten.length) {
+				daten = Arrays.copyOf(daten, daten.length * 2);
+			}
+			int abstand = dokument - letzte;
+			while (abstand >= 0x80) {
+				daten[laenge++] = (byte) (abstand | 0x80);
+				abstand >>>= 7;
+			}
+			daten[laenge++] = (byte) abstand;
+			daten[laenge++] = (byte) feld;
+			letzte = dokument;
+			anzahl++;
+		}
+	}
+
+	/*
+	 * Die Treffer eines Begriffs oder einer Verknpfung: aufsteigende Dokumentnummern mit ihrer Punktzahl
+	 */
+	private static final class Treffer {
+
+		private final int[] dokumente;
+		private final double[] punkte;
+		private final int anzahl;
+
+		private Treffer(int[] dokumente, double[] punkte, int anzahl) {
+			this.dokumente = dokumente;
+			this.punkte = punkte;
+			this.anzahl = anzahl;
+		}
+	}
+
+	@Override
+	public synchronized void kundeAngelegt(Kunde kunde) {
+		eintragen(kunde, kunde.getAdresse());
+	}
+
+	@Override
+	public synchronized void kundenAngelegt(Kunde[] kunden) {
+		for (Kunde kunde : kunden) {
+			eintragen(kunde, kunde.getAdresse());
+		}
+	}
+
+	@Override
+	public synchronized void adresseGeaendert(Kunde kunde, Adresse alt, Adresse neu) {
+		neuEintragen(kunde, neu);
+	}
+
+	@Override
+	public synchronized void stammdatenGeaendert(Kunde kunde) {
+		neuEintragen(kunde, kunde.getAdresse());
+	}
+
+	/*
+	 * Gibt die bisherige Nummer des Kunden auf und trgt ihn unter einer neuen ein
+	 */
+	private void neuEintragen(Kunde kunde, Adresse adresse) {
+		Integer bisher = nummern.get(kunde);
+		if (bisher != null) {
+			dokumente[bisher] = null;
+			if (++ueberholt > nummern.size()) {
+				verdichten();
+			}
+		}
+		eintragen(kunde, adresse);
+	}
+
+	/*
+	 * Entfernt die berholten Nummern aus allen Listen und vergibt die gltigen in derselben Reihenfolge
+	 * lckenlos neu. Begriffe, die nur in berholten Dokumenten vorkamen, fallen weg.
+	 */
+	private void verdichten() {
+		int[] neu = new int[anzahlDokumente];
+		Kunde[] verdichtet = new Kunde[Math.max(16, (anzahlDokumente - ueberholt) * 2)];
+		int n = 0;
+		nummern.clear();
+		for (int i = 0; i < anzahlDokumente; i++) {
+			if (dokumente[i] == null) {
+				neu[i] = -1;
+			} else {
+				neu[i] = n;
+				verdichtet[n] = dokumente[i];
+				nummern.put(dokumente[i], n++);
+			}
+		}
+		Iterator<Map.Entry<String, Postings>> it = begriffe.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<String, Postings> eintrag = it.next();
+			Postings postings = eintrag.getValue();
+			Postings ersatz = new Postings();
+			int dokument = -1;
+			int pos = 0;
+			while (pos < postings.laenge) {
+				int abstand = 0;
+				int verschiebung = 0;
+				byte b;
+				do {
+					b = postings.daten[pos++];
+					abstand |= (b & 0x7F) << verschiebung;
+					verschiebung += 7;
+				} while (b < 0);
+				dokument += abstand;
+				byte feld = postings.daten[pos++];
+				if (neu[dokument] >= 0) {
+					ersatz.anhaengen(neu[dokument], feld);
+				}
+			}
+			if (ersatz.anzahl == 0) {
+				it.remove();
+			} else {
+				eintrag.setValue(ersatz);
+			}
+		}
+		dokumente = verdichtet;
+		anzahlDokumente = n;
+		ueberholt = 0;
+	}
+
+	private void eintragen(Kunde kunde, Adresse adresse) {
+		if (anzahlDokumente == dokumente.length) {
+			dokumente = Arrays.copyOf(dokumente, anzahlDokumente * 2);
+		}
+		int dokument = anzahlDokumente++;
+		dokumente[dokument] = kunde;
+		nummern.put(kunde, dokument);
+		if (kunde instanceof Privatkunde) {
+			Privatkunde pk = (Privatkunde) kunde;
+			text(pk.getVorname(), dokument, NAME);
+			text(pk.getNachname(), dokument, NAME);
+		} else if (kunde instanceof Firmenkunde) {
+			text(((Firmenkunde) kunde).getFirmenname(), dokument, NAME);
+		}
+		text(kunde.getEmail(), dokument, EMAIL);
+		if (adresse != null) {
+			text(adresse.getAdresszeile1(), dokument, ADRESSE);
+			text(adresse.getAdresszeile2(), dokument, ADRESSE);
+			text(String.valueOf(adresse.getPlz()), dokument, ADRESSE);
+			text(adresse.getOrt(), dokument, ADRESSE);
+		}
+	}
+
+	private void text(String text, int dokument, int feld) {
+		for (String begriff : zerlegen(text)) {
+			Postings postings = begriffe.get(begriff);
+			if (postings == null) {
+				postings = new Postings();
+				begriffe.put(begriff, postings);
+			}
+			postings.anhaengen(dokument, feld);
+		}
+	}
+
+	/**
+	 * Zerlegt einen Text in normalisierte Begriffe aus Buchstaben und Ziffern
+	 * @param text
+	 * 			der Text, darf null sein
+	 * @return
+	 * 			die Begriffe in der Reihenfolge des Textes
+	 */
+	static List<String> zerlegen(String text) {
+		List<String> ergebnis = new ArrayList<String>();
+		String normalisiert = Normalisierer.normalisiere(text);
+		int anfang = -1;
+		for (int i = 0; i <= normalisiert.length(); i++) {
+			boolean teil = i < normalisiert.length() && Character.isLetterOrDigit(normalisiert.charAt(i));
+			if (teil && anfang < 0) {
+				anfang = i;
+			} else if (!teil && anfang >= 0) {
+				ergebnis.add(normalisiert.substring(anfang, i));
+				anfang = -1;
+			}
+		}
+		return ergebnis;
+	}
+
+	/**
+	 * Sucht Kunden ber die Begriffe des Suchtextes. Ein Begriff, der mit * endet, findet alle Begriffe mit
+	 * diesem Anfang, z.B. "haupt*" findet "Hauptstrae". Ein Begriff mit Satzzeichen wie "firma-gmbh.de" findet
+	 * nur Kunden, bei denen alle seine Teile vorkommen.
+	 * @param suchtext
+	 * 			die Begriffe, durch Leerzeichen oder Satzzeichen getrennt
+	 * @param alleBegriffe
+	 * 			true: nur Kunden, bei denen alle Begriffe vorkommen (UND), false: mindestens einer (ODER)
+	 * @return
+	 * 			Liste der Kunden, die relevantesten zuerst
+	 */
+	synchronized List<Kunde> suchen(String suchtext, boolean alleBegriffe) {
+		List<Treffer> liste = new ArrayList<Treffer>();
+		for (String teil : suchtext.trim().split("\\s+")) {
+			boolean praefix = teil.endsWith("*");
+			List<String> teile = zerlegen(teil);
+			if (teile.isEmpty()) {
+				continue;
+			}
+			Treffer treffer = begriff(teile.get(0), praefix && teile.size() == 1);
+			for (int i = 1; i < teile.size(); i++) { // "firma-gmbh.de" verlangt immer alle Teile
+				treffer = verknuepfen(treffer, begriff(teile.get(i), praefix && i == teile.size() - 1), true);
+			}
+			if (treffer.anzahl == 0 && alleBegriffe) {
+				return new ArrayList<Kunde>();
+			}
+			liste.add(treffer);
+		}
+		if (liste.isEmpty()) {
+			return new ArrayList<Kunde>();
+		}
+		if (alleBegriffe) { // mit den krzesten Listen anfangen, dann bleibt das Zwischenergebnis klein
+			liste.sort((a, b) -> Integer.compare(a.anzahl, b.anzahl));
+		}
+		Treffer ergebnis = liste.get(0);
+		for (int i = 1; i < liste.size(); i++) {
+			ergebnis = verknuepfen(ergebnis, liste.get(i), alleBegriffe);
+		}
+		Integer[] reihenfolge = new Integer[ergebnis.anzahl];
+		for (int i = 0; i < reihenfolge.length; i++) {
+			reihenfolge[i] = i;
+		}
+		Treffer e = ergebnis;
+		Arrays.sort(reihenfolge, (a, b) -> {
+			int vergleich = Double.compare(e.punkte[b], e.punkte[a]);
+			return (vergleich != 0) ? vergleich : dokumente[e.dokumente[a]].compareTo(dokumente[e.dokumente[b]]);
+		});
+		List<Kunde> kunden = new ArrayList<Kunde>(reihenfolge.length);
+		for (int i : reihenfolge) {
+			kunden.add(dokumente[ergebnis.dokumente[i]]);
+		}
+		return kunden;
+	}
+
+	/*
+	 * Liest die Liste eines Begriffs (bzw. aller Begriffe mit diesem Anfang) und bewertet jedes gltige Dokument
+	 */
+	private Treffer begriff(String begriff, boolean praefix) {
+		List<Postings> listen = new ArrayList<Postings>();
+		if (praefix) {
+			listen.addAll(begriffe.subMap(begriff, begriff + Character.MAX_VALUE).values());
+		} else if (begriffe.containsKey(begriff)) {
+			listen.add(begriffe.get(begriff));
+		}
+		int gesamt = 0;
+		for (Postings postings : listen) {
+			gesamt += postings.anzahl;
+		}
+		int[] gefunden = new int[gesamt];
+		byte[] felder = new byte[gesamt];
+		int n = 0;
+		for (Postings postings : listen) {
+			int dokument = -1;
+			int pos = 0;
+			while (pos < postings.laenge) {
+				int abstand = 0;
+				int verschiebung = 0;
+				byte b;
+				do {
+					b = postings.daten[pos++];
+					abstand |= (b & 0x7F) << verschiebung;
+					verschiebung += 7;
+				} while (b < 0);
+				dokument += abstand;
+				byte feld = postings.daten[pos++];
+				if (dokumente[dokument] != null) {
+					gefunden[n] = dokument;
+					felder[n++] = feld;
+				}
+			}
+		}
+		if (listen.size() > 1) { // mehrere Begriffe: sortieren und gleiche Dokumente zusammenfassen
+			long[] paare = new long[n];
+			for (int i = 0; i < n; i++) {
+				paare[i] = ((long) gefunden[i] << 8) | (felder[i] & 0xFF);
+			}
+			Arrays.sort(paare);
+			int m = 0;
+			for (int i = 0; i < n; i++) {
+				int dokument = (int) (paare[i] >>> 8);
+				if (m > 0 && gefunden[m - 1] == dokument) {
+					felder[m - 1] |= (byte) paare[i];
+				} else {
+					gefunden[m] = dokument;
+					felder[m++] = (byte) paare[i];
+				}
+			}
+			n = m;
+		}
+		double idf = Math.log(1.0 + (double) nummern.size() / Math.max(n, 1));
+		double[] punkte = new double[n];
+		for (int i = 0; i < n; i++) {
+			punkte[i] = idf * gewicht(felder[i]);
+		}
+		return new Treffer(gefunden, punkte, n);
+	}
+
+	private static int gewicht(int felder) {
+		if ((felder & NAME) != 0) {
+			return 3;
+		}
+		return ((felder & EMAIL) != 0) ? 2 : 1;
+	}
+
+	/*
+	 * Verknpft zwei Trefferlisten im Reiverschlussverfahren, die Punkte gemeinsamer Dokumente werden addiert
+	 */
+	private static Treffer verknuepfen(Treffer a, Treffer b, boolean und) {
+		int groesse = und ? Math.min(a.anzahl, b.anzahl) : a.anzahl + b.anzahl;
+		int[] dokumente = new int[groesse];
+		double[] punkte = new double[groesse];
+		int i = 0;
+		int j = 0;
+		int n = 0;
+		while (i < a.anzahl && j < b.anzahl) {
+			int da = a.dokumente[i];
+			int db = b.dokumente[j];
+			if (da == db) {
+				dokumente[n] = da;
+				punkte[n++] = a.punkte[i++] + b.punkte[j++];
+			} else if (da < db) {
+				if (!und) {
+					dokumente[n] = da;
+					punkte[n++] = a.punkte[i];
+				}
+				i++;
+			} else {
+				if (!und) {
+					dokumente[n] = db;
+					punkte[n++] = b.punkte[j];
+				}
+				j++;
+			}
+		}
+		if (!und) {
+			for (; i < a.anzahl; i++, n++) {
+				dokumente[n] = a.dokumente[i];
+				punkte[n] = a.punkte[i];
+			}
+			for (; j < b.anzahl; j++, n++) {
+				dokumente[n] = b.dokumente[j];
+				punkte[n] = b.punkte[j];
+			}
+		}
+		return new Treffer(dokumente, punkte, n);
+	}
+
+	/**
+	 * Gibt die Anzahl der verschiedenen Begriffe zurck
+	 * @return
+	 * 			Anzahl der Begriffe
+	 */
+	synchronized int getAnzahlBegriffe() {
+		return begriffe.size();
+	}
+
+	/**
+	 * Gibt die Gre aller Dokumentlisten zusammen zurck, ohne die Verwaltung der Arrays
+	 * @return
+	 * 			belegte Bytes in den Listen
+	 */
+	synchronized long getListenBytes() {
+		long summe = 0;
+		for (Postings postings : begriffe.values()) {
+			summe += postings.laenge;
+		}
+		return summe;
+	}
+}